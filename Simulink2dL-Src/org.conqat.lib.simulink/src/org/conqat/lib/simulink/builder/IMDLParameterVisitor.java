@@ -0,0 +1,39 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.builder;
+
+/**
+ * Visitor for the parameters of an {@link MDLSection} and its sub sections. See
+ * {@link MDLSection#acceptParameterVisitor(IMDLParameterVisitor)}.
+ */
+public interface IMDLParameterVisitor {
+
+	/**
+	 * Called for each parameter of the visited section and its sub sections.
+	 * 
+	 * @param prefix
+	 *            the qualified name of the sub section the parameter belongs to,
+	 *            including the trailing dot, e.g. <code>src.</code>. This is the
+	 *            empty string for parameters of the visited section itself.
+	 *            Prefixes are interned.
+	 * @param name
+	 *            the name of the parameter.
+	 * @param value
+	 *            the value of the parameter.
+	 */
+	void visitParameter(String prefix, String name, String value);
+}
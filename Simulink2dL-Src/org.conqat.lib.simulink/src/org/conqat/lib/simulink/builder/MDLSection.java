@@ -43,6 +43,13 @@ import org.conqat.lib.commons.string.StringUtils;
 	/** Parameter map. */
 	private final Map<String, String> parameters = new MemoryEfficientStringMap<>();
 
+	/**
+	 * The prefix used for the parameters of this section when visited as a sub
+	 * section, i.e. the interned section name followed by a dot. This is
+	 * computed lazily.
+	 */
+	private String parameterPrefix;
+
 	/** Maps from section name to a list of sections. */
 	private final ListMap<String, MDLSection> subSections = new ListMap<String, MDLSection>() {
 
@@ -162,11 +169,27 @@ import org.conqat.lib.commons.string.StringUtils;
 	 * <code>&lt;section name&gt;.&lt;parameter name&gt;</code>.
 	 */
 	public Map<String, String> getParameterMapRecursively() {
-		Map<String, String> map = new HashMap<String, String>();
-		buildParameterMap(map, StringUtils.EMPTY_STRING);
+		final Map<String, String> map = new HashMap<String, String>();
+		acceptParameterVisitor(new IMDLParameterVisitor() {
+			@Override
+			public void visitParameter(String prefix, String name, String value) {
+				map.put(prefix + name, value);
+			}
+		});
 		return map;
 	}
 
+	/**
+	 * Reports all parameters of this section plus parameters of subsections to
+	 * the given visitor. The parameters are reported with the same names as in
+	 * {@link #getParameterMapRecursively()}, but split into the prefix of the
+	 * section and the parameter name. This avoids building an intermediate map
+	 * and concatenating names for parameters of this section.
+	 */
+	public void acceptParameterVisitor(IMDLParameterVisitor visitor) {
+		acceptParameterVisitor(visitor, StringUtils.EMPTY_STRING);
+	}
+
 	/** Get names of all parameters. */
 	public UnmodifiableSet<String> getParameterNames() {
 		return CollectionUtils.asUnmodifiable(parameters.keySet());
@@ -202,26 +225,33 @@ import org.conqat.lib.commons.string.StringUtils;
 	}
 
 	/**
-	 * Build parameter map.
+	 * Reports the parameters of this section and its sub sections to the visitor.
 	 * 
 	 * @param prefix
-	 *            prefix that is added to the names of the parameters in the map.
-	 *            This is used during recursion to also include the fully qualified
-	 *            name of the section in the parameter names.
+	 *            the interned prefix that is reported for the parameters of this
+	 *            section. This is used during recursion to also include the fully
+	 *            qualified name of the section in the parameter names.
 	 */
-	private void buildParameterMap(Map<String, String> map, String prefix) {
-
-		if (!StringUtils.isEmpty(prefix)) {
-			prefix += ".";
+	private void acceptParameterVisitor(IMDLParameterVisitor visitor, String prefix) {
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			visitor.visitParameter(prefix, parameter.getKey(), parameter.getValue());
 		}
 
-		for (String name : parameters.keySet()) {
-			map.put(prefix + name, parameters.get(name));
+		for (MDLSection subSection : subSections.getValues()) {
+			String subSectionPrefix = subSection.getParameterPrefix();
+			if (!prefix.isEmpty()) {
+				subSectionPrefix = (prefix + subSectionPrefix).intern();
+			}
+			subSection.acceptParameterVisitor(visitor, subSectionPrefix);
 		}
+	}
 
-		for (MDLSection subSection : getSubSections()) {
-			subSection.buildParameterMap(map, prefix + subSection.getName());
+	/** @see #parameterPrefix */
+	private String getParameterPrefix() {
+		if (parameterPrefix == null) {
+			parameterPrefix = (getName() + ".").intern();
 		}
+		return parameterPrefix;
 	}
 
 	/** Collect the leaves of a section. */
@@ -51,6 +51,17 @@ public class ModelBuildingParameters {
 	 */
 	private boolean guessMdlEncoding = true;
 
+	/**
+	 * If this is true, the sub blocks, lines and annotations of subsystems are
+	 * only built when they are accessed for the first time (see
+	 * {@link org.conqat.lib.simulink.model.SimulinkBlock#setSubBlockLoader}).
+	 * For slx files that store subsystems in separate files, these files are
+	 * also parsed only then, including the 'System.' parameters of the subsystem
+	 * block that are read from these files. This speeds up opening large models
+	 * if only a part of the hierarchy is used.
+	 */
+	private boolean lazySubsystemLoading = false;
+
 	/** The logger to be used during model construction. */
 	private ILogger logger = new SimpleLogger();
 
@@ -79,6 +90,7 @@ public class ModelBuildingParameters {
 	 * <li>Preserve unconnected lines: false</li>
 	 * <li>Charset: platform default</li>
 	 * <li>Guess MDL encoding: true</li>
+	 * <li>Lazy subsystem loading: false</li>
 	 * <li>Logger: SimpleLogger (console)</li>
 	 * <li>Reference lookup directories: JVM working directory.</li>
 	 * </ul>
@@ -164,6 +176,20 @@ public class ModelBuildingParameters {
 		return this;
 	}
 
+	/** @see #lazySubsystemLoading */
+	public boolean isLazySubsystemLoading() {
+		return lazySubsystemLoading;
+	}
+
+	/**
+	 * Sets {@link #lazySubsystemLoading}. Returns <code>this</code> to allow
+	 * chaining.
+	 */
+	public ModelBuildingParameters setLazySubsystemLoading(boolean lazySubsystemLoading) {
+		this.lazySubsystemLoading = lazySubsystemLoading;
+		return this;
+	}
+
 	/** @see #parentBlockId */
 	public String getParentBlockId() {
 		return parentBlockId;
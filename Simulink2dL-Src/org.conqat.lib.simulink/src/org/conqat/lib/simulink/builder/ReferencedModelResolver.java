@@ -0,0 +1,279 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.conqat.lib.commons.digest.Digester;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.logging.ILogger;
+import org.conqat.lib.commons.logging.SimpleLogger;
+import org.conqat.lib.simulink.model.ReferencedBlockInfo;
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkModel;
+
+/**
+ * Loads the models referenced by model reference blocks and library links (see
+ * {@link SimulinkBlock#getReferencedBlockInfo()}).
+ * <p>
+ * Loaded models are kept in a size-bounded cache that is keyed by the
+ * canonical path and the content hash of the model file. A library that is
+ * referenced from many models is hence only parsed once, and a changed file is
+ * parsed again. Concurrent requests for the same file wait for a single load.
+ * <p>
+ * The same model instances are returned to all callers, also in different
+ * threads, so they must not be modified. Callers that need to modify a
+ * referenced model or block have to work on a deep clone.
+ */
+public class ReferencedModelResolver {
+
+	/** The default maximal number of cached models. */
+	public static final int DEFAULT_CACHE_SIZE = 32;
+
+	/** The process-wide instance. */
+	private static final ReferencedModelResolver INSTANCE = new ReferencedModelResolver(DEFAULT_CACHE_SIZE,
+			new SimpleLogger());
+
+	/** The maximal number of cached models. */
+	private final int cacheSize;
+
+	/** Logger used when building the referenced models. */
+	private final ILogger logger;
+
+	/**
+	 * The loaded models (or the tasks loading them) in access order, keyed by
+	 * canonical path and content hash.
+	 */
+	private final Map<String, FutureTask<SimulinkModel>> models;
+
+	/**
+	 * Content hashes of the model files by canonical path. The hash is reused as
+	 * long as the size and modification time of the file are unchanged.
+	 */
+	private final Map<String, FileHash> fileHashes = new HashMap<>();
+
+	/** The number of models that have been built. */
+	private int buildCount = 0;
+
+	/** Constructor. */
+	public ReferencedModelResolver(int cacheSize, ILogger logger) {
+		this.cacheSize = cacheSize;
+		this.logger = logger;
+		this.models = new LinkedHashMap<String, FutureTask<SimulinkModel>>(16, 0.75f, true) {
+
+			/** Version used for serialization. */
+			private static final long serialVersionUID = 1L;
+
+			/** {@inheritDoc} */
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FutureTask<SimulinkModel>> eldest) {
+				return size() > ReferencedModelResolver.this.cacheSize;
+			}
+		};
+	}
+
+	/** Returns the process-wide instance. */
+	public static ReferencedModelResolver getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the model referenced by the given block. Returns
+	 * <code>null</code> if the block does not reference a model or the model
+	 * file was not found.
+	 */
+	public SimulinkModel resolveModel(SimulinkBlock block) throws SimulinkModelBuildingException {
+		ReferencedBlockInfo referenceInfo = block.getReferencedBlockInfo();
+		if (referenceInfo == null || !referenceInfo.isModelFileFound()) {
+			return null;
+		}
+		return loadModel(referenceInfo.getModelFile(), referenceInfo.getReferenceDirectories());
+	}
+
+	/**
+	 * Returns the block referenced by the given block. This is the referenced
+	 * model for model reference blocks and the library block for library links.
+	 * Returns <code>null</code> if the block does not reference another block or
+	 * the referenced block was not found.
+	 */
+	public SimulinkBlock resolveBlock(SimulinkBlock block) throws SimulinkModelBuildingException {
+		SimulinkModel model = resolveModel(block);
+		if (model == null) {
+			return null;
+		}
+		if (SimulinkConstants.TYPE_MODEL_REFERENCE.equals(block.getType())) {
+			return model;
+		}
+		return model.getBlock(block.getReferencedBlockInfo().getBlockName());
+	}
+
+	/**
+	 * Returns the model stored in the given file. The model is built if it is
+	 * not cached yet. The given directories are searched for models referenced
+	 * from this model.
+	 */
+	public SimulinkModel loadModel(File file, Collection<File> referenceDirectories)
+			throws SimulinkModelBuildingException {
+		String key;
+		try {
+			key = createCacheKey(file);
+		} catch (IOException e) {
+			throw new SimulinkModelBuildingException("Could not read model file " + file, e);
+		}
+
+		FutureTask<SimulinkModel> task;
+		boolean isNewTask = false;
+		synchronized (models) {
+			task = models.get(key);
+			if (task == null) {
+				task = new FutureTask<>(new ModelBuilder(file, referenceDirectories));
+				models.put(key, task);
+				isNewTask = true;
+			}
+		}
+
+		// build outside of the lock, so different models can be built in parallel
+		if (isNewTask) {
+			task.run();
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SimulinkModelBuildingException("Interrupted while loading " + file, e);
+		} catch (ExecutionException e) {
+			synchronized (models) {
+				if (models.get(key) == task) {
+					models.remove(key);
+				}
+			}
+			if (e.getCause() instanceof SimulinkModelBuildingException) {
+				throw (SimulinkModelBuildingException) e.getCause();
+			}
+			throw new SimulinkModelBuildingException(e.getCause());
+		}
+	}
+
+	/** Returns the number of models that have been built by this resolver. */
+	public synchronized int getBuildCount() {
+		return buildCount;
+	}
+
+	/** Returns the number of cached models. */
+	public int getCachedModelCount() {
+		synchronized (models) {
+			return models.size();
+		}
+	}
+
+	/** Removes all models from the cache. */
+	public void clear() {
+		synchronized (models) {
+			models.clear();
+		}
+		synchronized (fileHashes) {
+			fileHashes.clear();
+		}
+	}
+
+	/**
+	 * Creates the cache key for the given file, which consists of the canonical
+	 * path and the MD5 hash of the file content.
+	 */
+	private String createCacheKey(File file) throws IOException {
+		String path = file.getCanonicalPath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		synchronized (fileHashes) {
+			FileHash fileHash = fileHashes.get(path);
+			if (fileHash != null && fileHash.lastModified == lastModified && fileHash.length == length) {
+				return path + "#" + fileHash.hash;
+			}
+		}
+
+		String hash = Digester.createMD5Digest(FileSystemUtils.readFileBinary(file));
+		synchronized (fileHashes) {
+			fileHashes.put(path, new FileHash(lastModified, length, hash));
+		}
+		return path + "#" + hash;
+	}
+
+	/** Builds a model from a file. */
+	private class ModelBuilder implements Callable<SimulinkModel> {
+
+		/** The model file. */
+		private final File file;
+
+		/** The directories to search referenced models in. */
+		private final Collection<File> referenceDirectories;
+
+		/** Constructor. */
+		public ModelBuilder(File file, Collection<File> referenceDirectories) {
+			this.file = file;
+			this.referenceDirectories = referenceDirectories;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public SimulinkModel call() throws SimulinkModelBuildingException, IOException {
+			// shared models are built completely, as lazy loading would modify
+			// them on first access
+			ModelBuildingParameters parameters = new ModelBuildingParameters();
+			parameters.getReferencePaths().addAll(referenceDirectories);
+			parameters.addReferencePath(file.getAbsoluteFile().getParentFile());
+
+			try (SimulinkModelBuilder builder = new SimulinkModelBuilder(file, logger)) {
+				SimulinkModel model = builder.buildModel(parameters);
+				synchronized (ReferencedModelResolver.this) {
+					buildCount++;
+				}
+				return model;
+			}
+		}
+	}
+
+	/** Content hash of a file together with the file state it was computed for. */
+	private static class FileHash {
+
+		/** The modification time of the file. */
+		private final long lastModified;
+
+		/** The size of the file. */
+		private final long length;
+
+		/** The MD5 hash of the file content. */
+		private final String hash;
+
+		/** Constructor. */
+		public FileHash(long lastModified, long length, String hash) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.hash = hash;
+		}
+	}
+}
@@ -23,6 +23,8 @@ import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_NAME;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_OBJECT_ID;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_PROP_NAME;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_REF;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SIMULINK_MASK;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SIMULINK_MASK_PARAMETER;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SID;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SSID;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_TYPE;
@@ -31,6 +33,8 @@ import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_NAME_STATEFL
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_ANNOTATION;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_ARRAY;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_BLOCK;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MASK;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MASK_PARAMETER;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_OBJECT;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_PARAMETER;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_CHART;
@@ -40,11 +44,15 @@ import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_INSTANCE;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_JUNCTION;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MACHINE;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_STATE;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_SYSTEM;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_TARGET;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_TRANSITION;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
@@ -56,6 +64,13 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public abstract class SLXDefaultHandlerBase extends DefaultHandler {
 
+	/**
+	 * Child elements of mask and mask parameter elements that are stored as
+	 * parameters of the mask objects.
+	 */
+	private static final Set<String> MASK_PROPERTY_ELEMENTS = new HashSet<>(
+			Arrays.asList("Type", "Display", "Initialization", "Description", "Help", "Prompt", "Value"));
+
 	/** Parsing stack. The top-most element is the currently parsed element. */
 	private final Deque<MutableMDLSection> stack = new ArrayDeque<MutableMDLSection>();
 
@@ -73,7 +88,7 @@ public abstract class SLXDefaultHandlerBase extends DefaultHandler {
 	/** {@inheritDoc} */
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-		if (rootSectionName.equals(localName)) {
+		if (stack.isEmpty() && rootSectionName.equals(localName)) {
 			MutableMDLSection modelInformation = new MutableMDLSection(rootSectionName, locator.getLineNumber());
 			stack.push(modelInformation);
 		} else if (stack.isEmpty()) {
@@ -112,6 +127,20 @@ public abstract class SLXDefaultHandlerBase extends DefaultHandler {
 		case SECTION_OBJECT:
 			createSubSectionWithAttributes(localName, attributes, PARAM_PROP_NAME, PARAM_OBJECT_ID, PARAM_CLASS_NAME);
 			break;
+		case SECTION_MASK:
+			if (SECTION_BLOCK.equals(stack.peek().getName())) {
+				createMaskObject(attributes, "MaskObject", PARAM_SIMULINK_MASK);
+			} else {
+				createSubSectionWithAttributes(localName, attributes);
+			}
+			break;
+		case SECTION_MASK_PARAMETER:
+			if (isMaskObject(stack.peek())) {
+				createMaskObject(attributes, "Parameters", PARAM_SIMULINK_MASK_PARAMETER);
+			} else {
+				createSubSectionWithAttributes(localName, attributes);
+			}
+			break;
 		case SECTION_ARRAY:
 			createSubSectionWithAttributes(localName, attributes, PARAM_PROP_NAME, PARAM_TYPE, PARAM_DIMENSION);
 			break;
@@ -129,21 +158,56 @@ public abstract class SLXDefaultHandlerBase extends DefaultHandler {
 		case SECTION_ANNOTATION:
 			createSubSectionWithAttributes(localName, attributes, PARAM_SID);
 			break;
+		case SECTION_SYSTEM:
+			// newer slx files store the system in a separate file
+			createSubSectionWithAttributes(localName, attributes, PARAM_REF);
+			break;
 		default:
-			createSubSectionWithAttributes(localName, attributes);
+			if (MASK_PROPERTY_ELEMENTS.contains(localName) && isMaskObject(stack.peek())) {
+				stack.peek().setCurrentParameter(localName);
+			} else {
+				createSubSectionWithAttributes(localName, attributes);
+			}
 		}
 	}
 
+	/**
+	 * Creates an object section for a mask or mask parameter element, so that
+	 * masks of newer slx files are represented like the mask objects of mdl and
+	 * older slx files. All attributes are copied to the section.
+	 */
+	private void createMaskObject(Attributes attributes, String propertyName, String className) {
+		MutableMDLSection subSection = new MutableMDLSection(SECTION_OBJECT, locator.getLineNumber());
+		for (int i = 0; i < attributes.getLength(); i++) {
+			subSection.setParameter(attributes.getLocalName(i), attributes.getValue(i));
+		}
+		subSection.setParameter(PARAM_PROP_NAME, propertyName);
+		subSection.setParameter(PARAM_CLASS_NAME, className);
+		pushSectionToStack(subSection);
+	}
+
+	/** Returns whether the given section was created for a mask element. */
+	private static boolean isMaskObject(MutableMDLSection section) {
+		String className = section.getParameter(PARAM_CLASS_NAME);
+		return SECTION_OBJECT.equals(section.getName())
+				&& (PARAM_SIMULINK_MASK.equals(className) || PARAM_SIMULINK_MASK_PARAMETER.equals(className));
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void endElement(String uri, String localName, String qName) {
-		if (rootSectionName.equals(localName)) {
+		if (stack.size() == 1 && rootSectionName.equals(localName)) {
 			rootSection = stack.pop();
 		} else if (SECTION_PARAMETER.equals(localName) && !stack.isEmpty()) {
 			MutableMDLSection section = stack.peek();
 			String currentParameter = section.getCurrentParameter();
 			section.appendParameter(currentParameter, "");
 			section.resetCurrentParameter();
+		} else if (!stack.isEmpty() && localName.equals(stack.peek().getCurrentParameter())
+				&& isMaskObject(stack.peek())) {
+			MutableMDLSection section = stack.peek();
+			section.appendParameter(localName, "");
+			section.resetCurrentParameter();
 		} else if (stack.size() > 1) {
 			MutableMDLSection section = stack.pop();
 			section.resetCurrentParameter();
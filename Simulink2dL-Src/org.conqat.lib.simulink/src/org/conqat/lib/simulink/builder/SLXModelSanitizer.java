@@ -129,6 +129,14 @@ public class SLXModelSanitizer {
 		}
 	}
 
+	/**
+	 * Sanitizes a system that is stored in a separate file of the slx file.
+	 * Note that the section will be modified.
+	 */
+	/* package */static void sanitizeSystem(MutableMDLSection system) {
+		sanitizeLines(system);
+	}
+
 	/**
 	 * Sanitizes the first section of given name. The section name must refer to
 	 * a model or a library (which is a special kind of model).
@@ -0,0 +1,90 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.commons.xml.XMLUtils;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Index of the system entries of an slx file. Newer slx files store the
+ * contents of each subsystem in a separate file 'systems/system_N.xml' that is
+ * referenced from the subsystem block. The entries are collected when the file
+ * is opened, but only parsed when the contents of the system are requested.
+ */
+/* package */class SLXSystemLoader {
+
+	/** Folder containing the system entries within the slx zip. */
+	private static final String SLX_SYSTEMS_FOLDER = "simulink/systems/";
+
+	/** File extension of the system entries. */
+	private static final String SLX_SYSTEM_EXTENSION = ".xml";
+
+	/**
+	 * The uncompressed content of the system entries indexed by their reference
+	 * (e.g. 'system_10').
+	 */
+	private final Map<String, byte[]> systemEntries = new HashMap<>();
+
+	/** Returns whether the zip entry of the given name stores a system. */
+	public static boolean isSystemEntry(String entryName) {
+		return entryName.startsWith(SLX_SYSTEMS_FOLDER) && entryName.endsWith(SLX_SYSTEM_EXTENSION);
+	}
+
+	/** Adds the content of the zip entry of the given name. */
+	public void addEntry(String entryName, byte[] content) {
+		systemEntries.put(StringUtils.removeAll(entryName, SLX_SYSTEMS_FOLDER, SLX_SYSTEM_EXTENSION), content);
+	}
+
+	/** Returns whether an entry is stored for the given system reference. */
+	public boolean hasSystem(String reference) {
+		return systemEntries.containsKey(reference);
+	}
+
+	/**
+	 * Parses the system with the given reference and returns a sanitized
+	 * {@link MDLSection} that represents the system. As each system is loaded
+	 * only once, the content of the entry is released afterwards.
+	 * 
+	 * @throws SimulinkModelBuildingException
+	 *             if no entry exists for the reference or the entry could not be
+	 *             parsed.
+	 */
+	public MDLSection loadSystem(String reference) throws SimulinkModelBuildingException {
+		byte[] content = systemEntries.remove(reference);
+		if (content == null) {
+			throw new SimulinkModelBuildingException("No entry found for system " + reference);
+		}
+
+		SLXModelHandler handler = new SLXModelHandler(SimulinkConstants.SECTION_SYSTEM);
+		try {
+			XMLUtils.parseSAX(new InputSource(new ByteArrayInputStream(content)), handler);
+		} catch (SAXException | IOException e) {
+			throw new SimulinkModelBuildingException(e);
+		}
+		MutableMDLSection system = handler.getRootModelSection();
+		SLXModelSanitizer.sanitizeSystem(system);
+		return system.asImmutable();
+	}
+}
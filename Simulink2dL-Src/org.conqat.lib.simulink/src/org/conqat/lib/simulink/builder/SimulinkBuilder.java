@@ -17,6 +17,7 @@
 package org.conqat.lib.simulink.builder;
 
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_BLOCK_TYPE;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_REF;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_ANNOTATION;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_ANNOTATION_DEFAULTS;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_ARRAY;
@@ -32,6 +33,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.simulink.model.ISubBlockLoader;
 import org.conqat.lib.simulink.model.SimulinkAnnotation;
 import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkConstants;
@@ -61,9 +63,21 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 	/** The model to build. */
 	private final SimulinkModel model;
 
+	/**
+	 * Loader for systems stored in separate files of an slx file. This is
+	 * <code>null</code> for MDL files.
+	 */
+	private final SLXSystemLoader systemLoader;
+
+	/** @see ModelBuildingParameters#isLazySubsystemLoading() */
+	private final boolean lazySubsystemLoading;
+
 	/** Create new builder. */
-	public SimulinkBuilder(SimulinkModel model, ModelBuildingParameters parameters, boolean isSlx) {
+	public SimulinkBuilder(SimulinkModel model, ModelBuildingParameters parameters, boolean isSlx,
+			SLXSystemLoader systemLoader) {
 		this.model = model;
+		this.systemLoader = systemLoader;
+		this.lazySubsystemLoading = parameters.isLazySubsystemLoading();
 		lineBuilder = new SimulinkLineBuilder(parameters, isSlx);
 	}
 
@@ -86,24 +100,46 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 	}
 
 	/**
-	 * Get 'block' sub section of the specified sections and call
-	 * {@link #buildSimulinkBlock(MDLSection, SimulinkBlock)} for each of them.
+	 * Get the 'system' sub section of the specified section and build its
+	 * contents. For sub systems, this is deferred if
+	 * {@link #lazySubsystemLoading} is set.
 	 */
 	private void buildSimulinkBlocks(MDLSection section, SimulinkBlock parent) throws SimulinkModelBuildingException {
 		MDLSection systemSection = section.getFirstSubSection(SECTION_SYSTEM);
 		if (systemSection == null) {
 			return;
 		}
-		List<MDLSection> blocks = systemSection.getSubSections(SECTION_BLOCK);
-		for (MDLSection block : blocks) {
-			buildSimulinkBlock(block, parent);
-		}
 
 		// we trash system and block sections here to free space for GC when building
 		// huge models
 		section.removeSubSections(SECTION_SYSTEM);
 		section.removeSubSections(SECTION_BLOCK);
 
+		if (lazySubsystemLoading && parent != model) {
+			parent.setSubBlockLoader(new DeferredSystemLoader(systemSection));
+		} else {
+			buildSystem(systemSection, parent);
+		}
+	}
+
+	/**
+	 * Get 'block' sub section of the specified system section and call
+	 * {@link #buildSimulinkBlock(MDLSection, SimulinkBlock)} for each of them.
+	 * Afterwards, the lines and annotations are built. If the system is stored in
+	 * a separate file of an slx file, this file is parsed first.
+	 */
+	private void buildSystem(MDLSection systemSection, SimulinkBlock parent) throws SimulinkModelBuildingException {
+		String reference = systemSection.getParameter(PARAM_REF);
+		if (reference != null && systemLoader != null && systemLoader.hasSystem(reference)) {
+			systemSection = systemLoader.loadSystem(reference);
+			addSystemParameters(systemSection, parent);
+		}
+
+		List<MDLSection> blocks = systemSection.getSubSections(SECTION_BLOCK);
+		for (MDLSection block : blocks) {
+			buildSimulinkBlock(block, parent);
+		}
+
 		lineBuilder.buildLines(systemSection, parent);
 		buildAnnotations(systemSection, parent);
 	}
@@ -138,9 +174,7 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 		// if this block contains a System section also add those parameters
 		MDLSection systemSection = section.getFirstSubSection(SECTION_SYSTEM);
 		if (systemSection != null) {
-			for (String paramName : systemSection.getParameterNames()) {
-				simulinkBlock.setParameter(SECTION_SYSTEM + "." + paramName, systemSection.getParameter(paramName));
-			}
+			addSystemParameters(systemSection, simulinkBlock);
 		}
 
 		MDLSection instanceDataSection = section.getFirstSubSection(SimulinkConstants.SECTION_INSTANCE_DATA);
@@ -156,6 +190,16 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 		buildSimulinkBlocks(section, simulinkBlock);
 	}
 
+	/**
+	 * Adds the parameters of the given System section to the block. The names
+	 * are prefixed with the section name.
+	 */
+	private static void addSystemParameters(MDLSection systemSection, SimulinkBlock block) {
+		for (String paramName : systemSection.getParameterNames()) {
+			block.setParameter(SECTION_SYSTEM + "." + paramName, systemSection.getParameter(paramName));
+		}
+	}
+
 	/**
 	 * Some blocks require special processing of block information such as
 	 * performing calculations, parsing expressions, formatting strings, etc. This
@@ -411,6 +455,24 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 		}
 	}
 
+	/** Loader that builds the contents of a sub system on first access. */
+	private class DeferredSystemLoader implements ISubBlockLoader {
+
+		/** The System section of the sub system. */
+		private final MDLSection systemSection;
+
+		/** Constructor. */
+		public DeferredSystemLoader(MDLSection systemSection) {
+			this.systemSection = systemSection;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void loadSubBlocks(SimulinkBlock block) throws SimulinkModelBuildingException {
+			buildSystem(systemSection, block);
+		}
+	}
+
 	/**
 	 * Class which contains constants used by pattern matching for the Simulink
 	 * blocks which require special handling and processing.
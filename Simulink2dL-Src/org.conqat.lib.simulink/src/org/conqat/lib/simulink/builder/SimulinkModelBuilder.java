@@ -112,6 +112,12 @@ public class SimulinkModelBuilder implements Closeable {
 	 */
 	private PairList<String, String> modelMxData;
 
+	/**
+	 * Index of the systems that newer slx files store in separate files
+	 * 'systems/system_N.xml'. These are parsed when the subsystem is built.
+	 */
+	private final SLXSystemLoader systemLoader = new SLXSystemLoader();
+
 	/**
 	 * Old slx files store stateflow machine information in the model. Only if there
 	 * is a stateflow xml file, special handling is needed
@@ -278,9 +284,9 @@ public class SimulinkModelBuilder implements Closeable {
 		this.systemInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
 		this.hasSystemRootXmlFile = moveStreamToFileEntry(this.systemInputStream, SLX_SYSTEMROOT_FILE);
 		
-		// mxData stream
+		// mxData and system entries
 		ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-		extractMxDataForModel(zipInputStream);
+		extractMxDataAndSystemsForModel(zipInputStream);
 		inputStream.reset();
 	}
 
@@ -335,9 +341,10 @@ public class SimulinkModelBuilder implements Closeable {
 
 	/**
 	 * Extracts the data from .mxarray files and adds them to the
-	 * {@link #modelMxData} list.
+	 * {@link #modelMxData} list. The entries of systems that are stored in
+	 * separate files are added to the {@link #systemLoader}.
 	 */
-	private void extractMxDataForModel(ZipInputStream zipInputStream) throws IOException {
+	private void extractMxDataAndSystemsForModel(ZipInputStream zipInputStream) throws IOException {
 		modelMxData = new PairList<>();
 		ZipEntry zipEntry = zipInputStream.getNextEntry();
 		while (zipEntry != null) {
@@ -348,6 +355,9 @@ public class SimulinkModelBuilder implements Closeable {
 					modelMxData.add(createVariantControlsKeyFromMxData(zipEntry.getName()), mxArrayFileContent);
 					this.slxContainsMXData = true;
 				}
+			} else if (SLXSystemLoader.isSystemEntry(zipEntry.getName())
+					&& !SLX_SYSTEMROOT_FILE.equals(zipEntry.getName())) {
+				systemLoader.addEntry(zipEntry.getName(), FileSystemUtils.readStreamBinary(zipInputStream));
 			}
 			zipEntry = zipInputStream.getNextEntry();
 		}
@@ -413,7 +423,7 @@ public class SimulinkModelBuilder implements Closeable {
 		// from Simulink blocks
 		buildStateFlowMachine(simulinkFile, model, modelDataHandler, parameters);
 
-		new SimulinkBuilder(model, parameters, isSlxFormat).buildSimulink(modelSection);
+		new SimulinkBuilder(model, parameters, isSlxFormat, systemLoader).buildSimulink(modelSection);
 
 		new SimulinkModelDataExtractor(isSlxFormat, logger, file).addDataToModel(simulinkFile, model);
 
@@ -506,6 +516,7 @@ public class SimulinkModelBuilder implements Closeable {
 							slxFile.getFirstSubSection(SimulinkConstants.SECTION_MODEL)
 								.getFirstSubSection(SimulinkConstants.SECTION_SYSTEM);
 					systemSection.addSubSections(systemFile.getSubSections().getValues());
+					systemSection.removeParameter(SimulinkConstants.PARAM_REF);
 				}
 
 				SLXModelSanitizer.sanitize(slxFile);
@@ -35,7 +35,6 @@ import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_TARGET;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_TRANSITION;
 
 import java.util.HashMap;
-import java.util.Map;
 
 import org.conqat.lib.commons.assertion.CCSMAssert;
 import org.conqat.lib.commons.logging.ILogger;
@@ -210,10 +209,17 @@ import org.conqat.lib.simulink.util.SimulinkUtils;
 	/**
 	 * Recursively add parameter defined in the section to the element.
 	 */
-	private static void addParameters(MDLSection section, ParameterizedElement element) {
-		for (Map.Entry<String, String> parameter : section.getParameterMapRecursively().entrySet()) {
-			element.setParameter(parameter.getKey(), parameter.getValue());
-		}
+	private static void addParameters(MDLSection section, final ParameterizedElement element) {
+		section.acceptParameterVisitor(new IMDLParameterVisitor() {
+			@Override
+			public void visitParameter(String prefix, String name, String value) {
+				if (prefix.isEmpty()) {
+					element.setParameter(name, value);
+				} else {
+					element.setParameter(prefix + name, value);
+				}
+			}
+		});
 	}
 
 	/** Build relation for Stateflow element. */
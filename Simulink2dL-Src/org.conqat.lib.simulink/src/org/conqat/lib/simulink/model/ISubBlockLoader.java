@@ -0,0 +1,32 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.model;
+
+import org.conqat.lib.simulink.builder.SimulinkModelBuildingException;
+
+/**
+ * Loader for the contents of a block, i.e. its sub blocks, contained lines and
+ * annotations. This is used to defer building the contents of a subsystem
+ * until they are accessed for the first time.
+ * 
+ * @see SimulinkBlock#setSubBlockLoader(ISubBlockLoader)
+ */
+public interface ISubBlockLoader {
+
+	/** Builds the sub blocks, lines and annotations of the given block. */
+	void loadSubBlocks(SimulinkBlock block) throws SimulinkModelBuildingException;
+}
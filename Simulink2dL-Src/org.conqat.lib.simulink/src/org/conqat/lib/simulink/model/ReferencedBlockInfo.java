@@ -18,6 +18,7 @@ package org.conqat.lib.simulink.model;
 
 import java.io.File;
 
+import org.conqat.lib.commons.collections.UnmodifiableList;
 import org.conqat.lib.commons.string.StringUtils;
 import org.conqat.lib.simulink.builder.SimulinkModelBuilder;
 import org.conqat.lib.simulink.model.datahandler.ModelDataHandler;
@@ -43,11 +44,15 @@ public class ReferencedBlockInfo {
 	 */
 	private final File modelFile;
 
+	/** The directories that were searched for the referenced model. */
+	private final UnmodifiableList<File> referenceDirectories;
+
 	/** Constructor. */
 	/* package */ ReferencedBlockInfo(String modelName, String blockName, ModelDataHandler modelDataHandler) {
 		this.modelName = modelName;
 		this.blockName = blockName;
 		this.modelFile = locateModelFile(modelName, modelDataHandler);
+		this.referenceDirectories = modelDataHandler.getReferenceDirectories();
 	}
 
 	/**
@@ -91,4 +96,13 @@ public class ReferencedBlockInfo {
 	public boolean isModelFileFound() {
 		return modelFile != null;
 	}
+
+	/**
+	 * Returns the directories that were searched for the referenced model.
+	 * Models referenced from the referenced model are searched in the same
+	 * directories.
+	 */
+	public UnmodifiableList<File> getReferenceDirectories() {
+		return referenceDirectories;
+	}
 }
\ No newline at end of file
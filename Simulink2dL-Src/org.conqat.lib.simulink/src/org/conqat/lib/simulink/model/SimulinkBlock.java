@@ -68,6 +68,12 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 */
 	private final Set<SimulinkLine> containedLines = new IdentityHashSet<>();
 
+	/**
+	 * Loader for the sub blocks, contained lines and annotations of this block.
+	 * This is <code>null</code> if the contents are already built.
+	 */
+	private ISubBlockLoader subBlockLoader;
+
 	/** Create new Simulink block. */
 	public SimulinkBlock() {
 		// empty but required to keep default constructor
@@ -79,6 +85,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 */
 	protected SimulinkBlock(SimulinkBlock origBlock) throws DeepCloneException {
 		super(origBlock);
+		origBlock.loadSubBlocks();
 
 		for (SimulinkInPort inPort : origBlock.inPorts.values()) {
 			new SimulinkInPort(this, inPort.getIndex()).copyFrom(inPort);
@@ -157,12 +164,14 @@ public class SimulinkBlock extends SimulinkElementBase {
 
 	/** Add an annotation. */
 	public void addAnnotation(SimulinkAnnotation annotation) {
+		loadSubBlocks();
 		annotations.add(annotation);
 		annotation.setParent(this);
 	}
 
 	/** Adds a sub block. */
 	public void addSubBlock(SimulinkBlock subBlock) {
+		loadSubBlocks();
 		CCSMAssert.isTrue(subBlock.getParent() == null, "May not add block which already has a parent!");
 		subBlock.setParent(this);
 
@@ -173,6 +182,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 
 	/** Get annotations. */
 	public UnmodifiableSet<SimulinkAnnotation> getAnnotations() {
+		loadSubBlocks();
 		return CollectionUtils.asUnmodifiable(annotations);
 	}
 
@@ -228,6 +238,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 
 	/** Returns the lines that are directly contained in this block. */
 	public UnmodifiableCollection<SimulinkLine> getContainedLines() {
+		loadSubBlocks();
 		return CollectionUtils.asUnmodifiable(containedLines);
 	}
 
@@ -236,6 +247,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 * descendants.
 	 */
 	public Collection<SimulinkLine> getContainedLinesRecursively() {
+		loadSubBlocks();
 		List<SimulinkLine> lines = new ArrayList<>(containedLines);
 		for (SimulinkBlock subBlock : subBlocks.values()) {
 			lines.addAll(subBlock.getContainedLinesRecursively());
@@ -300,6 +312,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 * name is present.
 	 */
 	public SimulinkBlock getSubBlock(String name) {
+		loadSubBlocks();
 		return subBlocks.get(name);
 	}
 
@@ -309,6 +322,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 */
 	public SimulinkBlock getSubBlockBySID(String sid) {
 		CCSMAssert.isNotNull(sid);
+		loadSubBlocks();
 		for (Entry<String, SimulinkBlock> entry : subBlocks.entrySet()) {
 			SimulinkBlock subBlock = entry.getValue();
 			String subBlockSID = subBlock.getParameter(PARAM_SID);
@@ -321,6 +335,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 
 	/** Returns the sub blocks of this block. */
 	public UnmodifiableCollection<SimulinkBlock> getSubBlocks() {
+		loadSubBlocks();
 		return CollectionUtils.asUnmodifiable(subBlocks.values());
 	}
 
@@ -343,6 +358,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 
 	/** Returns whether this block has subBlocks. */
 	public boolean hasSubBlocks() {
+		loadSubBlocks();
 		return !subBlocks.isEmpty();
 	}
 
@@ -351,6 +367,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 * subBlock exists, it is returned. Otherwise, null is returned.
 	 */
 	public SimulinkBlock hasSubBlockOfType(String type) {
+		loadSubBlocks();
 		for (SimulinkBlock block : subBlocks.values()) {
 			if (block.getType().equals(type)) {
 				return block;
@@ -364,6 +381,7 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 * subBlock exists, it is returned. Otherwise, null is returned.
 	 */
 	public boolean hasSubBlockOfSourceType(String sourceType) {
+		loadSubBlocks();
 		for (SimulinkBlock block : subBlocks.values()) {
 			if (block.getSourceType().equals(sourceType)) {
 				return true;
@@ -378,6 +396,8 @@ public class SimulinkBlock extends SimulinkElementBase {
 	 */
 	@Override
 	public void remove() {
+		// the contents are not needed anymore
+		subBlockLoader = null;
 
 		// have to create new ArrayList during removal to avoid
 		// CuncurrentModificationException as the call to remove eventually
@@ -412,6 +432,38 @@ public class SimulinkBlock extends SimulinkElementBase {
 		super.remove();
 	}
 
+	/**
+	 * Sets the loader that builds the sub blocks, contained lines and
+	 * annotations of this block when they are accessed for the first time.
+	 */
+	public void setSubBlockLoader(ISubBlockLoader subBlockLoader) {
+		this.subBlockLoader = subBlockLoader;
+	}
+
+	/** Returns whether the contents of this block are already built. */
+	public boolean isSubBlocksLoaded() {
+		return subBlockLoader == null;
+	}
+
+	/**
+	 * Builds the contents of this block using the {@link #subBlockLoader} if
+	 * this has not been done yet.
+	 */
+	private void loadSubBlocks() {
+		if (subBlockLoader == null) {
+			return;
+		}
+
+		// reset first, as the loader adds the sub blocks to this block
+		ISubBlockLoader loader = subBlockLoader;
+		subBlockLoader = null;
+		try {
+			loader.loadSubBlocks(this);
+		} catch (SimulinkModelBuildingException e) {
+			throw new IllegalStateException("Could not load contents of block " + getId(), e);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
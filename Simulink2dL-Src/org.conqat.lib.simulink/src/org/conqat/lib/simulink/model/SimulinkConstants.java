@@ -155,6 +155,12 @@ public class SimulinkConstants {
 	/** Object section. */
 	public static final String SECTION_OBJECT = "Object";
 
+	/** Mask section of newer slx files. */
+	public static final String SECTION_MASK = "Mask";
+
+	/** Mask parameter section of newer slx files. */
+	public static final String SECTION_MASK_PARAMETER = "MaskParameter";
+
 	/** Port section. */
 	public static final String SECTION_PORT = "Port";
 
@@ -284,6 +290,15 @@ public class SimulinkConstants {
 	/** Mask variables parameter */
 	public static final String PARAM_MASK_VARIABLES = "MaskVariables";
 
+	/** Mask initialization parameter */
+	public static final String PARAM_MASK_INITIALIZATION = "MaskInitialization";
+
+	/** Initialization parameter of mask objects. */
+	public static final String PARAM_INITIALIZATION = "Initialization";
+
+	/** Evaluate parameter of mask parameter objects. */
+	public static final String PARAM_EVALUATE = "Evaluate";
+
 	/** Model name parameter. */
 	public static final String PARAM_MODEL_NAME = "ModelName";
 
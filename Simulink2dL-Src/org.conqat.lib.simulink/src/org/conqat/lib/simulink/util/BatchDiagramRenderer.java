@@ -0,0 +1,396 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.util;
+
+import java.awt.AWTError;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.digest.Digester;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.commons.string.StringUtils;
+import org.conqat.lib.simulink.model.ParameterizedElement;
+import org.conqat.lib.simulink.model.SimulinkAnnotation;
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkPortBase;
+import org.conqat.lib.simulink.model.stateflow.StateflowBlock;
+import org.conqat.lib.simulink.model.stateflow.StateflowChart;
+import org.conqat.lib.simulink.model.stateflow.StateflowNodeBase;
+import org.conqat.lib.simulink.model.stateflow.StateflowState;
+import org.conqat.lib.simulink.model.stateflow.StateflowTransition;
+
+/**
+ * Renders all subsystems and Stateflow charts of a model as PNG images. The
+ * images are rendered concurrently using the {@link SimulinkBlockRenderer} and
+ * the {@link StateflowChartRenderer} and are stored in a cache directory. The
+ * name of an image file is the hash of the layout and the parameters of the
+ * rendered elements, so only subsystems that changed since the last run are
+ * rendered again.
+ * 
+ * The model is traversed on the calling thread before rendering starts, so
+ * lazily loaded subsystems are built before the renderers access them.
+ * 
+ * The images are rendered off-screen, but AWT still needs a display unless the
+ * JVM runs headless. Callers without a display (e.g. build servers) have to
+ * start the JVM with <code>-Djava.awt.headless=true</code>. This class does
+ * not set the property itself, as it affects the whole JVM.
+ */
+public class BatchDiagramRenderer {
+
+	/**
+	 * Version of the rendered images. This is part of the hash and has to be
+	 * increased if the renderers change, to invalidate existing caches.
+	 */
+	private static final String RENDERER_VERSION = "1";
+
+	/** Extension of the image files. */
+	private static final String IMAGE_FILE_EXTENSION = ".png";
+
+	/** The directory the images are stored in. */
+	private final File cacheDirectory;
+
+	/** The number of threads used for rendering. */
+	private final int threadCount;
+
+	/** The number of images rendered so far (i.e. not taken from the cache). */
+	private final AtomicInteger renderCount = new AtomicInteger();
+
+	/**
+	 * Constructor. Uses one rendering thread per available processor.
+	 */
+	public BatchDiagramRenderer(File cacheDirectory) {
+		this(cacheDirectory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param cacheDirectory
+	 *            the directory the images are stored in. This is created if it
+	 *            does not exist.
+	 * @param threadCount
+	 *            the number of threads used for rendering.
+	 */
+	public BatchDiagramRenderer(File cacheDirectory, int threadCount) {
+		this.cacheDirectory = cacheDirectory;
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * Renders the given block and all subsystems below it. Stateflow blocks are
+	 * rendered as charts and their contents are not traversed.
+	 * 
+	 * @return the image files by the ids of the rendered blocks, in pre-order of
+	 *         the block hierarchy. Structurally identical subsystems share the
+	 *         same file.
+	 */
+	public Map<String, File> renderSubsystems(SimulinkBlock root) throws IOException {
+		FileSystemUtils.ensureDirectoryExists(cacheDirectory);
+
+		List<SimulinkBlock> blocks = new ArrayList<>();
+		collectSubsystems(root, blocks);
+
+		Map<String, File> result = new LinkedHashMap<>();
+		Map<String, SimulinkBlock> blocksToRender = new LinkedHashMap<>();
+		for (SimulinkBlock block : blocks) {
+			String hash = calculateHash(block);
+			File imageFile = new File(cacheDirectory, hash + IMAGE_FILE_EXTENSION);
+			result.put(block.getId(), imageFile);
+			if (!imageFile.isFile() && !blocksToRender.containsKey(hash)) {
+				blocksToRender.put(hash, block);
+			}
+		}
+
+		render(blocksToRender);
+		return result;
+	}
+
+	/** Returns the number of images rendered so far. */
+	public int getRenderCount() {
+		return renderCount.get();
+	}
+
+	/** Renders the given blocks by the hashes used as file names. */
+	private void render(Map<String, SimulinkBlock> blocksByHash) throws IOException {
+		if (blocksByHash.isEmpty()) {
+			return;
+		}
+		checkGraphicsEnvironment();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, blocksByHash.size()));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (Map.Entry<String, SimulinkBlock> entry : blocksByHash.entrySet()) {
+				futures.add(executor.submit(new RenderTask(entry.getValue(), entry.getKey())));
+			}
+			for (Future<Void> future : futures) {
+				waitFor(future);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks that AWT can be used, i.e. the JVM is headless or a display is
+	 * available. Otherwise each rendering thread would fail with an
+	 * {@link AWTError}.
+	 */
+	private static void checkGraphicsEnvironment() throws IOException {
+		if (GraphicsEnvironment.isHeadless()) {
+			return;
+		}
+		try {
+			GraphicsEnvironment.getLocalGraphicsEnvironment();
+		} catch (AWTError e) {
+			throw new IOException(
+					"No display available for rendering. Start the JVM with -Djava.awt.headless=true.", e);
+		}
+	}
+
+	/** Waits for the given rendering task and rethrows its exceptions. */
+	private static void waitFor(Future<Void> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Collects the given block and all blocks below it that have sub blocks.
+	 * This also loads lazily loaded subsystems.
+	 */
+	private static void collectSubsystems(SimulinkBlock block, List<SimulinkBlock> result) {
+		result.add(block);
+		if (block instanceof StateflowBlock) {
+			return;
+		}
+		for (SimulinkBlock subBlock : sortByName(block.getSubBlocks())) {
+			if (subBlock instanceof StateflowBlock || subBlock.hasSubBlocks()) {
+				collectSubsystems(subBlock, result);
+			} else {
+				// make sure the block is loaded before rendering
+				subBlock.getSubBlocks();
+			}
+		}
+	}
+
+	/**
+	 * Calculates the hash of all information that is used to render the given
+	 * block.
+	 */
+	private static String calculateHash(SimulinkBlock block) {
+		MessageDigest digest = Digester.getMD5();
+		update(digest, RENDERER_VERSION);
+		if (block instanceof StateflowBlock) {
+			updateChart(digest, ((StateflowBlock) block).getChart());
+		} else {
+			updateSubsystem(digest, block);
+		}
+		return StringUtils.encodeAsHex(digest.digest());
+	}
+
+	/** Adds the contents of a subsystem to the digest. */
+	private static void updateSubsystem(MessageDigest digest, SimulinkBlock block) {
+		for (SimulinkBlock subBlock : sortByName(block.getSubBlocks())) {
+			update(digest, "block");
+			updateParameters(digest, subBlock);
+			updatePorts(digest, subBlock.getInPorts());
+			updatePorts(digest, subBlock.getOutPorts());
+
+			// the port labels of a subsystem are taken from its port blocks
+			for (SimulinkBlock child : sortByName(subBlock.getSubBlocks())) {
+				if (SimulinkConstants.TYPE_INPORT.equals(child.getType())
+						|| SimulinkConstants.TYPE_OUTPORT.equals(child.getType())) {
+					update(digest, "port block");
+					updateParameters(digest, child);
+				}
+			}
+		}
+
+		for (SimulinkAnnotation annotation : block.getAnnotations()) {
+			update(digest, "annotation");
+			updateParameters(digest, annotation);
+		}
+
+		List<String> lineHashes = new ArrayList<>();
+		for (SimulinkLine line : block.getContainedLines()) {
+			MessageDigest lineDigest = Digester.getMD5();
+			update(lineDigest, line.toLineString());
+			updateParameters(lineDigest, line);
+			lineHashes.add(StringUtils.encodeAsHex(lineDigest.digest()));
+		}
+		updateSortedHashes(digest, "line", lineHashes);
+	}
+
+	/**
+	 * Adds the given hashes in sorted order to the digest. This is used for
+	 * elements without stable order, which are hashed individually.
+	 */
+	private static void updateSortedHashes(MessageDigest digest, String kind, List<String> hashes) {
+		for (String hash : CollectionUtils.sort(hashes)) {
+			update(digest, kind);
+			update(digest, hash);
+		}
+	}
+
+	/** Adds the connection state of the given ports to the digest. */
+	private static void updatePorts(MessageDigest digest, Collection<? extends SimulinkPortBase> ports) {
+		for (SimulinkPortBase port : ports) {
+			update(digest, port.getIndex() + ":" + port.isConnected());
+		}
+	}
+
+	/** Adds the nodes and transitions of a Stateflow chart to the digest. */
+	private static void updateChart(MessageDigest digest, StateflowChart chart) {
+		if (chart == null) {
+			return;
+		}
+		updateParameters(digest, chart);
+		updateNodes(digest, chart.getNodes());
+
+		List<String> transitionHashes = new ArrayList<>();
+		for (StateflowTransition transition : SimulinkUtils.getAllTransitions(chart)) {
+			MessageDigest transitionDigest = Digester.getMD5();
+			updateParameters(transitionDigest, transition);
+			transitionHashes.add(StringUtils.encodeAsHex(transitionDigest.digest()));
+		}
+		updateSortedHashes(digest, "transition", transitionHashes);
+	}
+
+	/** Adds the given Stateflow nodes and their children to the digest. */
+	private static void updateNodes(MessageDigest digest, Collection<StateflowNodeBase> nodes) {
+		List<StateflowNodeBase> sortedNodes = CollectionUtils.sort(nodes, new Comparator<StateflowNodeBase>() {
+			@Override
+			public int compare(StateflowNodeBase node1, StateflowNodeBase node2) {
+				return node1.getStateflowId().compareTo(node2.getStateflowId());
+			}
+		});
+		for (StateflowNodeBase node : sortedNodes) {
+			update(digest, "node");
+			updateParameters(digest, node);
+			if (node instanceof StateflowState) {
+				updateNodes(digest, ((StateflowState) node).getNodes());
+			}
+		}
+	}
+
+	/** Adds all parameters of the given element to the digest. */
+	private static void updateParameters(MessageDigest digest, ParameterizedElement element) {
+		for (String name : CollectionUtils.sort(element.getParameterNames())) {
+			update(digest, name);
+			update(digest, element.getParameter(name));
+		}
+	}
+
+	/** Adds a string to the digest. */
+	private static void update(MessageDigest digest, String value) {
+		if (value != null) {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+		}
+		// separator to distinguish e.g. "ab"+"c" from "a"+"bc"
+		digest.update((byte) 0);
+	}
+
+	/** Returns the given blocks sorted by name to get a stable order. */
+	private static List<SimulinkBlock> sortByName(Collection<SimulinkBlock> blocks) {
+		return CollectionUtils.sort(blocks, new Comparator<SimulinkBlock>() {
+			@Override
+			public int compare(SimulinkBlock block1, SimulinkBlock block2) {
+				return block1.getName().compareTo(block2.getName());
+			}
+		});
+	}
+
+	/** Task that renders a single block into the cache directory. */
+	private class RenderTask implements Callable<Void> {
+
+		/** The block to render. */
+		private final SimulinkBlock block;
+
+		/** The hash of the block, which is used as file name. */
+		private final String hash;
+
+		/** Constructor. */
+		public RenderTask(SimulinkBlock block, String hash) {
+			this.block = block;
+			this.hash = hash;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Void call() throws IOException {
+			BufferedImage image;
+			if (block instanceof StateflowBlock && ((StateflowBlock) block).getChart() != null) {
+				image = StateflowChartRenderer.renderChart(((StateflowBlock) block).getChart());
+			} else {
+				image = SimulinkBlockRenderer.renderBlock(block);
+			}
+
+			// write to a temporary file first, so other processes using the
+			// same cache never see incomplete images
+			File tmpFile = File.createTempFile(hash, ".tmp", cacheDirectory);
+			try {
+				ImageIO.write(image, "PNG", tmpFile);
+				File imageFile = new File(cacheDirectory, hash + IMAGE_FILE_EXTENSION);
+				try {
+					Files.move(tmpFile.toPath(), imageFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmpFile.toPath(), imageFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				FileSystemUtils.deleteFile(tmpFile);
+			}
+			renderCount.incrementAndGet();
+			return null;
+		}
+	}
+}
@@ -261,7 +261,7 @@ public class SimulinkBlockRenderer extends RendererBase {
 		for (SimulinkAnnotation annotation : block.getAnnotations()) {
 			AnnotationLayoutData layoutData = annotation.obtainLayoutData();
 			if (canvasRectangle == null) {
-				canvasRectangle = layoutData.getPosition();
+				canvasRectangle = new Rectangle(layoutData.getPosition());
 			} else {
 				canvasRectangle.add(layoutData.getPosition());
 			}
@@ -286,7 +286,7 @@ public class SimulinkBlockRenderer extends RendererBase {
 	private static Rectangle enlargeCanvasRectangle(SimulinkBlock subBlock, Rectangle canvasRectangle) {
 		BlockLayoutData layoutData = subBlock.obtainLayoutData();
 		if (canvasRectangle == null) {
-			canvasRectangle = layoutData.getPosition();
+			canvasRectangle = new Rectangle(layoutData.getPosition());
 		} else {
 			canvasRectangle.add(layoutData.getPosition());
 		}
@@ -244,7 +244,7 @@ public class StateflowChartRenderer extends RendererBase {
 	/** Enlarges a given canvas rectangle to also include the given node. */
 	private static Rectangle enlargeCanvasRectangle(RectangleLayoutData layoutData, Rectangle canvasRectangle) {
 		if (canvasRectangle == null) {
-			canvasRectangle = layoutData.getPosition();
+			canvasRectangle = new Rectangle(layoutData.getPosition());
 		} else {
 			canvasRectangle.add(layoutData.getPosition());
 		}
@@ -0,0 +1,120 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.lib.commons.logging.SimpleLogger;
+import org.conqat.lib.simulink.testutils.SimulinkTestBase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MDLSection#acceptParameterVisitor(IMDLParameterVisitor)}.
+ */
+public class MDLSectionTest extends SimulinkTestBase {
+
+	/** Tests the parameters reported for a small section tree. */
+	@Test
+	public void testVisitNestedSections() {
+		MutableMDLSection mutableTransition = new MutableMDLSection("transition", 1);
+		mutableTransition.setParameter("id", "7");
+		MutableMDLSection src = new MutableMDLSection("src", 2);
+		src.setParameter("id", "3");
+		MutableMDLSection intersection = new MutableMDLSection("intersection", 3);
+		intersection.setParameter("x", "1");
+		src.addSubSection(intersection);
+		mutableTransition.addSubSection(src);
+		MDLSection transition = mutableTransition.asImmutable();
+
+		final List<String> visited = new ArrayList<>();
+		final List<String> prefixes = new ArrayList<>();
+		transition.acceptParameterVisitor(new IMDLParameterVisitor() {
+			@Override
+			public void visitParameter(String prefix, String name, String value) {
+				visited.add(prefix + "|" + name + "=" + value);
+				prefixes.add(prefix);
+			}
+		});
+
+		List<String> expected = new ArrayList<>();
+		expected.add("|id=7");
+		expected.add("src.|id=3");
+		expected.add("src.intersection.|x=1");
+		assertEquals(expected, visited);
+		for (String prefix : prefixes) {
+			assertSame(prefix.intern(), prefix);
+		}
+	}
+
+	/**
+	 * Tests that the visitor reports the qualified parameter names of all
+	 * sections of a model with Stateflow charts.
+	 */
+	@Test
+	public void testVisitorMatchesParameterMap() throws Exception {
+		File file = useTestFile("model02" + SimulinkModelBuilder.MDL_FILE_EXTENSION);
+		MDLSection section;
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			MDLParser parser = new MDLParser(new MDLScanner(reader), new SimpleLogger());
+			section = (MDLSection) parser.parse().value;
+		}
+		assertVisitorMatchesQualifiedNames(section);
+	}
+
+	/**
+	 * Asserts that the visitor reports the qualified parameter names for the
+	 * given section and all its sub-sections.
+	 */
+	private static void assertVisitorMatchesQualifiedNames(MDLSection section) {
+		final Map<String, String> visited = new HashMap<>();
+		section.acceptParameterVisitor(new IMDLParameterVisitor() {
+			@Override
+			public void visitParameter(String prefix, String name, String value) {
+				visited.put(prefix + name, value);
+			}
+		});
+		Map<String, String> expected = new HashMap<>();
+		collectQualifiedParameters(section, "", expected);
+		assertEquals(section.getName(), expected, visited);
+		assertEquals(section.getName(), expected, section.getParameterMapRecursively());
+
+		for (MDLSection subSection : section.getSubSections()) {
+			assertVisitorMatchesQualifiedNames(subSection);
+		}
+	}
+
+	/** Collects the parameters of the section with their qualified names. */
+	private static void collectQualifiedParameters(MDLSection section, String prefix, Map<String, String> result) {
+		for (String name : section.getParameterNames()) {
+			result.put(prefix + name, section.getParameter(name));
+		}
+		for (MDLSection subSection : section.getSubSections()) {
+			collectQualifiedParameters(subSection, prefix + subSection.getName() + ".", result);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.conqat.lib.commons.logging.SimpleLogger;
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.testutils.SimulinkTestBase;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ReferencedModelResolver}.
+ */
+public class ReferencedModelResolverTest extends SimulinkTestBase {
+
+	/** Tests that a library referenced several times is only loaded once. */
+	@Test
+	public void testLibraryIsLoadedOnce() throws Exception {
+		ReferencedModelResolver resolver = new ReferencedModelResolver(ReferencedModelResolver.DEFAULT_CACHE_SIZE,
+				new SimpleLogger());
+		SimulinkModel model = loadLibraryUser();
+
+		SimulinkBlock reusable1 = resolver.resolveBlock(model.getBlock("lib_user/Reusable1"));
+		SimulinkBlock reusable2 = resolver.resolveBlock(model.getBlock("lib_user/Reusable2"));
+		SimulinkBlock reusable3 = resolver.resolveBlock(model.getBlock("lib_user/Reusable3"));
+
+		assertNotNull(reusable1);
+		assertNotNull(reusable2);
+		assertEquals("simple_library/Reusable1", reusable1.getId());
+		assertEquals("simple_library/Reusable2", reusable2.getId());
+		assertSame(reusable1, reusable3);
+		assertSame(reusable1.getModel(), reusable2.getModel());
+		assertEquals(1, resolver.getBuildCount());
+		assertEquals(1, resolver.getCachedModelCount());
+
+		// a second model referencing the same library shares the cached model
+		SimulinkModel otherModel = loadLibraryUser();
+		assertSame(reusable1, resolver.resolveBlock(otherModel.getBlock("lib_user/Reusable1")));
+		assertEquals(1, resolver.getBuildCount());
+
+		resolver.clear();
+		SimulinkBlock reloaded = resolver.resolveBlock(model.getBlock("lib_user/Reusable1"));
+		assertNotSame(reusable1, reloaded);
+		assertEquals(reusable1.getId(), reloaded.getId());
+		assertEquals(2, resolver.getBuildCount());
+	}
+
+	/** Tests that blocks without reference are not resolved. */
+	@Test
+	public void testNonReferenceBlock() throws Exception {
+		ReferencedModelResolver resolver = new ReferencedModelResolver(ReferencedModelResolver.DEFAULT_CACHE_SIZE,
+				new SimpleLogger());
+		SimulinkModel model = loadLibraryUser();
+		for (SimulinkBlock block : model.getSubBlocks()) {
+			if (block.getReferencedBlockInfo() == null) {
+				assertNull(resolver.resolveBlock(block));
+			}
+		}
+		assertEquals(0, resolver.getBuildCount());
+	}
+
+	/** Loads the library user model with the library directory as reference path. */
+	private SimulinkModel loadLibraryUser() throws Exception {
+		return loadModel("libs/lib_user.mdl", new ModelBuildingParameters().addReferencePath(useTestFile("libs")));
+	}
+}
@@ -17,13 +17,21 @@
 package org.conqat.lib.simulink.builder;
 
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_BLOCK_TYPE;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_CLASS_NAME;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_INITIALIZATION;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_NAME;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SID;
 import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_ID;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SIMULINK_MASK;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_SIMULINK_MASK_PARAMETER;
+import static org.conqat.lib.simulink.model.SimulinkConstants.PARAM_VALUE;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_BLOCK;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_CHILDREN;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MASK;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MASK_PARAMETER;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MODEL;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_MODEL_INFORMATION;
+import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_OBJECT;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_STATEFLOW;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_SYSTEM;
 import static org.conqat.lib.simulink.model.SimulinkConstants.SECTION_CHART;
@@ -101,6 +109,52 @@ public class SLXHandlerTest extends SimulinkTestBase {
 
 	}
 
+	/**
+	 * Test that mask elements of newer slx files are stored as mask objects with
+	 * their parameters.
+	 */
+	@Test
+	public void testMaskElements() throws Exception {
+		Attributes emptyAttributes = mock(Attributes.class);
+
+		SLXModelHandler handler = createModelInformationHead();
+		handler.startElement(null, SECTION_MODEL, null, emptyAttributes);
+		handler.startElement(null, SECTION_SYSTEM, null, emptyAttributes);
+		handler.startElement(null, SECTION_BLOCK, null, emptyAttributes);
+		handler.startElement(null, SECTION_MASK, null, emptyAttributes);
+
+		handler.startElement(null, PARAM_INITIALIZATION, null, emptyAttributes);
+		handler.characters("a = 1;".toCharArray(), 0, 6);
+		handler.endElement(null, PARAM_INITIALIZATION, null);
+
+		Attributes parameterAttributes = mock(Attributes.class);
+		when(parameterAttributes.getLength()).thenReturn(1);
+		when(parameterAttributes.getLocalName(0)).thenReturn(PARAM_NAME);
+		when(parameterAttributes.getValue(0)).thenReturn("K");
+		handler.startElement(null, SECTION_MASK_PARAMETER, null, parameterAttributes);
+		handler.startElement(null, PARAM_VALUE, null, emptyAttributes);
+		handler.characters("2.5".toCharArray(), 0, 3);
+		handler.endElement(null, PARAM_VALUE, null);
+		handler.endElement(null, SECTION_MASK_PARAMETER, null);
+
+		handler.endElement(null, SECTION_MASK, null);
+		handler.endElement(null, SECTION_BLOCK, null);
+		handler.endElement(null, SECTION_SYSTEM, null);
+		handler.endElement(null, SECTION_MODEL, null);
+		createModelInformationTail(handler);
+
+		MutableMDLSection block = handler.getRootModelSection().getFirstSubSection(SECTION_MODEL)
+				.getFirstSubSection(SECTION_SYSTEM).getFirstSubSection(SECTION_BLOCK);
+		MutableMDLSection mask = block.getFirstSubSection(SECTION_OBJECT);
+		assertThat(mask.getParameter(PARAM_CLASS_NAME), equalTo(PARAM_SIMULINK_MASK));
+		assertThat(mask.getParameter(PARAM_INITIALIZATION), equalTo("a = 1;"));
+
+		MutableMDLSection parameter = mask.getFirstSubSection(SECTION_OBJECT);
+		assertThat(parameter.getParameter(PARAM_CLASS_NAME), equalTo(PARAM_SIMULINK_MASK_PARAMETER));
+		assertThat(parameter.getParameter(PARAM_NAME), equalTo("K"));
+		assertThat(parameter.getParameter(PARAM_VALUE), equalTo("2.5"));
+	}
+
 	/** Test stateflow model creation. */
 	@Test
 	public void testStateflowModelCreation() throws Exception {
@@ -17,10 +17,12 @@
 package org.conqat.lib.simulink.builder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.io.IOException;
 import java.util.zip.ZipException;
 
+import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkModel;
 import org.junit.Test;
 
@@ -33,6 +35,12 @@ public class SimulinkModelBuilderSLXTest extends SimulinkModelBuilderTestBase {
 	/** Slx file with the default settings in a separate bddefaults.xml file. */
 	private static final String SLX_FILE_WITH_BDDEFAULTS_XML = "bddefaults_2018a.slx";
 
+	/** Slx file with the contents of a subsystem in a separate system_N.xml file. */
+	private static final String SLX_FILE_WITH_SYSTEM_XML = "system_files_2020b.slx";
+
+	/** Name of the subsystem stored in a separate file. */
+	private static final String SUBSYSTEM_NAME = "ServiveTemperatureControl";
+
 	/** {@inheritDoc} */
 	@Override
 	protected String resolveModelName(String basename) {
@@ -49,4 +57,25 @@ public class SimulinkModelBuilderSLXTest extends SimulinkModelBuilderTestBase {
 		assertEquals("Helvetica", model.getBlockDefaultParameter("FontName"));
 		assertEquals("1", model.getTypeBlockDefaultParameter("Inport", "Port"));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests that the contents of subsystems stored in separate system_N.xml files
+	 * are added to the model, also if they are loaded lazily.
+	 */
+	@Test
+	public void testSystemFileExtraction() throws ZipException, SimulinkModelBuildingException, IOException {
+		SimulinkModel model = loadModel(SLX_FILE_WITH_SYSTEM_XML);
+		SimulinkBlock subsystem = model.getSubBlock(SUBSYSTEM_NAME);
+		assertEquals(8, subsystem.getSubBlocks().size());
+		assertEquals(8, subsystem.getContainedLines().size());
+
+		SimulinkModel lazyModel = loadModel(SLX_FILE_WITH_SYSTEM_XML,
+				new ModelBuildingParameters().setLazySubsystemLoading(true));
+		SimulinkBlock lazySubsystem = lazyModel.getSubBlock(SUBSYSTEM_NAME);
+		assertFalse(lazySubsystem.isSubBlocksLoaded());
+
+		// the system parameters are only available once the system file is loaded
+		assertEquals(8, lazySubsystem.getSubBlocks().size());
+		assertEquals(describeBlock(model), describeBlock(lazyModel));
+	}
+}
@@ -244,4 +244,57 @@ public abstract class SimulinkModelBuilderTestBase extends SimulinkTestBase {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test if the model built with lazy subsystem loading equals the model built
+	 * without it, once all subsystems are accessed.
+	 */
+	@Test
+	public void testLazySubsystemLoading() throws SimulinkModelBuildingException, ZipException, IOException {
+		String modelName = resolveModelName("ports");
+		SimulinkModel eagerModel = loadModel(modelName);
+		SimulinkModel lazyModel = loadModel(modelName, new ModelBuildingParameters().setLazySubsystemLoading(true));
+
+		List<SimulinkBlock> notLoaded = new ArrayList<>();
+		for (SimulinkBlock block : lazyModel.getSubBlocks()) {
+			if (!block.isSubBlocksLoaded()) {
+				notLoaded.add(block);
+			}
+		}
+		assertFalse(notLoaded.isEmpty());
+
+		assertEquals(describeBlock(eagerModel), describeBlock(lazyModel));
+		for (SimulinkBlock block : notLoaded) {
+			assertTrue(block.isSubBlocksLoaded());
+		}
+	}
+
+	/**
+	 * Returns a description of the given block and all of its descendants that
+	 * contains the ports, parameters and contained lines.
+	 */
+	protected static String describeBlock(SimulinkBlock block) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(block.getId()).append(" [").append(block.getInPorts().size()).append(":")
+				.append(block.getOutPorts().size()).append("]\n");
+
+		List<String> parameters = new ArrayList<>();
+		for (String name : block.getParameterNames()) {
+			parameters.add(name + "=" + block.getParameter(name));
+		}
+		builder.append(StringUtils.concat(CollectionUtils.sort(parameters), "\n")).append("\n");
+
+		List<String> lines = new ArrayList<>();
+		for (SimulinkLine line : block.getContainedLines()) {
+			lines.add(line.toString());
+		}
+		builder.append(StringUtils.concat(CollectionUtils.sort(lines), "\n")).append("\n");
+
+		List<String> subBlocks = new ArrayList<>();
+		for (SimulinkBlock subBlock : block.getSubBlocks()) {
+			subBlocks.add(describeBlock(subBlock));
+		}
+		builder.append(StringUtils.concat(CollectionUtils.sort(subBlocks), "\n"));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,83 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright 2005-2011 The ConQAT Project                                   |
+|                                                                          |
+| Licensed under the Apache License, Version 2.0 (the "License");          |
+| you may not use this file except in compliance with the License.         |
+| You may obtain a copy of the License at                                  |
+|                                                                          |
+|    http://www.apache.org/licenses/LICENSE-2.0                            |
+|                                                                          |
+| Unless required by applicable law or agreed to in writing, software      |
+| distributed under the License is distributed on an "AS IS" BASIS,        |
+| WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. |
+| See the License for the specific language governing permissions and      |
+| limitations under the License.                                           |
++-------------------------------------------------------------------------*/
+package org.conqat.lib.simulink.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.testutils.SimulinkTestBase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BatchDiagramRenderer}.
+ */
+public class BatchDiagramRendererTest extends SimulinkTestBase {
+
+	/** Tests that only changed subsystems are rendered again. */
+	@Test
+	public void testOnlyChangedSubsystemsAreRendered() throws Exception {
+		File cacheDirectory = new File(getTmpDirectory(), "render-cache");
+		if (cacheDirectory.isDirectory()) {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+
+		SimulinkModel model = loadModel("model01.mdl");
+		BatchDiagramRenderer renderer = new BatchDiagramRenderer(cacheDirectory, 4);
+		Map<String, File> images = renderer.renderSubsystems(model);
+		assertTrue(images.size() > 1);
+		assertEquals(new HashSet<>(images.values()).size(), renderer.getRenderCount());
+		for (File image : images.values()) {
+			assertTrue(image.isFile());
+		}
+
+		// a new renderer only uses the images on disk
+		renderer = new BatchDiagramRenderer(cacheDirectory, 4);
+		assertEquals(images, renderer.renderSubsystems(loadModel("model01.mdl")));
+		assertEquals(0, renderer.getRenderCount());
+
+		// port blocks also affect the labels of the parent, so we change
+		// another block
+		SimulinkBlock changedBlock = null;
+		for (SimulinkBlock block : model.getSubBlocks()) {
+			if (!images.containsKey(block.getId())) {
+				continue;
+			}
+			for (SimulinkBlock subBlock : block.getSubBlocks()) {
+				if (!SimulinkConstants.TYPE_INPORT.equals(subBlock.getType())
+						&& !SimulinkConstants.TYPE_OUTPORT.equals(subBlock.getType())) {
+					changedBlock = subBlock;
+				}
+			}
+		}
+		SimulinkBlock subsystem = changedBlock.getParent();
+		changedBlock.setParameter("BackgroundColor", "red");
+
+		Map<String, File> changedImages = renderer.renderSubsystems(model);
+		assertEquals(1, renderer.getRenderCount());
+		assertNotEquals(images.get(subsystem.getId()), changedImages.get(subsystem.getId()));
+		assertEquals(images.get(model.getId()), changedImages.get(model.getId()));
+	}
+}
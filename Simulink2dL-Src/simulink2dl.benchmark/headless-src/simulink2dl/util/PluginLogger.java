@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util;
+
+import java.io.PrintStream;
+
+/**
+ * Headless replacement of the logger of the simulink2dl plug-in. The original
+ * class writes to an Eclipse console and cannot be loaded without a running
+ * workbench. This class provides the same static interface and writes to the
+ * standard streams instead.
+ * 
+ * The amount of output is controlled by the system property
+ * <code>simulink2dl.logLevel</code> (<code>debug</code>, <code>info</code>,
+ * <code>warning</code>, <code>error</code> or <code>off</code>). Benchmarks
+ * default to <code>error</code>, since the debug output of the transformation
+ * would otherwise dominate the measurements.
+ */
+public class PluginLogger {
+
+	public final static String CONSOLE_NAME = "Test";
+
+	public static PrintStream out = System.out;
+	public static PrintStream err = System.err;
+
+	private static final int DEBUG = 0;
+	private static final int INFO = 1;
+	private static final int WARNING = 2;
+	private static final int ERROR = 3;
+	private static final int OFF = 4;
+
+	private static int level = parseLevel(System.getProperty("simulink2dl.logLevel", "error"));
+
+	private static int parseLevel(String value) {
+		switch (value.toLowerCase()) {
+		case "debug":
+			return DEBUG;
+		case "info":
+			return INFO;
+		case "warning":
+			return WARNING;
+		case "off":
+			return OFF;
+		default:
+			return ERROR;
+		}
+	}
+
+	public static void info(String msg) {
+		if (level <= INFO) {
+			out.println("[Info] " + msg);
+		}
+	}
+
+	public static void debug(String msg) {
+		if (level <= DEBUG) {
+			out.println("[DEBUG] " + msg);
+		}
+	}
+
+	public static void warning(String msg) {
+		if (level <= WARNING) {
+			out.println("[WARNING] " + msg);
+		}
+	}
+
+	public static void error(String msg) {
+		if (level <= ERROR) {
+			err.println("[ERROR] " + msg);
+		}
+	}
+
+	public static void exception(String msg, Exception exc) {
+		if (level <= ERROR) {
+			err.println("[EXCEPTION] " + msg);
+			for (StackTraceElement element : exc.getStackTrace()) {
+				err.println("\t" + element.toString());
+			}
+		}
+	}
+}
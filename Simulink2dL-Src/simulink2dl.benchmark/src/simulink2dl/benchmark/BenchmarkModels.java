@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.conqat.lib.commons.logging.NoOpLogger;
+import org.conqat.lib.simulink.builder.ModelBuildingParameters;
+import org.conqat.lib.simulink.builder.SimulinkModelBuilder;
+import org.conqat.lib.simulink.builder.SimulinkModelBuildingException;
+import org.conqat.lib.simulink.model.SimulinkModel;
+
+import simulink2dl.benchmark.synthetic.MDLModelWriter;
+import simulink2dl.benchmark.synthetic.SyntheticModelGenerator;
+import simulink2dl.transform.Transformer;
+import simulink2dl.transform.config.TransformerMapping;
+
+/**
+ * This class provides the models used by the benchmarks. A model is given by a
+ * key, which is either a path relative to the <code>Simulink2dL-Src</code>
+ * folder (e.g. <code>../Examples/TemperatureControl.slx</code>) or the key of a
+ * synthetic model (e.g. <code>chain:100</code>), see
+ * {@link SyntheticModelGenerator}.
+ * 
+ * The location of the <code>Simulink2dL-Src</code> folder is taken from the
+ * system property <code>simulink2dl.root</code> and defaults to the parent of
+ * the working directory. With the system property
+ * <code>simulink2dl.rateGrouping=true</code>, the transformations schedule
+ * discrete behavior with different sample times by a shared base rate clock.
+ * With <code>simulink2dl.sliceTargets=Out1,Out2</code>, only the blocks that
+ * influence the given blocks are transformed.
+ */
+public class BenchmarkModels {
+
+	/**
+	 * Handlers that are passed to {@link Transformer#transform(Set)}.
+	 */
+	public static final Set<String> HANDLERS = new HashSet<String>();
+
+	/**
+	 * All available optimizers, see {@link Transformer#optimize(Set)}.
+	 */
+	public static final Set<String> OPTIMIZERS = new HashSet<String>(
+			Arrays.asList("ConditionalChoice", "Formula", "Contradiction", "EvolutionDomain", "CommonSubexpression"));
+
+	/**
+	 * Whether the transformations use a base rate clock, see
+	 * {@link simulink2dl.transform.Environment#useRateGrouping()}.
+	 */
+	public static final boolean RATE_GROUPING = Boolean.getBoolean("simulink2dl.rateGrouping");
+
+	/**
+	 * Names of the blocks that the transformations are sliced to, null to
+	 * transform all blocks, see {@link Transformer#setSliceTargets(Collection)}.
+	 */
+	public static final List<String> SLICE_TARGETS = parseList(System.getProperty("simulink2dl.sliceTargets"));
+
+	private static List<String> parseList(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return null;
+		}
+		return Arrays.asList(value.trim().split("\\s*,\\s*"));
+	}
+
+	public static File getRoot() {
+		return new File(System.getProperty("simulink2dl.root", "..")).getAbsoluteFile();
+	}
+
+	/**
+	 * Returns the model file for the given key. Synthetic models are written to a
+	 * temporary file.
+	 */
+	public static File getModelFile(String key) throws IOException {
+		if (SyntheticModelGenerator.isModelKey(key)) {
+			SimulinkModel model = new SyntheticModelGenerator().generate(key);
+			File file = File.createTempFile(model.getName() + "_", SimulinkModelBuilder.MDL_FILE_EXTENSION);
+			file.deleteOnExit();
+			new MDLModelWriter().write(model, file);
+			return file;
+		}
+
+		File file = new File(getRoot(), key);
+		if (!file.exists()) {
+			throw new IOException("Benchmark model " + file + " does not exist.");
+		}
+		return file;
+	}
+
+	public static SimulinkModel loadModel(File file) throws IOException, SimulinkModelBuildingException {
+		return loadModel(file, new ModelBuildingParameters());
+	}
+
+	public static SimulinkModel loadModel(File file, ModelBuildingParameters parameters)
+			throws IOException, SimulinkModelBuildingException {
+		try (SimulinkModelBuilder builder = new SimulinkModelBuilder(file, new NoOpLogger())) {
+			return builder.buildModel(parameters);
+		}
+	}
+
+	public static SimulinkModel loadModel(String key) throws IOException, SimulinkModelBuildingException {
+		return loadModel(getModelFile(key));
+	}
+
+	/**
+	 * Reads the block transformer configuration of the simulink2dl plug-in.
+	 */
+	public static void initializeTransformerMapping() {
+		TransformerMapping mapping = TransformerMapping.getInstance();
+		if (!mapping.initialized()) {
+			mapping.initialize(new File(getRoot(), "simulink2dl/config/transformer.cfg"));
+		}
+	}
+
+	/**
+	 * Creates a transformer for the given model and runs the block
+	 * transformation.
+	 */
+	public static Transformer transform(SimulinkModel model) throws IOException {
+		return transform(model, SLICE_TARGETS);
+	}
+
+	/**
+	 * Creates a transformer for the given model and runs the block transformation
+	 * of the blocks that influence the given targets.
+	 * 
+	 * @param sliceTargets names of the target blocks, null to transform all blocks
+	 */
+	public static Transformer transform(SimulinkModel model, Collection<String> sliceTargets) throws IOException {
+		initializeTransformerMapping();
+		Transformer transformer = new Transformer(model, new HashSet<>());
+		transformer.getEnvironment().setUseRateGrouping(RATE_GROUPING);
+		transformer.setSliceTargets(sliceTargets);
+		transformer.transform(HANDLERS);
+		return transformer;
+	}
+
+	/**
+	 * Creates a transformer for the given model, runs the block transformation
+	 * and finalizes the dL model.
+	 */
+	public static Transformer transformAndFinalize(SimulinkModel model) throws IOException {
+		Transformer transformer = transform(model);
+		transformer.finalizeTransform();
+		return transformer;
+	}
+}
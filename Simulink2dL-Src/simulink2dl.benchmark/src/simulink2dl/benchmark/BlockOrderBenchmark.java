@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulink2dl.util.order.BlockOrder;
+
+/**
+ * Measures {@link BlockOrder#generateBlockOrder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockOrderBenchmark {
+
+	@Param({ "../Examples/TemperatureControl.slx", "../Examples/TemperatureControlService.slx", "chain:100",
+			"chain:1000", "switch:50", "mux:32", "multirate:32", "nested:8" })
+	public String model;
+
+	private SimulinkModel simulinkModel;
+
+	@Setup
+	public void setup() throws Exception {
+		simulinkModel = BenchmarkModels.loadModel(model);
+	}
+
+	@Benchmark
+	public List<SimulinkBlock> generateBlockOrder() {
+		return new BlockOrder().generateBlockOrder(simulinkModel.getSubBlocks(), new HashSet<SimulinkBlock>());
+	}
+}
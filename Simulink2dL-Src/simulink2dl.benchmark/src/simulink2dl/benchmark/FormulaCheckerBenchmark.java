@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.term.AdditionTerm;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.util.satisfiability.BatchFormulaChecker;
+import simulink2dl.util.satisfiability.FormulaChecker;
+import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
+import simulink2dl.util.satisfiability.LinearPreSolver;
+
+/**
+ * Measures {@link FormulaChecker#checkSingleFormula(Formula)} for conditions
+ * of the form created by conditional macros, i.e. conjunctions of relations
+ * over a growing number of variables. A new checker is created for every query,
+ * just as the macros did before batching.
+ * 
+ * {@link BatchFormulaChecker#checkFormulas(List)} is measured for a batch of
+ * such conditions with one checker for the whole trial; the number of solver
+ * threads is set with the system property "simulink2dl.solverThreads".
+ * 
+ * {@link LinearPreSolver#check(simulink2dl.dlmodel.operator.Operator)} is
+ * measured for the same conditions without disjunctions, which the Z3 checks
+ * above do not reach the pre-solver with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormulaCheckerBenchmark {
+
+	@Param({ "1", "10", "100" })
+	public int size;
+
+	@Param({ "true", "false" })
+	public boolean satisfiable;
+
+	private static final int BATCH_SIZE = 64;
+
+	private Formula formula;
+
+	private Formula linearFormula;
+
+	private List<Formula> batch;
+
+	private BatchFormulaChecker checker;
+
+	@Setup
+	public void setup() {
+		Conjunction conjunction = new Conjunction();
+		Conjunction linearConjunction = new Conjunction();
+		Variable previous = new Variable("R", "x0");
+		conjunction.addElement(new Relation(previous, RelationType.GREATER_EQUAL, new RealTerm(0.0)));
+		linearConjunction.addElement(new Relation(previous, RelationType.GREATER_EQUAL, new RealTerm(0.0)));
+		for (int i = 1; i <= size; i++) {
+			Variable current = new Variable("R", "x" + i);
+			conjunction.addElement(
+					new Relation(current, RelationType.GREATER_THAN, new AdditionTerm(previous, new RealTerm(1.0))));
+			conjunction.addElement(new Disjunction(new Relation(current, RelationType.LESS_THAN, new RealTerm(i * 10.0)),
+					new Relation(current, RelationType.EQUAL, new RealTerm(i * 20.0))));
+			linearConjunction.addElement(
+					new Relation(current, RelationType.GREATER_THAN, new AdditionTerm(previous, new RealTerm(1.0))));
+			linearConjunction.addElement(new Relation(current, RelationType.LESS_THAN, new RealTerm(i * 10.0)));
+			previous = current;
+		}
+		if (!satisfiable) {
+			conjunction.addElement(new Relation(previous, RelationType.LESS_THAN, new RealTerm(0.0)));
+			linearConjunction.addElement(new Relation(previous, RelationType.LESS_THAN, new RealTerm(0.0)));
+		}
+		formula = conjunction;
+		linearFormula = linearConjunction;
+
+		batch = new ArrayList<Formula>();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch.add(conjunction.createDeepCopy());
+		}
+
+		checker = new BatchFormulaChecker();
+	}
+
+	@TearDown
+	public void tearDown() {
+		checker.close();
+	}
+
+	@Benchmark
+	public ResultType checkSingleFormula() {
+		return new FormulaChecker().checkSingleFormula(formula);
+	}
+
+	@Benchmark
+	public List<ResultType> checkBatch() {
+		return checker.checkFormulas(batch);
+	}
+
+	@Benchmark
+	public ResultType checkLinearPreSolver() {
+		return LinearPreSolver.check(linearFormula);
+	}
+}
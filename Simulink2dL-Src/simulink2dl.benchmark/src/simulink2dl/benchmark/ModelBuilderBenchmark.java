@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.lib.simulink.builder.ModelBuildingParameters;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link org.conqat.lib.simulink.builder.SimulinkModelBuilder#buildModel()}
+ * for MDL and SLX files, with and without lazy subsystem loading. With lazy
+ * loading, only the top level of the model is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBuilderBenchmark {
+
+	@Param({ "org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.builder/model02.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.builder/model02_2015b.slx",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.builder/ports.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.builder/ports_2013a.slx",
+			"../Examples/TemperatureControl.slx", "../Examples/TemperatureControlService.slx", "chain:100",
+			"chain:1000", "nested:16" })
+	public String model;
+
+	@Param({ "false", "true" })
+	public boolean lazy;
+
+	private File file;
+
+	@Setup
+	public void setup() throws Exception {
+		file = BenchmarkModels.getModelFile(model);
+	}
+
+	@Benchmark
+	public SimulinkModel buildModel() throws Exception {
+		return BenchmarkModels.loadModel(file, new ModelBuildingParameters().setLazySubsystemLoading(lazy));
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulink2dl.transform.dlmodel.DLModelSimulink;
+import simulink2dl.transform.optimizer.CommonSubexpressionOptimizer;
+import simulink2dl.transform.optimizer.ConditionalChoiceOptimizer;
+import simulink2dl.transform.optimizer.ContradictionOptimizer;
+import simulink2dl.transform.optimizer.EvolutionDomainOptimizer;
+import simulink2dl.transform.optimizer.FormulaOptimizer;
+import simulink2dl.transform.optimizer.Optimizer;
+
+/**
+ * Measures each {@link Optimizer} on its own. Optimizers change the dL model,
+ * hence every measurement runs on a freshly finalized model as a single shot.
+ * The transformation flattens the subsystems of the Simulink model, so the
+ * model is loaded again before each iteration as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class OptimizerBenchmark {
+
+	@Param({ "ConditionalChoice", "Formula", "Contradiction", "EvolutionDomain", "CommonSubexpression" })
+	public String optimizer;
+
+	@Param({ "../Examples/TemperatureControl.slx", "../Examples/TemperatureControlService.slx", "chain:100",
+			"switch:10" })
+	public String model;
+
+	private DLModelSimulink dlModel;
+
+	@Setup(Level.Iteration)
+	public void transformModel() throws Exception {
+		dlModel = BenchmarkModels.transformAndFinalize(BenchmarkModels.loadModel(model)).getDLModel();
+	}
+
+	@Benchmark
+	public DLModelSimulink run() {
+		createOptimizer().run(dlModel);
+		return dlModel;
+	}
+
+	private Optimizer createOptimizer() {
+		switch (optimizer) {
+		case "ConditionalChoice":
+			return new ConditionalChoiceOptimizer();
+		case "Formula":
+			return new FormulaOptimizer();
+		case "Contradiction":
+			return new ContradictionOptimizer();
+		case "EvolutionDomain":
+			return new EvolutionDomainOptimizer();
+		case "CommonSubexpression":
+			return new CommonSubexpressionOptimizer();
+		default:
+			throw new IllegalArgumentException("Unknown optimizer " + optimizer);
+		}
+	}
+}
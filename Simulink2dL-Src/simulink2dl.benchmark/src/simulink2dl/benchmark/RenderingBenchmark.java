@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.util.BatchDiagramRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering all subsystems of a model with the
+ * {@link BatchDiagramRenderer}. Without cache, every measurement starts with an
+ * empty cache directory. With cache, the images were rendered before, so this
+ * only measures hashing the subsystems.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenderingBenchmark {
+
+	@Param({ "../Examples/TemperatureControlService.slx", "nested:64", "nested:500" })
+	public String model;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private SimulinkModel simulinkModel;
+
+	private File cacheDirectory;
+
+	@Setup(Level.Trial)
+	public void loadModel() throws Exception {
+		simulinkModel = BenchmarkModels.loadModel(model);
+		cacheDirectory = Files.createTempDirectory("simulink2dl-render").toFile();
+		if (cached) {
+			new BatchDiagramRenderer(cacheDirectory, threads).renderSubsystems(simulinkModel);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void clearCache() throws Exception {
+		if (!cached) {
+			FileSystemUtils.deleteRecursively(cacheDirectory);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteCache() {
+		FileSystemUtils.deleteRecursively(cacheDirectory);
+	}
+
+	@Benchmark
+	public Map<String, File> run() throws Exception {
+		return new BatchDiagramRenderer(cacheDirectory, threads).renderSubsystems(simulinkModel);
+	}
+}
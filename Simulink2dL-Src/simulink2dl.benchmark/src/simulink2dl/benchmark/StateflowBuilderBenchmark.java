@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building models with Stateflow charts. Each Stateflow element gets
+ * the parameters of its section and all sub sections, so this mainly measures
+ * the parameter transfer of the <code>StateflowBuilder</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StateflowBuilderBenchmark {
+
+	@Param({ "org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.model.stateflow/chart_input.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.model.stateflow/stateflow_subchart.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.model.stateflow/TruthTable.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.model.stateflow/simulink_in_stateflow.mdl",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.model.stateflow/TruthTable.slx",
+			"org.conqat.lib.simulink/test-data/org.conqat.lib.simulink.builder/model02.mdl" })
+	public String model;
+
+	private File file;
+
+	@Setup
+	public void setup() throws Exception {
+		file = BenchmarkModels.getModelFile(model);
+	}
+
+	@Benchmark
+	public SimulinkModel buildModel() throws Exception {
+		return BenchmarkModels.loadModel(file);
+	}
+}
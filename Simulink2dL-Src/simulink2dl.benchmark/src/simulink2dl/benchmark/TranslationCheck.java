@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.conqat.lib.simulink.builder.ModelBuildingParameters;
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkModel;
+
+import simulink2dl.transform.Transformer;
+
+/**
+ * Checks that the translation of the example models does not change. Each
+ * model is loaded with and without lazy subsystem loading, transformed and
+ * finalized, and both outputs are compared with the expected output in
+ * <code>simulink2dl.benchmark/expected/&lt;model name&gt;.kyx</code>.
+ * 
+ * The order of some declarations and assignments depends on the iteration
+ * order of hash sets of blocks in {@link simulink2dl.util.order.BlockOrder},
+ * which differs between runs. The outputs are therefore compared as sorted
+ * lists of lines.
+ * 
+ * In addition, each model is sliced to each of its outports. The sliced
+ * output must still declare the outport, assign it as in the full output and
+ * must not declare variables that the full output does not declare.
+ * 
+ * Usage: TranslationCheck [--update] [&lt;model&gt;...]
+ * 
+ * Without models, the models in the Examples folder are checked, the slicing
+ * also on the models of {@link #SLICED_MODELS}. With <code>--update</code>,
+ * the expected outputs are replaced by the outputs of the eagerly loaded
+ * models. The exit code is 1 if an output differs.
+ */
+public class TranslationCheck {
+
+	public static final String[] EXAMPLES = { "../Examples/TemperatureControl.slx",
+			"../Examples/TemperatureControlService.slx" };
+
+	/**
+	 * Models with independent outports that are only checked for slicing.
+	 */
+	public static final String[] SLICED_MODELS = { "multirate:4" };
+
+	public static File getExpectedFile(String key) {
+		String name = new File(key).getName();
+		int dot = name.lastIndexOf('.');
+		if (dot > 0) {
+			name = name.substring(0, dot);
+		}
+		return new File(BenchmarkModels.getRoot(), "simulink2dl.benchmark/expected/" + name + ".kyx");
+	}
+
+	/**
+	 * Loads, transforms and finalizes the given model and returns the dL output.
+	 */
+	public static String translate(String key, boolean lazy) throws Exception {
+		SimulinkModel model = BenchmarkModels.loadModel(BenchmarkModels.getModelFile(key),
+				new ModelBuildingParameters().setLazySubsystemLoading(lazy));
+		return translate(model, null);
+	}
+
+	/**
+	 * Transforms and finalizes the given model, sliced to the given targets, and
+	 * returns the dL output.
+	 */
+	private static String translate(SimulinkModel model, Collection<String> sliceTargets) throws Exception {
+		Transformer transformer = BenchmarkModels.transform(model, sliceTargets);
+		transformer.finalizeTransform();
+		return transformer.getDLModel().createOutputString(false, false);
+	}
+
+	/**
+	 * Returns the names of the program variables that the given output declares.
+	 */
+	private static Set<String> getProgramVariables(String output) {
+		Set<String> variables = new HashSet<String>();
+		boolean inDeclarations = false;
+		for (String line : output.split("\r?\n")) {
+			line = line.trim();
+			if (line.equals("ProgramVariables.")) {
+				inDeclarations = true;
+			} else if (line.equals("End.")) {
+				inDeclarations = false;
+			} else if (inDeclarations && line.endsWith(".")) {
+				// e.g. "R Tout."
+				variables.add(line.substring(line.lastIndexOf(' ') + 1, line.length() - 1));
+			}
+		}
+		return variables;
+	}
+
+	/**
+	 * Slices the given model to each of its outports and returns whether all
+	 * sliced outputs keep the outport.
+	 */
+	private static boolean checkSlicing(String key) throws Exception {
+		String full = translate(key, false);
+		Set<String> fullVariables = getProgramVariables(full);
+		List<String> fullLines = Arrays.asList(full.split("\r?\n"));
+
+		List<String> outports = new ArrayList<String>();
+		for (SimulinkBlock block : BenchmarkModels.loadModel(key).getSubBlocks()) {
+			if (block.getType().equals("Outport")) {
+				outports.add(block.getName());
+			}
+		}
+
+		boolean matches = true;
+		for (String outport : outports) {
+			String sliced = translate(BenchmarkModels.loadModel(key), Collections.singletonList(outport));
+			Set<String> slicedVariables = getProgramVariables(sliced);
+			Set<String> slicedLines = new HashSet<String>(Arrays.asList(sliced.split("\r?\n")));
+			if (!slicedVariables.contains(outport)) {
+				System.out.println(key + ": slicing to " + outport + " removes " + outport);
+				matches = false;
+			}
+			for (String line : fullLines) {
+				if (line.trim().startsWith(outport + ":=") && !slicedLines.contains(line)) {
+					System.out.println(key + ": slicing to " + outport + " changes \"" + line.trim() + "\"");
+					matches = false;
+				}
+			}
+			for (String variable : slicedVariables) {
+				if (!fullVariables.contains(variable)) {
+					System.out.println(key + ": slicing to " + outport + " adds " + variable);
+					matches = false;
+				}
+			}
+		}
+		if (matches) {
+			System.out.println(key + ": slicing to " + outports.size() + " outports ok");
+		}
+		return matches;
+	}
+
+	private static List<String> sortedLines(String output) {
+		List<String> lines = new ArrayList<String>(Arrays.asList(output.split("\r?\n")));
+		Collections.sort(lines);
+		return lines;
+	}
+
+	/**
+	 * Checks the given model and returns whether all outputs match.
+	 */
+	private static boolean check(String key, boolean update) throws Exception {
+		File expectedFile = getExpectedFile(key);
+		String eager = translate(key, false);
+		if (update) {
+			Files.write(expectedFile.toPath(), eager.getBytes(StandardCharsets.UTF_8));
+			System.out.println("Wrote " + expectedFile);
+			return true;
+		}
+		if (!expectedFile.isFile()) {
+			System.out.println(key + ": missing expected output " + expectedFile);
+			return false;
+		}
+
+		List<String> expected = sortedLines(new String(Files.readAllBytes(expectedFile.toPath()),
+				StandardCharsets.UTF_8));
+		boolean matches = true;
+		if (!expected.equals(sortedLines(eager))) {
+			System.out.println(key + ": eager loading does not match " + expectedFile);
+			matches = false;
+		}
+		if (!expected.equals(sortedLines(translate(key, true)))) {
+			System.out.println(key + ": lazy loading does not match " + expectedFile);
+			matches = false;
+		}
+		if (matches) {
+			System.out.println(key + ": ok");
+		}
+		return matches;
+	}
+
+	public static void main(String[] args) throws Exception {
+		boolean update = false;
+		List<String> keys = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.equals("--update")) {
+				update = true;
+			} else {
+				keys.add(arg);
+			}
+		}
+		if (keys.isEmpty()) {
+			keys.addAll(Arrays.asList(EXAMPLES));
+		}
+
+		boolean matches = true;
+		for (String key : keys) {
+			matches &= check(key, update);
+		}
+		if (!update) {
+			List<String> slicedKeys = new ArrayList<String>(keys);
+			if (args.length == 0) {
+				slicedKeys.addAll(Arrays.asList(SLICED_MODELS));
+			}
+			for (String key : slicedKeys) {
+				matches &= checkSlicing(key);
+			}
+		}
+		if (!matches) {
+			System.exit(1);
+		}
+	}
+}
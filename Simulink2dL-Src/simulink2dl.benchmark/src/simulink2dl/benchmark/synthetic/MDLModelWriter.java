@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+
+/**
+ * This class writes a {@link SimulinkModel} as a .mdl file. Only the parts
+ * that are read by the model builder and the transformation are written, i.e.
+ * blocks with their declared parameters, the number of ports, lines and nested
+ * subsystems. Layout and configuration sets are omitted.
+ */
+public class MDLModelWriter {
+
+	/**
+	 * Version that is written to the model. The builder chooses the data handler
+	 * depending on this value.
+	 */
+	private static final String MODEL_VERSION = "8.1";
+
+	private static final String PARAM_BLOCK_TYPE = "BlockType";
+
+	private static final String PARAM_NAME = "Name";
+
+	private static final String PARAM_PORTS = "Ports";
+
+	private StringBuilder builder;
+
+	public void write(SimulinkModel model, File file) throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf-8"))) {
+			writer.write(toMDLString(model));
+		}
+	}
+
+	public String toMDLString(SimulinkModel model) {
+		builder = new StringBuilder();
+		String name = model.getName();
+
+		builder.append("Model {\n");
+		appendParameter(PARAM_NAME, name, 1);
+		appendParameter("Version", MODEL_VERSION, 1);
+		appendSystem(model, name, 1);
+		builder.append("}\n");
+
+		return builder.toString();
+	}
+
+	private void appendSystem(SimulinkBlock system, String name, int depth) {
+		appendLine("System {", depth);
+		appendParameter(PARAM_NAME, name, depth + 1);
+		for (SimulinkBlock block : system.getSubBlocks()) {
+			appendBlock(block, depth + 1);
+		}
+		for (SimulinkLine line : system.getContainedLines()) {
+			appendLine(line, depth + 1);
+		}
+		appendLine("}", depth);
+	}
+
+	private void appendBlock(SimulinkBlock block, int depth) {
+		appendLine("Block {", depth);
+		appendParameter(PARAM_BLOCK_TYPE, block.getType(), depth + 1);
+		appendParameter(PARAM_NAME, block.getName(), depth + 1);
+		appendParameter(PARAM_PORTS, "[" + countNumberedPorts(block, true) + ", "
+				+ countNumberedPorts(block, false) + "]", depth + 1);
+
+		List<String> parameterNames = new ArrayList<String>(block.getDeclaredParameterNames());
+		Collections.sort(parameterNames);
+		for (String parameter : parameterNames) {
+			if (parameter.equals(PARAM_BLOCK_TYPE) || parameter.equals(PARAM_NAME) || parameter.equals(PARAM_PORTS)) {
+				continue;
+			}
+			appendParameter(parameter, block.getDeclaredParameter(parameter), depth + 1);
+		}
+
+		if (block.hasSubBlocks()) {
+			appendSystem(block, block.getName(), depth + 1);
+		}
+		appendLine("}", depth);
+	}
+
+	private void appendLine(SimulinkLine line, int depth) {
+		SimulinkOutPort srcPort = line.getSrcPort();
+		SimulinkInPort dstPort = line.getDstPort();
+
+		appendLine("Line {", depth);
+		appendParameter("SrcBlock", srcPort.getBlock().getName(), depth + 1);
+		appendParameter("SrcPort", srcPort.getIndex(), depth + 1);
+		appendParameter("DstBlock", dstPort.getBlock().getName(), depth + 1);
+		appendParameter("DstPort", dstPort.getIndex(), depth + 1);
+		appendLine("}", depth);
+	}
+
+	/**
+	 * Returns the number of in or out ports with a numeric index. Special ports
+	 * (trigger, enable, ...) are not part of the "Ports" parameter.
+	 */
+	private static int countNumberedPorts(SimulinkBlock block, boolean inPorts) {
+		int count = 0;
+		if (inPorts) {
+			for (SimulinkInPort port : block.getInPorts()) {
+				if (!port.isSpecialPort()) {
+					count++;
+				}
+			}
+		} else {
+			for (SimulinkOutPort port : block.getOutPorts()) {
+				if (!port.isSpecialPort()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private void appendParameter(String name, String value, int depth) {
+		appendLine(name + " " + formatValue(value), depth);
+	}
+
+	/**
+	 * Numbers, arrays and the values on/off are written as they are, everything
+	 * else is written as quoted string.
+	 */
+	private static String formatValue(String value) {
+		if (value.startsWith("[") || value.equals("on") || value.equals("off") || value.matches("-?[0-9]+(\\.[0-9]+)?")) {
+			return value;
+		}
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+
+	private void appendLine(String line, int depth) {
+		for (int i = 0; i < depth; i++) {
+			builder.append("  ");
+		}
+		builder.append(line);
+		builder.append("\n");
+	}
+}
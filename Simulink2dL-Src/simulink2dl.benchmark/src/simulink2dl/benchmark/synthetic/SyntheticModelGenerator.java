@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.benchmark.synthetic;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+
+/**
+ * This class generates Simulink models of a given family and size for scale
+ * testing. The models are created with the ConQAT model classes and can be
+ * written as .mdl file with {@link MDLModelWriter}.
+ * 
+ * A model is identified by a key of the form <code>family:size</code>, e.g.
+ * <code>chain:100</code>. The available families are listed in
+ * {@link Family}.
+ */
+public class SyntheticModelGenerator {
+
+	/**
+	 * Sample times that are used for multirate models.
+	 */
+	private static final String[] SAMPLE_TIMES = { "0.1", "0.2", "0.5", "1" };
+
+	public enum Family {
+		/** Chain of N alternating Gain and Sum blocks. */
+		CHAIN("chain"),
+		/** Cascade of K Switch blocks that feeds an Integrator. */
+		SWITCH("switch"),
+		/** M signals combined by a Mux, scaled and split by a Demux. */
+		MUX("mux"),
+		/** Bank of N UnitDelay blocks with different sample times. */
+		MULTIRATE("multirate"),
+		/** N subsystems nested into each other. */
+		NESTED("nested"),
+		/** Chain of N instances of the same controller subsystem. */
+		REPEATED("repeated"),
+		/** N copies of the same Gain and Sum logic on the same input. */
+		DUPLICATED("duplicated");
+
+		private String key;
+
+		private Family(String key) {
+			this.key = key;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public static Family fromKey(String key) {
+			for (Family family : values()) {
+				if (family.key.equals(key)) {
+					return family;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if the given string is a key of a synthetic model.
+	 */
+	public static boolean isModelKey(String key) {
+		int separator = key.indexOf(':');
+		return separator > 0 && Family.fromKey(key.substring(0, separator)) != null
+				&& key.substring(separator + 1).matches("[0-9]+");
+	}
+
+	/**
+	 * Generates the model for a key of the form <code>family:size</code>.
+	 */
+	public SimulinkModel generate(String key) {
+		if (!isModelKey(key)) {
+			throw new IllegalArgumentException("Invalid synthetic model \"" + key + "\".");
+		}
+		int separator = key.indexOf(':');
+		Family family = Family.fromKey(key.substring(0, separator));
+		int size = Integer.parseInt(key.substring(separator + 1));
+		return generate(family, size);
+	}
+
+	public SimulinkModel generate(Family family, int size) {
+		SimulinkModel model = new SimulinkModel(false, family.getKey() + size, null);
+
+		switch (family) {
+		case CHAIN:
+			createChain(model, size);
+			break;
+		case SWITCH:
+			createSwitchCascade(model, size);
+			break;
+		case MUX:
+			createMuxDemux(model, size);
+			break;
+		case MULTIRATE:
+			createMultirateBank(model, size);
+			break;
+		case NESTED:
+			createNestedSubsystems(model, size);
+			break;
+		case REPEATED:
+			createRepeatedSubsystems(model, size);
+			break;
+		case DUPLICATED:
+			createDuplicatedLogic(model, size);
+			break;
+		}
+
+		return model;
+	}
+
+	/**
+	 * In1 -> Gain1 -> Sum2 -> Gain3 -> ... -> Out1, each Sum block adds In1.
+	 */
+	private void createChain(SimulinkBlock parent, int size) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		SimulinkBlock previous = input;
+		for (int i = 1; i <= size; i++) {
+			SimulinkBlock current;
+			if (i % 2 == 1) {
+				current = createBlock(parent, "Gain", "Gain" + i, 1, 1);
+				current.setParameter("Gain", String.valueOf(i % 7 + 1));
+			} else {
+				current = createBlock(parent, "Sum", "Sum" + i, 2, 1);
+				current.setParameter("Inputs", "++");
+				connect(parent, input, 1, current, 2);
+			}
+			connect(parent, previous, 1, current, 1);
+			previous = current;
+		}
+		connect(parent, previous, 1, createPort(parent, "Outport", "Out1", 1), 1);
+	}
+
+	/**
+	 * Switch i passes Constant i if In1 is at least i and the output of switch
+	 * i-1 otherwise. The last switch drives the derivative of an Integrator.
+	 */
+	private void createSwitchCascade(SimulinkBlock parent, int size) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		SimulinkBlock previous = createConstant(parent, "Constant0", "0");
+		for (int i = 1; i <= size; i++) {
+			SimulinkBlock constant = createConstant(parent, "Constant" + i, String.valueOf(i));
+			SimulinkBlock current = createBlock(parent, "Switch", "Switch" + i, 3, 1);
+			current.setParameter("Criteria", "u2 >= Threshold");
+			current.setParameter("Threshold", String.valueOf(i));
+			connect(parent, constant, 1, current, 1);
+			connect(parent, input, 1, current, 2);
+			connect(parent, previous, 1, current, 3);
+			previous = current;
+		}
+		SimulinkBlock integrator = createBlock(parent, "Integrator", "Integrator", 1, 1);
+		integrator.setParameter("InitialCondition", "0");
+		integrator.setParameter("ExternalReset", "none");
+		connect(parent, previous, 1, integrator, 1);
+		connect(parent, integrator, 1, createPort(parent, "Outport", "Out1", 1), 1);
+	}
+
+	/**
+	 * M inputs are combined by a Mux, scaled by a Gain and split by a Demux into
+	 * M outputs.
+	 */
+	private void createMuxDemux(SimulinkBlock parent, int size) {
+		SimulinkBlock mux = createBlock(parent, "Mux", "Mux", size, 1);
+		mux.setParameter("Inputs", String.valueOf(size));
+		SimulinkBlock gain = createBlock(parent, "Gain", "Gain", 1, 1);
+		gain.setParameter("Gain", "2");
+		SimulinkBlock demux = createBlock(parent, "Demux", "Demux", 1, size);
+		demux.setParameter("Outputs", String.valueOf(size));
+
+		for (int i = 1; i <= size; i++) {
+			connect(parent, createPort(parent, "Inport", "In" + i, i), 1, mux, i);
+			connect(parent, demux, i, createPort(parent, "Outport", "Out" + i, i), 1);
+		}
+		connect(parent, mux, 1, gain, 1);
+		connect(parent, gain, 1, demux, 1);
+	}
+
+	/**
+	 * In1 feeds N UnitDelay blocks, whose sample times cycle through
+	 * {@link #SAMPLE_TIMES}. Each delay has its own output.
+	 */
+	private void createMultirateBank(SimulinkBlock parent, int size) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		for (int i = 1; i <= size; i++) {
+			SimulinkBlock delay = createBlock(parent, "UnitDelay", "UnitDelay" + i, 1, 1);
+			delay.setParameter("SampleTime", SAMPLE_TIMES[(i - 1) % SAMPLE_TIMES.length]);
+			delay.setParameter("InitialCondition", "0");
+			connect(parent, input, 1, delay, 1);
+			connect(parent, delay, 1, createPort(parent, "Outport", "Out" + i, i), 1);
+		}
+	}
+
+	/**
+	 * Each level contains In1 -> Gain -> Subsystem -> Out1, the innermost level
+	 * only In1 -> Gain -> Out1.
+	 */
+	private void createNestedSubsystems(SimulinkBlock parent, int depth) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		SimulinkBlock gain = createBlock(parent, "Gain", "Gain" + depth, 1, 1);
+		gain.setParameter("Gain", String.valueOf(depth % 7 + 1));
+		SimulinkBlock output = createPort(parent, "Outport", "Out1", 1);
+		connect(parent, input, 1, gain, 1);
+
+		if (depth == 0) {
+			connect(parent, gain, 1, output, 1);
+			return;
+		}
+
+		SimulinkBlock subsystem = createBlock(parent, "SubSystem", "Subsystem" + depth, 1, 1);
+		createNestedSubsystems(subsystem, depth - 1);
+		connect(parent, gain, 1, subsystem, 1);
+		connect(parent, subsystem, 1, output, 1);
+	}
+
+	/**
+	 * In1 -> Controller1 -> Controller2 -> ... -> Out1, all controllers have the
+	 * same content and parameters.
+	 */
+	private void createRepeatedSubsystems(SimulinkBlock parent, int size) {
+		SimulinkBlock previous = createPort(parent, "Inport", "In1", 1);
+		for (int i = 1; i <= size; i++) {
+			SimulinkBlock controller = createBlock(parent, "SubSystem", "Controller" + i, 1, 1);
+			createController(controller);
+			connect(parent, previous, 1, controller, 1);
+			previous = controller;
+		}
+		connect(parent, previous, 1, createPort(parent, "Outport", "Out1", 1), 1);
+	}
+
+	/**
+	 * In1 -> GainI -> SumI -> OutI for each of the N copies, all copies have the
+	 * same parameters and inputs.
+	 */
+	private void createDuplicatedLogic(SimulinkBlock parent, int size) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		for (int i = 1; i <= size; i++) {
+			SimulinkBlock gain = createBlock(parent, "Gain", "Gain" + i, 1, 1);
+			gain.setParameter("Gain", "3");
+			SimulinkBlock sum = createBlock(parent, "Sum", "Sum" + i, 2, 1);
+			sum.setParameter("Inputs", "++");
+			connect(parent, input, 1, gain, 1);
+			connect(parent, gain, 1, sum, 1);
+			connect(parent, input, 1, sum, 2);
+			connect(parent, sum, 1, createPort(parent, "Outport", "Out" + i, i), 1);
+		}
+	}
+
+	/**
+	 * Proportional controller with feed forward: Out1 = Kd * (Kp * In1 + In1).
+	 */
+	private void createController(SimulinkBlock parent) {
+		SimulinkBlock input = createPort(parent, "Inport", "In1", 1);
+		SimulinkBlock proportional = createBlock(parent, "Gain", "Kp", 1, 1);
+		proportional.setParameter("Gain", "2");
+		SimulinkBlock sum = createBlock(parent, "Sum", "Sum", 2, 1);
+		sum.setParameter("Inputs", "++");
+		SimulinkBlock damping = createBlock(parent, "Gain", "Kd", 1, 1);
+		damping.setParameter("Gain", "0.5");
+		connect(parent, input, 1, proportional, 1);
+		connect(parent, proportional, 1, sum, 1);
+		connect(parent, input, 1, sum, 2);
+		connect(parent, sum, 1, damping, 1);
+		connect(parent, damping, 1, createPort(parent, "Outport", "Out1", 1), 1);
+	}
+
+	private static SimulinkBlock createBlock(SimulinkBlock parent, String type, String name, int inPorts,
+			int outPorts) {
+		SimulinkBlock block = new SimulinkBlock();
+		block.setParameter("BlockType", type);
+		block.setParameter("Name", name);
+		parent.addSubBlock(block);
+
+		for (int i = 1; i <= inPorts; i++) {
+			new SimulinkInPort(block, String.valueOf(i));
+		}
+		for (int i = 1; i <= outPorts; i++) {
+			new SimulinkOutPort(block, String.valueOf(i));
+		}
+		return block;
+	}
+
+	private static SimulinkBlock createPort(SimulinkBlock parent, String type, String name, int number) {
+		SimulinkBlock port;
+		if (type.equals("Inport")) {
+			port = createBlock(parent, type, name, 0, 1);
+		} else {
+			port = createBlock(parent, type, name, 1, 0);
+		}
+		port.setParameter("Port", String.valueOf(number));
+		return port;
+	}
+
+	private static SimulinkBlock createConstant(SimulinkBlock parent, String name, String value) {
+		SimulinkBlock constant = createBlock(parent, "Constant", name, 0, 1);
+		constant.setParameter("Value", value);
+		return constant;
+	}
+
+	private static SimulinkLine connect(SimulinkBlock parent, SimulinkBlock src, int srcPort, SimulinkBlock dst,
+			int dstPort) {
+		return new SimulinkLine(src.getOutPort(String.valueOf(srcPort)), dst.getInPort(String.valueOf(dstPort)),
+				parent);
+	}
+
+	/**
+	 * Writes models of the given family for all given sizes into a folder.
+	 * 
+	 * Usage: SyntheticModelGenerator &lt;folder&gt; &lt;family&gt;
+	 * &lt;size&gt;...
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3 || Family.fromKey(args[1]) == null) {
+			System.err.println("Usage: SyntheticModelGenerator <folder> <chain|switch|mux|multirate|nested|repeated> <size>...");
+			System.exit(1);
+		}
+
+		File folder = new File(args[0]);
+		folder.mkdirs();
+		SyntheticModelGenerator generator = new SyntheticModelGenerator();
+		MDLModelWriter writer = new MDLModelWriter();
+		for (int i = 2; i < args.length; i++) {
+			SimulinkModel model = generator.generate(args[1] + ":" + args[i]);
+			File file = new File(folder, model.getName() + ".mdl");
+			writer.write(model, file);
+			System.out.println("Wrote " + file);
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.contracts;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import simulink2dl.dlmodel.operator.formula.Implication;
+import simulink2dl.dlmodel.parser.KYXParseException;
+import simulink2dl.dlmodel.parser.KYXParser;
+import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ServiceNames;
+
+/**
+ * Repository of the contracts that are stored as kyx files in contract folders.
+ * The contract in the file "&lt;id&gt;.kyx" belongs to the services whose block
+ * names start with the id, e.g. "ServiceTemperatureControl" or
+ * "RLServiceRobot", see {@link ServiceNames#findContractId(String, Collection)}.
+ * 
+ * A repository is created for a transformation and passed to its transformer,
+ * so transformations only see the folders that were added to their own
+ * repository. The ids of the contracts of
+ * a folder are stored in an index file in the index folder, which is reused as
+ * long as it lists the same contract files as the folder. The contract folders
+ * themselves are never written. Contract files are only parsed when a service
+ * requests them, parsed contracts are kept in a bounded cache that is shared by
+ * all repositories and that is checked against the content of the contract
+ * file.
+ * 
+ * @see KYXContract
+ */
+public class ContractRepository {
+
+	public static final String CONTRACT_FILE_EXTENSION = ".kyx";
+
+	public static final String INDEX_FILE_EXTENSION = ".index";
+
+	/**
+	 * Key of the index entry that holds the path of the indexed folder. Contract
+	 * ids are file names and cannot contain a slash.
+	 */
+	private static final String FOLDER_KEY = "/folder";
+
+	/**
+	 * Maximum number of parsed contracts that are kept in the cache.
+	 */
+	private static final int CACHE_SIZE = 64;
+
+	/**
+	 * Parsed contracts by contract file, shared by all repositories.
+	 */
+	private static final Map<File, CachedContract> cache = new LinkedHashMap<File, CachedContract>(16, 0.75f,
+			true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CachedContract> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private Set<File> scannedFolders;
+
+	private Map<String, File> contractFiles;
+
+	private File indexFolder;
+
+	/**
+	 * Creates an empty repository that stores its indexes in a folder in the
+	 * temporary directory.
+	 */
+	public ContractRepository() {
+		this(new File(System.getProperty("java.io.tmpdir"), "simulink2dl-contracts"));
+	}
+
+	/**
+	 * Creates an empty repository that stores its indexes in the given folder,
+	 * e.g. the state location of the plug-in.
+	 */
+	public ContractRepository(File indexFolder) {
+		this.indexFolder = indexFolder;
+		scannedFolders = new HashSet<File>();
+		contractFiles = new HashMap<String, File>();
+	}
+
+	/**
+	 * Adds the contracts of the given folders to the repository.
+	 */
+	public synchronized void addFolders(Collection<File> folders) {
+		for (File folder : folders) {
+			addFolder(folder);
+		}
+	}
+
+	/**
+	 * Adds the contracts of the given folder to the repository. Folders that were
+	 * added before are not scanned again.
+	 */
+	public synchronized void addFolder(File folder) {
+		folder = folder.getAbsoluteFile();
+		if (!folder.isDirectory()) {
+			PluginLogger.error("Contract folder " + folder + " does not exist.");
+			return;
+		}
+		if (!scannedFolders.add(folder)) {
+			return;
+		}
+
+		File indexFile = getIndexFile(folder);
+		Properties index = createIndex(folder);
+		if (!index.equals(readIndex(indexFile))) {
+			writeIndex(folder, indexFile, index);
+		}
+		for (String id : index.stringPropertyNames()) {
+			if (id.equals(FOLDER_KEY)) {
+				continue;
+			}
+			File previous = contractFiles.put(id, new File(folder, index.getProperty(id)));
+			if (previous != null) {
+				PluginLogger.warning("Contract " + id + " in " + folder + " replaces the one in " + previous + ".");
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids of all contracts in the repository.
+	 */
+	public synchronized Set<String> getContractIds() {
+		return Collections.unmodifiableSet(new HashSet<String>(contractFiles.keySet()));
+	}
+
+	/**
+	 * Returns the contracts for the service with the given block name or null if
+	 * there is no contract for the service. The contract with the longest id that
+	 * is a prefix of the block name is used. Each call returns new contract
+	 * instances.
+	 */
+	public synchronized List<HybridContract> getContracts(String serviceName) {
+		String id = findContractId(serviceName);
+		if (id == null) {
+			return null;
+		}
+		KYXContract contract = getContract(id);
+		if (contract == null) {
+			return null;
+		}
+		List<HybridContract> contracts = new LinkedList<HybridContract>();
+		contracts.add(contract.createCopy());
+		return contracts;
+	}
+
+	private String findContractId(String serviceName) {
+		return ServiceNames.findContractId(serviceName, contractFiles.keySet());
+	}
+
+	/**
+	 * Returns the parsed contract with the given id. The contract is parsed again
+	 * if the content of its file differs from the cached one.
+	 */
+	private KYXContract getContract(String id) {
+		File file = contractFiles.get(id);
+		byte[] content;
+		try {
+			content = Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			PluginLogger.error("Could not read contract file " + file + ": " + e.getMessage());
+			return null;
+		}
+		byte[] digest = digest(content);
+
+		synchronized (cache) {
+			CachedContract cached = cache.get(file);
+			if (cached != null && cached.contract.getId().equals(id) && Arrays.equals(cached.digest, digest)) {
+				return cached.contract;
+			}
+		}
+
+		KYXContract contract = parseContract(id, file, content);
+		if (contract != null) {
+			synchronized (cache) {
+				cache.put(file, new CachedContract(contract, digest));
+			}
+		}
+		return contract;
+	}
+
+	private KYXContract parseContract(String id, File file, byte[] content) {
+		KYXParser parser;
+		try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content))) {
+			parser = new KYXParser(reader);
+		} catch (IOException e) {
+			PluginLogger.error("Could not read contract file " + file + ": " + e.getMessage());
+			return null;
+		} catch (KYXParseException e) {
+			PluginLogger.error("Could not parse contract file " + file + ": " + e.getMessage());
+			return null;
+		}
+
+		if (!KYXContract.isContractProblem(parser.getProblem())) {
+			PluginLogger.error("The problem in contract file " + file + " is not of the form 'assumptions -> guarantees'.");
+			return null;
+		}
+		return new KYXContract(id, parser.getConstants(), parser.getVariables(), (Implication) parser.getProblem());
+	}
+
+	private static byte[] digest(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the index file of the given folder inside the index folder.
+	 */
+	private File getIndexFile(File folder) {
+		String name = folder.getName() + "-" + Integer.toHexString(folder.getPath().hashCode());
+		return new File(indexFolder, name + INDEX_FILE_EXTENSION);
+	}
+
+	/**
+	 * Reads the index of the given folder. Returns null if there is no index or
+	 * the index cannot be read.
+	 */
+	private Properties readIndex(File indexFile) {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		Properties index = new Properties();
+		try (Reader reader = new FileReader(indexFile)) {
+			index.load(reader);
+		} catch (IOException e) {
+			PluginLogger.warning("Could not read contract index " + indexFile + ": " + e.getMessage());
+			return null;
+		}
+		return index;
+	}
+
+	/**
+	 * Lists the contract files of the given folder. The result is compared with
+	 * the stored index instead of the modification time of the folder, which may
+	 * have a resolution of one second.
+	 */
+	private Properties createIndex(File folder) {
+		Properties index = new Properties();
+		index.setProperty(FOLDER_KEY, folder.getPath());
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return index;
+		}
+		for (File file : files) {
+			String fileName = file.getName();
+			if (file.isFile() && fileName.endsWith(CONTRACT_FILE_EXTENSION)) {
+				index.setProperty(fileName.substring(0, fileName.length() - CONTRACT_FILE_EXTENSION.length()),
+						fileName);
+			}
+		}
+		return index;
+	}
+
+	private void writeIndex(File folder, File indexFile, Properties index) {
+		indexFolder.mkdirs();
+		try (Writer writer = new FileWriter(indexFile)) {
+			index.store(writer, "contract ids of " + folder.getPath());
+		} catch (IOException e) {
+			// the index is written again in the next session
+			PluginLogger.warning("Could not write contract index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	private static class CachedContract {
+
+		private KYXContract contract;
+
+		private byte[] digest;
+
+		public CachedContract(KYXContract contract, byte[] digest) {
+			this.contract = contract;
+			this.digest = digest;
+		}
+	}
+
+}
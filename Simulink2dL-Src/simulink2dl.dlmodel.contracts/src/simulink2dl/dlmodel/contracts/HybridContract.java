@@ -152,6 +152,10 @@ public class HybridContract {
 	public String getId() {
 		return id;
 	}
+
+	protected void setId(String id) {
+		this.id = id;
+	}
 	
 	/**
 	 * Creates a full dL model for a contract.
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.contracts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import simulink2dl.dlmodel.elements.Constant;
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Implication;
+
+/**
+ * Contract that is read from a kyx file. The problem of the file has the form
+ * "assumptions -> guarantees". Variables that occur in the guarantees are the
+ * outputs of the service, all other variables are its inputs, both in the order
+ * of their declaration. A variable "xOld" is a ghost variable that stores the
+ * previous value of the variable "x".
+ */
+public class KYXContract extends HybridContract {
+
+	private List<Constant> declaredConstants;
+
+	private List<Variable> declaredVariables;
+
+	private Implication problem;
+
+	public KYXContract(String id, Iterable<Constant> constants, Iterable<Variable> variables, Implication problem) {
+		super();
+		setId(id);
+		this.declaredConstants = new ArrayList<Constant>();
+		this.declaredVariables = new ArrayList<Variable>();
+		this.problem = problem;
+
+		for (Constant constant : constants) {
+			declaredConstants.add(constant);
+			addConstant(constant.createDeepCopy());
+		}
+		for (Variable variable : variables) {
+			declaredVariables.add(variable);
+		}
+
+		Map<String, Variable> variablesByName = new HashMap<String, Variable>();
+		for (Variable variable : declaredVariables) {
+			variablesByName.put(variable.getName(), variable);
+		}
+		for (Variable variable : declaredVariables) {
+			String name = variable.getName();
+			if (name.endsWith("Old") && variablesByName.containsKey(name.substring(0, name.length() - 3))) {
+				ghostVariables.add(new GhostVariable(variablesByName.get(name.substring(0, name.length() - 3))));
+			} else if (problem.getConsequent().containsTerm(variable)) {
+				outputs.add(variable);
+			} else {
+				inputs.add(variable);
+			}
+		}
+
+		setAssumptionGuaranteePair((Formula) problem.getAntecedent().createDeepCopy(),
+				(Formula) problem.getConsequent().createDeepCopy());
+	}
+
+	/**
+	 * Checks whether the given problem of a kyx file can be used as a contract.
+	 */
+	public static boolean isContractProblem(Operator problem) {
+		return problem instanceof Implication && ((Implication) problem).getAntecedent() instanceof Formula
+				&& ((Implication) problem).getConsequent() instanceof Formula;
+	}
+
+	/**
+	 * Creates a new contract with the same content. The formulas of the copy can
+	 * be changed without affecting this contract.
+	 */
+	public KYXContract createCopy() {
+		return new KYXContract(getId(), declaredConstants, declaredVariables, problem);
+	}
+
+}
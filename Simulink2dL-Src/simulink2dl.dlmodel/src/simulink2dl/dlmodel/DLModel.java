@@ -28,9 +28,6 @@
  ******************************************************************************/
 package simulink2dl.dlmodel;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import simulink2dl.dlmodel.elements.Constant;
 import simulink2dl.dlmodel.elements.Variable;
 import simulink2dl.dlmodel.operator.Operator;
@@ -46,16 +43,16 @@ import simulink2dl.util.PluginLogger;
 public class DLModel {
 
 	/**
-	 * List that contains all functions of the system, which do not change their
+	 * Table that contains all functions of the system, which do not change their
 	 * value
 	 */
-	private List<Constant> constants;
+	private SymbolTable<Constant> constants;
 
 	/**
-	 * List that contains all variables of the system
+	 * Table that contains all variables of the system
 	 * Protected to allow access during vector expansion
 	 */
-	protected List<Variable> variables;
+	protected SymbolTable<Variable> variables;
 
 	/**
 	 * Problem that contains the system behavior
@@ -67,8 +64,8 @@ public class DLModel {
 	 */
 	public DLModel() {
 		// initialize member variables
-		constants = new LinkedList<Constant>();
-		variables = new LinkedList<Variable>();
+		constants = new SymbolTable<Constant>(Constant::getName);
+		variables = new SymbolTable<Variable>(Variable::getName);
 	}
 
 	/**
@@ -77,9 +74,7 @@ public class DLModel {
 	 * @param constant
 	 */
 	public void addConstant(Constant constant) {
-		if (!this.constants.contains(constant)){
-			this.constants.add(constant);
-		}
+		this.constants.add(constant);
 	}
 
 	/**
@@ -88,9 +83,7 @@ public class DLModel {
 	 * @param constant
 	 */
 	public void addVariable(Variable variable) {
-		if (!this.variables.contains(variable)){
-			this.variables.add(variable);
-		}
+		this.variables.add(variable);
 	}
 
 	/**
@@ -99,13 +92,11 @@ public class DLModel {
 	 * @param toSearch
 	 */
 	public Constant getConstantByName(String toSearch) {
-		for (Constant constant : constants) {
-			if (constant.getName().equals(toSearch)) {
-				return constant;
-			}
+		Constant constant = constants.get(toSearch);
+		if (constant == null) {
+			PluginLogger.error("Could not find constant with name: " + toSearch);
 		}
-		PluginLogger.error("Could not find constant with name: " + toSearch);
-		return null;
+		return constant;
 	}
 
 	/**
@@ -114,13 +105,11 @@ public class DLModel {
 	 * @param toSearch
 	 */
 	public Variable getVariableByName(String toSearch) {
-		for (Variable variable : variables) {
-			if (variable.getName().equals(toSearch)) {
-				return variable;
-			}
+		Variable variable = variables.get(toSearch);
+		if (variable == null) {
+			PluginLogger.error("Could not find variable with name: " + toSearch);
 		}
-		PluginLogger.error("Could not find variable with name: " + toSearch);
-		return null;
+		return variable;
 	}
 
 	/**
@@ -140,14 +129,14 @@ public class DLModel {
 	private String getFunctionsString() {
 		// write "Functions", constants etc. are in this category
 		// function symbols cannot change their value
-		String result = "Functions.\n";
+		StringBuilder result = new StringBuilder("Functions.\n");
 		// constants
 		for (Constant constant : constants) {
-			result += "  " + constant.toDefString() + ".\n";
+			result.append("  ").append(constant.toDefString()).append(".\n");
 		}
-		result += "End.\n\n";
+		result.append("End.\n\n");
 
-		return result;
+		return result.toString();
 	}
 
 	/**
@@ -158,14 +147,14 @@ public class DLModel {
 	private String getVariablesString() {
 		// write "ProgramVariables"
 		// program variables may change their value over time
-		String result = "ProgramVariables.\n";
+		StringBuilder result = new StringBuilder("ProgramVariables.\n");
 		// variables (e.g. Signal lines)
 		for (Variable variable : variables) {
-			result += "  " + variable.toDefString() + ".\n";
+			result.append("  ").append(variable.toDefString()).append(".\n");
 		}
-		result += "End.\n\n";
+		result.append("End.\n\n");
 
-		return result;
+		return result.toString();
 	}
 
 	/**
@@ -200,17 +189,31 @@ public class DLModel {
 		return result;
 	}
 
+	/**
+	 * @return the constants of the model
+	 */
+	public SymbolTable<Constant> getConstants() {
+		return constants;
+	}
+
+	/**
+	 * @return the variables of the model
+	 */
+	public SymbolTable<Variable> getVariables() {
+		return variables;
+	}
+
 	/**
 	 * @param constants the constants to set
 	 */
-	public void setConstants(List<Constant> constants) {
+	public void setConstants(SymbolTable<Constant> constants) {
 		this.constants = constants;
 	}
 
 	/**
 	 * @param variables the variables to set
 	 */
-	public void setVariables(List<Variable> variables) {
+	public void setVariables(SymbolTable<Variable> variables) {
 		this.variables = variables;
 	}
 
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import simulink2dl.dlmodel.term.Term;
+
+/**
+ * This class stores the declared variables or constants of a model in the
+ * order of their declaration. Symbols are unique with respect to equals (i.e.
+ * name and type) and can be looked up by their name.
+ *
+ * @param <T> the type of the stored symbols
+ */
+public class SymbolTable<T extends Term> implements Iterable<T> {
+
+	/**
+	 * Function that returns the name of a symbol
+	 */
+	private Function<T, String> nameFunction;
+
+	/**
+	 * All symbols in the order of their declaration
+	 */
+	private LinkedHashMap<T, T> symbols = new LinkedHashMap<T, T>();
+
+	/**
+	 * The first declared symbol for each name
+	 */
+	private Map<String, T> symbolsByName = new HashMap<String, T>();
+
+	/**
+	 * Constructor for an empty symbol table.
+	 * 
+	 * @param nameFunction function that returns the name of a symbol
+	 */
+	public SymbolTable(Function<T, String> nameFunction) {
+		this.nameFunction = nameFunction;
+	}
+
+	/**
+	 * Adds the given symbol to the end of this table. Returns false if an equal
+	 * symbol is already contained.
+	 */
+	public boolean add(T symbol) {
+		if (symbols.putIfAbsent(symbol, symbol) != null) {
+			return false;
+		}
+		symbolsByName.putIfAbsent(nameFunction.apply(symbol), symbol);
+		return true;
+	}
+
+	/**
+	 * Adds all given symbols in the given order.
+	 */
+	public void addAll(Collection<? extends T> newSymbols) {
+		for (T symbol : newSymbols) {
+			add(symbol);
+		}
+	}
+
+	public boolean contains(T symbol) {
+		return symbols.containsKey(symbol);
+	}
+
+	/**
+	 * Returns the first declared symbol with the given name or null if no such
+	 * symbol exists.
+	 */
+	public T get(String name) {
+		return symbolsByName.get(name);
+	}
+
+	/**
+	 * Removes the given symbol. Returns false if the symbol is not contained.
+	 */
+	public boolean remove(T symbol) {
+		if (symbols.remove(symbol) == null) {
+			return false;
+		}
+		String name = nameFunction.apply(symbol);
+		if (symbol.equals(symbolsByName.get(name))) {
+			// find another symbol with the same name, if any
+			symbolsByName.remove(name);
+			for (T other : symbols.keySet()) {
+				if (name.equals(nameFunction.apply(other))) {
+					symbolsByName.put(name, other);
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces symbols by a list of symbols at the same position, e.g. vector
+	 * variables by the variables of their entries. The given function returns the
+	 * replacements of a symbol or null if the symbol is kept. All symbols are
+	 * handled in a single pass over the table.
+	 */
+	public void expand(Function<T, List<? extends T>> expansion) {
+		LinkedHashMap<T, T> oldSymbols = symbols;
+		symbols = new LinkedHashMap<T, T>();
+		symbolsByName = new HashMap<String, T>();
+
+		for (T symbol : oldSymbols.keySet()) {
+			List<? extends T> replacements = expansion.apply(symbol);
+			if (replacements == null) {
+				add(symbol);
+			} else {
+				addAll(replacements);
+			}
+		}
+	}
+
+	public int size() {
+		return symbols.size();
+	}
+
+	public boolean isEmpty() {
+		return symbols.isEmpty();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return Collections.unmodifiableSet(symbols.keySet()).iterator();
+	}
+
+}
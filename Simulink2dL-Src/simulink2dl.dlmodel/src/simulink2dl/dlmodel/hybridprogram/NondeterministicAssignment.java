@@ -53,6 +53,10 @@ public class NondeterministicAssignment implements HybridProgram {
 		this.variable = variable;
 	}
 
+	public Variable getVariable() {
+		return variable;
+	}
+
 	@Override
 	public String toString() {
 		return variable.toString() + ":= *;";
@@ -63,6 +63,10 @@ public class SingleEvolution {
 		return variable;
 	}
 
+	public Term getEvolutionTerm() {
+		return evolution;
+	}
+
 	@Override
 	public String toString() {
 		return variable.toString() + "' = " + evolution.toString();
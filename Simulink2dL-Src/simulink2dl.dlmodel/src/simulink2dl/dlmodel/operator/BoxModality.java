@@ -54,6 +54,14 @@ public class BoxModality implements Operator {
 		this.postCondition = postCondition;
 	}
 
+	public HybridProgram getInnerProgram() {
+		return innerProgram;
+	}
+
+	public Operator getPostCondition() {
+		return postCondition;
+	}
+
 	@Override
 	public boolean isAtomic() {
 		return false;
@@ -71,6 +71,14 @@ public class Equivalence implements Formula {
 				+ rightSide.toStringFormatted(indent, multiLineTestFormulas, multiLineEvolutionDomains);
 	}
 
+	public Operator getLeftSide() {
+		return leftSide;
+	}
+
+	public Operator getRightSide() {
+		return rightSide;
+	}
+
 	@Override
 	public void replaceTermRecursive(Term toReplace, Term replaceWith) {
 		if (leftSide.equals(toReplace)) {
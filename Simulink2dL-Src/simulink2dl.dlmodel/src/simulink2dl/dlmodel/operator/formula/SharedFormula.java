@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.operator.formula;
+
+import simulink2dl.dlmodel.term.Term;
+
+/**
+ * This class represents a reference to a formula that is part of many other
+ * formulas, e.g. the clock constraints that are added to the evolution domains
+ * of all continuous evolutions. The referenced formula is stored only once and
+ * is shared by all copies of the reference. It is never modified: replacing
+ * terms first gives the reference its own copy of the formula. The expanded
+ * formula is computed once and shared by all references that are expanded.
+ * 
+ * Optimizers replace shared formulas by copies of the referenced formula
+ * before they compare or change formulas.
+ *
+ */
+public class SharedFormula implements Formula {
+
+	/**
+	 * The formula and its string representation, shared by all copies of this
+	 * reference.
+	 */
+	private Fragment fragment;
+
+	/**
+	 * Constructor for a reference to the given formula. The formula must not be
+	 * modified afterwards.
+	 * 
+	 * @param formula
+	 */
+	public SharedFormula(Formula formula) {
+		this(new Fragment(formula));
+	}
+
+	private SharedFormula(Fragment fragment) {
+		this.fragment = fragment;
+	}
+
+	/**
+	 * Returns the referenced formula, which must not be modified.
+	 */
+	public Formula getFormula() {
+		return fragment.formula;
+	}
+
+	@Override
+	public int hashCode() {
+		return fragment.formula.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SharedFormula other = (SharedFormula) obj;
+		return fragment == other.fragment || fragment.formula.equals(other.fragment.formula);
+	}
+
+	@Override
+	public String toString() {
+		if (fragment.string == null) {
+			fragment.string = fragment.formula.toString();
+		}
+		return fragment.string;
+	}
+
+	@Override
+	public String toStringFormatted(String indent, boolean multiLineTestFormulas, boolean multiLineEvolutionDomains) {
+		return fragment.formula.toStringFormatted(indent, multiLineTestFormulas, multiLineEvolutionDomains);
+	}
+
+	@Override
+	public boolean isAtomic() {
+		return fragment.formula.isAtomic();
+	}
+
+	@Override
+	public void replaceTermRecursive(Term toReplace, Term replaceWith) {
+		if (!fragment.formula.containsTerm(toReplace)) {
+			return;
+		}
+		Formula formula = fragment.formula.createDeepCopy();
+		formula.replaceTermRecursive(toReplace, replaceWith);
+		fragment = new Fragment(formula);
+	}
+
+	@Override
+	public boolean containsTerm(Term term) {
+		return fragment.formula.equals(term) || fragment.formula.containsTerm(term);
+	}
+
+	@Override
+	public SharedFormula createDeepCopy() {
+		return new SharedFormula(fragment);
+	}
+
+	@Override
+	public Formula createNegation() {
+		return fragment.formula.createDeepCopy().createNegation();
+	}
+
+	@Override
+	public Formula expand() {
+		if (fragment.expanded == null) {
+			Formula formula = fragment.formula.createDeepCopy().expand();
+			if (formula.equals(fragment.formula)) {
+				fragment.expanded = fragment;
+			} else {
+				Fragment expanded = new Fragment(formula);
+				expanded.expanded = expanded;
+				fragment.expanded = expanded;
+			}
+		}
+		fragment = fragment.expanded;
+		return this;
+	}
+
+	private static class Fragment {
+
+		private final Formula formula;
+
+		private String string;
+
+		/**
+		 * The expanded formula, shared by all references that are expanded.
+		 */
+		private Fragment expanded;
+
+		public Fragment(Formula formula) {
+			this.formula = formula;
+		}
+	}
+
+}
@@ -29,29 +29,63 @@
 package simulink2dl.dlmodel.parser;
 
 import java.io.FileReader;
-import java.util.ArrayList;
-
+import java.io.StringReader;
+
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.hybridprogram.ContinuousEvolution;
+import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
+import simulink2dl.dlmodel.hybridprogram.HybridProgram;
+import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
+import simulink2dl.dlmodel.hybridprogram.IfStatement;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicAssignment;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicChoice;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicRepetition;
+import simulink2dl.dlmodel.hybridprogram.TestFormula;
+import simulink2dl.dlmodel.operator.BoxModality;
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.BooleanConstant;
 import simulink2dl.dlmodel.operator.formula.Conjunction;
 import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Equivalence;
 import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Implication;
 import simulink2dl.dlmodel.operator.formula.Negation;
 import simulink2dl.dlmodel.operator.formula.Relation;
 import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.parser.KYXToken.TokenType;
 import simulink2dl.dlmodel.term.AdditionTerm;
 import simulink2dl.dlmodel.term.BracketTerm;
 import simulink2dl.dlmodel.term.ExponentTerm;
 import simulink2dl.dlmodel.term.MultiplicationTerm;
+import simulink2dl.dlmodel.term.RealTerm;
 import simulink2dl.dlmodel.term.Term;
 
 /**
  * While parsing a "KeYmaera X" script, the KYXParser may encounter string
- * representation of Formulas. This class handles the parsing of these.
+ * representation of Formulas, Terms and hybrid programs. This class handles the
+ * parsing of these.
+ * 
+ * Formulas and terms are parsed by precedence climbing over the tokens of a
+ * KYXLexer, so every token is visited only once. Syntax errors are reported as
+ * KYXParseException with the position of the offending token.
  * 
  * @author nick
  *
  */
 public class FormulaParser {
 
+	/**
+	 * Binding strength of the binary operators, higher values bind stronger.
+	 */
+	private static final int PRECEDENCE_EQUIVALENCE = 1;
+	private static final int PRECEDENCE_IMPLICATION = 2;
+	private static final int PRECEDENCE_DISJUNCTION = 3;
+	private static final int PRECEDENCE_CONJUNCTION = 4;
+	private static final int PRECEDENCE_RELATION = 5;
+	private static final int PRECEDENCE_SUM = 6;
+	private static final int PRECEDENCE_PRODUCT = 7;
+	private static final int PRECEDENCE_POWER = 8;
+
 	/**
 	 * The calling KYXParser, holds Variables and constants.
 	 */
@@ -76,418 +110,490 @@ public class FormulaParser {
 	 * @return
 	 */
 	public Formula parse(String termString) {
-		return this.splitOnDisjunction(termString);
+		KYXLexer lexer = new KYXLexer(new StringReader(termString));
+		Formula formula = this.parseFormula(lexer);
+		lexer.expect(TokenType.EOF);
+		return formula;
 	}
 
 	/**
-	 * Splits a string representation on "|" and parses the results. Treats round
-	 * brackets as atoms. Since this operation has the lowest precedence, this
-	 * method is the entry point for parsing.
+	 * Generates a Term from a string representation.
 	 * 
-	 * @param termString
+	 * @param str
 	 * @return
 	 */
-	private Formula splitOnDisjunction(String termString) {
-		Disjunction dis = new Disjunction();
-		int start = 0;
-		Formula tmp;
-		for (int i = 0; i < termString.length(); i++) {
-			switch (termString.charAt(i)) {
-			case '(':
-				i = closingBracket(termString, i);
-				break;
-
-			case '|':
-				tmp = this.splitOnConjunction(termString.substring(start, i));
-				dis.addLiterals(tmp);
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				break;
-
-			default:
-				break;
-			}
-		}
-
-		tmp = this.splitOnConjunction(termString.substring(start));
-		dis.addLiterals(tmp);
-
-		// don't encapsulate, if unnecessary
-		if (!dis.getElements().isEmpty() && dis.getElements().size() == 1) {
-			return (Formula) dis.getElements().get(0);
-		}
-
-		return dis;
+	public Term parseTerm(String str) {
+		KYXLexer lexer = new KYXLexer(new StringReader(str));
+		Term term = this.parseTerm(lexer);
+		lexer.expect(TokenType.EOF);
+		return term;
 	}
 
 	/**
-	 * Splits a string representation on "&".
+	 * Parses a formula starting at the current token of the given lexer.
 	 * 
-	 * @param termString
+	 * @param lexer
 	 * @return
 	 */
-	private Formula splitOnConjunction(String termString) {
-		Conjunction con = new Conjunction();
-		int start = 0;
-		Formula tmp;
-		for (int i = 0; i < termString.length(); i++) {
-			switch (termString.charAt(i)) {
-			case '(':
-				i = closingBracket(termString, i);
-				break;
-
-			case '&':
-				tmp = this.branchOnNegation(termString.substring(start, i));
-				con.addLiterals(tmp);
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				break;
-
-			default:
-				break;
-			}
-		}
-
-		tmp = this.branchOnNegation(termString.substring(start));
-		con.addLiterals(tmp);
-
-		// don't encapsulate, if unnecessary
-		if (!con.getElements().isEmpty() && con.getElements().size() == 1) {
-			return (Formula) con.getElements().get(0);
+	public Formula parseFormula(KYXLexer lexer) {
+		KYXToken start = lexer.peek();
+		Term expression = this.parseExpression(lexer, 0);
+		if (!(expression instanceof Formula)) {
+			throw new KYXParseException("Expected formula", start);
 		}
+		return (Formula) expression;
+	}
 
-		return con;
+	/**
+	 * Parses an arithmetic term starting at the current token of the given lexer.
+	 * 
+	 * @param lexer
+	 * @return
+	 */
+	public Term parseTerm(KYXLexer lexer) {
+		KYXToken start = lexer.peek();
+		return this.asTerm(this.parseExpression(lexer, PRECEDENCE_SUM), start);
 	}
 
 	/**
-	 * As negation has the highest precedence within logical operators, it will be
-	 * considered last during the parsing. This method decides, whether an
-	 * expression is a negation or a (bracketed) logical formula and acts
-	 * accordingly.
+	 * Parses a hybrid program starting at the current token of the given lexer.
+	 * Nondeterministic choices have the lowest precedence, followed by sequential
+	 * compositions.
 	 * 
-	 * @param termString
+	 * @param lexer
 	 * @return
 	 */
-	private Formula branchOnNegation(String termString) {
-		if (termString.startsWith("!(")) {
-			int closingBrack = closingBracket(termString, 1);
-			assert termString.length() - 1 == closingBrack;
-			Formula tmp = this.splitOnDisjunction(termString.substring(2, termString.length() - 1));
-			return new Negation(tmp);
+	public HybridProgram parseProgram(KYXLexer lexer) {
+		HybridProgram first = this.parseSequence(lexer);
+		if (lexer.peek().getType() != TokenType.CHOICE) {
+			return first;
 		}
 
-		// unwrap brackets if necessary
-		if (termString.startsWith("(")) {
-			int closingBrack = closingBracket(termString, 0);
-			assert termString.length() - 1 == closingBrack;
-			Formula tmp = this.splitOnDisjunction(termString.substring(1, termString.length() - 1));
-			return tmp;
+		NondeterministicChoice choice = new NondeterministicChoice();
+		choice.addChoice(first);
+		while (lexer.accept(TokenType.CHOICE)) {
+			choice.addChoice(this.parseSequence(lexer));
 		}
-
-		return this.parseRelation(termString);
+		return choice;
 	}
 
 	/**
-	 * Parses a string representation of a Relation.
+	 * Parses binary operators with a precedence of at least the given minimum.
+	 * Chains of the same associative operator are collected in a single
+	 * Conjunction, Disjunction, AdditionTerm or MultiplicationTerm.
 	 * 
-	 * @param termString
+	 * @param lexer
+	 * @param minPrecedence
 	 * @return
 	 */
-	private Relation parseRelation(String termString) {
-		Term rhs;
-		Term lhs;
-		RelationType rel;
-		int eq = termString.indexOf('=');
-		if (-1 < eq) {
-			rhs = this.parseTerm(termString.substring(eq + 1));
-			switch (termString.charAt(eq - 1)) {
-			case '<':
-				lhs = this.parseTerm(termString.substring(0, eq - 1));
-				rel = RelationType.LESS_EQUAL;
+	private Term parseExpression(KYXLexer lexer, int minPrecedence) {
+		Term left = this.parseUnary(lexer);
+		Term chain = null;
+		while (true) {
+			KYXToken operator = lexer.peek();
+			int precedence = getPrecedence(operator.getType());
+			if (precedence < minPrecedence) {
+				return left;
+			}
+			lexer.next();
+
+			// implication and exponentiation are right associative
+			boolean rightAssociative = operator.getType() == TokenType.IMPLIES
+					|| operator.getType() == TokenType.POWER;
+			KYXToken rightStart = lexer.peek();
+			Term right = this.parseExpression(lexer, rightAssociative ? precedence : precedence + 1);
+
+			switch (operator.getType()) {
+			case EQUIVALENT:
+				left = new Equivalence(this.asOperator(left, operator), this.asOperator(right, rightStart));
+				chain = null;
+				break;
+
+			case IMPLIES:
+				left = new Implication(this.asOperator(left, operator), this.asOperator(right, rightStart));
+				chain = null;
+				break;
+
+			case OR:
+				if (!(chain instanceof Disjunction)) {
+					chain = new Disjunction().addLiterals(this.asOperator(left, operator));
+				}
+				((Disjunction) chain).addLiterals(this.asOperator(right, rightStart));
+				left = chain;
+				break;
+
+			case AND:
+				if (!(chain instanceof Conjunction)) {
+					chain = new Conjunction().addLiterals(this.asOperator(left, operator));
+				}
+				((Conjunction) chain).addLiterals(this.asOperator(right, rightStart));
+				left = chain;
 				break;
 
-			case '>':
-				lhs = this.parseTerm(termString.substring(0, eq - 1));
-				rel = RelationType.GREATER_EQUAL;
+			case PLUS:
+			case MINUS:
+				if (!(chain instanceof AdditionTerm)) {
+					chain = new AdditionTerm(this.asTerm(left, operator));
+				}
+				if (operator.getType() == TokenType.PLUS) {
+					((AdditionTerm) chain).add(this.asTerm(right, rightStart));
+				} else {
+					((AdditionTerm) chain).subtract(this.asTerm(right, rightStart));
+				}
+				left = chain;
+				break;
+
+			case TIMES:
+			case DIVIDE:
+				if (!(chain instanceof MultiplicationTerm)) {
+					chain = new MultiplicationTerm(this.asTerm(left, operator));
+				}
+				if (operator.getType() == TokenType.TIMES) {
+					((MultiplicationTerm) chain).multiplyBy(this.asTerm(right, rightStart));
+				} else {
+					((MultiplicationTerm) chain).dividedBy(this.asTerm(right, rightStart));
+				}
+				left = chain;
 				break;
 
-			case '!':
-				lhs = this.parseTerm(termString.substring(0, eq - 1));
-				rel = RelationType.NOT_EQUAL;
+			case POWER:
+				left = new ExponentTerm(this.asTerm(left, operator), this.asTerm(right, rightStart));
+				chain = null;
 				break;
 
 			default:
-				lhs = this.parseTerm(termString.substring(0, eq));
-				rel = RelationType.EQUAL;
-			}
-		} else {
-			String[] lt = termString.split("<");
-			if (lt.length == 2) {
-				lhs = this.parseTerm(lt[0]);
-				rel = RelationType.LESS_THAN;
-				rhs = this.parseTerm(lt[1]);
-			} else {
-				String[] gt = termString.split(">");
-				assert lt.length == 1 && gt.length == 2;
-				lhs = this.parseTerm(gt[0]);
-				rel = RelationType.GREATER_THAN;
-				rhs = this.parseTerm(gt[1]);
+				// relations are not associative, a following relation is rejected by asTerm
+				left = new Relation(this.asTerm(left, operator), getRelationType(operator.getType()),
+						this.asTerm(right, rightStart));
+				chain = null;
+				break;
 			}
 		}
-		return new Relation(lhs, rel, rhs);
 	}
 
 	/**
-	 * Generates a Formula from a string representation.
+	 * Parses negations, unary minus, box modalities and atoms.
 	 * 
-	 * @param str
+	 * @param lexer
 	 * @return
 	 */
-	public Term parseTerm(String str) {
-		return this.splitOnPlusMinus(str);
+	private Term parseUnary(KYXLexer lexer) {
+		KYXToken token = lexer.peek();
+		switch (token.getType()) {
+		case NOT:
+			lexer.next();
+			return new Negation(this.asOperator(this.parseUnary(lexer), lexer.peek()));
+
+		case MINUS:
+			lexer.next();
+			if (lexer.peek().getType() == TokenType.NUMBER && lexer.peek(1).getType() != TokenType.POWER) {
+				return new RealTerm("-" + lexer.next().getText());
+			}
+			KYXToken operandStart = lexer.peek();
+			Term operand = this.parseExpression(lexer, PRECEDENCE_POWER);
+			return new AdditionTerm().subtract(this.asTerm(operand, operandStart));
+
+		case LEFT_BRACKET:
+			lexer.next();
+			HybridProgram program = this.parseProgram(lexer);
+			lexer.expect(TokenType.RIGHT_BRACKET);
+			KYXToken postStart = lexer.peek();
+			return new BoxModality(program, this.asOperator(this.parseUnary(lexer), postStart));
+
+		default:
+			return this.parseAtom(lexer);
+		}
 	}
 
 	/**
-	 * Splits a string representation on plus/minus and parses the results. Treats
-	 * round brackets as atoms. Since these operations have the lowest precedence,
-	 * this method is the entry point for parsing.
+	 * Parses "atomic" Terms: Bracketed terms and formulas, numbers, boolean
+	 * constants, Constants and Variables.
 	 * 
-	 * @param termString
+	 * @param lexer
 	 * @return
 	 */
-	private Term splitOnPlusMinus(String termString) {
-		AdditionTerm sum = new AdditionTerm();
-		int start = 0;
-		boolean addContext = true;
-		Term tmp;
-		String parsee;
-		for (int i = 0; i < termString.length(); i++) {
-			switch (termString.charAt(i)) {
-			case '(':
-				i = closingBracket(termString, i);
-				break;
-
-			case '+':
-				parsee = termString.substring(start, i);
-				if (!parsee.isEmpty()) {
-					tmp = this.splitOnTimesDivision(parsee);
-					if (addContext) {
-						sum.add(tmp);
-					} else {
-						sum.subtract(tmp);
-					}
-				}
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				addContext = true;
-				break;
-
-			case '-':
-				parsee = termString.substring(start, i);
-				if (!parsee.isEmpty()) {
-					tmp = this.splitOnTimesDivision(parsee);
-					if (addContext) {
-						sum.add(tmp);
-					} else {
-						sum.subtract(tmp);
-					}
-				}
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				addContext = false;
-				break;
+	private Term parseAtom(KYXLexer lexer) {
+		KYXToken token = lexer.next();
+		switch (token.getType()) {
+		case NUMBER:
+			return new RealTerm(token.getText());
+
+		case LEFT_PAREN:
+			Term inner = this.parseExpression(lexer, 0);
+			lexer.expect(TokenType.RIGHT_PAREN);
+			// formulas and composed terms print their own brackets
+			if (inner instanceof Operator || inner instanceof AdditionTerm || inner instanceof ExponentTerm
+					|| (inner instanceof MultiplicationTerm && ((MultiplicationTerm) inner).getDivisors().isEmpty())) {
+				return inner;
+			}
+			return new BracketTerm(inner);
 
-			default:
-				break;
+		case IDENTIFIER:
+			if (token.isIdentifier("true")) {
+				return new BooleanConstant(true);
+			}
+			if (token.isIdentifier("false")) {
+				return new BooleanConstant(false);
+			}
+			// functions without arguments may be written as "f()"
+			if (lexer.peek().getType() == TokenType.LEFT_PAREN
+					&& lexer.peek(1).getType() == TokenType.RIGHT_PAREN) {
+				lexer.next();
+				lexer.next();
 			}
+			Term atom = this.kyxp.getTermByName(token.getText());
+			if (atom != null) {
+				return atom;
+			}
+			System.out.println("[INFO] Unable to find: '" + token.getText()
+					+ "' in Constants or Variables. StringTerm created instead!");
+			return createUndeclaredTerm(token.getText());
+
+		default:
+			throw new KYXParseException("Expected term or formula", token);
 		}
+	}
 
-		tmp = this.splitOnTimesDivision(termString.substring(start));
-		if (addContext) {
-			sum.add(tmp);
-		} else {
-			sum.subtract(tmp);
+	/**
+	 * Parses hybrid programs that are composed sequentially.
+	 * 
+	 * @param lexer
+	 * @return
+	 */
+	private HybridProgram parseSequence(KYXLexer lexer) {
+		HybridProgramCollection sequence = new HybridProgramCollection();
+		while (!isEndOfSequence(lexer.peek())) {
+			sequence.addElement(this.parseStatement(lexer));
 		}
 
-		// don't encapsulate, if unnecessary
-		if (sum.getSubtrahends().isEmpty() && sum.getSummands().size() == 1) {
-			return sum.getSummands().get(0);
+		if (sequence.isEmpty()) {
+			throw new KYXParseException("Expected hybrid program", lexer.peek());
+		}
+		if (sequence.getInnerPrograms().size() == 1) {
+			return sequence.getInnerPrograms().get(0);
 		}
+		return sequence;
+	}
 
-		return sum;
+	private static boolean isEndOfSequence(KYXToken token) {
+		switch (token.getType()) {
+		case RIGHT_BRACE:
+		case RIGHT_BRACKET:
+		case CHOICE:
+		case EOF:
+			return true;
+		default:
+			return token.isIdentifier("else") || token.isIdentifier("fi");
+		}
 	}
 
 	/**
-	 * Splits the given string on occurences of "*" and "/", while treating
-	 * bracketed terms as atoms. Returns a Term representing the
-	 * division/multiplication described in in the string.
+	 * Parses a single statement: assignments, tests, if statements, continuous
+	 * evolutions, and bracketed programs with an optional repetition.
 	 * 
-	 * @param termString
+	 * @param lexer
 	 * @return
 	 */
-	private Term splitOnTimesDivision(String termString) {
-		MultiplicationTerm product = new MultiplicationTerm();
-		int start = 0;
-		boolean timesContext = true;
-		Term tmp;
-		for (int i = 0; i < termString.length(); i++) {
-			switch (termString.charAt(i)) {
-			case '(':
-				i = closingBracket(termString, i);
-				break;
-
-			case '*':
-				tmp = this.splitOnExponentiation(termString.substring(start, i));
-				if (timesContext) {
-					product.multiplyBy(tmp);
-				} else {
-					product.dividedBy(tmp);
-				}
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				timesContext = true;
-				break;
-
-			case '/':
-				tmp = this.splitOnExponentiation(termString.substring(start, i));
-				if (timesContext) {
-					product.multiplyBy(tmp);
-				} else {
-					product.dividedBy(tmp);
+	private HybridProgram parseStatement(KYXLexer lexer) {
+		KYXToken token = lexer.peek();
+		switch (token.getType()) {
+		case LEFT_BRACE:
+			if (lexer.peek(1).getType() == TokenType.IDENTIFIER && lexer.peek(2).getType() == TokenType.PRIME) {
+				return this.parseEvolution(lexer);
+			}
+			lexer.next();
+			HybridProgram inner = this.parseProgram(lexer);
+			lexer.expect(TokenType.RIGHT_BRACE);
+			if (lexer.accept(TokenType.TIMES)) {
+				Formula invariant = null;
+				if (lexer.accept(TokenType.AT)) {
+					if (lexer.peek().isIdentifier("invariant")) {
+						lexer.next();
+					}
+					invariant = this.parseFormula(lexer);
 				}
-				assert i + 1 < termString.length(); // operations are followed
-													// by operands
-				start = i + 1;
-				timesContext = false;
-				break;
-
-			default:
-				break;
+				inner = new NondeterministicRepetition(inner, invariant);
 			}
-		}
+			lexer.accept(TokenType.SEMICOLON);
+			return inner;
+
+		case TEST:
+			lexer.next();
+			TestFormula test = new TestFormula(this.parseFormula(lexer));
+			lexer.accept(TokenType.SEMICOLON);
+			return test;
+
+		case IDENTIFIER:
+			if (token.isIdentifier("if")) {
+				return this.parseIfStatement(lexer);
+			}
+			if (lexer.peek(1).getType() == TokenType.ASSIGN) {
+				return this.parseAssignment(lexer);
+			}
+			throw new KYXParseException("Expected hybrid program", token);
 
-		tmp = this.splitOnExponentiation(termString.substring(start));
-		if (timesContext) {
-			product.multiplyBy(tmp);
-		} else {
-			product.dividedBy(tmp);
+		default:
+			throw new KYXParseException("Expected hybrid program", token);
 		}
+	}
 
-		// don't encapsulate, if unnecessary
-		if (product.getDivisors().isEmpty() && product.getFactors().size() == 1) {
-			return product.getFactors().get(0);
+	/**
+	 * Parses discrete ("x:=t;") and nondeterministic ("x:=*;") assignments.
+	 * 
+	 * @param lexer
+	 * @return
+	 */
+	private HybridProgram parseAssignment(KYXLexer lexer) {
+		Variable variable = this.getVariable(lexer.next());
+		lexer.expect(TokenType.ASSIGN);
+		HybridProgram assignment;
+		if (lexer.accept(TokenType.TIMES)) {
+			assignment = new NondeterministicAssignment(variable);
+		} else {
+			assignment = new DiscreteAssignment(variable, this.parseTerm(lexer));
 		}
-
-		return product;
+		lexer.accept(TokenType.SEMICOLON);
+		return assignment;
 	}
 
 	/**
-	 * Splits the given string on occurences of "^", while treating bracketed terms
-	 * as atoms. Handles expressions like a^b^c. Returns a Term representing the
-	 * exponential described in in the string. Exponentials have the highest
-	 * precedence, therefore splitting on them must be done last.
+	 * Parses if statements, both the "if c then a else b fi" form that is
+	 * created by this tool and the "if (c) {a} else {b}" form of KeYmaera X.
 	 * 
-	 * @param termString
+	 * @param lexer
 	 * @return
 	 */
-	private Term splitOnExponentiation(String termString) {
-		ArrayList<String> splits = new ArrayList<>();
-		int start = 0;
-		for (int i = 0; i < termString.length(); i++) {
-			switch (termString.charAt(i)) {
-			case '(':
-				i = closingBracket(termString, i);
-				break;
-
-			case '^':
-				splits.add(termString.substring(start, i));
-				i++;
-				start = i;
-				break;
-
-			default:
-				break;
+	private HybridProgram parseIfStatement(KYXLexer lexer) {
+		lexer.next();
+		Formula condition = this.parseFormula(lexer);
+		HybridProgram ifProgram;
+		HybridProgram elseProgram = null;
+		if (lexer.peek().isIdentifier("then")) {
+			lexer.next();
+			ifProgram = this.parseProgram(lexer);
+			if (lexer.peek().isIdentifier("else")) {
+				lexer.next();
+				elseProgram = this.parseProgram(lexer);
+			}
+			KYXToken end = lexer.next();
+			if (!end.isIdentifier("fi")) {
+				throw new KYXParseException("Expected 'fi'", end);
+			}
+		} else {
+			ifProgram = this.parseStatement(lexer);
+			if (lexer.peek().isIdentifier("else")) {
+				lexer.next();
+				elseProgram = this.parseStatement(lexer);
 			}
 		}
 
-		splits.add(termString.substring(start));
-
-		Term base = parseAtomicTerm(splits.remove(0));
-		// don't encapsulate, if unnecessary
-		if (splits.isEmpty()) {
-			return base;
-		}
-
-		ExponentTerm exponentiation = new ExponentTerm(base);
-		for (String str : splits) {
-			exponentiation.powerOf(this.parseAtomicTerm(str));
+		if (elseProgram == null) {
+			return new IfStatement(condition, ifProgram);
 		}
-		return exponentiation;
+		return new IfStatement(condition, ifProgram, elseProgram);
 	}
 
 	/**
-	 * Parses "atomic" Terms: Bracketed terms, Constants and Variables.
+	 * Parses a continuous evolution like "{x'=v, v'=a & v>=0}".
 	 * 
-	 * @param str
+	 * @param lexer
 	 * @return
 	 */
-	private Term parseAtomicTerm(String str) {
-		if (str.startsWith("(")) {
-			assert closingBracket(str, 0) == str.length() - 1;
-			String unwrapped = str.substring(1, str.length() - 1);
-			return new BracketTerm(this.splitOnPlusMinus(unwrapped));
+	private ContinuousEvolution parseEvolution(KYXLexer lexer) {
+		lexer.expect(TokenType.LEFT_BRACE);
+		ContinuousEvolution evolution = new ContinuousEvolution();
+		do {
+			Variable variable = this.getVariable(lexer.expect(TokenType.IDENTIFIER));
+			lexer.expect(TokenType.PRIME);
+			lexer.expect(TokenType.EQUAL);
+			evolution.addSingleEvolution(variable, this.parseTerm(lexer));
+		} while (lexer.accept(TokenType.COMMA));
+
+		if (lexer.accept(TokenType.AND)) {
+			evolution.setEvolutionDomain(this.parseFormula(lexer));
 		}
+		lexer.expect(TokenType.RIGHT_BRACE);
+		lexer.accept(TokenType.SEMICOLON);
+		return evolution;
+	}
 
-		assert !str.contains("|") && !str.contains("&") && !str.contains("(") && !str.contains(")")
-				&& !str.contains("+") && !str.contains("-") && !str.contains("*") && !str.contains("/")
-				&& !str.contains("^");
-
-		Term atom = this.kyxp.getTermByName(str);
-		if (atom != null) {
-			return atom;
+	private Variable getVariable(KYXToken token) {
+		Variable variable = this.kyxp.getVariableByName(token.getText());
+		if (variable == null) {
+			throw new KYXParseException("Unknown variable", token);
 		}
-
-		return AtomicTermParser.parseToRealTerm(str);
+		return variable;
 	}
 
 	/**
-	 * Starts from the opening bracket at the given position, finds the
-	 * corresponding closing bracket and returns its position.
-	 * 
-	 * @param str
-	 * @param start
-	 * @return
+	 * Keeps a name that is neither a declared constant nor a variable as text.
+	 * StringTerm is deprecated, but it is the only term that represents such a
+	 * name, and the contract can still be printed with it.
 	 */
-	private static int closingBracket(String str, int start) {
-		if (str.length() < 2 || str.length() <= start) {
-			System.out.println("[ERR] Malformed string: " + str + "\n Finding ')' at " + start + " impossible!");
-			return Integer.MIN_VALUE;
-		}
+	@SuppressWarnings("deprecation")
+	private static Term createUndeclaredTerm(String name) {
+		return new simulink2dl.dlmodel.term.StringTerm(name);
+	}
 
-		if (str.charAt(start) != '(') {
-			return -1;
+	private Operator asOperator(Term term, KYXToken position) {
+		if (!(term instanceof Operator)) {
+			throw new KYXParseException("Expected formula", position);
 		}
+		return (Operator) term;
+	}
 
-		int braceStatus = 1;
-		for (int i = start + 1; i < str.length(); i++) {
-			if (str.charAt(i) == '(') {
-				braceStatus++;
-			} else if (str.charAt(i) == ')') {
-				braceStatus--;
-			}
+	private Term asTerm(Term term, KYXToken position) {
+		if (term instanceof Operator) {
+			throw new KYXParseException("Expected term", position);
+		}
+		return term;
+	}
 
-			if (braceStatus == 0) {
-				return i;
-			}
+	private static int getPrecedence(TokenType type) {
+		switch (type) {
+		case EQUIVALENT:
+			return PRECEDENCE_EQUIVALENCE;
+		case IMPLIES:
+			return PRECEDENCE_IMPLICATION;
+		case OR:
+			return PRECEDENCE_DISJUNCTION;
+		case AND:
+			return PRECEDENCE_CONJUNCTION;
+		case EQUAL:
+		case NOT_EQUAL:
+		case LESS_THAN:
+		case LESS_EQUAL:
+		case GREATER_THAN:
+		case GREATER_EQUAL:
+			return PRECEDENCE_RELATION;
+		case PLUS:
+		case MINUS:
+			return PRECEDENCE_SUM;
+		case TIMES:
+		case DIVIDE:
+			return PRECEDENCE_PRODUCT;
+		case POWER:
+			return PRECEDENCE_POWER;
+		default:
+			return -1;
 		}
+	}
 
-		System.out.println("[ERR] String: " + str + "\n Contains an opening, but no closing bracket!");
-		return Integer.MAX_VALUE;
+	private static RelationType getRelationType(TokenType type) {
+		switch (type) {
+		case NOT_EQUAL:
+			return RelationType.NOT_EQUAL;
+		case LESS_THAN:
+			return RelationType.LESS_THAN;
+		case LESS_EQUAL:
+			return RelationType.LESS_EQUAL;
+		case GREATER_THAN:
+			return RelationType.GREATER_THAN;
+		case GREATER_EQUAL:
+			return RelationType.GREATER_EQUAL;
+		default:
+			return RelationType.EQUAL;
+		}
 	}
 
 	/**
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import simulink2dl.dlmodel.parser.KYXToken.TokenType;
+
+/**
+ * Splits a "KeYmaera X" script into tokens. The script is read from the given
+ * reader in a single pass, comments and whitespace are skipped. Tokens are
+ * created on demand, so only the lookahead of the parser is kept in memory.
+ */
+public class KYXLexer {
+
+	private Reader reader;
+
+	private char[] buffer = new char[8192];
+
+	private int bufferLength = 0;
+
+	private int bufferPosition = 0;
+
+	private boolean endOfInput = false;
+
+	private int line = 1;
+
+	private int column = 1;
+
+	private List<KYXToken> lookahead = new ArrayList<KYXToken>();
+
+	public KYXLexer(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Returns the next token and removes it from the input.
+	 */
+	public KYXToken next() {
+		if (lookahead.isEmpty()) {
+			return readToken();
+		}
+		return lookahead.remove(0);
+	}
+
+	/**
+	 * Returns the next token without removing it from the input.
+	 */
+	public KYXToken peek() {
+		return peek(0);
+	}
+
+	/**
+	 * Returns the token at the given offset from the current position without
+	 * removing any tokens from the input.
+	 */
+	public KYXToken peek(int offset) {
+		while (lookahead.size() <= offset) {
+			lookahead.add(readToken());
+		}
+		return lookahead.get(offset);
+	}
+
+	/**
+	 * Removes the next token from the input if it has the given type.
+	 * 
+	 * @return true if a token was removed
+	 */
+	public boolean accept(TokenType type) {
+		if (peek().getType() == type) {
+			next();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the next token and removes it from the input. Throws a
+	 * KYXParseException if it does not have the given type.
+	 */
+	public KYXToken expect(TokenType type) {
+		KYXToken token = next();
+		if (token.getType() != type) {
+			throw new KYXParseException("Expected " + type, token);
+		}
+		return token;
+	}
+
+	private KYXToken readToken() {
+		skipWhitespaceAndComments();
+
+		int tokenLine = line;
+		int tokenColumn = column;
+		int c = readChar();
+		if (c == -1) {
+			return new KYXToken(TokenType.EOF, "<end of input>", tokenLine, tokenColumn);
+		}
+
+		if (Character.isLetter(c) || c == '_' || c == '#') {
+			StringBuilder identifier = new StringBuilder();
+			identifier.append((char) c);
+			while (isIdentifierPart(peekChar(0))) {
+				identifier.append((char) readChar());
+			}
+			return new KYXToken(TokenType.IDENTIFIER, identifier.toString(), tokenLine, tokenColumn);
+		}
+
+		if (isDigit(c) || (c == '.' && isDigit(peekChar(0)))) {
+			return new KYXToken(TokenType.NUMBER, readNumber(c), tokenLine, tokenColumn);
+		}
+
+		TokenType type;
+		String text = String.valueOf((char) c);
+		switch (c) {
+		case '"':
+			StringBuilder string = new StringBuilder();
+			int next = readChar();
+			while (next != '"') {
+				if (next == -1) {
+					throw new KYXParseException("Unterminated string", tokenLine, tokenColumn);
+				}
+				string.append((char) next);
+				next = readChar();
+			}
+			return new KYXToken(TokenType.STRING, string.toString(), tokenLine, tokenColumn);
+		case '(':
+			type = TokenType.LEFT_PAREN;
+			break;
+		case ')':
+			type = TokenType.RIGHT_PAREN;
+			break;
+		case '{':
+			type = TokenType.LEFT_BRACE;
+			break;
+		case '}':
+			type = TokenType.RIGHT_BRACE;
+			break;
+		case '[':
+			type = TokenType.LEFT_BRACKET;
+			break;
+		case ']':
+			type = TokenType.RIGHT_BRACKET;
+			break;
+		case ',':
+			type = TokenType.COMMA;
+			break;
+		case ';':
+			type = TokenType.SEMICOLON;
+			break;
+		case '.':
+			type = TokenType.DOT;
+			break;
+		case '\'':
+			type = TokenType.PRIME;
+			break;
+		case '=':
+			type = TokenType.EQUAL;
+			break;
+		case '*':
+			type = TokenType.TIMES;
+			break;
+		case '/':
+			type = TokenType.DIVIDE;
+			break;
+		case '^':
+			type = TokenType.POWER;
+			break;
+		case '&':
+			type = TokenType.AND;
+			break;
+		case '|':
+			type = TokenType.OR;
+			break;
+		case '?':
+			type = TokenType.TEST;
+			break;
+		case '@':
+			type = TokenType.AT;
+			break;
+		case ':':
+			if (peekChar(0) != '=') {
+				throw new KYXParseException("Unexpected character ':'", tokenLine, tokenColumn);
+			}
+			readChar();
+			type = TokenType.ASSIGN;
+			text = ":=";
+			break;
+		case '!':
+			if (peekChar(0) == '=') {
+				readChar();
+				type = TokenType.NOT_EQUAL;
+				text = "!=";
+			} else {
+				type = TokenType.NOT;
+			}
+			break;
+		case '+':
+			if (peekChar(0) == '+') {
+				readChar();
+				type = TokenType.CHOICE;
+				text = "++";
+			} else {
+				type = TokenType.PLUS;
+			}
+			break;
+		case '-':
+			if (peekChar(0) == '>') {
+				readChar();
+				type = TokenType.IMPLIES;
+				text = "->";
+			} else {
+				type = TokenType.MINUS;
+			}
+			break;
+		case '<':
+			if (peekChar(0) == '=') {
+				readChar();
+				type = TokenType.LESS_EQUAL;
+				text = "<=";
+			} else if (peekChar(0) == '-' && peekChar(1) == '>') {
+				readChar();
+				readChar();
+				type = TokenType.EQUIVALENT;
+				text = "<->";
+			} else {
+				type = TokenType.LESS_THAN;
+			}
+			break;
+		case '>':
+			if (peekChar(0) == '=') {
+				readChar();
+				type = TokenType.GREATER_EQUAL;
+				text = ">=";
+			} else {
+				type = TokenType.GREATER_THAN;
+			}
+			break;
+		default:
+			throw new KYXParseException("Unexpected character '" + (char) c + "'", tokenLine, tokenColumn);
+		}
+		return new KYXToken(type, text, tokenLine, tokenColumn);
+	}
+
+	/**
+	 * Reads the remaining characters of a number that starts with the given
+	 * character. Supports decimal points and exponents.
+	 */
+	private String readNumber(int first) {
+		StringBuilder number = new StringBuilder();
+		number.append((char) first);
+		boolean hasPoint = first == '.';
+		while (true) {
+			int c = peekChar(0);
+			if (isDigit(c)) {
+				number.append((char) readChar());
+			} else if (c == '.' && !hasPoint && isDigit(peekChar(1))) {
+				hasPoint = true;
+				number.append((char) readChar());
+			} else if ((c == 'E' || c == 'e')
+					&& (isDigit(peekChar(1)) || ((peekChar(1) == '-' || peekChar(1) == '+') && isDigit(peekChar(2))))) {
+				number.append((char) readChar());
+				number.append((char) readChar());
+				while (isDigit(peekChar(0))) {
+					number.append((char) readChar());
+				}
+				return number.toString();
+			} else {
+				return number.toString();
+			}
+		}
+	}
+
+	private void skipWhitespaceAndComments() {
+		while (true) {
+			int c = peekChar(0);
+			if (c != -1 && Character.isWhitespace(c)) {
+				readChar();
+			} else if (c == '/' && peekChar(1) == '/') {
+				while (peekChar(0) != -1 && peekChar(0) != '\n') {
+					readChar();
+				}
+			} else if (c == '/' && peekChar(1) == '*') {
+				int commentLine = line;
+				int commentColumn = column;
+				readChar();
+				readChar();
+				while (!(peekChar(0) == '*' && peekChar(1) == '/')) {
+					if (readChar() == -1) {
+						throw new KYXParseException("Unterminated comment", commentLine, commentColumn);
+					}
+				}
+				readChar();
+				readChar();
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isIdentifierPart(int c) {
+		return c != -1 && (Character.isLetterOrDigit(c) || c == '_');
+	}
+
+	/**
+	 * Returns the character at the given offset from the current position or -1
+	 * at the end of the input.
+	 */
+	private int peekChar(int offset) {
+		while (bufferPosition + offset >= bufferLength) {
+			if (!fillBuffer()) {
+				return -1;
+			}
+		}
+		return buffer[bufferPosition + offset];
+	}
+
+	private int readChar() {
+		int c = peekChar(0);
+		if (c == -1) {
+			return -1;
+		}
+		bufferPosition++;
+		if (c == '\n') {
+			line++;
+			column = 1;
+		} else {
+			column++;
+		}
+		return c;
+	}
+
+	/**
+	 * Moves the unread characters to the front of the buffer and reads further
+	 * characters.
+	 * 
+	 * @return false if the end of the input was reached
+	 */
+	private boolean fillBuffer() {
+		if (endOfInput) {
+			return false;
+		}
+		int remaining = bufferLength - bufferPosition;
+		System.arraycopy(buffer, bufferPosition, buffer, 0, remaining);
+		bufferPosition = 0;
+		bufferLength = remaining;
+		try {
+			int read = reader.read(buffer, remaining, buffer.length - remaining);
+			if (read == -1) {
+				endOfInput = true;
+				return false;
+			}
+			bufferLength += read;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+}
@@ -28,30 +28,26 @@
  ******************************************************************************/
 package simulink2dl.dlmodel.parser;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.Reader;
 
 import simulink2dl.dlmodel.DLModel;
 import simulink2dl.dlmodel.DLModelDefaultStructure;
+import simulink2dl.dlmodel.SymbolTable;
 import simulink2dl.dlmodel.elements.Constant;
 import simulink2dl.dlmodel.elements.Variable;
-import simulink2dl.dlmodel.hybridprogram.ContinuousEvolution;
-import simulink2dl.dlmodel.hybridprogram.DebugString;
-import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
 import simulink2dl.dlmodel.hybridprogram.HybridProgram;
 import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
-import simulink2dl.dlmodel.hybridprogram.NondeterministicAssignment;
-import simulink2dl.dlmodel.hybridprogram.NondeterministicChoice;
 import simulink2dl.dlmodel.hybridprogram.NondeterministicRepetition;
-import simulink2dl.dlmodel.hybridprogram.TestFormula;
+import simulink2dl.dlmodel.operator.BoxModality;
 import simulink2dl.dlmodel.operator.Operator;
-import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Implication;
+import simulink2dl.dlmodel.parser.KYXToken.TokenType;
 import simulink2dl.dlmodel.term.Term;
 
 /**
- * Parser for plain text kyx files.
+ * Parser for plain text kyx files. The file is tokenized by a KYXLexer and
+ * parsed in a single pass, sections are read one after another.
  *
  * @author nick
  *
@@ -59,15 +55,15 @@ import simulink2dl.dlmodel.term.Term;
 public class KYXParser {
 
 	/**
-	 * List that contains all functions of the system, which do not change their
+	 * Table that contains all functions of the system, which do not change their
 	 * value
 	 */
-	private List<Constant> constants = new LinkedList<Constant>();
+	private SymbolTable<Constant> constants = new SymbolTable<Constant>(Constant::getName);
 
 	/**
-	 * List that contains all variables of the system
+	 * Table that contains all variables of the system
 	 */
-	private List<Variable> variables = new LinkedList<Variable>();
+	private SymbolTable<Variable> variables = new SymbolTable<Variable>(Variable::getName);
 
 	/**
 	 * Problem that contains the system behavior
@@ -81,285 +77,147 @@ public class KYXParser {
 	private FormulaParser formulaParser;
 
 	/**
-	 * Creates new parser from an uncompressed kyx file.
+	 * Creates new parser from an uncompressed kyx file. Throws a
+	 * KYXParseException with the position of the error if the file does not match
+	 * the expected syntax.
 	 *
 	 * @param kyxFile
 	 */
-	public KYXParser(FileReader kyxFile) {
-		StringBuilder strb = new StringBuilder();
-		try (BufferedReader br = new BufferedReader(kyxFile)) {
-			String line = br.readLine();
-			while (line != null) {
-				// remove comments, cut leading/trailing whitespace
-				line = line.replaceAll("(?:/\\*(?:[^*]|(?:\\*+[^*/]))*\\*+/)|(?://.*)", "");
-				line = line.trim();
-
-				if (!line.isEmpty()) {
-					strb.append(line);
-				}
-				line = br.readLine();
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		for (String section : strb.toString().split("End.")) {
-			String[] lines = section.split("\\.");
-			switch (lines[0]) {
+	public KYXParser(Reader kyxFile) {
+		this.formulaParser = new FormulaParser(this);
+		KYXLexer lexer = new KYXLexer(kyxFile);
+
+		while (lexer.peek().getType() != TokenType.EOF) {
+			KYXToken section = lexer.expect(TokenType.IDENTIFIER);
+			lexer.accept(TokenType.DOT);
+			switch (section.getText()) {
 			case "Functions":
-				for (int i = 1; i < lines.length; i++) {
-					this.constants.add(AtomicTermParser.parseToConstant(lines[i]));
+				while (!isEndOfSection(lexer)) {
+					this.parseConstant(lexer);
 				}
 				break;
 			case "ProgramVariables":
-				for (int i = 1; i < lines.length; i++) {
-					this.variables.add(AtomicTermParser.parseToVariable(lines[i]));
+				while (!isEndOfSection(lexer)) {
+					this.parseVariables(lexer);
 				}
 				break;
 			case "Problem":
-				this.formulaParser = new FormulaParser(this);
-				this.parseProblem(section.replaceFirst("Problem.", "").replaceAll(" ", ""));
+				this.problem = this.formulaParser.parseFormula(lexer);
+				this.parseProblem(this.problem);
 				break;
 			default:
-				System.out.println("[ERR] Unexpected case found, while trying to evaluate sections. \n " + lines[0]);
+				System.out.println("[ERR] Unexpected case found, while trying to evaluate sections. \n " + section);
+				while (!isEndOfSection(lexer)) {
+					lexer.next();
+				}
 				break;
 			}
-		}
-	}
-
-	private Operator parseProblem(String problemString) {
-		String[] problem = problemString.split("->\\[");
-		if (problem.length == 2) { // DLModelDefaultStructure
-			// initial condition -> [behavior]true
-			this.defStruct = new DLModelDefaultStructure();
-			this.defStruct.setConstants(this.constants);
-			this.defStruct.setVariables(this.variables);
-
-			Formula initCondFormula = this.formulaParser.parse(problem[0]);
-			this.defStruct.addInitialCondition(initCondFormula);
-
-			int closingBracket = problem[1].lastIndexOf(']');
-			String programInsideBox = problem[1].substring(0, closingBracket);
-			// String postCondition = problem[1].substring(closingBracket + 1);
-			// Formula postConditionFormula = this.formulaParser.parse(postCondition);
-			// TODO is postCondition ever used?
-			NondeterministicRepetition loop = parseNondeterministicRepetition(programInsideBox);
-			this.defStruct.addBehavior(loop.getInnerProgram());
-			this.defStruct.getLoop().setInvariant(loop.getInvariant());
-		} else { // DLModel
-			// TODO
-			// this.dlmodel = new DLModel();
-		}
-		return null;
-	}
-
-	private NondeterministicRepetition parseNondeterministicRepetition(String repetitionString) {
-		int i = repetitionString.lastIndexOf("*@invariant");
-		if (i > 0) {
-			assert closingBracket(repetitionString, 0) == i - 1;
-			String wrappedRepitition = repetitionString.substring(0, i);
-			HybridProgram repitition = this.parseInnerProgram(unwrap(wrappedRepitition));
-
-			String wrappedInvariant = repetitionString.substring(i + "*@invariant".length());
-			Formula invariantForm = this.formulaParser.parse(wrappedInvariant);
-
-			return new NondeterministicRepetition(repitition, invariantForm);
-		}
-		int end = closingBracket(repetitionString, 0);
-		assert (repetitionString.charAt(end + 1) == '*' && repetitionString.length() == end + 1);
-		return (NondeterministicRepetition) this.parseInnerProgram(repetitionString);
-	}
-
-	private HybridProgram parseInnerProgram(String programString) {
-		// anchors
-		if (!programString.startsWith("{")) {
-			return this.parseNonNestedProgram(programString);
-		}
-		int end = closingBracket(programString, 0);
-		if (end + 1 == programString.length()) {
-			// call parseInnerProgram on unwrapped content, if corresponding '}' is
-			// the last character
-			return this.parseInnerProgram(unwrap(programString));
-		}
-		if (programString.charAt(end + 1) == '*' && programString.length() == end + 1) {
-			return new NondeterministicRepetition(new DebugString(unwrap(programString)));
-		}
-
-		// recursion
-		HybridProgramCollection coll = new HybridProgramCollection();
-		int start = 0;
-		while (end != -1) {
-			String subProgStr = programString.substring(start + 1, end);
-			coll.addElement(this.parseInnerProgram(subProgStr));
-			if (end + 1 < programString.length()) {
-				start = end + 1;
-				end = closingBracket(programString, start);
-			} else {
-				end = -1;
+			KYXToken end = lexer.next();
+			if (!end.isIdentifier("End")) {
+				throw new KYXParseException("Expected 'End.'", end);
 			}
+			lexer.expect(TokenType.DOT);
 		}
-		return coll;
-	}
-
-	private HybridProgram parseNonNestedProgram(String str) {
-		assert str.indexOf('{') == -1;
-		assert str.indexOf('}') == -1;
-		// HybridProgram simple = this.parseNonNestedProgram(str.substring(0,
-		// start));
-		// HybridProgram complex = this.parseInnerProgram(str.substring(start));
-		// return new HybridProgramCollection(simple, complex);
-		if (str.contains("++")) {
-			return this.parseNonNestedNondeterministicChoice(str);
-		}
-		return this.parseNonNestedSequence(str);
-	}
-
-	private HybridProgram parseNonNestedNondeterministicChoice(String prog) {
-		NondeterministicChoice chzr = new NondeterministicChoice();
-		for (String str : prog.split("\\+\\+")) {
-			chzr.addChoice(this.parseNonNestedSequence(str));
-		}
-		return chzr;
-	}
-
-	private HybridProgram parseNonNestedSequence(String program) {
-		String[] splits = program.split(";");
-		if (splits.length == 1) {
-			return this.parsePrimitive(splits[0]);
-		}
-
-		HybridProgramCollection coll = new HybridProgramCollection();
-		for (String str : splits) {
-			coll.addElement(this.parsePrimitive(str));
-		}
-		return coll;
-	}
-
-	private HybridProgram parsePrimitive(String program) {
-		if (program.contains(":=")) {
-			return this.parsePrimitiveAssignment(program);
-		}
-
-		if (program.startsWith("?")) {
-			return this.parsePrimitiveTestFormula(program);
-		}
-
-		return this.parsePrimitiveEvolution(program);
-	}
-
-	private static String unwrap(String str) {
-		return unwrap(str, 0);
 	}
 
 	/**
-	 * Starts from the curly opening bracket at the given position, finds the
-	 * corresponding closing bracket and returns everything inbetween.
-	 * 
-	 * @param str
-	 * @param start
-	 * @return
+	 * Returns true if the next tokens are "End.". Throws a KYXParseException at
+	 * the end of the input.
 	 */
-	private static String unwrap(String str, int start) {
-		int end = closingBracket(str, start);
-		if (end == -1) {
-			return "";
+	private static boolean isEndOfSection(KYXLexer lexer) {
+		if (lexer.peek().getType() == TokenType.EOF) {
+			throw new KYXParseException("Expected 'End.'", lexer.peek());
 		}
-		return str.substring(start + 1, end);
+		return lexer.peek().isIdentifier("End") && lexer.peek(1).getType() == TokenType.DOT;
 	}
 
 	/**
-	 * Starts from the curly opening bracket at the given position, finds the
-	 * corresponding closing bracket and returns its position.
+	 * Parses a declaration of a Constant. Set ("R A = (5).") and unset ("R A.")
+	 * Constants are supported.
 	 * 
-	 * @param str
-	 * @param start
-	 * @return
+	 * @param lexer
 	 */
-	static int closingBracket(String str, int start) {
-		if (str.length() < 2 || str.length() <= start) {
-			System.out.println("[ERR] Malformed string: " + str + "\n Finding } at " + start + " impossible!");
-			return Integer.MIN_VALUE;
-		}
-
-		if (str.charAt(start) != '{') {
-			return -1;
+	private void parseConstant(KYXLexer lexer) {
+		String type = lexer.expect(TokenType.IDENTIFIER).getText();
+		String name = lexer.expect(TokenType.IDENTIFIER).getText();
+		if (lexer.peek().getType() == TokenType.LEFT_PAREN && lexer.peek(1).getType() == TokenType.RIGHT_PAREN) {
+			lexer.next();
+			lexer.next();
 		}
 
-		int braceStatus = 1;
-		for (int i = start + 1; i < str.length(); i++) {
-			if (str.charAt(i) == '{') {
-				braceStatus++;
-			} else if (str.charAt(i) == '}') {
-				braceStatus--;
-			}
-
-			if (braceStatus == 0) {
-				return i;
+		Constant constant;
+		if (lexer.accept(TokenType.EQUAL)) {
+			Term value;
+			if (lexer.accept(TokenType.LEFT_PAREN)) {
+				value = this.formulaParser.parseTerm(lexer);
+				lexer.expect(TokenType.RIGHT_PAREN);
+			} else {
+				value = this.formulaParser.parseTerm(lexer);
 			}
+			constant = new Constant(type, name, value);
+		} else {
+			constant = new Constant(type, name);
 		}
+		lexer.expect(TokenType.DOT);
 
-		System.out.println("[ERR] String: " + str + "\n Contains an opening, but no closing bracket!");
-		return Integer.MIN_VALUE;
+		this.constants.add(constant);
 	}
 
 	/**
-	 * Parses a string representation of a assignment (nondeterministic as well as
-	 * discrete). Take note: No additional checks or transformations are applied.
-	 * (primitive statement 1|2)
+	 * Parses a declaration of one or more Variables ("R x." or "R x, y.").
 	 * 
-	 * @param assignment
-	 * @return
+	 * @param lexer
 	 */
-	private HybridProgram parsePrimitiveAssignment(String assignment) {
-		String[] varTerm = assignment.split(":=");
-		assert varTerm.length == 2;
-		String valStr = varTerm[1].replaceFirst(";", "");
-		if (valStr.equals("*")) {
-			return new NondeterministicAssignment(this.getVariableByName(varTerm[0]));
-		}
-		return new DiscreteAssignment(this.getVariableByName(varTerm[0]), this.formulaParser.parseTerm(valStr));
+	private void parseVariables(KYXLexer lexer) {
+		String type = lexer.expect(TokenType.IDENTIFIER).getText();
+		do {
+			String name = lexer.expect(TokenType.IDENTIFIER).getText();
+			Variable variable = new Variable(type, name);
+			this.variables.add(variable);
+		} while (lexer.accept(TokenType.COMMA));
+		lexer.expect(TokenType.DOT);
 	}
 
 	/**
-	 * Parses a string representation of a continuous evolution. Take note: No
-	 * additional checks or transformations are applied. (primitive statement 3)
+	 * Creates a DLModelDefaultStructure if the problem has the form "initial
+	 * condition -> [{behavior}*]post condition", otherwise a DLModel with the
+	 * given problem.
 	 * 
-	 * @param prog
-	 * @return
+	 * @param problemFormula
 	 */
-	private ContinuousEvolution parsePrimitiveEvolution(String prog) {
-		String[] evoDom = prog.split("&", 2);
-		ContinuousEvolution evo = new ContinuousEvolution(this.formulaParser.parse(evoDom[1]));
-		for (String singleEvo : evoDom[0].split(",")) {
-			String[] varVal = singleEvo.split("'=");
-			Variable var = getVariableByName(varVal[0]);
-			Term val = getTermByName(varVal[1]);
-			if (val == null) {
-				evo.addSingleEvolution(var, this.formulaParser.parseTerm(varVal[1]));
+	private void parseProblem(Operator problemFormula) {
+		if (problemFormula instanceof Implication
+				&& ((Implication) problemFormula).getConsequent() instanceof BoxModality
+				&& ((BoxModality) ((Implication) problemFormula).getConsequent())
+						.getInnerProgram() instanceof NondeterministicRepetition) {
+			// initial condition -> [behavior]true
+			Implication implication = (Implication) problemFormula;
+			NondeterministicRepetition loop = (NondeterministicRepetition) ((BoxModality) implication
+					.getConsequent()).getInnerProgram();
+			// TODO is postCondition ever used?
+
+			this.defStruct = new DLModelDefaultStructure();
+			this.defStruct.setConstants(this.constants);
+			this.defStruct.setVariables(this.variables);
+
+			// conjunctions are flattened into the initial conditions
+			this.defStruct.addInitialCondition(implication.getAntecedent());
+
+			HybridProgram behavior = loop.getInnerProgram();
+			if (behavior instanceof HybridProgramCollection) {
+				for (HybridProgram element : ((HybridProgramCollection) behavior).getInnerPrograms()) {
+					this.defStruct.addBehavior(element);
+				}
 			} else {
-				evo.addSingleEvolution(var, val);
+				this.defStruct.addBehavior(behavior);
 			}
+			this.defStruct.getLoop().setInvariant(loop.getInvariant());
+		} else { // DLModel
+			this.dlmodel = new DLModel();
+			this.dlmodel.setConstants(this.constants);
+			this.dlmodel.setVariables(this.variables);
+			this.dlmodel.setProblem(problemFormula);
 		}
-		return evo;
-	}
-
-	/**
-	 * Parses a string representation of a test formula. Take note: No additional
-	 * checks or transformations are applied. (primitive statement 4)
-	 * 
-	 * @param formula
-	 * @return
-	 */
-	private HybridProgram parsePrimitiveTestFormula(String formula) {
-		if (formula.startsWith("?")) {
-			formula = formula.replaceFirst("\\?", "");
-		}
-		return new TestFormula(this.formulaParser.parse(formula));
-	}
-
-	@SuppressWarnings("unused")
-	private HybridProgram parseIfStatement(String ifstate) {
-		return null; // TODO implement
 	}
 
 	public static void main(String[] args) {
@@ -382,14 +240,14 @@ public class KYXParser {
 	/**
 	 * @return the constants
 	 */
-	public List<Constant> getConstants() {
+	public SymbolTable<Constant> getConstants() {
 		return constants;
 	}
 
 	/**
 	 * @return the variables
 	 */
-	public List<Variable> getVariables() {
+	public SymbolTable<Variable> getVariables() {
 		return variables;
 	}
 
@@ -400,18 +258,27 @@ public class KYXParser {
 		return problem;
 	}
 
+	/**
+	 * @return the parsed model, if the problem has the default structure
+	 */
+	public DLModelDefaultStructure getDefaultStructure() {
+		return defStruct;
+	}
+
+	/**
+	 * @return the parsed model, if the problem does not have the default structure
+	 */
+	public DLModel getDLModel() {
+		return dlmodel;
+	}
+
 	/**
 	 * Returns the constant with the given name or null if no such constant exists.
 	 * 
 	 * @param toSearch
 	 */
 	Constant getConstantByName(String toSearch) {
-		for (Constant constant : constants) {
-			if (constant.getName().equals(toSearch)) {
-				return constant;
-			}
-		}
-		return null;
+		return constants.get(toSearch);
 	}
 
 	/**
@@ -420,12 +287,7 @@ public class KYXParser {
 	 * @param toSearch
 	 */
 	Variable getVariableByName(String toSearch) {
-		for (Variable variable : variables) {
-			if (variable.getName().equals(toSearch)) {
-				return variable;
-			}
-		}
-		return null;
+		return variables.get(toSearch);
 	}
 
 	/**
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.parser;
+
+/**
+ * A single token of a "KeYmaera X" script together with its position in the
+ * source.
+ */
+public class KYXToken {
+
+	public enum TokenType {
+		IDENTIFIER, NUMBER, STRING, LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET,
+		COMMA, SEMICOLON, DOT, ASSIGN, PRIME, EQUAL, NOT_EQUAL, LESS_THAN, LESS_EQUAL, GREATER_THAN, GREATER_EQUAL,
+		PLUS, MINUS, TIMES, DIVIDE, POWER, AND, OR, NOT, IMPLIES, EQUIVALENT, CHOICE, TEST, AT, EOF
+	}
+
+	private TokenType type;
+
+	private String text;
+
+	private int line;
+
+	private int column;
+
+	public KYXToken(TokenType type, String text, int line, int column) {
+		this.type = type;
+		this.text = text;
+		this.line = line;
+		this.column = column;
+	}
+
+	public TokenType getType() {
+		return type;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Returns true if this token is an identifier with the given text.
+	 */
+	public boolean isIdentifier(String identifier) {
+		return type == TokenType.IDENTIFIER && text.equals(identifier);
+	}
+
+	@Override
+	public String toString() {
+		return "'" + text + "' (line " + line + ", column " + column + ")";
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.term;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A representation of function applications like "sqrt(x)" or "max(a,b)".
+ */
+public class FunctionTerm implements Term {
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((name == null) ? 0 : name.hashCode());
+		result = prime * result + ((arguments == null) ? 0 : arguments.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FunctionTerm other = (FunctionTerm) obj;
+		if (name == null) {
+			if (other.name != null)
+				return false;
+		} else if (!name.equals(other.name))
+			return false;
+		if (arguments == null) {
+			if (other.arguments != null)
+				return false;
+		} else if (!arguments.equals(other.arguments))
+			return false;
+		return true;
+	}
+
+	private String name;
+
+	private List<Term> arguments = new ArrayList<Term>();
+
+	public FunctionTerm(String name, Term... arguments) {
+		this.name = name;
+		for (Term argument : arguments) {
+			this.arguments.add(argument);
+		}
+	}
+
+	public FunctionTerm(String name, List<Term> arguments) {
+		this.name = name;
+		this.arguments.addAll(arguments);
+	}
+
+	@Override
+	public boolean isAtomic() {
+		return false;
+	}
+
+	/**
+	 * @return the name of the function
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the arguments
+	 */
+	public List<Term> getArguments() {
+		return arguments;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(name);
+		sb.append("(");
+		String prefix = "";
+		for (Term argument : arguments) {
+			sb.append(prefix);
+			prefix = ",";
+			sb.append(argument.toString());
+		}
+		sb.append(")");
+		return sb.toString();
+	}
+
+	@Override
+	public void replaceTermRecursive(Term toReplace, Term replaceWith) {
+		for (int i = 0; i < arguments.size(); i++) {
+			Term argument = arguments.get(i);
+			if (argument.equals(toReplace)) {
+				arguments.set(i, replaceWith);
+			} else {
+				argument.replaceTermRecursive(toReplace, replaceWith);
+			}
+		}
+	}
+
+	@Override
+	public boolean containsTerm(Term term) {
+		for (Term argument : arguments) {
+			if (argument.equals(term)) {
+				return true;
+			}
+			if (argument.containsTerm(term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public FunctionTerm createDeepCopy() {
+		FunctionTerm result = new FunctionTerm(name);
+		for (Term argument : arguments) {
+			result.arguments.add(argument.createDeepCopy());
+		}
+		return result;
+	}
+
+}
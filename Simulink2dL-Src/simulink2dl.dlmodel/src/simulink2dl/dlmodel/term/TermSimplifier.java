@@ -0,0 +1,477 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.dlmodel.term;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Equivalence;
+import simulink2dl.dlmodel.operator.formula.Implication;
+import simulink2dl.dlmodel.operator.formula.Negation;
+import simulink2dl.dlmodel.operator.formula.Relation;
+
+/**
+ * This class simplifies arithmetic terms. Numeric subterms are evaluated with
+ * exact decimal arithmetic, nested additions and multiplications are
+ * flattened, neutral elements and unnecessary brackets are removed and like
+ * terms of additions are collected, e.g. "(0.0+2.0*(1.0*#out4)+#out4)" becomes
+ * "(3.0*#out4)".
+ * 
+ * The given terms are not modified, the simplified terms are created as new
+ * terms. Subterms that are shared by several terms are simplified only once by
+ * the same simplifier and the results are shared as well.
+ *
+ */
+public class TermSimplifier {
+
+	/**
+	 * Simplified terms for the already handled terms
+	 */
+	private Map<Term, Term> simplifiedTerms = new IdentityHashMap<Term, Term>();
+
+	/**
+	 * Returns the simplified version of the given term.
+	 */
+	public Term simplify(Term term) {
+		Term result = simplifiedTerms.get(term);
+		if (result == null) {
+			result = simplifyTerm(term);
+			simplifiedTerms.put(term, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Simplifies the terms of the relations in the given formula. The relations
+	 * of the formula are modified.
+	 */
+	public void simplifyFormula(Operator formula) {
+		if (formula instanceof Relation) {
+			Relation relation = (Relation) formula;
+			relation.setLeftSide(simplify(relation.getLeftSide()));
+			relation.setRightSide(simplify(relation.getRightSide()));
+		} else if (formula instanceof Conjunction) {
+			for (Operator element : ((Conjunction) formula).getElements()) {
+				simplifyFormula(element);
+			}
+		} else if (formula instanceof Disjunction) {
+			for (Operator element : ((Disjunction) formula).getElements()) {
+				simplifyFormula(element);
+			}
+		} else if (formula instanceof Negation) {
+			simplifyFormula(((Negation) formula).getInnerFormula());
+		} else if (formula instanceof Implication) {
+			simplifyFormula(((Implication) formula).getAntecedent());
+			simplifyFormula(((Implication) formula).getConsequent());
+		} else if (formula instanceof Equivalence) {
+			simplifyFormula(((Equivalence) formula).getLeftSide());
+			simplifyFormula(((Equivalence) formula).getRightSide());
+		}
+	}
+
+	private Term simplifyTerm(Term term) {
+		if (term instanceof AdditionTerm) {
+			return simplifyAddition((AdditionTerm) term);
+		} else if (term instanceof MultiplicationTerm) {
+			return simplifyMultiplication((MultiplicationTerm) term);
+		} else if (term instanceof BracketTerm) {
+			Term innerTerm = simplify(((BracketTerm) term).getInnerTerm());
+			if (needsBracket(innerTerm)) {
+				return new BracketTerm(innerTerm);
+			}
+			return innerTerm;
+		} else if (term instanceof ExponentTerm) {
+			return simplifyExponent((ExponentTerm) term);
+		} else if (term instanceof FunctionTerm) {
+			FunctionTerm function = (FunctionTerm) term;
+			List<Term> arguments = new ArrayList<Term>();
+			for (Term argument : function.getArguments()) {
+				arguments.add(simplify(argument));
+			}
+			return new FunctionTerm(function.getName(), arguments);
+		} else if (term instanceof VectorTerm) {
+			List<Term> entries = new ArrayList<Term>();
+			for (Term entry : (VectorTerm) term) {
+				entries.add(simplify(entry));
+			}
+			return new VectorTerm(entries);
+		}
+		// atomic terms
+		return term;
+	}
+
+	/*
+	 * Addition
+	 */
+
+	private Term simplifyAddition(AdditionTerm addition) {
+		Map<String, Summand> summands = new LinkedHashMap<String, Summand>();
+		collectSummands(addition, true, summands);
+
+		List<Term> positive = new ArrayList<Term>();
+		List<Term> negative = new ArrayList<Term>();
+		for (Summand summand : summands.values()) {
+			summand.addTo(positive, negative);
+		}
+
+		if (positive.isEmpty() && negative.isEmpty()) {
+			return new RealTerm(0.0);
+		}
+		if (positive.size() == 1 && negative.isEmpty()) {
+			return positive.get(0);
+		}
+		AdditionTerm result = new AdditionTerm();
+		result.getSummands().addAll(positive);
+		result.getSubtrahends().addAll(negative);
+		return result;
+	}
+
+	private void collectSummands(AdditionTerm addition, boolean positive, Map<String, Summand> summands) {
+		for (Term summand : addition.getSummands()) {
+			addSummand(simplify(summand), positive, summands);
+		}
+		for (Term subtrahend : addition.getSubtrahends()) {
+			addSummand(simplify(subtrahend), !positive, summands);
+		}
+	}
+
+	private void addSummand(Term term, boolean positive, Map<String, Summand> summands) {
+		if (term instanceof AdditionTerm) {
+			// flatten nested additions
+			collectSummands((AdditionTerm) term, positive, summands);
+			return;
+		}
+
+		// split the term into a numeric coefficient and the remaining term
+		BigDecimal coefficient = getValue(term);
+		Term remainder = null;
+		if (coefficient == null) {
+			coefficient = BigDecimal.ONE;
+			remainder = term;
+			if (term instanceof MultiplicationTerm) {
+				MultiplicationTerm multiplication = (MultiplicationTerm) term;
+				BigDecimal factor = multiplication.getFactors().isEmpty() ? null
+						: getValue(multiplication.getFactors().get(0));
+				if (factor != null) {
+					coefficient = factor;
+					remainder = createProduct(BigDecimal.ONE,
+							multiplication.getFactors().subList(1, multiplication.getFactors().size()),
+							multiplication.getDivisors());
+				}
+			}
+		}
+		if (!positive) {
+			coefficient = coefficient.negate();
+		}
+
+		// like terms are identified by their string representation
+		String key = remainder == null ? "" : "#" + remainder.toString();
+		Summand summand = summands.get(key);
+		if (summand == null) {
+			summand = new Summand(remainder);
+			summands.put(key, summand);
+		}
+		summand.add(term, positive, coefficient);
+	}
+
+	/**
+	 * Summands of an addition that differ only in their coefficient.
+	 */
+	private static class Summand {
+
+		/**
+		 * The summand without coefficient, null for numeric summands
+		 */
+		private Term remainder;
+
+		private BigDecimal coefficient = BigDecimal.ZERO;
+
+		/**
+		 * The original summands, which are used if the coefficient cannot be
+		 * represented exactly
+		 */
+		private List<Term> terms = new ArrayList<Term>();
+
+		private List<Boolean> signs = new ArrayList<Boolean>();
+
+		public Summand(Term remainder) {
+			this.remainder = remainder;
+		}
+
+		public void add(Term term, boolean positive, BigDecimal termCoefficient) {
+			terms.add(term);
+			signs.add(positive);
+			coefficient = coefficient.add(termCoefficient);
+		}
+
+		public void addTo(List<Term> positive, List<Term> negative) {
+			if (coefficient.signum() == 0) {
+				return;
+			}
+			Term absolute;
+			if (remainder == null) {
+				absolute = createRealTerm(coefficient.abs());
+			} else {
+				absolute = createProduct(coefficient.abs(), remainder);
+			}
+			if (absolute == null) {
+				// keep the original summands
+				for (int i = 0; i < terms.size(); i++) {
+					(signs.get(i) ? positive : negative).add(terms.get(i));
+				}
+				return;
+			}
+			(coefficient.signum() > 0 ? positive : negative).add(absolute);
+		}
+	}
+
+	/*
+	 * Multiplication
+	 */
+
+	private Term simplifyMultiplication(MultiplicationTerm multiplication) {
+		Product product = new Product();
+		collectFactors(multiplication, false, product);
+		return product.create();
+	}
+
+	private void collectFactors(MultiplicationTerm multiplication, boolean inverted, Product product) {
+		for (Term factor : multiplication.getFactors()) {
+			addFactor(simplify(factor), inverted, product);
+		}
+		for (Term divisor : multiplication.getDivisors()) {
+			addFactor(simplify(divisor), !inverted, product);
+		}
+	}
+
+	private void addFactor(Term term, boolean inverted, Product product) {
+		if (term instanceof MultiplicationTerm) {
+			// flatten nested multiplications
+			collectFactors((MultiplicationTerm) term, inverted, product);
+			return;
+		}
+		if (term instanceof BracketTerm && ((BracketTerm) term).getInnerTerm() instanceof MultiplicationTerm) {
+			collectFactors((MultiplicationTerm) ((BracketTerm) term).getInnerTerm(), inverted, product);
+			return;
+		}
+		BigDecimal value = getValue(term);
+		if (value == null) {
+			(inverted ? product.divisors : product.factors).add(term);
+		} else if (inverted) {
+			product.denominator = product.denominator.multiply(value);
+			product.numericDivisors.add(term);
+		} else {
+			product.numerator = product.numerator.multiply(value);
+			product.numericFactors.add(term);
+		}
+	}
+
+	/**
+	 * The factors and divisors of a multiplication, the numeric ones are
+	 * multiplied.
+	 */
+	private static class Product {
+
+		private List<Term> factors = new ArrayList<Term>();
+
+		private List<Term> divisors = new ArrayList<Term>();
+
+		private BigDecimal numerator = BigDecimal.ONE;
+
+		private BigDecimal denominator = BigDecimal.ONE;
+
+		/**
+		 * The original numeric factors and divisors, which are used if the numbers
+		 * cannot be represented exactly
+		 */
+		private List<Term> numericFactors = new ArrayList<Term>();
+
+		private List<Term> numericDivisors = new ArrayList<Term>();
+
+		public Term create() {
+			if (denominator.signum() != 0) {
+				if (numerator.signum() == 0 && divisors.isEmpty()) {
+					return new RealTerm(0.0);
+				}
+				try {
+					Term result = createProduct(numerator.divide(denominator), factors, divisors);
+					if (result != null) {
+						return result;
+					}
+				} catch (ArithmeticException e) {
+					// the quotient has no exact decimal representation
+				}
+				RealTerm numeratorTerm = createRealTerm(numerator);
+				RealTerm denominatorTerm = createRealTerm(denominator);
+				if (numeratorTerm != null && denominatorTerm != null) {
+					MultiplicationTerm result = new MultiplicationTerm();
+					if (numerator.compareTo(BigDecimal.ONE) != 0 || factors.isEmpty()) {
+						result.getFactors().add(numeratorTerm);
+					}
+					result.getFactors().addAll(factors);
+					if (denominator.compareTo(BigDecimal.ONE) != 0) {
+						result.getDivisors().add(denominatorTerm);
+					}
+					result.getDivisors().addAll(divisors);
+					return result;
+				}
+			}
+			// keep the original numbers, e.g. for divisions by zero
+			MultiplicationTerm result = new MultiplicationTerm();
+			result.getFactors().addAll(numericFactors);
+			result.getFactors().addAll(factors);
+			result.getDivisors().addAll(numericDivisors);
+			result.getDivisors().addAll(divisors);
+			return result;
+		}
+	}
+
+	/**
+	 * Creates the product of the given coefficient and term.
+	 */
+	private static Term createProduct(BigDecimal coefficient, Term term) {
+		List<Term> factors = new ArrayList<Term>();
+		List<Term> divisors = new ArrayList<Term>();
+		if (term instanceof MultiplicationTerm) {
+			factors.addAll(((MultiplicationTerm) term).getFactors());
+			divisors.addAll(((MultiplicationTerm) term).getDivisors());
+		} else {
+			factors.add(term);
+		}
+		return createProduct(coefficient, factors, divisors);
+	}
+
+	/**
+	 * Creates the product of the given coefficient, factors and divisors. Returns
+	 * null if the coefficient cannot be represented exactly.
+	 */
+	private static Term createProduct(BigDecimal coefficient, List<Term> factors, List<Term> divisors) {
+		List<Term> allFactors = new ArrayList<Term>();
+		if (coefficient.compareTo(BigDecimal.ONE) != 0 || (factors.isEmpty() && divisors.isEmpty())) {
+			Term coefficientTerm = createRealTerm(coefficient);
+			if (coefficientTerm == null) {
+				return null;
+			}
+			allFactors.add(coefficientTerm);
+		}
+		allFactors.addAll(factors);
+
+		if (allFactors.size() == 1 && divisors.isEmpty()) {
+			return allFactors.get(0);
+		}
+		MultiplicationTerm result = new MultiplicationTerm();
+		result.getFactors().addAll(allFactors);
+		result.getDivisors().addAll(divisors);
+		return result;
+	}
+
+	/*
+	 * Exponentiation
+	 */
+
+	private Term simplifyExponent(ExponentTerm exponentTerm) {
+		Term base = simplify(exponentTerm.getBase());
+		Term exponent = exponentTerm.getExponent() == null ? null : simplify(exponentTerm.getExponent());
+		BigDecimal baseValue = getValue(base);
+		BigDecimal exponentValue = getValue(exponent);
+
+		if (exponentValue != null && exponentValue.compareTo(BigDecimal.ONE) == 0) {
+			return base;
+		}
+		if (baseValue != null && exponentValue != null && exponentValue.signum() > 0
+				&& exponentValue.compareTo(BigDecimal.valueOf(16)) <= 0) {
+			try {
+				Term result = createRealTerm(baseValue.pow(exponentValue.intValueExact()));
+				if (result != null) {
+					return result;
+				}
+			} catch (ArithmeticException e) {
+				// exponent is not an integer
+			}
+		}
+		return new ExponentTerm(needsBracket(base) ? new BracketTerm(base) : base,
+				exponent != null && needsBracket(exponent) ? new BracketTerm(exponent) : exponent);
+	}
+
+	/*
+	 * Numbers
+	 */
+
+	/**
+	 * Returns true if the string representation of the given term is not enclosed
+	 * in brackets and is not atomic.
+	 */
+	private static boolean needsBracket(Term term) {
+		if (term instanceof MultiplicationTerm) {
+			return !((MultiplicationTerm) term).getDivisors().isEmpty();
+		}
+		BigDecimal value = getValue(term);
+		return value != null && value.signum() < 0;
+	}
+
+	/**
+	 * Returns the exact value of the given term, if it is a number. Otherwise,
+	 * null is returned.
+	 */
+	private static BigDecimal getValue(Term term) {
+		if (!(term instanceof RealTerm)) {
+			return null;
+		}
+		try {
+			return new BigDecimal(term.toString());
+		} catch (NumberFormatException e) {
+			// infinite values and NaN
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a real term with the given value or null if the value cannot be
+	 * represented exactly.
+	 */
+	private static RealTerm createRealTerm(BigDecimal value) {
+		if (value.signum() == 0) {
+			return new RealTerm(0.0);
+		}
+		double doubleValue = value.doubleValue();
+		if (Double.isInfinite(doubleValue)
+				|| new BigDecimal(Double.toString(doubleValue)).compareTo(value) != 0) {
+			return null;
+		}
+		return new RealTerm(doubleValue);
+	}
+
+}
@@ -42,6 +42,7 @@ import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkInPort;
 import org.conqat.lib.simulink.model.SimulinkLine;
 import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
 
 import simulink2dl.blockanalyzer.BlockAnalyzer;
 import simulink2dl.blockanalyzer.BlockAnalyzerFactory;
@@ -69,6 +70,7 @@ import simulink2dl.transform.Transformer;
 import simulink2dl.transform.macro.Macro;
 import simulink2dl.transform.macro.SimpleMacro;
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ConnectivityIndex;
 
 public class InvariantGenerator {
 
@@ -139,19 +141,25 @@ public class InvariantGenerator {
 	}
 
 	private void buildGraph(List<SimulinkBlock> blockOrder) {
+		ConnectivityIndex connectivityIndex = transformer.getEnvironment().getConnectivityIndex();
 		for (SimulinkBlock currentBlock : blockOrder) {
 			if (this.DEBUG)
 				PluginLogger.info("Block: " + currentBlock.getName() + " with Type: " + currentBlock.getType()
 						+ " and ID: " + currentBlock.getId());
 			for (SimulinkInPort inPort : currentBlock.getInPorts()) {
 				SimulinkLine signalLine = inPort.getLine();
-				SimulinkBlock srcBlock = signalLine.getSrcPort().getBlock();
+				// resolve signals routed via Goto and From blocks
+				SimulinkOutPort srcPort = connectivityIndex.getSourcePort(inPort);
+				if (srcPort == null) {
+					srcPort = signalLine.getSrcPort();
+				}
+				SimulinkBlock srcBlock = srcPort.getBlock();
 				SimulinkBlock dstBlock = signalLine.getDstPort().getBlock();
 
 				invariantGraph.insertNode(srcBlock);
 				invariantGraph.insertNode(dstBlock);
 
-				invariantGraph.insertEdge(signalLine, srcBlock, dstBlock);
+				invariantGraph.insertEdge(signalLine, srcPort, srcBlock, dstBlock);
 			}
 		}
 
@@ -59,13 +59,22 @@ public class InvariantEdge {
 	private List<InvariantInformation> information;
 
 	public InvariantEdge(InvariantGraph invGraph, SimulinkLine signal, InvariantNode srcNode, InvariantNode dstNode) {
+		this(invGraph, signal, signal.getSrcPort(), srcNode, dstNode);
+	}
+
+	/**
+	 * Creates an edge whose source port differs from the source port of the
+	 * signal line, e.g. if the signal is routed via Goto and From blocks.
+	 */
+	public InvariantEdge(InvariantGraph invGraph, SimulinkLine signal, SimulinkOutPort srcPort, InvariantNode srcNode,
+			InvariantNode dstNode) {
 		this.invGraph = invGraph;
 		this.signal = signal;
 		this.srcNode = srcNode;
 		this.dstNode = dstNode;
 
 		this.dstPort = signal.getDstPort();
-		this.srcPort = signal.getSrcPort();
+		this.srcPort = srcPort;
 
 		initializeVariables();
 	}
@@ -77,7 +86,7 @@ public class InvariantEdge {
 	public void addInformation(InvariantInformation t) {
 		// only add if information is not in
 		InvariantInformation cloned = (InvariantInformation) t.clone();
-		cloned.changeReplaceableTerm(invGraph.getTransformer().getEnvironment().getToReplace(signal.getSrcPort()));
+		cloned.changeReplaceableTerm(invGraph.getTransformer().getEnvironment().getToReplace(srcPort));
 
 		boolean isIn = false;
 		for (InvariantInformation info : information) {
@@ -98,7 +107,7 @@ public class InvariantEdge {
 		List<Macro> macros = new LinkedList<Macro>();
 		Environment env = trForm.getEnvironment();
 
-		Variable v = AnalyzerUtil.getOutVariableOfBlock(signal.getSrcPort().getBlock(), invGraph);
+		Variable v = AnalyzerUtil.getOutVariableOfBlock(srcPort.getBlock(), invGraph);
 
 		if (v != null) {
 			for (InvariantInformation info : this.information) {
@@ -113,7 +122,7 @@ public class InvariantEdge {
 	}
 
 	public String getMacroIdentifier() {
-		return "#" + signal.getSrcPort().getBlock().getName() + "_inv";
+		return "#" + srcPort.getBlock().getName() + "_inv";
 	}
 
 	public List<InvariantInformation> getAllInformation() {
@@ -31,10 +31,12 @@ package simulink2dl.invariants.graph;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkInPort;
 import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
 
 import simulink2dl.dlmodel.term.PortIdentifier;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
@@ -50,6 +52,10 @@ public class InvariantGraph {
 	private List<InvariantNode> invariantNodes;
 	private List<InvariantEdge> invariantEdges;
 
+	// lookup tables for nodes by block id and edges by destination port
+	private Map<String, InvariantNode> nodesByBlockID;
+	private Map<SimulinkInPort, InvariantEdge> edgesByDstPort;
+
 	private List<DataInformation> allDataInformation;
 	private List<Term> securityProperties;
 
@@ -66,6 +72,8 @@ public class InvariantGraph {
 
 		invariantNodes = new LinkedList<InvariantNode>();
 		invariantEdges = new LinkedList<InvariantEdge>();
+		nodesByBlockID = new HashMap<String, InvariantNode>();
+		edgesByDstPort = new HashMap<SimulinkInPort, InvariantEdge>();
 		allDataInformation = new LinkedList<DataInformation>();
 		securityProperties = new LinkedList<Term>();
 	}
@@ -105,39 +113,52 @@ public class InvariantGraph {
 				portIdentifier.put(Integer.parseInt(p.getIndex()), transformer.getEnvironment().getToReplace(p));
 			}
 
-			invariantNodes.add(new InvariantNode(this, block));
+			InvariantNode node = new InvariantNode(this, block);
+			invariantNodes.add(node);
+			nodesByBlockID.put(block.getId(), node);
 		}
 	}
 
 	public void insertEdge(SimulinkLine signal, SimulinkBlock src, SimulinkBlock dst) {
-		if (containsEdge(signal) == NO_EDGE_FOUND) {
-			if (this.containsNode(src) && this.containsNode(dst)) {
-				invariantEdges.add(new InvariantEdge(this, signal, this.getNode(src), this.getNode(dst)));
+		insertEdge(signal, signal.getSrcPort(), src, dst);
+	}
+
+	/**
+	 * Inserts an edge for the given signal line, using the given source port
+	 * instead of the source port of the line. Used for signals that are routed
+	 * via virtual blocks.
+	 */
+	public void insertEdge(SimulinkLine signal, SimulinkOutPort srcPort, SimulinkBlock src, SimulinkBlock dst) {
+		if (getEdge(signal) == null) {
+			InvariantNode srcNode = this.getNode(src);
+			InvariantNode dstNode = this.getNode(dst);
+			if (srcNode != null && dstNode != null) {
+				addEdge(new InvariantEdge(this, signal, srcPort, srcNode, dstNode));
 			}
 		}
 	}
 
 	public void insertEdge(SimulinkLine signal, InvariantNode src, InvariantNode dst) {
-		if (containsEdge(signal) == NO_EDGE_FOUND) {
-			invariantEdges.add(new InvariantEdge(this, signal, src, dst));
+		if (getEdge(signal) == null) {
+			addEdge(new InvariantEdge(this, signal, src, dst));
 		}
 	}
 
+	private void addEdge(InvariantEdge edge) {
+		invariantEdges.add(edge);
+		edgesByDstPort.put(edge.getSignal().getDstPort(), edge);
+	}
+
 	public int containsEdge(SimulinkLine signal) {
-		for (int i = 0; i < invariantEdges.size(); i++) {
-			if (invariantEdges.get(i).contains(signal))
-				return i;
+		InvariantEdge edge = getEdge(signal);
+		if (edge == null) {
+			return NO_EDGE_FOUND;
 		}
-		return NO_EDGE_FOUND;
+		return invariantEdges.indexOf(edge);
 	}
 
 	public boolean containsNode(SimulinkBlock block) {
-		for (InvariantNode node : invariantNodes) {
-			if (node.contains(block)) {
-				return true;
-			}
-		}
-		return false;
+		return nodesByBlockID.containsKey(block.getId());
 	}
 
 	public InvariantEdge getEdge(int srcID, int dstID) {
@@ -149,28 +170,18 @@ public class InvariantGraph {
 	}
 
 	public InvariantEdge getEdge(SimulinkLine signal) {
-		int index = containsEdge(signal);
-		if (index != NO_EDGE_FOUND)
-			return invariantEdges.get(index);
+		InvariantEdge edge = edgesByDstPort.get(signal.getDstPort());
+		if (edge != null && edge.contains(signal))
+			return edge;
 		return null;
 	}
 
 	public InvariantNode getNode(String id) {
-		for (InvariantNode node : invariantNodes) {
-			if (node.contains(id)) {
-				return node;
-			}
-		}
-		return null;
+		return nodesByBlockID.get(id);
 	}
 
 	public InvariantNode getNode(SimulinkBlock block) {
-		for (InvariantNode node : invariantNodes) {
-			if (node.contains(block)) {
-				return node;
-			}
-		}
-		return null;
+		return nodesByBlockID.get(block.getId());
 	}
 
 	public List<InvariantNode> getAllNodes() {
@@ -31,10 +31,12 @@ package simulink2dl.transform.plugin.pages;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.conqat.lib.simulink.builder.ModelBuildingParameters;
 import org.conqat.lib.simulink.builder.SimulinkModelBuilder;
 import org.conqat.lib.simulink.builder.SimulinkModelBuildingException;
 import org.conqat.lib.simulink.model.SimulinkBlock;
@@ -54,16 +56,22 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
 
+import simulink2dl.dlmodel.contracts.ContractRepository;
 import simulink2dl.dlmodel.contracts.HybridContract;
 import simulink2dl.transform.Transformer;
+import simulink2dl.transform.optimizer.CommonSubexpressionOptimizer;
 import simulink2dl.transform.optimizer.ConditionalChoiceOptimizer;
 import simulink2dl.transform.optimizer.ContradictionOptimizer;
 import simulink2dl.transform.optimizer.FormulaOptimizer;
+import simulink2dl.transform.plugin.TransformPlugin;
 import simulink2dl.transform.plugin.TransformWizard;
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.satisfiability.SolverBudget;
 
 /**
  * This page contains the interface to transform a Simulink model into a
@@ -100,6 +108,15 @@ public class TransformPage extends WizardPage {
 
 	private Table resultsTable;
 
+	// timeout of a single solver query in milliseconds
+	private Text solverTimeoutText;
+
+	// schedule discrete behavior with different sample times by one clock
+	private Button rateGroupingButton;
+
+	// names of the blocks the transformation is sliced to, comma separated
+	private Text sliceTargetsText;
+
 	public TransformPage(String pageName, IProject project, IFile selectedFile) {
 		// dummy page name
 		super(pageName);
@@ -157,7 +174,10 @@ public class TransformPage extends WizardPage {
 		SimulinkModel model = null;
 
 		try {
-			model = modelBuilder.buildModel();
+			// subsystems are only built when they are transformed, libraries are
+			// searched next to the model
+			model = modelBuilder.buildModel(new ModelBuildingParameters().setLazySubsystemLoading(true)
+					.addReferencePath(simulinkFile.getAbsoluteFile().getParentFile()));
 		} catch (SimulinkModelBuildingException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -296,6 +316,32 @@ public class TransformPage extends WizardPage {
 
 		this.putAvailableOptimizersInTable(optimizerSelectorTable, "");
 
+		// =======================================
+		// transformation options
+		// =======================================
+		final Group optionsGroup = new Group(composite, SWT.SHADOW_IN);
+		optionsGroup.setLayoutData(new GridData(GridData.FILL_VERTICAL));
+		optionsGroup.setLayout(new GridLayout(2, false));
+		optionsGroup.setText("Options");
+
+		Label solverTimeoutLabel = new Label(optionsGroup, SWT.NONE);
+		solverTimeoutLabel.setText("Solver timeout [ms]");
+		solverTimeoutText = new Text(optionsGroup, SWT.BORDER);
+		solverTimeoutText.setText(String.valueOf(new SolverBudget().getQueryTimeout()));
+		solverTimeoutText.setToolTipText("Timeout of a single satisfiability check, 0 for no timeout");
+
+		rateGroupingButton = new Button(optionsGroup, SWT.CHECK);
+		rateGroupingButton.setText("Group sample rates");
+		rateGroupingButton.setToolTipText(
+				"Schedule discrete behavior with different sample times by a shared base rate clock");
+		rateGroupingButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, false, false, 2, 1));
+
+		Label sliceTargetsLabel = new Label(optionsGroup, SWT.NONE);
+		sliceTargetsLabel.setText("Slice to blocks");
+		sliceTargetsText = new Text(optionsGroup, SWT.BORDER);
+		sliceTargetsText.setToolTipText(
+				"Comma separated names of blocks, e.g. outports. Only blocks that influence them are transformed.");
+
 		// =======================================
 		// transformation button
 		// =======================================
@@ -315,7 +361,11 @@ public class TransformPage extends WizardPage {
 					// start time
 					long time1 = System.currentTimeMillis();
 
-					transformer = new Transformer(model, lookupContractsInFolders(contractFolders));
+					transformer = new Transformer(model, new HashSet<HybridContract>(),
+							createContractRepository(contractFolders));
+					transformer.getSolverBudget().setQueryTimeout(getSolverTimeout());
+					transformer.getEnvironment().setUseRateGrouping(rateGroupingButton.getSelection());
+					transformer.setSliceTargets(getSliceTargets());
 
 					// after initialization
 					long time2 = System.currentTimeMillis();
@@ -440,6 +490,9 @@ public class TransformPage extends WizardPage {
 		putSingleOptimizerInTable(tbl, prefix + FormulaOptimizer.class.getSimpleName(), "Formula");
 
 		putSingleOptimizerInTable(tbl, prefix + ContradictionOptimizer.class.getSimpleName(), "Contradiction");
+
+		putSingleOptimizerInTable(tbl, prefix + CommonSubexpressionOptimizer.class.getSimpleName(),
+				"CommonSubexpression");
 	}
 
 	private void putSingleOptimizerInTable(Table tbl, String text, String data) {
@@ -451,14 +504,19 @@ public class TransformPage extends WizardPage {
 
 	}
 
-	private Set<HybridContract> lookupContractsInFolders(List<File> contractFiles) {
-		// TODO
+	/**
+	 * Creates the contract repository of a transformation with the given contract
+	 * folders. The contracts are parsed when the corresponding services are
+	 * transformed. The contract indexes are kept in the state location of the
+	 * plug-in.
+	 */
+	private ContractRepository createContractRepository(List<File> contractFiles) {
 		// existence of given folders is already ensured
 		// folders are given as absolute paths
-		PluginLogger.debug("method 'lookupContractsInFolders' in class 'TransformPage' is not yet implemented");
-		PluginLogger.debug("method 'lookupContractsInFolders' in class 'TransformPage' is not yet implemented");
+		ContractRepository repository = new ContractRepository(TransformPlugin.getDefault().getStateLocation().toFile());
+		repository.addFolders(contractFiles);
 
-		return new HashSet<HybridContract>();
+		return repository;
 	}
 
 	private void putAvailableHandlersInTable(Table tbl, String prefix) {
@@ -478,6 +536,32 @@ public class TransformPage extends WizardPage {
 		this.selectedHandler.add((String) tblItem.getData());
 	}
 
+	/**
+	 * Returns the solver timeout that is entered on this page. Invalid entries
+	 * are reported and the default timeout is used.
+	 */
+	private long getSolverTimeout() {
+		try {
+			return Math.max(0, Long.parseLong(solverTimeoutText.getText().trim()));
+		} catch (NumberFormatException e) {
+			PluginLogger.warning("Invalid solver timeout \"" + solverTimeoutText.getText() + "\", using "
+					+ SolverBudget.DEFAULT_QUERY_TIMEOUT + " ms.");
+			return SolverBudget.DEFAULT_QUERY_TIMEOUT;
+		}
+	}
+
+	/**
+	 * Returns the names of the blocks that are entered as slice targets on this
+	 * page, or null if the whole model is transformed.
+	 */
+	private List<String> getSliceTargets() {
+		String text = sliceTargetsText.getText().trim();
+		if (text.isEmpty()) {
+			return null;
+		}
+		return Arrays.asList(text.split("\\s*,\\s*"));
+	}
+
 	public SimulinkModel getModel() {
 		return this.model;
 	}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.transform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+
+import simulink2dl.dlmodel.term.PortIdentifier;
+import simulink2dl.transform.macro.Macro;
+import simulink2dl.transform.macro.SimpleMacro;
+import simulink2dl.util.simulink_transformer.SubsystemRemover;
+
+/**
+ * This class merges functionally identical blocks (value numbering). Two blocks
+ * are identical if they have the same type, the same parameters and their
+ * inputs are connected to the same ports. Only the first of these blocks is
+ * transformed, the outputs of further blocks are replaced by the outputs of
+ * this representative.
+ * 
+ * Blocks have to be given in transformation order, so that blocks that are
+ * connected to merged blocks can be merged as well.
+ */
+public class BlockValueNumbering {
+
+	private Environment environment;
+
+	private SubsystemRemover subsystemRemover;
+
+	/**
+	 * Maps the structural keys of blocks to the first block with this key.
+	 */
+	private Map<String, SimulinkBlock> representatives;
+
+	/**
+	 * Maps the port identifiers of merged blocks to the port identifiers of their
+	 * representatives.
+	 */
+	private Map<String, String> mergedPortIDs;
+
+	private int mergedBlocks;
+
+	public BlockValueNumbering(Environment environment, SubsystemRemover subsystemRemover) {
+		this.environment = environment;
+		this.subsystemRemover = subsystemRemover;
+		this.representatives = new HashMap<String, SimulinkBlock>();
+		this.mergedPortIDs = new HashMap<String, String>();
+	}
+
+	/**
+	 * Returns the macros that replace the outputs of the given block by the
+	 * outputs of an identical block that was handled before. Returns null if there
+	 * is no such block, in this case the given block becomes the representative
+	 * for further identical blocks and has to be transformed.
+	 */
+	public List<Macro> createMacros(SimulinkBlock block) {
+		String key = createKey(block);
+		SimulinkBlock representative = representatives.get(key);
+		if (representative == null) {
+			representatives.put(key, block);
+			return null;
+		}
+
+		List<Macro> macros = new ArrayList<Macro>();
+		for (int i = 1; i <= block.getOutPorts().size(); i++) {
+			SimulinkOutPort outPort = block.getOutPort(Integer.toString(i));
+			SimulinkOutPort representativePort = representative.getOutPort(Integer.toString(i));
+			if (outPort == null || representativePort == null) {
+				continue;
+			}
+			String portID = environment.getPortID(outPort);
+			String representativeID = resolve(environment.getPortID(representativePort));
+			mergedPortIDs.put(portID, representativeID);
+			macros.add(new SimpleMacro(new PortIdentifier(portID), new PortIdentifier(representativeID)));
+		}
+		mergedBlocks++;
+		return macros;
+	}
+
+	public int getMergedBlocks() {
+		return mergedBlocks;
+	}
+
+	/**
+	 * Creates the structural key of a block, which consists of the type, the
+	 * parameters and the resolved ports connected to the inputs of the block.
+	 */
+	private String createKey(SimulinkBlock block) {
+		StringBuilder key = new StringBuilder();
+		key.append(block.getType()).append('[');
+		key.append(subsystemRemover.getParameterSignature(block));
+		key.append("](");
+		for (int i = 1; i <= block.getInPorts().size(); i++) {
+			SimulinkInPort inPort = block.getInPort(Integer.toString(i));
+			SimulinkOutPort sourcePort = inPort == null ? null
+					: environment.getConnectivityIndex().getSourcePort(inPort);
+			if (sourcePort != null) {
+				key.append(resolve(environment.getPortID(sourcePort)));
+			}
+			key.append(';');
+		}
+		key.append(')');
+		return key.toString();
+	}
+
+	private String resolve(String portID) {
+		String representativeID = mergedPortIDs.get(portID);
+		return representativeID == null ? portID : representativeID;
+	}
+
+}
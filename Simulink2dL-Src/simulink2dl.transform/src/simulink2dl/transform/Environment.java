@@ -28,8 +28,8 @@
  ******************************************************************************/
 package simulink2dl.transform;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.conqat.lib.commons.collections.UnmodifiableCollection;
@@ -40,6 +40,7 @@ import org.conqat.lib.simulink.model.SimulinkModel;
 import org.conqat.lib.simulink.model.SimulinkOutPort;
 import org.conqat.lib.simulink.model.SimulinkPortBase;
 
+import simulink2dl.dlmodel.contracts.ContractRepository;
 import simulink2dl.dlmodel.contracts.HybridContract;
 import simulink2dl.dlmodel.elements.Constant;
 import simulink2dl.dlmodel.elements.Variable;
@@ -56,6 +57,7 @@ import simulink2dl.dlmodel.term.RealTerm;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.transform.dlmodel.DLModelSimulink;
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ConnectivityIndex;
 import simulink2dl.util.simulink_transformer.PortMapping;
 
 /**
@@ -74,11 +76,16 @@ public class Environment {
 
 	private Set<HybridContract> contracts;
 
+	private ContractRepository contractRepository;
+
 	private boolean useSmallStep;
 	private boolean useEpsilon;
 	private boolean useOverlappingBounds;
+	private boolean useRateGrouping;
+
+	private Map<SimulinkPortBase, PortMapping> portIDMappings;
 
-	private List<PortMapping> portIDMappings;
+	private ConnectivityIndex connectivityIndex;
 
 	// special system variables
 	private Variable epsilon;
@@ -87,17 +94,21 @@ public class Environment {
 	/**
 	 * Private constructor
 	 */
-	public Environment(DLModelSimulink dlModel, SimulinkModel simulinkModel, Set<HybridContract> contracts) {
+	public Environment(DLModelSimulink dlModel, SimulinkModel simulinkModel, Set<HybridContract> contracts,
+			ContractRepository contractRepository) {
 		this.dlModel = dlModel;
 		this.simulinkModel = simulinkModel;
 		this.contracts = contracts;
+		this.contractRepository = contractRepository;
 
 		// TODO get Flags as input parameter and set them in the gui
 		this.useSmallStep = true;
 		this.useEpsilon = false;
 		this.useOverlappingBounds = false;
+		this.useRateGrouping = false;
 
-		this.portIDMappings = new LinkedList<PortMapping>();
+		this.portIDMappings = new HashMap<SimulinkPortBase, PortMapping>();
+		this.connectivityIndex = new ConnectivityIndex(simulinkModel);
 
 		epsilon = new Variable("R", "epsilon");
 	}
@@ -110,15 +121,14 @@ public class Environment {
 		checkPort(port);
 
 		// search for existing ID
-		for (PortMapping portIDMapping : portIDMappings) {
-			if (portIDMapping.samePort(port)) {
-				return portIDMapping.getIdentifier();
-			}
+		PortMapping portIDMapping = portIDMappings.get(port);
+		if (portIDMapping != null) {
+			return portIDMapping.getIdentifier();
 		}
 
 		// create new ID
 		String newID = "#out" + portIDMappings.size();
-		portIDMappings.add(new PortMapping(port, newID));
+		portIDMappings.put(port, new PortMapping(port, newID));
 
 		return newID;
 	}
@@ -135,6 +145,18 @@ public class Environment {
 		return useOverlappingBounds;
 	}
 
+	/**
+	 * Returns true if discrete behavior with different numeric step sizes is
+	 * scheduled by one shared base rate clock.
+	 */
+	public boolean useRateGrouping() {
+		return useRateGrouping;
+	}
+
+	public void setUseRateGrouping(boolean useRateGrouping) {
+		this.useRateGrouping = useRateGrouping;
+	}
+
 	public Relation.RelationType transformRelationType(Relation.RelationType input) {
 		switch (input) {
 		case LESS_THAN:
@@ -233,33 +255,25 @@ public class Environment {
 	}
 
 	private void checkPort(SimulinkPortBase toCheck) {
-		// TODO DEBUG
-		boolean found = false;
-		for (SimulinkBlock block : simulinkModel.getSubBlocks()) {
-			for (SimulinkPortBase blockPort : block.getInPorts()) {
-				if (toCheck.equals(blockPort)) {
-					found = true;
-					break;
-				}
-			}
-			if (found) {
-				break;
-			}
-			for (SimulinkPortBase blockPort : block.getOutPorts()) {
-				if (toCheck.equals(blockPort)) {
-					found = true;
-					break;
-				}
-			}
-			if (found) {
-				break;
-			}
-		}
-
-		if (!found) {
+		if (!connectivityIndex.containsPort(toCheck)) {
 			PluginLogger.error("Could not find port in system: " + toCheck.toString());
 		}
+	}
 
+	/**
+	 * Returns the connectivity index of the Simulink model, which resolves virtual
+	 * signal routing like Goto and From blocks.
+	 */
+	public ConnectivityIndex getConnectivityIndex() {
+		return connectivityIndex;
+	}
+
+	/**
+	 * Recreates the connectivity index. Has to be called if the structure of the
+	 * Simulink model was changed, e.g. by removing subsystems.
+	 */
+	public void updateConnectivityIndex() {
+		connectivityIndex = new ConnectivityIndex(simulinkModel);
 	}
 
 	/**
@@ -269,6 +283,14 @@ public class Environment {
 		return contracts;
 	}
 
+	/**
+	 * Returns the repository with the contracts of the contract folders of this
+	 * transformation.
+	 */
+	public ContractRepository getContractRepository() {
+		return contractRepository;
+	}
+
 	/**
 	 * Returns the port that is connected to the input port of the given block at
 	 * the given position. (i.e. the source port of the signal that is connected to
@@ -286,12 +308,17 @@ public class Environment {
 
 	/**
 	 * Returns the port that is connected to the given input port. (i.e. the source
-	 * port of the signal that is connected to the in port is returned)
+	 * port of the signal that is connected to the in port is returned). Virtual
+	 * routing via Goto and From blocks is resolved.
 	 * 
 	 * @param inPort
 	 * @return
 	 */
 	public SimulinkOutPort getConnectedOuputPort(SimulinkInPort inPort) {
+		SimulinkOutPort sourcePort = connectivityIndex.getSourcePort(inPort);
+		if (sourcePort != null) {
+			return sourcePort;
+		}
 		return inPort.getLine().getSrcPort();
 	}
 
@@ -34,6 +34,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,10 +45,13 @@ import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkModel;
 
 import simulink2dl.dlmodel.DLModel;
+import simulink2dl.dlmodel.contracts.ContractRepository;
 import simulink2dl.dlmodel.contracts.HybridContract;
 import simulink2dl.transform.blocktransformer.BlockTransformer;
 import simulink2dl.transform.blocktransformer.TransformerFactory;
 import simulink2dl.transform.dlmodel.DLModelSimulink;
+import simulink2dl.transform.macro.Macro;
+import simulink2dl.transform.optimizer.CommonSubexpressionOptimizer;
 import simulink2dl.transform.optimizer.ConditionalChoiceOptimizer;
 import simulink2dl.transform.optimizer.ContradictionOptimizer;
 import simulink2dl.transform.optimizer.EvolutionDomainOptimizer;
@@ -55,6 +59,11 @@ import simulink2dl.transform.optimizer.FormulaOptimizer;
 import simulink2dl.transform.optimizer.Optimizer;
 import simulink2dl.util.PluginLogger;
 import simulink2dl.util.order.BlockOrder;
+import simulink2dl.util.satisfiability.BatchFormulaChecker;
+import simulink2dl.util.satisfiability.SolverBudget;
+import simulink2dl.util.simulink_transformer.ConeOfInfluenceSlicer;
+import simulink2dl.util.simulink_transformer.ServiceNames;
+import simulink2dl.util.simulink_transformer.SubsystemRemover;
 
 /**
  * This class contains all functions to transform Simulink systems and blocks in
@@ -74,11 +83,36 @@ public class Transformer {
 
 	private Set<HybridContract> transformationContracts;
 
+	private SubsystemRemover subsystemRemover;
+
+	private Collection<String> sliceTargets;
+
+	/**
+	 * Checker for all satisfiability checks of this transformation. It is bound
+	 * to the current thread while the transformer runs and closed after each
+	 * phase.
+	 */
+	private BatchFormulaChecker formulaChecker;
+
+	/**
+	 * Time limits of the satisfiability checks of this transformation.
+	 */
+	private SolverBudget solverBudget;
+
 	public Transformer(SimulinkModel model, Set<HybridContract> contracts) {
+		this(model, contracts, new ContractRepository());
+	}
+
+	/**
+	 * Creates a transformer that also uses the contracts of the given repository
+	 * for the services of the model. The repository is not shared with other
+	 * transformers unless it is passed to them as well.
+	 */
+	public Transformer(SimulinkModel model, Set<HybridContract> contracts, ContractRepository contractRepository) {
 		this.simulinkModel = model;
 		this.dlModel = new DLModelSimulink();
 
-		this.environment = new Environment(dlModel, model, contracts);
+		this.environment = new Environment(dlModel, model, contracts, contractRepository);
 
 		lastBlocks = new HashSet<String>();
 
@@ -91,6 +125,9 @@ public class Transformer {
 		lastBlocks.add("UnitDelay");
 
 		transformationContracts = contracts;
+
+		solverBudget = new SolverBudget();
+		formulaChecker = new BatchFormulaChecker(solverBudget);
 	}
 
 	public SimulinkModel getSimulinkModel() {
@@ -105,9 +142,30 @@ public class Transformer {
 		return this.environment;
 	}
 
+	/**
+	 * Returns the time limits of the satisfiability checks, e.g. to change the
+	 * timeout of a single query before the transformation is started.
+	 */
+	public SolverBudget getSolverBudget() {
+		return this.solverBudget;
+	}
+
+	/**
+	 * Sets the names of the blocks (e.g. outports) that are relevant for the
+	 * verification. If set, only these blocks, the services with contracts and
+	 * all blocks that influence them are transformed.
+	 * 
+	 * @param sliceTargets names of the target blocks, null to transform all blocks
+	 */
+	public void setSliceTargets(Collection<String> sliceTargets) {
+		this.sliceTargets = sliceTargets;
+	}
+
 	/**
 	 * Prepares the Simulink model for the transformation. Block names are changed
-	 * to remove white spaces and line breaks.
+	 * to remove white spaces and line breaks and ordinary subsystems are
+	 * flattened. If slice targets are given, all blocks that do not influence the
+	 * targets are removed.
 	 */
 	private void prepareModel() {
 		PluginLogger.warning("Block names will not be updated!");
@@ -126,13 +184,28 @@ public class Transformer {
 		for (HybridContract cntrct : this.transformationContracts) {
 			conIds.add(cntrct.getId());
 		}
-
-		PluginLogger.warning("Subsystems will not be removed!");
-		// TODO remove subsystems
-		// SubsystemRemover2 sr = new SubsystemRemover2(simulinkModel, conIds);
-		// sr.initialize();
-		// sr.eliminateOrdinarySubsystems();
-		// sr.removeBlocksInsideServiceSystem();
+		conIds.addAll(environment.getContractRepository().getContractIds());
+
+		subsystemRemover = new SubsystemRemover(simulinkModel, conIds);
+		subsystemRemover.inlineLibraryLinks();
+		subsystemRemover.initialize();
+		subsystemRemover.eliminateOrdinarySubsystems();
+		subsystemRemover.removeBlocksInsideServiceSystem();
+		environment.updateConnectivityIndex();
+
+		if (sliceTargets != null) {
+			List<String> targetNames = new LinkedList<String>(sliceTargets);
+			for (SimulinkBlock block : simulinkModel.getSubBlocks()) {
+				if (ServiceNames.isService(block.getName(), conIds)) {
+					targetNames.add(block.getName());
+				}
+			}
+			ConeOfInfluenceSlicer slicer = new ConeOfInfluenceSlicer(simulinkModel,
+					environment.getConnectivityIndex());
+			if (slicer.slice(targetNames)) {
+				environment.updateConnectivityIndex();
+			}
+		}
 
 		// TODO handle contract substitutions here
 
@@ -145,7 +218,7 @@ public class Transformer {
 			Set<SimulinkBlock> unsortedBlocks) {
 		BlockOrder blockOrder = new BlockOrder();
 
-		return blockOrder.generateBlockOrder(simulinkBlocks, unsortedBlocks);
+		return blockOrder.generateBlockOrder(simulinkBlocks, unsortedBlocks, environment.getConnectivityIndex());
 	}
 
 	/**
@@ -155,6 +228,16 @@ public class Transformer {
 	 * @throws FileNotFoundException
 	 */
 	public void transform(Set<String> selectedHandler) throws FileNotFoundException, IOException {
+		solverBudget.startTransformation();
+		BatchFormulaChecker previousChecker = BatchFormulaChecker.bind(formulaChecker);
+		try {
+			transformBlocks(selectedHandler);
+		} finally {
+			BatchFormulaChecker.bind(previousChecker);
+		}
+	}
+
+	private void transformBlocks(Set<String> selectedHandler) throws FileNotFoundException, IOException {
 		prepareModel();
 
 		TransformerFactory transformerFactory = new TransformerFactory();
@@ -178,22 +261,65 @@ public class Transformer {
 //		Logger.info("[EVALUATION] " + blockList.size() + " blocks after structurehandling.");
 
 		// transform model
+		BlockValueNumbering valueNumbering = new BlockValueNumbering(environment, subsystemRemover);
 		for (SimulinkBlock block : blockList) {
 			BlockTransformer blockTransformer = transformerFactory.getBlockTransformer(block, simulinkModel, dlModel,
 					environment);
+
+			// reuse the outputs of an identical block with the same inputs, only
+			// blocks without state can be merged
+			if (blockTransformer.isMacroOnly()) {
+				List<Macro> mergedMacros = valueNumbering.createMacros(block);
+				if (mergedMacros != null) {
+					for (Macro macro : mergedMacros) {
+						dlModel.addMacro(macro);
+					}
+					continue;
+				}
+			}
+
 			if (selectedHandler.contains("Controlflow")) {
 				blockTransformer.setHandleControlFlow(true);
 			}
 			blockTransformer.transformBlock(block);
 		}
+		if (valueNumbering.getMergedBlocks() > 0) {
+			PluginLogger.info("Merged " + valueNumbering.getMergedBlocks() + " blocks with identical inputs.");
+		}
 
 	}
 
+	/**
+	 * Finalizes the dL model. The workers of the formula checker are released
+	 * afterwards and the solver statistics of the transformation are logged.
+	 */
 	public void finalizeTransform() {
-		dlModel.finalizeModel(environment);
+		BatchFormulaChecker previousChecker = BatchFormulaChecker.bind(formulaChecker);
+		try {
+			dlModel.finalizeModel(environment);
+		} finally {
+			BatchFormulaChecker.bind(previousChecker);
+			formulaChecker.close();
+		}
+		solverBudget.logStatistics("transformation");
 	}
 
+	/**
+	 * Runs the selected optimizers on the finalized dL model. The optimizers use
+	 * the remaining solver budget of the transformation.
+	 */
 	public void optimize(Set<String> selectedOptimizer) {
+		BatchFormulaChecker previousChecker = BatchFormulaChecker.bind(formulaChecker);
+		try {
+			runOptimizers(selectedOptimizer);
+		} finally {
+			BatchFormulaChecker.bind(previousChecker);
+			formulaChecker.close();
+		}
+		solverBudget.logStatistics("optimization");
+	}
+
+	private void runOptimizers(Set<String> selectedOptimizer) {
 		if (selectedOptimizer.contains("ConditionalChoice")) {
 			Optimizer condChoiceOptimizer = new ConditionalChoiceOptimizer();
 			condChoiceOptimizer.run(dlModel);
@@ -213,6 +339,11 @@ public class Transformer {
 			Optimizer evolutionDomainOptimizer = new EvolutionDomainOptimizer();
 			evolutionDomainOptimizer.run(dlModel);
 		}
+
+		if (selectedOptimizer.contains("CommonSubexpression")) {
+			Optimizer commonSubexpressionOptimizer = new CommonSubexpressionOptimizer();
+			commonSubexpressionOptimizer.run(dlModel);
+		}
 	}
 
 	/**
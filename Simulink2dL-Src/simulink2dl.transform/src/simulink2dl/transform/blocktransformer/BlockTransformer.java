@@ -199,4 +199,13 @@ public abstract class BlockTransformer {
 		return this.handleControlFlow;
 	}
 
+	/**
+	 * Returns true if the transformation of a block only consists of the macros
+	 * returned by {@link #createMacro(SimulinkBlock)}. Such blocks have no state,
+	 * so identical blocks with the same inputs can share their outputs.
+	 */
+	public boolean isMacroOnly() {
+		return false;
+	}
+
 }
@@ -70,4 +70,9 @@ public class ClockTransformer extends BlockTransformer {
 		return macros;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
@@ -96,4 +96,9 @@ public class ConstantTransformer extends BlockTransformer {
 		return macros;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
@@ -74,4 +74,9 @@ public class DataTypeConversionTransformer extends BlockTransformer {
 		return macros;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
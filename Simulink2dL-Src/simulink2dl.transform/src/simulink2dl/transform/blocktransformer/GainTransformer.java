@@ -78,4 +78,9 @@ public class GainTransformer extends BlockTransformer {
 		return macros;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
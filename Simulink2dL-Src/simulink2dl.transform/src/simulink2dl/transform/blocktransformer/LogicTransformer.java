@@ -187,4 +187,9 @@ public class LogicTransformer extends BlockTransformer {
 				new Conjunction(new Negation(first), second));
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
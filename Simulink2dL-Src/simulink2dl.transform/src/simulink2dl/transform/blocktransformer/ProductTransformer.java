@@ -143,4 +143,9 @@ public class ProductTransformer extends BlockTransformer {
 		return macros;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
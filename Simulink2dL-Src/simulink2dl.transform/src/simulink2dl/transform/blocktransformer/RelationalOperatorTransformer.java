@@ -151,4 +151,9 @@ public class RelationalOperatorTransformer extends BlockTransformer {
 		return result;
 	}
 
+	@Override
+	public boolean isMacroOnly() {
+		return true;
+	}
+
 }
@@ -87,6 +87,7 @@ import simulink2dl.transform.macro.SimpleMacro;
 import simulink2dl.transform.model.ConcurrentContractBehavior;
 import simulink2dl.transform.model.DiscreteContractBehavior;
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ServiceNames;
 /** Service transformer for the SimulinkRL2dL project.
  * TODO: Rework contract implementation.
  * - Use parser instead of hard-coded contracts.
@@ -104,7 +105,11 @@ public class ServiceTransformer extends BlockTransformer {
 	}
 	
 	public void transformBlock(SimulinkBlock block) {
-		List<HybridContract> contracts = createContracts(dlModel, block.getName());
+		// contracts from the contract folders take precedence over fixed contracts
+		List<HybridContract> contracts = environment.getContractRepository().getContracts(block.getName());
+		if (contracts == null) {
+			contracts = createContracts(dlModel, block.getName());
+		}
 		transformContracts(contracts, block);
 	}
 	/**
@@ -171,7 +176,7 @@ public class ServiceTransformer extends BlockTransformer {
 	private void handleGhosts(HybridContract contract, SimulinkBlock block, HybridProgramCollection contractHP) {
 		if (contract instanceof ConcurrentContract) {
 			for (GhostVariable variable : contract.getGhostVariable()) {
-				if(dlModel.getVariableByName(variable.getName())==null) {
+				if(dlModel.getVariables().get(variable.getName())==null) {
 					contractHP.addElement(new DiscreteAssignment(variable, variable.getAssignedTerm()));
 					dlModel.addVariable(variable);
 				}
@@ -339,7 +344,7 @@ public class ServiceTransformer extends BlockTransformer {
 	protected List<HybridContract> createContracts(DLModel model, String serviceName) {
 		List<HybridContract> contracts = new LinkedList<HybridContract>();
 		//contract for non RL
-		if (serviceName.endsWith("TemperatureControl")) {
+		if (ServiceNames.hasFixedContract(serviceName)) {
 			Constant smallstep = dlModel.getConstantByName("SMALLSTEPSIZE");
 			contracts.add(new TemperatureControlContract(serviceName, smallstep));
 //		} else if (serviceName.endsWith("CounterNeg9to0")) {
@@ -0,0 +1,689 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.transform.blocktransformer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+import org.conqat.lib.simulink.model.stateflow.StateflowBlock;
+import org.conqat.lib.simulink.model.stateflow.StateflowChart;
+import org.conqat.lib.simulink.model.stateflow.StateflowData;
+import org.conqat.lib.simulink.model.stateflow.StateflowNodeBase;
+import org.conqat.lib.simulink.model.stateflow.StateflowState;
+import org.conqat.lib.simulink.model.stateflow.StateflowTransition;
+
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
+import simulink2dl.dlmodel.hybridprogram.HybridProgram;
+import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.term.PortIdentifier;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.dlmodel.term.Term;
+import simulink2dl.transform.Environment;
+import simulink2dl.transform.dlmodel.DLModelSimulink;
+import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
+import simulink2dl.transform.macro.Macro;
+import simulink2dl.transform.macro.SimpleMacro;
+import simulink2dl.transform.model.DiscreteBehavior;
+import simulink2dl.util.PluginLogger;
+import simulink2dl.util.parser.StateflowLabel;
+import simulink2dl.util.parser.StringToFormula;
+import simulink2dl.util.parser.StringToTerm;
+
+/**
+ * Transforms a Stateflow chart into a discrete hybrid program that is executed
+ * at the sample time of the chart.
+ * 
+ * The active state configuration is encoded by one variable per region, i.e.
+ * per set of exclusive (OR) states, which holds the index of the active state
+ * (starting at 1) or 0 if the region is inactive. Parallel (AND) states do not
+ * need a variable, since they are active whenever their parent is active. The
+ * transitions of a region are compiled into a single conditional choice with
+ * one branch per transition and one branch per state in which no transition is
+ * taken. The latter executes the during actions of the state and the choices of
+ * its inner regions, so outer transitions take precedence over inner ones. The
+ * number of variables and branch conditions is therefore proportional to the
+ * number of regions and transitions, not to the number of state combinations.
+ * 
+ * Supported are transitions between states of the same region with conditions,
+ * condition actions and transition actions, as well as entry, during and exit
+ * actions of states. Transitions that are triggered by events, start or end at
+ * junctions, or cross region borders are ignored with a warning. The same
+ * holds for transitions whose condition or assigned values cannot be parsed or
+ * refer to identifiers other than chart data, e.g. calls of chart functions.
+ */
+public class StateflowTransformer extends BlockTransformer {
+
+	private static final String SCOPE_INPUT = "INPUT_DATA";
+	private static final String SCOPE_OUTPUT = "OUTPUT_DATA";
+	private static final String SCOPE_LOCAL = "LOCAL_DATA";
+
+	private static final String PARAM_SCOPE = "scope";
+	private static final String PARAM_EXECUTION_ORDER = "executionOrder";
+
+	/**
+	 * Orders Stateflow elements by their numeric id, since the nodes of a chart
+	 * are not stored in a fixed order.
+	 */
+	private static final Comparator<StateflowNodeBase> ID_ORDER = new Comparator<StateflowNodeBase>() {
+		@Override
+		public int compare(StateflowNodeBase first, StateflowNodeBase second) {
+			return Long.compare(parseOrder(first.getStateflowId()), parseOrder(second.getStateflowId()));
+		}
+	};
+
+	private String blockName;
+
+	/**
+	 * Maps the names of the chart data to the terms that represent them.
+	 */
+	private Map<String, Term> dataTerms;
+
+	/**
+	 * Maps each exclusive state to the region that contains it.
+	 */
+	private Map<StateflowState, Region> regions;
+
+	private List<Region> regionList;
+
+	/**
+	 * Parsed labels of the states.
+	 */
+	private Map<StateflowState, StateflowLabel> stateLabels;
+
+	public StateflowTransformer(SimulinkModel simulinkModel, DLModelSimulink dlModel, Environment environment) {
+		super(simulinkModel, dlModel, environment);
+	}
+
+	@Override
+	public void transformBlock(SimulinkBlock block) {
+		if (!(block instanceof StateflowBlock)) {
+			PluginLogger.error("Block " + block.getName() + " is no Stateflow chart.");
+			return;
+		}
+		StateflowChart chart = ((StateflowBlock) block).getChart();
+
+		blockName = block.getName();
+		dataTerms = new HashMap<String, Term>();
+		regions = new HashMap<StateflowState, Region>();
+		regionList = new ArrayList<Region>();
+		stateLabels = new HashMap<StateflowState, StateflowLabel>();
+
+		List<Variable> dataVariables = createDataTerms(block, chart);
+		List<StateflowState> topStates = getChildStates(chart.getNodes());
+		createRegions(topStates);
+
+		// behavior of a step
+		HybridProgramCollection step = new HybridProgramCollection();
+		addInnerProgram(topStates, step);
+		DiscreteBehavior discreteBehavior = dlModel.getDiscreteBehavior(getChartSampleTime(block, chart));
+		discreteBehavior.addBehavior(step);
+
+		// initially, the default states are active and their entry actions have
+		// been executed, all other regions are inactive
+		Map<Variable, Term> initialValues = new LinkedHashMap<Variable, Term>();
+		for (Region region : regionList) {
+			initialValues.put(region.variable, new RealTerm(0.0));
+		}
+		for (Variable variable : dataVariables) {
+			initialValues.put(variable, new RealTerm(0.0));
+		}
+		HybridProgramCollection initialization = new HybridProgramCollection();
+		addEnterChildren(topStates, initialization);
+		applyInitialization(initialization, initialValues);
+		for (Map.Entry<Variable, Term> initialValue : initialValues.entrySet()) {
+			dlModel.addInitialCondition(
+					new Relation(initialValue.getKey(), RelationType.EQUAL, initialValue.getValue()));
+		}
+
+		PluginLogger.info("Transformed Stateflow chart " + blockName + " with " + regionList.size() + " regions.");
+	}
+
+	@Override
+	public List<Macro> createMacro(SimulinkBlock block) {
+		List<Macro> macros = new ArrayList<>();
+		PluginLogger.error("createMacro() is not yet implemented for " + this.getClass().getSimpleName());
+		return macros;
+	}
+
+	/**
+	 * Creates the terms for the inputs, outputs and local data of the chart.
+	 * Outputs and local data are represented by variables, which are returned.
+	 */
+	private List<Variable> createDataTerms(SimulinkBlock block, StateflowChart chart) {
+		List<Variable> variables = new ArrayList<Variable>();
+		for (StateflowData data : chart.getData()) {
+			String name = data.getParameter(SimulinkConstants.PARAM_NAME_STATEFLOW);
+			String scope = data.getParameter(PARAM_SCOPE);
+			if (name == null) {
+				continue;
+			}
+
+			if (SCOPE_INPUT.equals(scope)) {
+				dataTerms.put(name, getInputTerm(block, name));
+			} else if (SCOPE_OUTPUT.equals(scope) || SCOPE_LOCAL.equals(scope)) {
+				Variable variable = new Variable("R", blockName + name);
+				dlModel.addVariable(variable);
+				dataTerms.put(name, variable);
+				variables.add(variable);
+
+				if (SCOPE_OUTPUT.equals(scope)) {
+					SimulinkOutPort outPort = block.getOutPort(getPortNumber(block, name, SimulinkConstants.TYPE_OUTPORT));
+					if (outPort != null) {
+						dlModel.addMacro(new SimpleMacro(environment.getToReplace(outPort), variable));
+					}
+				}
+			} else {
+				PluginLogger.warning("Data " + name + " of Stateflow chart " + blockName + " has unsupported scope "
+						+ scope + ".");
+			}
+		}
+		return variables;
+	}
+
+	/**
+	 * Returns the term for the signal connected to the input of the chart with
+	 * the given name.
+	 */
+	private Term getInputTerm(SimulinkBlock block, String name) {
+		SimulinkInPort inPort = block.getInPort(getPortNumber(block, name, SimulinkConstants.TYPE_INPORT));
+		if (inPort == null
+				|| (environment.getConnectivityIndex().getSourcePort(inPort) == null && inPort.getLine() == null)) {
+			PluginLogger.warning("Input " + name + " of Stateflow chart " + blockName + " is not connected.");
+			Variable variable = new Variable("R", blockName + name);
+			dlModel.addVariable(variable);
+			return variable;
+		}
+		return new PortIdentifier(environment.getPortID(environment.getConnectedOuputPort(inPort)));
+	}
+
+	/**
+	 * Returns the number of the port that belongs to the port block with the
+	 * given name inside of the chart block.
+	 */
+	private static String getPortNumber(SimulinkBlock block, String name, String portType) {
+		SimulinkBlock portBlock = block.getSubBlock(name);
+		if (portBlock == null || !portType.equals(portBlock.getType())) {
+			return "1";
+		}
+		String portNumber = portBlock.getParameter(SimulinkConstants.PARAM_PORT);
+		if (portNumber == null || portNumber.isEmpty()) {
+			return "1";
+		}
+		return portNumber;
+	}
+
+	private String getChartSampleTime(SimulinkBlock block, StateflowChart chart) {
+		String sampleTime = chart.getParameter("sampleTime");
+		if (sampleTime != null && !sampleTime.isEmpty() && !sampleTime.equals("-1")) {
+			return sampleTime;
+		}
+		sampleTime = block.getParameter("SystemSampleTime");
+		if (sampleTime != null && !sampleTime.isEmpty() && !sampleTime.equals("-1")) {
+			return sampleTime;
+		}
+		return getBlockSampleTime(block);
+	}
+
+	/**
+	 * Returns the states of the given nodes, ordered by their execution order.
+	 * Functions, boxes and notes are not considered.
+	 */
+	private List<StateflowState> getChildStates(Collection<StateflowNodeBase> nodes) {
+		List<StateflowNodeBase> sortedNodes = new ArrayList<StateflowNodeBase>(nodes);
+		Collections.sort(sortedNodes, ID_ORDER);
+
+		List<StateflowState> states = new ArrayList<StateflowState>();
+		for (StateflowNodeBase node : sortedNodes) {
+			if (!(node instanceof StateflowState)) {
+				continue;
+			}
+			StateflowState state = (StateflowState) node;
+			if (state.isNoteBox() || state.isFunctionState() || state.isSimulinkFunction()
+					|| state.isMatlabFunction()) {
+				continue;
+			}
+			if (state.isGroupState()) {
+				PluginLogger.warning("Box " + state.getLabel() + " in Stateflow chart " + blockName
+						+ " is not supported.");
+				continue;
+			}
+			states.add(state);
+		}
+
+		if (isParallel(states)) {
+			Collections.sort(states, new Comparator<StateflowState>() {
+				@Override
+				public int compare(StateflowState first, StateflowState second) {
+					return Long.compare(parseOrder(first.getParameter(PARAM_EXECUTION_ORDER)),
+							parseOrder(second.getParameter(PARAM_EXECUTION_ORDER)));
+				}
+			});
+		}
+		return states;
+	}
+
+	/**
+	 * Returns the inner states of the given state. The inner states of a subchart
+	 * are contained in its subviewer.
+	 */
+	private List<StateflowState> getChildStates(StateflowState state) {
+		if (!state.isSubChart() || state.getSubViewer() == null) {
+			return getChildStates(state.getNodes());
+		}
+		List<StateflowNodeBase> nodes = new ArrayList<StateflowNodeBase>(state.getNodes());
+		nodes.addAll(state.getSubViewer().getNodes());
+		return getChildStates(nodes);
+	}
+
+	private static boolean isParallel(List<StateflowState> states) {
+		return !states.isEmpty() && SimulinkConstants.AND_STATE_TYPE
+				.equals(states.get(0).getParameter(SimulinkConstants.PARAM_TYPE));
+	}
+
+	private static long parseOrder(String order) {
+		try {
+			return Long.parseLong(order);
+		} catch (NumberFormatException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Creates the regions for the given sibling states and all inner states.
+	 */
+	private void createRegions(List<StateflowState> states) {
+		if (!states.isEmpty() && !isParallel(states)) {
+			Region region = new Region(new Variable("R", blockName + "Mode" + regionList.size()), states);
+			dlModel.addVariable(region.variable);
+			regionList.add(region);
+			for (StateflowState state : states) {
+				regions.put(state, region);
+			}
+		}
+		for (StateflowState state : states) {
+			createRegions(getChildStates(state));
+		}
+	}
+
+	/**
+	 * Adds the behavior of the given sibling states to the given program. Parallel
+	 * states are executed in their execution order, exclusive states by the
+	 * conditional choice of their region.
+	 */
+	private void addInnerProgram(List<StateflowState> states, HybridProgramCollection program) {
+		if (states.isEmpty()) {
+			return;
+		}
+		if (isParallel(states)) {
+			for (StateflowState state : states) {
+				addActions(getLabel(state).getDuringActions(), program);
+				addInnerProgram(getChildStates(state), program);
+			}
+			return;
+		}
+		program.addElement(createRegionChoice(regions.get(states.get(0))));
+	}
+
+	/**
+	 * Creates the conditional choice that describes a step of the given region.
+	 */
+	private ConditionalChoice createRegionChoice(Region region) {
+		ConditionalChoice choice = new ConditionalChoice();
+		for (StateflowState state : region.states) {
+			Relation isActive = new Relation(region.variable, RelationType.EQUAL,
+					new RealTerm(region.getValue(state)));
+			List<Formula> notTaken = new ArrayList<Formula>();
+			boolean hasUnconditionalTransition = false;
+
+			for (StateflowTransition transition : getTransitions(state, region)) {
+				StateflowLabel label = StateflowLabel.parseTransitionLabel(transition.getLabel());
+				Formula guard = label.getCondition().isEmpty() ? null : parseCondition(label.getCondition());
+
+				List<Formula> conditions = new ArrayList<Formula>();
+				conditions.add(isActive);
+				for (Formula previous : notTaken) {
+					conditions.add(previous.createDeepCopy());
+				}
+				if (guard != null) {
+					conditions.add(guard);
+				}
+
+				StateflowState target = (StateflowState) transition.getDst();
+				HybridProgramCollection taken = new HybridProgramCollection();
+				addActions(label.getConditionActions(), taken);
+				addExit(state, taken);
+				addActions(label.getTransitionActions(), taken);
+				taken.addElement(
+						new DiscreteAssignment(region.variable, new RealTerm(region.getValue(target))));
+				addEnter(target, taken);
+				choice.addChoice(createConjunction(conditions), taken);
+
+				if (guard == null) {
+					hasUnconditionalTransition = true;
+					break;
+				}
+				notTaken.add(guard.createNegation());
+			}
+
+			if (!hasUnconditionalTransition) {
+				List<Formula> conditions = new ArrayList<Formula>();
+				conditions.add(isActive);
+				conditions.addAll(notTaken);
+				HybridProgramCollection stay = new HybridProgramCollection();
+				addActions(getLabel(state).getDuringActions(), stay);
+				addInnerProgram(getChildStates(state), stay);
+				choice.addChoice(createConjunction(conditions), stay);
+			}
+		}
+		return choice;
+	}
+
+	/**
+	 * Returns the supported outgoing transitions of the given state in their
+	 * execution order.
+	 */
+	private List<StateflowTransition> getTransitions(StateflowState state, Region region) {
+		List<StateflowTransition> transitions = new ArrayList<StateflowTransition>();
+		for (StateflowTransition transition : state.getOutTransitions()) {
+			StateflowNodeBase target = transition.getDst();
+			if (!(target instanceof StateflowState) || regions.get(target) != region) {
+				PluginLogger.warning("Transition " + transition + " in Stateflow chart " + blockName
+						+ " does not connect states of the same region and is ignored.");
+				continue;
+			}
+			StateflowLabel label = StateflowLabel.parseTransitionLabel(transition.getLabel());
+			if (!label.getEvent().isEmpty()) {
+				PluginLogger.warning("Transition " + transition + " in Stateflow chart " + blockName
+						+ " is triggered by an event and is ignored.");
+				continue;
+			}
+			if (!isSupported(label)) {
+				PluginLogger.warning("Transition " + transition + " in Stateflow chart " + blockName
+						+ " has the unsupported label \"" + transition.getLabel() + "\" and is ignored.");
+				continue;
+			}
+			transitions.add(transition);
+		}
+		Collections.sort(transitions, new Comparator<StateflowTransition>() {
+			@Override
+			public int compare(StateflowTransition first, StateflowTransition second) {
+				int result = Long.compare(parseOrder(first.getParameter(PARAM_EXECUTION_ORDER)),
+						parseOrder(second.getParameter(PARAM_EXECUTION_ORDER)));
+				if (result != 0) {
+					return result;
+				}
+				return Long.compare(parseOrder(first.getId()), parseOrder(second.getId()));
+			}
+		});
+		return transitions;
+	}
+
+	/**
+	 * Adds the entry actions of the given state and the activation of its default
+	 * inner states to the given program.
+	 */
+	private void addEnter(StateflowState state, HybridProgramCollection program) {
+		addActions(getLabel(state).getEntryActions(), program);
+		addEnterChildren(getChildStates(state), program);
+	}
+
+	private void addEnterChildren(List<StateflowState> children, HybridProgramCollection program) {
+		if (children.isEmpty()) {
+			return;
+		}
+		if (isParallel(children)) {
+			for (StateflowState child : children) {
+				addEnter(child, program);
+			}
+			return;
+		}
+		Region region = regions.get(children.get(0));
+		StateflowState initialState = getInitialState(region);
+		program.addElement(new DiscreteAssignment(region.variable, new RealTerm(region.getValue(initialState))));
+		addEnter(initialState, program);
+	}
+
+	/**
+	 * Adds the exit actions of the given state and its active inner states to the
+	 * given program. The inner regions are deactivated.
+	 */
+	private void addExit(StateflowState state, HybridProgramCollection program) {
+		List<StateflowState> children = getChildStates(state);
+		if (isParallel(children)) {
+			for (int i = children.size() - 1; i >= 0; i--) {
+				addExit(children.get(i), program);
+			}
+		} else if (!children.isEmpty()) {
+			Region region = regions.get(children.get(0));
+			if (hasExitActions(children)) {
+				// the active inner state is only known at runtime
+				ConditionalChoice exitChoice = new ConditionalChoice();
+				for (StateflowState child : region.states) {
+					HybridProgramCollection exitChild = new HybridProgramCollection();
+					addExit(child, exitChild);
+					exitChoice.addChoice(new Relation(region.variable, RelationType.EQUAL,
+							new RealTerm(region.getValue(child))), exitChild);
+				}
+				program.addElement(exitChoice);
+			}
+			program.addElement(new DiscreteAssignment(region.variable, new RealTerm(0.0)));
+		}
+		addActions(getLabel(state).getExitActions(), program);
+	}
+
+	private boolean hasExitActions(List<StateflowState> states) {
+		for (StateflowState state : states) {
+			if (!getLabel(state).getExitActions().isEmpty() || hasExitActions(getChildStates(state))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the target of the default transition of the given region, or the
+	 * first state if there is no default transition to a state.
+	 */
+	private StateflowState getInitialState(Region region) {
+		if (region.initialState == null) {
+			for (StateflowState state : region.states) {
+				for (StateflowTransition transition : state.getInTransitions()) {
+					if (transition.getSrc() == null) {
+						region.initialState = state;
+					}
+				}
+			}
+			if (region.initialState == null) {
+				PluginLogger.warning("No default transition found for " + region.variable
+						+ ", the first state is used as default state.");
+				region.initialState = region.states.get(0);
+			}
+		}
+		return region.initialState;
+	}
+
+	/**
+	 * Adds assignments for the given actions to the given program. Actions other
+	 * than assignments to chart data are ignored.
+	 */
+	private void addActions(List<String> actions, HybridProgramCollection program) {
+		for (String action : actions) {
+			int assignment = action.indexOf('=');
+			if (assignment <= 0 || assignment + 1 < action.length() && action.charAt(assignment + 1) == '=') {
+				PluginLogger.warning("Action \"" + action + "\" in Stateflow chart " + blockName + " is ignored.");
+				continue;
+			}
+			String name = action.substring(0, assignment).trim();
+			Term target = dataTerms.get(name);
+			if (!(target instanceof Variable)) {
+				PluginLogger.warning("Action \"" + action + "\" in Stateflow chart " + blockName
+						+ " does not assign output or local data and is ignored.");
+				continue;
+			}
+			Term value = parseValue(action.substring(assignment + 1));
+			if (value == null) {
+				PluginLogger.warning("Action \"" + action + "\" in Stateflow chart " + blockName
+						+ " has an unsupported value and is ignored.");
+				continue;
+			}
+			program.addElement(new DiscreteAssignment((Variable) target, value));
+		}
+	}
+
+	/**
+	 * Returns true if the condition and the assigned values of the given
+	 * transition label only refer to chart data.
+	 */
+	private boolean isSupported(StateflowLabel label) {
+		if (!label.getCondition().isEmpty() && parseCondition(label.getCondition()) == null) {
+			return false;
+		}
+		List<String> actions = new ArrayList<String>(label.getConditionActions());
+		actions.addAll(label.getTransitionActions());
+		for (String action : actions) {
+			int assignment = action.indexOf('=');
+			if (assignment > 0 && assignment + 1 < action.length() && action.charAt(assignment + 1) != '='
+					&& parseValue(action.substring(assignment + 1)) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the given condition and replaces the names of chart data by their
+	 * terms. Returns null if the condition cannot be parsed or refers to unknown
+	 * identifiers.
+	 */
+	private Formula parseCondition(String condition) {
+		try {
+			return StringToFormula.parseString(condition, dataTerms);
+		} catch (IllegalArgumentException e) {
+			PluginLogger.debug("cannot parse condition " + condition + " (" + e.getMessage() + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the given value and replaces the names of chart data by their terms.
+	 * Returns null if the value cannot be parsed or refers to unknown identifiers.
+	 */
+	private Term parseValue(String value) {
+		try {
+			return StringToTerm.parseString(value, dataTerms);
+		} catch (IllegalArgumentException e) {
+			PluginLogger.debug("cannot parse value " + value + " (" + e.getMessage() + ")");
+			return null;
+		}
+	}
+
+	private static Formula createConjunction(List<Formula> conditions) {
+		if (conditions.size() == 1) {
+			return conditions.get(0);
+		}
+		return new Conjunction(conditions.toArray(new Formula[conditions.size()]));
+	}
+
+	/**
+	 * Computes the initial values of the data variables by symbolically executing
+	 * the assignments of the initialization. The initial values of the region
+	 * variables are added as well.
+	 */
+	private void applyInitialization(HybridProgramCollection initialization, Map<Variable, Term> values) {
+		for (HybridProgram element : initialization.getInnerPrograms()) {
+			if (!(element instanceof DiscreteAssignment)) {
+				continue;
+			}
+			DiscreteAssignment assignment = (DiscreteAssignment) element;
+			Term value = assignment.getAssignmentTerm().createDeepCopy();
+			for (Map.Entry<Variable, Term> previous : values.entrySet()) {
+				if (value.equals(previous.getKey())) {
+					value = previous.getValue().createDeepCopy();
+				} else {
+					value.replaceTermRecursive(previous.getKey(), previous.getValue());
+				}
+			}
+			values.put(assignment.getVariable(), value);
+		}
+	}
+
+	private StateflowLabel getLabel(StateflowState state) {
+		StateflowLabel label = stateLabels.get(state);
+		if (label == null) {
+			label = StateflowLabel.parseStateLabel(state.getLabel());
+			if (label.hasUnsupportedActions()) {
+				PluginLogger.warning("Event actions of state " + label.getName() + " in Stateflow chart "
+						+ blockName + " are ignored.");
+			}
+			stateLabels.put(state, label);
+		}
+		return label;
+	}
+
+	/**
+	 * A set of exclusive states, whose active state is stored in a single
+	 * variable.
+	 */
+	private static class Region {
+
+		private Variable variable;
+
+		private List<StateflowState> states;
+
+		private StateflowState initialState;
+
+		public Region(Variable variable, List<StateflowState> states) {
+			this.variable = variable;
+			this.states = states;
+		}
+
+		/**
+		 * Returns the value of the region variable if the given state is active.
+		 */
+		public double getValue(StateflowState state) {
+			return states.indexOf(state) + 1;
+		}
+	}
+}
@@ -38,12 +38,14 @@ import java.util.Map;
 
 import org.conqat.lib.simulink.model.SimulinkBlock;
 import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.stateflow.StateflowBlock;
 
 import simulink2dl.transform.Environment;
 import simulink2dl.transform.blocktransfomer.RL.ServiceTransformerRL;
 import simulink2dl.transform.config.TransformerMapping;
 import simulink2dl.transform.dlmodel.DLModelSimulink;
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ServiceNames;
 
 /**
  * This factory provides transformation classes that handle the transformation
@@ -80,10 +82,10 @@ public class TransformerFactory {
 		}
 		PluginLogger.info("transform block of type " + blockType);
 
-		if (block.getName().startsWith("Service")) {
-			return new ServiceTransformer(simulinkModel, dlModel, environment);
-		} else if (block.getName().startsWith("RLService")) {
+		if (ServiceNames.isRLService(block.getName())) {
 			return new ServiceTransformerRL(simulinkModel, dlModel, environment);
+		} else if (block.getName().startsWith(ServiceNames.SERVICE_PREFIX)) {
+			return new ServiceTransformer(simulinkModel, dlModel, environment);
 		}
 
 		switch (blockType) {
@@ -147,6 +149,10 @@ public class TransformerFactory {
 
 	private BlockTransformer createSubSystemTransformer(SimulinkBlock block, SimulinkModel simulinkModel,
 			DLModelSimulink dlModel, Environment environment) {
+		// Stateflow charts are subsystems that contain the generated S-function
+		if (block instanceof StateflowBlock) {
+			return new StateflowTransformer(simulinkModel, dlModel, environment);
+		}
 
 		return new ServiceTransformer(simulinkModel, dlModel, environment);
 
@@ -28,6 +28,7 @@
  ******************************************************************************/
 package simulink2dl.transform.dlmodel;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -44,12 +45,13 @@ import simulink2dl.dlmodel.operator.formula.Relation;
 import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
 import simulink2dl.dlmodel.term.RealTerm;
 import simulink2dl.dlmodel.term.Term;
-import simulink2dl.dlmodel.term.VectorTerm;
+import simulink2dl.dlmodel.term.TermSimplifier;
 import simulink2dl.transform.Environment;
 import simulink2dl.transform.macro.Macro;
 import simulink2dl.transform.macro.SizePropagationMacro;
 import simulink2dl.transform.model.ConcurrentContractBehavior;
 import simulink2dl.transform.model.ContinuousEvolutionBehavior;
+import simulink2dl.transform.model.BaseRateClock;
 import simulink2dl.transform.model.DiscreteBehavior;
 import simulink2dl.transform.model.DiscreteContractBehavior;
 import simulink2dl.transform.model.container.ContinuousEvolutionContainer;
@@ -105,25 +107,34 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 	 * Replaces vector-variables with one variable for each entry
 	 */
 	public void expandVariables() {
-		for(int i = 0; i<variables.size(); i++) {
-			Variable curVar = variables.get(i);
-			if(curVar.getSize()>0) { //Variables has been resized
-				VectorTerm newVariables = curVar.getVector();
-				for(int j=0; j<newVariables.size();j++) {
-					variables.add(i+j, (Variable)newVariables.get(j)); 
-				}
-				variables.remove(curVar);
+		variables.expand(curVar -> {
+			if (curVar.getSize() == 0) {
+				return null;
 			}
-			
-		}
+			//Variables has been resized
+			List<Variable> newVariables = new ArrayList<Variable>();
+			for (Term entry : curVar.getVector()) {
+				newVariables.add((Variable) entry);
+			}
+			return newVariables;
+		});
 	}
 	
 	public void finalizeModel(Environment environment) {
 		finalizeMacros();
 
 		// handle all discrete behavior
+		BaseRateClock baseRateClock = null;
+		if (environment.useRateGrouping()) {
+			baseRateClock = createBaseRateClock();
+		}
 		for (DiscreteBehavior discreteBehavior : discreteBehaviors) {
-			discreteBehavior.addToModel(this);
+			if (baseRateClock == null || !baseRateClock.getRateGroups().contains(discreteBehavior)) {
+				discreteBehavior.addToModel(this);
+			}
+		}
+		if (baseRateClock != null) {
+			baseRateClock.addToModel(this);
 		}
 		if(concurrentContracts!=null) {
 			concurrentContracts.addToModel(this);
@@ -144,7 +155,15 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 		environment.finalizeEnvironment();
 
 		// add discrete steps to continuous evolution domains
+		if (baseRateClock != null) {
+			Formula stepCondition = new Relation(baseRateClock.getClockVariable(), Relation.RelationType.LESS_EQUAL,
+					baseRateClock.getStepSizeConstant());
+			addConjunctionToAllEvolutionDomains(stepCondition);
+		}
 		for (DiscreteBehavior discreteBehavior : discreteBehaviors) {
+			if (baseRateClock != null && baseRateClock.getRateGroups().contains(discreteBehavior)) {
+				continue;
+			}
 			Variable clock = discreteBehavior.getClockVariable();
 			Constant stepsize = discreteBehavior.getStepSizeConstant();
 
@@ -153,6 +172,23 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 			addConjunctionToAllEvolutionDomains(stepCondition);
 		}
 	}
+	/**
+	 * Creates a base rate clock for all discrete behavior with numeric step size.
+	 * Returns null if there are less than two such behaviors.
+	 */
+	private BaseRateClock createBaseRateClock() {
+		BaseRateClock baseRateClock = new BaseRateClock();
+		for (DiscreteBehavior discreteBehavior : discreteBehaviors) {
+			if (BaseRateClock.canSchedule(discreteBehavior)) {
+				baseRateClock.addRateGroup(discreteBehavior);
+			}
+		}
+		if (baseRateClock.getRateGroups().size() < 2) {
+			return null;
+		}
+		return baseRateClock;
+	}
+
 	/**
 	 * Apply Macros to the dL model
 	 */
@@ -173,7 +209,8 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 	}
 	
 	/**
-	 * Expand HPs with VectorTerms
+	 * Expand HPs with VectorTerms, this also creates the conditional choices of
+	 * guarded substitutions
 	 */
 	private void expandVectors() {
 		behavior = (HybridProgramCollection) behavior.expand();
@@ -183,9 +220,10 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 	}
 
 	/**
-	 * Applies all macros to each other until no new Macros are created.
+	 * Applies all macros to each other until no new Macros are created. This is
+	 * the first step of {@link #finalizeModel(Environment)}.
 	 */
-	private void finalizeMacros() {
+	public void finalizeMacros() {
 		long finalStart = System.currentTimeMillis();
 		List<Macro> newMacros;
 		PluginLogger.info("[EVALUATION] A total of " + macros.size() + " macros where handled.");
@@ -194,6 +232,12 @@ public class DLModelSimulink extends DLModelDefaultStructure {
 			macros.addAll(newMacros);
 		}while(newMacros.size()>0);
 
+		// simplify the arithmetic terms of the finalized macros
+		TermSimplifier simplifier = new TermSimplifier();
+		for (Macro macro : macros) {
+			macro.simplifyTerms(simplifier);
+		}
+
 		long finalEnd = System.currentTimeMillis();
 		PluginLogger.info("[EVALUATION] " + (finalEnd - finalStart) + " ms for macro finalizing.");
 	}
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.transform.dlmodel.hybridprogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import simulink2dl.dlmodel.hybridprogram.HybridProgram;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.term.Term;
+import simulink2dl.util.PluginLogger;
+import simulink2dl.util.satisfiability.BatchFormulaChecker;
+import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
+
+/**
+ * A guarded substitution represents a hybrid program to which conditional
+ * macros were applied. Instead of creating a conditional choice with a copy of
+ * the program for each condition, the conditions and replacements of each
+ * conditional macro are stored and the program is kept only once. The
+ * conditional choices are created when the program is expanded or printed.
+ * 
+ * The expansion is the same as if the conditional choices were created
+ * eagerly: the last substitution forms the outermost conditional choice. Terms
+ * that are replaced afterwards are replaced in the program and in all stored
+ * conditions and replacements, unless this would change the result. In that
+ * case the guarded substitution is expanded first.
+ *
+ */
+public class GuardedSubstitution implements HybridProgram {
+
+	private HybridProgram program;
+
+	private List<Substitution> substitutions;
+
+	/**
+	 * The expanded program, null as long as the guarded substitution is not
+	 * expanded.
+	 */
+	private HybridProgram expansion;
+
+	/**
+	 * Checker of the transformation that created the guarded substitution, the
+	 * expansion may happen later, e.g. when the output is written.
+	 */
+	private BatchFormulaChecker checker;
+
+	/**
+	 * Constructor for a guarded substitution of the given program without
+	 * substitutions.
+	 * 
+	 * @param program
+	 */
+	public GuardedSubstitution(HybridProgram program) {
+		this(program, BatchFormulaChecker.getCurrent());
+	}
+
+	private GuardedSubstitution(HybridProgram program, BatchFormulaChecker checker) {
+		this.program = program;
+		this.substitutions = new ArrayList<Substitution>();
+		this.checker = checker;
+	}
+
+	/**
+	 * Adds a substitution. In the expansion, the i-th term of toReplace is
+	 * replaced by the i-th replacement under the i-th condition. The given terms
+	 * and formulas are stored, so they must not be used elsewhere.
+	 */
+	public void addSubstitution(List<Formula> conditions, List<Term> toReplace, List<Term> replacements) {
+		Substitution substitution = new Substitution(conditions, toReplace, replacements);
+		if (expansion != null) {
+			expansion = createChoice(expansion, substitution);
+			return;
+		}
+		substitutions.add(substitution);
+	}
+
+	/**
+	 * Returns the conditional choices represented by this guarded substitution.
+	 * Combinations of conditions of several substitutions that are not
+	 * satisfiable are removed.
+	 */
+	public HybridProgram getExpansion() {
+		if (expansion == null) {
+			expansion = program;
+			for (Substitution substitution : substitutions) {
+				expansion = createChoice(expansion, substitution);
+			}
+			if (substitutions.size() > 1) {
+				removeUnsatisfiableChoices((ConditionalChoice) expansion);
+			}
+			program = null;
+			substitutions = null;
+		}
+		return expansion;
+	}
+
+	private static ConditionalChoice createChoice(HybridProgram innerProgram, Substitution substitution) {
+		ConditionalChoice result = new ConditionalChoice();
+		int size = substitution.conditions.size();
+		for (int i = 0; i < size; i++) {
+			// the last choice can use the program itself
+			HybridProgram choiceProgram = (i < size - 1) ? innerProgram.createDeepCopy() : innerProgram;
+			choiceProgram.replaceTermRecursive(substitution.toReplace.get(i), substitution.replacements.get(i));
+			result.addChoice(substitution.conditions.get(i), choiceProgram);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the choices of the expansion for which all combinations of nested
+	 * conditions are unsatisfiable.
+	 */
+	private void removeUnsatisfiableChoices(ConditionalChoice choice) {
+		List<List<ConditionalHybridProgram>> paths = new ArrayList<List<ConditionalHybridProgram>>();
+		collectPaths(choice, new ArrayList<ConditionalHybridProgram>(), paths);
+
+		List<Formula> pathConditions = new ArrayList<Formula>();
+		for (List<ConditionalHybridProgram> path : paths) {
+			Conjunction pathCondition = new Conjunction();
+			for (ConditionalHybridProgram element : path) {
+				pathCondition.addElement(element.getCondition());
+			}
+			pathConditions.add(pathCondition);
+		}
+		List<ResultType> checkResults = checker.checkFormulas(pathConditions);
+
+		Set<ConditionalHybridProgram> satisfiable = Collections
+				.newSetFromMap(new IdentityHashMap<ConditionalHybridProgram, Boolean>());
+		int unsatisfiableCount = 0;
+		for (int i = 0; i < paths.size(); i++) {
+			if (checkResults.get(i).equals(ResultType.UNSATISFIABLE)) {
+				unsatisfiableCount++;
+			} else {
+				satisfiable.addAll(paths.get(i));
+			}
+		}
+		if (unsatisfiableCount == 0 || unsatisfiableCount == paths.size()) {
+			// keep the expansion if no path or every path is unsatisfiable
+			return;
+		}
+		PluginLogger.info("Guarded substitution removed " + unsatisfiableCount + " of " + paths.size()
+				+ " combinations of conditions, which are unsatisfiable.");
+		removeChoices(choice, satisfiable, substitutions.size());
+	}
+
+	private void collectPaths(ConditionalChoice choice, List<ConditionalHybridProgram> path,
+			List<List<ConditionalHybridProgram>> paths) {
+		for (ConditionalHybridProgram element : choice.getChoices()) {
+			List<ConditionalHybridProgram> elementPath = new ArrayList<ConditionalHybridProgram>(path);
+			elementPath.add(element);
+			if (elementPath.size() < substitutions.size()) {
+				collectPaths((ConditionalChoice) element.getInnerProgram(), elementPath, paths);
+			} else {
+				paths.add(elementPath);
+			}
+		}
+	}
+
+	private static void removeChoices(ConditionalChoice choice, Set<ConditionalHybridProgram> satisfiable,
+			int depth) {
+		choice.getChoices().removeIf(element -> !satisfiable.contains(element));
+		if (depth > 1) {
+			for (ConditionalHybridProgram element : choice.getChoices()) {
+				removeChoices((ConditionalChoice) element.getInnerProgram(), satisfiable, depth - 1);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if replacing the given term afterwards gives a different result
+	 * than replacing it before the substitutions.
+	 */
+	private boolean isAffectedBy(Term toReplace, Term replaceWith) {
+		for (Substitution substitution : substitutions) {
+			for (Term replacedTerm : substitution.toReplace) {
+				if (replacedTerm.equals(toReplace) || replacedTerm.equals(replaceWith)
+						|| replacedTerm.containsTerm(toReplace) || replaceWith.containsTerm(replacedTerm)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the conditional choices without expanding this guarded
+	 * substitution, so no satisfiability checks are run. As long as the guarded
+	 * substitution is not expanded, the result may contain combinations of
+	 * conditions that the expansion removes.
+	 */
+	@Override
+	public String toString() {
+		if (expansion != null) {
+			return expansion.toString();
+		}
+		HybridProgram preview = program.createDeepCopy();
+		for (Substitution substitution : substitutions) {
+			preview = createChoice(preview, substitution.createDeepCopy());
+		}
+		return preview.toString();
+	}
+
+	@Override
+	public String toStringFormatted(String indent, boolean multiLineTestFormulas, boolean multiLineEvolutionDomains) {
+		return getExpansion().toStringFormatted(indent, multiLineTestFormulas, multiLineEvolutionDomains);
+	}
+
+	@Override
+	public void replaceTermRecursive(Term toReplace, Term replaceWith) {
+		if (expansion != null || isAffectedBy(toReplace, replaceWith)) {
+			getExpansion().replaceTermRecursive(toReplace, replaceWith);
+			return;
+		}
+		program.replaceTermRecursive(toReplace, replaceWith);
+		for (Substitution substitution : substitutions) {
+			substitution.replaceTermRecursive(toReplace, replaceWith);
+		}
+	}
+
+	@Override
+	public boolean containsTerm(Term term) {
+		if (expansion != null) {
+			return expansion.containsTerm(term);
+		}
+		for (Substitution substitution : substitutions) {
+			if (substitution.toReplace.contains(term)) {
+				// the replaced term only remains in conditions and replacements
+				return getExpansion().containsTerm(term);
+			}
+		}
+		if (program.containsTerm(term)) {
+			return true;
+		}
+		for (Substitution substitution : substitutions) {
+			if (substitution.containsTerm(term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public GuardedSubstitution createDeepCopy() {
+		if (expansion != null) {
+			GuardedSubstitution result = new GuardedSubstitution(null, checker);
+			result.expansion = expansion.createDeepCopy();
+			return result;
+		}
+		GuardedSubstitution result = new GuardedSubstitution(program.createDeepCopy(), checker);
+		for (Substitution substitution : substitutions) {
+			result.substitutions.add(substitution.createDeepCopy());
+		}
+		return result;
+	}
+
+	@Override
+	public HybridProgram expand() {
+		return getExpansion().expand();
+	}
+
+	/**
+	 * The conditions and replacements of a single conditional macro.
+	 */
+	private static class Substitution {
+
+		private List<Formula> conditions;
+
+		private List<Term> toReplace;
+
+		private List<Term> replacements;
+
+		public Substitution(List<Formula> conditions, List<Term> toReplace, List<Term> replacements) {
+			this.conditions = conditions;
+			this.toReplace = toReplace;
+			this.replacements = replacements;
+		}
+
+		public void replaceTermRecursive(Term toReplace, Term replaceWith) {
+			for (int i = 0; i < conditions.size(); i++) {
+				if (conditions.get(i).equals(toReplace)) {
+					conditions.set(i, (Formula) replaceWith);
+				} else {
+					conditions.get(i).replaceTermRecursive(toReplace, replaceWith);
+				}
+			}
+			for (int i = 0; i < replacements.size(); i++) {
+				if (replacements.get(i).equals(toReplace)) {
+					replacements.set(i, replaceWith);
+				} else {
+					replacements.get(i).replaceTermRecursive(toReplace, replaceWith);
+				}
+			}
+		}
+
+		public boolean containsTerm(Term term) {
+			for (Formula condition : conditions) {
+				if (condition.equals(term) || condition.containsTerm(term)) {
+					return true;
+				}
+			}
+			for (Term replacement : replacements) {
+				if (replacement.equals(term) || replacement.containsTerm(term)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Substitution createDeepCopy() {
+			List<Formula> newConditions = new ArrayList<Formula>();
+			for (Formula condition : conditions) {
+				newConditions.add(condition.createDeepCopy());
+			}
+			List<Term> newToReplace = new ArrayList<Term>();
+			for (Term term : toReplace) {
+				newToReplace.add(term.createDeepCopy());
+			}
+			List<Term> newReplacements = new ArrayList<Term>();
+			for (Term replacement : replacements) {
+				newReplacements.add(replacement.createDeepCopy());
+			}
+			return new Substitution(newConditions, newToReplace, newReplacements);
+		}
+	}
+
+}
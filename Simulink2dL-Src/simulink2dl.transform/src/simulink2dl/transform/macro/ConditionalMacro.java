@@ -42,10 +42,11 @@ import simulink2dl.dlmodel.operator.formula.Relation;
 import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.dlmodel.term.Term;
-import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
+import simulink2dl.dlmodel.term.TermSimplifier;
+import simulink2dl.transform.dlmodel.hybridprogram.GuardedSubstitution;
 import simulink2dl.transform.model.ContinuousEvolutionBehavior;
 import simulink2dl.util.PluginLogger;
-import simulink2dl.util.satisfiability.FormulaChecker;
+import simulink2dl.util.satisfiability.BatchFormulaChecker;
 import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
 
 /**
@@ -88,14 +89,19 @@ public class ConditionalMacro extends Macro {
 	protected List<Macro> applySimpleMacro(SimpleMacro other) {
 		List<Macro> resultList = new LinkedList<Macro>();
 
-		FormulaChecker checker = new FormulaChecker();
 		List<MacroContainer> removeContainerList = new ArrayList<>();
 
+		// check all conditions at once, the checks are independent
+		List<Formula> conditions = new ArrayList<Formula>();
 		for (MacroContainer container : macroContainers) {
 			Relation relation = new Relation(other.getToReplace(), RelationType.EQUAL, other.getReplaceWith());
-			Conjunction conjunction = new Conjunction(container.getCondition(), relation);
-			ResultType checkResult = checker.checkSingleFormula(conjunction);
-			if (checkResult.equals(ResultType.UNSATISFIABLE)) {
+			conditions.add(new Conjunction(container.getCondition(), relation));
+		}
+		List<ResultType> checkResults = BatchFormulaChecker.getCurrent().checkFormulas(conditions);
+
+		int conditionIndex = 0;
+		for (MacroContainer container : macroContainers) {
+			if (checkResults.get(conditionIndex++).equals(ResultType.UNSATISFIABLE)) {
 				removeContainerList.add(container);
 				continue;
 			}
@@ -129,27 +135,38 @@ public class ConditionalMacro extends Macro {
 		oldList.addAll(macroContainers);
 		macroContainers.clear();
 
-		// apply to all macro containers of this conditional macro
-		while (!oldList.isEmpty()) {
-			MacroContainer container = oldList.remove(0);
-
+		// create the new conditions for all combinations of macro containers
+		List<Formula> newConditions = new ArrayList<Formula>();
+		for (MacroContainer container : oldList) {
 			if (container.contains(toCompare)) {
-				// apply all alternative macros and create new conditions
 				for (MacroContainer toApplyContainer : other.getMacroContainers()) {
-					//
 					Macro toApply = toApplyContainer.getMacro();
 
 					// create new condition
 					Formula newConditionPart = container.getCondition().createDeepCopy();
 					newConditionPart.replaceTermRecursive(toCompare, toApply.getReplaceWith());
 
-					Conjunction newCondition = new Conjunction(newConditionPart,
-							toApplyContainer.getCondition().createDeepCopy());
+					newConditions.add(new Conjunction(newConditionPart,
+							toApplyContainer.getCondition().createDeepCopy()));
+				}
+			}
+		}
 
-					// check whether the new condition is satisfiable
-					FormulaChecker checker = new FormulaChecker();
+		// check whether the new conditions are satisfiable, the checks are
+		// independent
+		List<ResultType> checkResults = BatchFormulaChecker.getCurrent().checkFormulas(newConditions);
+
+		// apply to all macro containers of this conditional macro
+		int conditionIndex = 0;
+		for (MacroContainer container : oldList) {
+			if (container.contains(toCompare)) {
+				// apply all alternative macros
+				for (MacroContainer toApplyContainer : other.getMacroContainers()) {
+					Macro toApply = toApplyContainer.getMacro();
+					Formula newCondition = newConditions.get(conditionIndex);
+					ResultType checkResult = checkResults.get(conditionIndex);
+					conditionIndex++;
 
-					ResultType checkResult = checker.checkSingleFormula(newCondition);
 					if (checkResult.equals(ResultType.UNSATISFIABLE)) {
 						// skip unsatisfiable conditions
 						PluginLogger.info("Conditional macro created unsatisfiable formula.");
@@ -226,23 +243,27 @@ public class ConditionalMacro extends Macro {
 			HybridProgram innerProgram = programList.get(i);
 
 			if (innerProgram.containsTerm(toReplace)) {
-				ConditionalChoice newProgram = new ConditionalChoice();
-				for (MacroContainer container : macroContainers) {
-					// create condition
-					Formula condition = container.getCondition();
-
-					// create behavior
-					HybridProgram choiceProgram = innerProgram.createDeepCopy();
-
-					// replace macro content
-					Term toReplace = container.getMacro().getToReplace();
-					Term replaceWith = container.getMacro().getReplaceWith();
-					choiceProgram.replaceTermRecursive(toReplace, replaceWith);
+				// the conditional choice is created when the program is expanded
+				GuardedSubstitution newProgram;
+				if (innerProgram instanceof GuardedSubstitution) {
+					newProgram = (GuardedSubstitution) innerProgram;
+				} else {
+					newProgram = new GuardedSubstitution(innerProgram);
+				}
 
-					// add choice to nondeterministic choice
-					newProgram.addChoice(condition, choiceProgram);
+				// the substitution keeps copies, since the macros are applied to other
+				// programs as well
+				List<Formula> conditions = new ArrayList<Formula>();
+				List<Term> replacedTerms = new ArrayList<Term>();
+				List<Term> replacements = new ArrayList<Term>();
+				for (MacroContainer container : macroContainers) {
+					conditions.add(container.getCondition().createDeepCopy());
+					replacedTerms.add(container.getMacro().getToReplace().createDeepCopy());
+					replacements.add(container.getMacro().getReplaceWith().createDeepCopy());
 				}
-				// replace old behavior with new choice
+				newProgram.addSubstitution(conditions, replacedTerms, replacements);
+
+				// replace old behavior with guarded substitution
 				programList.set(i, newProgram);
 			}
 		}
@@ -274,6 +295,14 @@ public class ConditionalMacro extends Macro {
 		}
 	}
 
+	@Override
+	public void simplifyTerms(TermSimplifier simplifier) {
+		for (MacroContainer container : macroContainers) {
+			container.getMacro().simplifyTerms(simplifier);
+			simplifier.simplifyFormula(container.getCondition());
+		}
+	}
+
 	@Override
 	public ConditionalMacro createDeepCopy() {
 		ConditionalMacro result = new ConditionalMacro(toReplace.createDeepCopy());
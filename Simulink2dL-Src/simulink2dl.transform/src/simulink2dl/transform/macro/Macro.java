@@ -34,6 +34,7 @@ import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
 import simulink2dl.dlmodel.operator.formula.Conjunction;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.dlmodel.term.Term;
+import simulink2dl.dlmodel.term.TermSimplifier;
 import simulink2dl.transform.model.ContinuousEvolutionBehavior;
 import simulink2dl.util.PluginLogger;
 
@@ -95,6 +96,14 @@ public abstract class Macro {
 	public abstract boolean containsTerm(Term toReplace);
 
 	public abstract Macro createDeepCopy();
+
+	/**
+	 * Simplifies the terms that replace the term of this macro. Does nothing by
+	 * default.
+	 */
+	public void simplifyTerms(TermSimplifier simplifier) {
+		// do nothing
+	}
 	
 	// For ReplaceableTerms in initialConditions (e.g. for outPorts)
 	public abstract void applyToInitialConditions(Conjunction initialConditions);
@@ -35,6 +35,7 @@ import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
 import simulink2dl.dlmodel.operator.formula.Conjunction;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.dlmodel.term.Term;
+import simulink2dl.dlmodel.term.TermSimplifier;
 import simulink2dl.dlmodel.term.VectorTerm;
 import simulink2dl.transform.dlmodel.term.ExpandedTerm;
 import simulink2dl.transform.model.ContinuousEvolutionBehavior;
@@ -69,6 +70,11 @@ public class SimpleMacro extends Macro {
 		return replaceWith;
 	}
 
+	@Override
+	public void simplifyTerms(TermSimplifier simplifier) {
+		replaceWith = simplifier.simplify(replaceWith);
+	}
+
 	@Override
 	protected List<Macro> applySimpleMacro(SimpleMacro other) {
 		List<Macro> resultList = new LinkedList<Macro>();
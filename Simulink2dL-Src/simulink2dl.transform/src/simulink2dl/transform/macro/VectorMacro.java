@@ -36,6 +36,7 @@ import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
 import simulink2dl.dlmodel.operator.formula.Conjunction;
 import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.dlmodel.term.Term;
+import simulink2dl.dlmodel.term.TermSimplifier;
 import simulink2dl.dlmodel.term.VectorTerm;
 import simulink2dl.transform.model.ContinuousEvolutionBehavior;
 import simulink2dl.util.PluginLogger;
@@ -145,6 +146,13 @@ public class VectorMacro extends Macro {
 		return result + "}";
 	}
 
+	@Override
+	public void simplifyTerms(TermSimplifier simplifier) {
+		for (int i = 0; i < replaceWithVector.size(); i++) {
+			replaceWithVector.set(i, simplifier.simplify(replaceWithVector.get(i)));
+		}
+	}
+
 	@Override
 	public VectorMacro createDeepCopy() {
 		VectorMacro result = new VectorMacro(toReplace.createDeepCopy());
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.transform.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.LinkedList;
+import java.util.List;
+
+import simulink2dl.dlmodel.elements.Constant;
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
+import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.term.AdditionTerm;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.transform.dlmodel.DLModelSimulink;
+import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
+import simulink2dl.util.parser.StringParser;
+
+/**
+ * This class schedules discrete behavior with different numeric step sizes by
+ * one shared clock. The base rate is the greatest common divisor of all step
+ * sizes. Each rate group counts the steps of the base rate in a tick variable
+ * and performs its behavior whenever the count reaches its step size, i.e.
+ * every n-th base step. Thus only one continuous clock variable and one
+ * evolution domain condition is needed for all rate groups.
+ */
+public class BaseRateClock {
+
+	private BigDecimal baseStepSize;
+
+	private Constant baseStepSizeConstant;
+
+	private Variable baseClock;
+
+	private List<DiscreteBehavior> rateGroups;
+
+	private List<Variable> tickVariables;
+
+	private List<Integer> ticksPerStep;
+
+	public BaseRateClock() {
+		this.baseStepSizeConstant = new Constant("R", "STEPBASE");
+		this.baseClock = new Variable("R", "stepClockBase");
+
+		this.rateGroups = new LinkedList<DiscreteBehavior>();
+		this.tickVariables = new LinkedList<Variable>();
+		this.ticksPerStep = new LinkedList<Integer>();
+	}
+
+	/**
+	 * Checks whether the given behavior can be scheduled by a base rate clock,
+	 * i.e. whether its step size is a positive number.
+	 */
+	public static boolean canSchedule(DiscreteBehavior behavior) {
+		if (behavior instanceof DiscreteContractBehavior) {
+			return false;
+		}
+		String stepSize = behavior.getStepSize();
+		return StringParser.isNumber(stepSize) && new BigDecimal(stepSize).signum() > 0;
+	}
+
+	/**
+	 * Adds a rate group to this clock. The base rate is updated accordingly.
+	 */
+	public void addRateGroup(DiscreteBehavior behavior) {
+		rateGroups.add(behavior);
+
+		BigDecimal stepSize = new BigDecimal(behavior.getStepSize());
+		if (baseStepSize == null) {
+			baseStepSize = stepSize;
+		} else {
+			baseStepSize = gcd(baseStepSize, stepSize);
+		}
+	}
+
+	public List<DiscreteBehavior> getRateGroups() {
+		return rateGroups;
+	}
+
+	public Variable getClockVariable() {
+		return baseClock;
+	}
+
+	public Constant getStepSizeConstant() {
+		return baseStepSizeConstant;
+	}
+
+	/**
+	 * Returns the greatest common divisor of two positive decimal numbers.
+	 */
+	protected static BigDecimal gcd(BigDecimal first, BigDecimal second) {
+		int scale = Math.max(first.scale(), second.scale());
+		BigInteger firstUnscaled = first.setScale(scale).unscaledValue();
+		BigInteger secondUnscaled = second.setScale(scale).unscaledValue();
+		return new BigDecimal(firstUnscaled.gcd(secondUnscaled), scale).stripTrailingZeros();
+	}
+
+	public void addToModel(DLModelSimulink dlModel) {
+		// base clock
+		dlModel.addConstant(baseStepSizeConstant);
+		dlModel.addInitialCondition(new Relation(baseStepSizeConstant, RelationType.EQUAL,
+				new RealTerm(baseStepSize.toPlainString())));
+
+		dlModel.addVariable(baseClock);
+		dlModel.addInitialCondition(new Relation(baseClock, RelationType.EQUAL, new RealTerm(0.0)));
+		dlModel.addContinuousEvolution(baseClock, new RealTerm(1.0));
+
+		Relation baseStep = new Relation(baseClock, RelationType.GREATER_EQUAL, baseStepSizeConstant);
+
+		// rate groups
+		for (DiscreteBehavior rateGroup : rateGroups) {
+			int ticks = new BigDecimal(rateGroup.getStepSize()).divide(baseStepSize).intValueExact();
+
+			if (ticks == 1) {
+				// the group is performed on every base step
+				rateGroup.addToModel(dlModel, baseStep.createDeepCopy());
+				tickVariables.add(null);
+			} else {
+				String stepSize = rateGroup.getStepSize().replace(".", "");
+				Variable tick = new Variable("R", "stepTick" + stepSize);
+				dlModel.addVariable(tick);
+				dlModel.addInitialCondition(new Relation(tick, RelationType.EQUAL, new RealTerm(0.0)));
+
+				Formula stepCondition = new Conjunction(baseStep.createDeepCopy(),
+						new Relation(tick, RelationType.EQUAL, new RealTerm(ticks - 1)));
+				rateGroup.addToModel(dlModel, stepCondition);
+				tickVariables.add(tick);
+			}
+			ticksPerStep.add(ticks);
+		}
+
+		// reset base clock and count ticks after all rate groups are handled
+		HybridProgramCollection onBaseStep = new HybridProgramCollection();
+		onBaseStep.addElement(new DiscreteAssignment(baseClock, new RealTerm(0.0)));
+		for (int i = 0; i < tickVariables.size(); i++) {
+			Variable tick = tickVariables.get(i);
+			if (tick == null) {
+				continue;
+			}
+			Relation lastTick = new Relation(tick, RelationType.EQUAL, new RealTerm(ticksPerStep.get(i) - 1));
+			AdditionTerm nextTick = new AdditionTerm(tick, new RealTerm(1.0));
+
+			ConditionalChoice tickChoice = new ConditionalChoice();
+			tickChoice.addChoice(lastTick, new DiscreteAssignment(tick, new RealTerm(0.0)));
+			tickChoice.addChoice(lastTick.createNegation(), new DiscreteAssignment(tick, nextTick));
+			onBaseStep.addElement(tickChoice);
+		}
+
+		ConditionalChoice baseStepChoice = new ConditionalChoice();
+		baseStepChoice.addChoice(baseStep, onBaseStep);
+		baseStepChoice.addChoice(baseStep.createNegation(), new HybridProgramCollection());
+		dlModel.addBehavior(baseStepChoice);
+	}
+
+}
@@ -28,6 +28,7 @@
  ******************************************************************************/
 package simulink2dl.transform.model;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -38,6 +39,7 @@ import simulink2dl.dlmodel.operator.formula.BooleanConstant;
 import simulink2dl.dlmodel.operator.formula.Conjunction;
 import simulink2dl.dlmodel.operator.formula.Disjunction;
 import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.SharedFormula;
 import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
 import simulink2dl.transform.macro.ConditionalMacro;
 import simulink2dl.transform.macro.Macro;
@@ -46,7 +48,7 @@ import simulink2dl.transform.macro.SimpleMacro;
 import simulink2dl.transform.macro.VectorMacro;
 import simulink2dl.transform.model.container.ContinuousEvolutionContainer;
 import simulink2dl.util.PluginLogger;
-import simulink2dl.util.satisfiability.FormulaChecker;
+import simulink2dl.util.satisfiability.BatchFormulaChecker;
 import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
 
 /**
@@ -148,9 +150,11 @@ public class ContinuousEvolutionBehavior {
 
 		evolutions.clear();
 
+		// create the new conditions for all combinations of evolutions and macros
+		List<Formula> newConditionParts = new ArrayList<Formula>();
+		List<Formula> newConditions = new ArrayList<Formula>();
 		for (ContinuousEvolutionContainer oldEvolutionContainer : oldEvolutions) {
 			for (MacroContainer macroContainer : conditionalMacro.getMacroContainers()) {
-				ContinuousEvolution newEvolution = oldEvolutionContainer.getEvolution().createDeepCopy();
 				Formula newConditionPart = oldEvolutionContainer.getCondition().createDeepCopy();
 				Formula extraCondition = macroContainer.getExtraCondition();
 
@@ -163,9 +167,22 @@ public class ContinuousEvolutionBehavior {
 					newCondition = new Conjunction(newCondition, extraCondition);
 				}
 
-				// check whether new condition is satisfiable
-				FormulaChecker checker = new FormulaChecker();
-				ResultType checkResult = checker.checkSingleFormula(newCondition);
+				newConditionParts.add(newConditionPart);
+				newConditions.add(newCondition);
+			}
+		}
+
+		// check whether new conditions are satisfiable, the checks are independent
+		List<ResultType> checkResults = BatchFormulaChecker.getCurrent().checkFormulas(newConditions);
+
+		int conditionIndex = 0;
+		for (ContinuousEvolutionContainer oldEvolutionContainer : oldEvolutions) {
+			for (MacroContainer macroContainer : conditionalMacro.getMacroContainers()) {
+				Formula newConditionPart = newConditionParts.get(conditionIndex);
+				Formula newCondition = newConditions.get(conditionIndex);
+				ResultType checkResult = checkResults.get(conditionIndex);
+				conditionIndex++;
+
 				if (checkResult.equals(ResultType.UNSATISFIABLE)) {
 					// skip contradictions
 					PluginLogger.info("Condtitional macro created unsatisfiable formula for continous evolution.");
@@ -173,6 +190,7 @@ public class ContinuousEvolutionBehavior {
 					continue;
 				}
 
+				ContinuousEvolution newEvolution = oldEvolutionContainer.getEvolution().createDeepCopy();
 				Macro macro = macroContainer.getMacro();
 
 				// apply macro
@@ -198,9 +216,6 @@ public class ContinuousEvolutionBehavior {
 		for (ContinuousEvolutionContainer container : evolutions) {
 			// create condition
 			Formula condition = container.getCondition();
-			// create content
-			ContinuousEvolution evolution = container.getEvolution().createDeepCopy();
-			evolution.setEvolutionDomain(container.getCondition());
 
 			// add choice
 			conditionalChoice.addChoice(condition, container.getEvolution());
@@ -215,23 +230,35 @@ public class ContinuousEvolutionBehavior {
 		return asHybridProgram().toStringFormatted("", false, false);
 	}
 
+	/**
+	 * Adds the given formula as alternative to the evolution domains of all
+	 * continuous evolutions. The formula is shared by all evolution domains and
+	 * must not be modified afterwards.
+	 */
 	public void addAlternativeToAllEvolutionDomains(Formula evolutionDomainExtension) {
+		SharedFormula sharedExtension = new SharedFormula(evolutionDomainExtension);
 		for (ContinuousEvolutionContainer evolutionContainer : evolutions) {
 			ContinuousEvolution evolution = evolutionContainer.getEvolution();
 
 			Formula evolutionDomain = new Disjunction(evolution.getEvolutionDomain(),
-					evolutionDomainExtension.createDeepCopy());
+					sharedExtension.createDeepCopy());
 
 			evolution.setEvolutionDomain(evolutionDomain);
 		}
 	}
 
+	/**
+	 * Adds the given formula as conjunct to the evolution domains of all
+	 * continuous evolutions. The formula is shared by all evolution domains and
+	 * must not be modified afterwards.
+	 */
 	public void addConjunctionToAllEvolutionDomains(Formula evolutionDomainExtension) {
+		SharedFormula sharedExtension = new SharedFormula(evolutionDomainExtension);
 		for (ContinuousEvolutionContainer evolutionContainer : evolutions) {
 			ContinuousEvolution evolution = evolutionContainer.getEvolution();
 
 			Formula evolutionDomain = new Conjunction(evolution.getEvolutionDomain(),
-					evolutionDomainExtension.createDeepCopy());
+					sharedExtension.createDeepCopy());
 
 			evolution.setEvolutionDomain(evolutionDomain);
 		}
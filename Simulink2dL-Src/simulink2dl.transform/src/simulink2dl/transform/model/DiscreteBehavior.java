@@ -28,16 +28,22 @@
  ******************************************************************************/
 package simulink2dl.transform.model;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import simulink2dl.dlmodel.elements.Constant;
 import simulink2dl.dlmodel.elements.Variable;
 import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
 import simulink2dl.dlmodel.hybridprogram.HybridProgram;
 import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Negation;
 import simulink2dl.dlmodel.operator.formula.Relation;
 import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
 import simulink2dl.dlmodel.term.RealTerm;
 import simulink2dl.transform.dlmodel.DLModelSimulink;
 import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
+import simulink2dl.transform.dlmodel.hybridprogram.ConditionalHybridProgram;
 import simulink2dl.util.parser.StringParser;
 
 public class DiscreteBehavior {
@@ -144,4 +150,30 @@ public class DiscreteBehavior {
 		dlModel.addBehavior(stepChoice);
 	}
 
+	/**
+	 * Adds this behavior to the model without an own step clock. The behavior is
+	 * performed whenever the given step condition holds, which is provided by a
+	 * {@link BaseRateClock}.
+	 * 
+	 * @param dlModel
+	 * @param stepCondition
+	 */
+	public void addToModel(DLModelSimulink dlModel, Formula stepCondition) {
+		replaceStepCondition(stepOutputChoice, stepCondition);
+		replaceStepCondition(stepChoice, stepCondition);
+
+		dlModel.addBehaviorFront(stepOutputChoice);
+		dlModel.addBehavior(stepChoice);
+	}
+
+	private void replaceStepCondition(ConditionalChoice choice, Formula stepCondition) {
+		HybridProgram onStep = choice.getChoices().get(0).getInnerProgram();
+		HybridProgram offStep = choice.getChoices().get(1).getInnerProgram();
+
+		List<ConditionalHybridProgram> newChoices = new LinkedList<ConditionalHybridProgram>();
+		newChoices.add(new ConditionalHybridProgram(stepCondition, onStep));
+		newChoices.add(new ConditionalHybridProgram(new Negation(stepCondition.createDeepCopy()), offStep));
+		choice.setChoices(newChoices);
+	}
+
 }
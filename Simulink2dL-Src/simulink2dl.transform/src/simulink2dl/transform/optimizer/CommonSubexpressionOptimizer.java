@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.transform.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import simulink2dl.dlmodel.elements.Constant;
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.hybridprogram.ContinuousEvolution;
+import simulink2dl.dlmodel.hybridprogram.DebugString;
+import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
+import simulink2dl.dlmodel.hybridprogram.HybridProgram;
+import simulink2dl.dlmodel.hybridprogram.HybridProgramCollection;
+import simulink2dl.dlmodel.hybridprogram.IfStatement;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicAssignment;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicChoice;
+import simulink2dl.dlmodel.hybridprogram.NondeterministicRepetition;
+import simulink2dl.dlmodel.hybridprogram.SingleEvolution;
+import simulink2dl.dlmodel.hybridprogram.TestFormula;
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Equivalence;
+import simulink2dl.dlmodel.operator.formula.Implication;
+import simulink2dl.dlmodel.operator.formula.Negation;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.SharedFormula;
+import simulink2dl.dlmodel.term.AdditionTerm;
+import simulink2dl.dlmodel.term.BracketTerm;
+import simulink2dl.dlmodel.term.ExponentTerm;
+import simulink2dl.dlmodel.term.FunctionTerm;
+import simulink2dl.dlmodel.term.MultiplicationTerm;
+import simulink2dl.dlmodel.term.Term;
+import simulink2dl.transform.dlmodel.DLModelSimulink;
+import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
+import simulink2dl.transform.dlmodel.hybridprogram.ConditionalHybridProgram;
+import simulink2dl.util.PluginLogger;
+
+/**
+ * This optimizer replaces subterms that occur several times in the behavior by
+ * auxiliary variables. Each auxiliary variable is assigned at the beginning of
+ * the loop body, i.e. once per loop iteration.
+ * 
+ * An occurrence is only replaced if none of the variables of the subterm may be
+ * changed between the beginning of the loop body and the occurrence, e.g. a
+ * subterm that contains an evolving variable is kept in the evolution domain.
+ * Subterms with less than "simulink2dl.cseMinSize" nodes (default 3) are not
+ * replaced.
+ */
+public class CommonSubexpressionOptimizer extends Optimizer {
+
+	private static final int MIN_SIZE = Integer.getInteger("simulink2dl.cseMinSize", 3);
+
+	/**
+	 * Limits the number of auxiliary variables, each one requires a pass over
+	 * the behavior.
+	 */
+	private static final int MAX_VARIABLES = 1000;
+
+	private static final String PREFIX = "cse";
+
+	/**
+	 * Programs and formulas that contain terms, with the variables that may be
+	 * changed before them.
+	 */
+	private List<Site> sites;
+
+	/**
+	 * Names of the auxiliary variables.
+	 */
+	private Set<String> auxiliaryNames;
+
+	/**
+	 * Subterms that were already replaced, in case an occurrence could not be
+	 * replaced since it is only equal in its string representation.
+	 */
+	private Set<String> replacedSubterms;
+
+	@Override
+	public void run(DLModelSimulink dLModel) {
+		HybridProgramCollection behavior = dLModel.getBehavior();
+
+		// terms may be shared between programs, since macros insert the same term
+		// instance at every occurrence
+		ListIterator<HybridProgram> iterator = behavior.getInnerPrograms().listIterator();
+		while (iterator.hasNext()) {
+			iterator.set(iterator.next().createDeepCopy());
+		}
+
+		sites = new ArrayList<Site>();
+		auxiliaryNames = new HashSet<String>();
+		replacedSubterms = new HashSet<String>();
+		if (collectSites(behavior, Collections.<String>emptySet()) == null) {
+			return;
+		}
+		int sizeBefore = getTotalSize();
+
+		Set<String> usedNames = new HashSet<String>();
+		for (Variable variable : dLModel.getVariables()) {
+			usedNames.add(variable.getName());
+		}
+		for (Constant constant : dLModel.getConstants()) {
+			usedNames.add(constant.getName());
+		}
+		int nameIndex = 1;
+		int count = 0;
+		for (; count < MAX_VARIABLES; count++) {
+			Term subterm = findCommonSubterm();
+			if (subterm == null) {
+				break;
+			}
+			while (usedNames.contains(PREFIX + nameIndex)) {
+				nameIndex++;
+			}
+			replacedSubterms.add(subterm.toString());
+			Variable auxiliary = new Variable("R", PREFIX + nameIndex);
+			usedNames.add(auxiliary.getName());
+			auxiliaryNames.add(auxiliary.getName());
+			dLModel.addVariable(auxiliary);
+
+			for (Site site : sites) {
+				if (site.isAllowed(subterm) && site.containsTerm(subterm)) {
+					site.replace(subterm, auxiliary);
+				}
+			}
+
+			// auxiliary variables that are created later may occur in the
+			// definitions of earlier ones, so they are assigned before them
+			DiscreteAssignment definition = new DiscreteAssignment(auxiliary, subterm.createDeepCopy());
+			dLModel.addBehaviorFront(definition);
+			sites.add(new Site(definition, Collections.<String>emptySet()));
+		}
+
+		if (count > 0) {
+			PluginLogger.info("[EVALUATION] Common subexpression elimination: " + count
+					+ " auxiliary variables, behavior reduced from " + sizeBefore + " to " + getTotalSize()
+					+ " term nodes.");
+		}
+	}
+
+	/**
+	 * Collects the sites of the given program. The given set contains the
+	 * variables that may be changed before the program, the returned set the
+	 * variables that may be changed after it. Returns null if the program
+	 * contains an unknown kind of hybrid program.
+	 */
+	private Set<String> collectSites(HybridProgram program, Set<String> changedBefore) {
+		if (program instanceof HybridProgramCollection) {
+			Set<String> changed = changedBefore;
+			for (HybridProgram inner : ((HybridProgramCollection) program).getInnerPrograms()) {
+				changed = collectSites(inner, changed);
+				if (changed == null) {
+					return null;
+				}
+			}
+			return changed;
+		} else if (program instanceof DiscreteAssignment) {
+			DiscreteAssignment assignment = (DiscreteAssignment) program;
+			sites.add(new Site(assignment, changedBefore));
+			return union(changedBefore, assignment.getVariable().getName());
+		} else if (program instanceof NondeterministicAssignment) {
+			return union(changedBefore, ((NondeterministicAssignment) program).getVariable().getName());
+		} else if (program instanceof TestFormula) {
+			sites.add(new Site(((TestFormula) program).getFormula(), changedBefore));
+			return changedBefore;
+		} else if (program instanceof ContinuousEvolution) {
+			// the evolving variables change within the evolution
+			ContinuousEvolution evolution = (ContinuousEvolution) program;
+			Set<String> changed = new HashSet<String>(changedBefore);
+			for (SingleEvolution singleEvolution : evolution.getEvolutionFormulas()) {
+				changed.add(singleEvolution.getVariable().getName());
+			}
+			sites.add(new Site(evolution, changed));
+			return changed;
+		} else if (program instanceof IfStatement) {
+			IfStatement ifStatement = (IfStatement) program;
+			sites.add(new Site(ifStatement.getCondition(), changedBefore));
+			Set<String> changed = collectSites(ifStatement.getIfProgram(), changedBefore);
+			if (changed != null && ifStatement.hasElse()) {
+				Set<String> changedElse = collectSites(ifStatement.getElseProgram(), changedBefore);
+				changed = changedElse == null ? null : union(changed, changedElse);
+			}
+			return changed;
+		} else if (program instanceof NondeterministicChoice) {
+			Set<String> changed = changedBefore;
+			for (HybridProgram choice : ((NondeterministicChoice) program).getChoices()) {
+				Set<String> changedChoice = collectSites(choice, changedBefore);
+				if (changedChoice == null) {
+					return null;
+				}
+				changed = union(changed, changedChoice);
+			}
+			return changed;
+		} else if (program instanceof ConditionalChoice) {
+			Set<String> changed = changedBefore;
+			for (ConditionalHybridProgram choice : ((ConditionalChoice) program).getChoices()) {
+				Set<String> changedChoice = collectSites(choice, changedBefore);
+				if (changedChoice == null) {
+					return null;
+				}
+				changed = union(changed, changedChoice);
+			}
+			return changed;
+		} else if (program instanceof ConditionalHybridProgram) {
+			ConditionalHybridProgram conditional = (ConditionalHybridProgram) program;
+			sites.add(new Site(conditional.getCondition(), changedBefore));
+			return collectSites(conditional.getInnerProgram(), changedBefore);
+		} else if (program instanceof NondeterministicRepetition) {
+			// later iterations see the changes of earlier ones
+			HybridProgram inner = ((NondeterministicRepetition) program).getInnerProgram();
+			int siteCount = sites.size();
+			Set<String> changed = collectSites(inner, changedBefore);
+			if (changed == null) {
+				return null;
+			}
+			sites.subList(siteCount, sites.size()).clear();
+			return collectSites(inner, changed);
+		} else if (program instanceof DebugString) {
+			return changedBefore;
+		}
+
+		PluginLogger.error("Hybrid program of type \"" + program.getClass().getName()
+				+ "\" not handled in common subexpression elimination.");
+		return null;
+	}
+
+	private static Set<String> union(Set<String> first, String second) {
+		Set<String> result = new HashSet<String>(first);
+		result.add(second);
+		return result;
+	}
+
+	private static Set<String> union(Set<String> first, Set<String> second) {
+		if (first.containsAll(second)) {
+			return first;
+		}
+		Set<String> result = new HashSet<String>(first);
+		result.addAll(second);
+		return result;
+	}
+
+	/**
+	 * Returns the largest subterm that may be replaced at two or more
+	 * occurrences, or null if there is none.
+	 */
+	private Term findCommonSubterm() {
+		Map<String, Occurrences> occurrences = new HashMap<String, Occurrences>();
+		for (Site site : sites) {
+			for (Term term : site.getTerms()) {
+				countSubterms(term, site, occurrences);
+			}
+		}
+
+		Occurrences best = null;
+		for (Occurrences candidate : occurrences.values()) {
+			if (candidate.count < 2 || replacedSubterms.contains(candidate.term.toString())) {
+				continue;
+			}
+			if (best == null || candidate.size > best.size
+					|| (candidate.size == best.size && candidate.count > best.count)) {
+				best = candidate;
+			}
+		}
+		return best == null ? null : best.term;
+	}
+
+	/**
+	 * Counts the occurrences of the subterms of the given term that may be
+	 * replaced at the given site. Returns the summary of the given term.
+	 */
+	private TermSummary countSubterms(Term term, Site site, Map<String, Occurrences> occurrences) {
+		List<Term> subterms = getSubterms(term);
+		TermSummary summary = new TermSummary();
+		if (subterms == null) {
+			// atomic term
+			String name = getName(term);
+			summary.variables.add(name);
+			summary.replaceable = !auxiliaryNames.contains(name);
+			return summary;
+		}
+
+		summary.replaceable = true;
+		for (Term subterm : subterms) {
+			TermSummary subsummary = countSubterms(subterm, site, occurrences);
+			summary.size += subsummary.size;
+			summary.variables.addAll(subsummary.variables);
+			summary.replaceable &= subsummary.replaceable;
+		}
+		if (term instanceof BracketTerm) {
+			// the inner term is counted instead
+			summary.size--;
+			return summary;
+		}
+
+		if (summary.replaceable && summary.size >= MIN_SIZE && site.isAllowed(summary.variables)) {
+			String key = term.toString();
+			Occurrences entry = occurrences.get(key);
+			if (entry == null) {
+				entry = new Occurrences(term, summary.size);
+				occurrences.put(key, entry);
+			}
+			entry.count++;
+		}
+		return summary;
+	}
+
+	/**
+	 * Returns the name of the given atomic term.
+	 */
+	private static String getName(Term term) {
+		if (term instanceof Variable) {
+			return ((Variable) term).getName();
+		} else if (term instanceof Constant) {
+			return ((Constant) term).getName();
+		}
+		return term.toString();
+	}
+
+	/**
+	 * Returns the direct subterms of the given term, or null for atomic terms.
+	 */
+	private static List<Term> getSubterms(Term term) {
+		if (term instanceof AdditionTerm) {
+			List<Term> result = new ArrayList<Term>(((AdditionTerm) term).getSummands());
+			result.addAll(((AdditionTerm) term).getSubtrahends());
+			return result;
+		} else if (term instanceof MultiplicationTerm) {
+			List<Term> result = new ArrayList<Term>(((MultiplicationTerm) term).getFactors());
+			result.addAll(((MultiplicationTerm) term).getDivisors());
+			return result;
+		} else if (term instanceof ExponentTerm) {
+			List<Term> result = new ArrayList<Term>();
+			result.add(((ExponentTerm) term).getBase());
+			result.add(((ExponentTerm) term).getExponent());
+			return result;
+		} else if (term instanceof BracketTerm) {
+			List<Term> result = new ArrayList<Term>();
+			result.add(((BracketTerm) term).getInnerTerm());
+			return result;
+		} else if (term instanceof FunctionTerm) {
+			return ((FunctionTerm) term).getArguments();
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the terms of the given formula to the given list.
+	 */
+	private static void collectTerms(Operator formula, List<Term> terms) {
+		if (formula instanceof Relation) {
+			terms.add(((Relation) formula).getLeftSide());
+			terms.add(((Relation) formula).getRightSide());
+		} else if (formula instanceof Conjunction) {
+			for (Operator element : ((Conjunction) formula).getElements()) {
+				collectTerms(element, terms);
+			}
+		} else if (formula instanceof Disjunction) {
+			for (Operator element : ((Disjunction) formula).getElements()) {
+				collectTerms(element, terms);
+			}
+		} else if (formula instanceof Negation) {
+			collectTerms(((Negation) formula).getInnerFormula(), terms);
+		} else if (formula instanceof Implication) {
+			collectTerms(((Implication) formula).getAntecedent(), terms);
+			collectTerms(((Implication) formula).getConsequent(), terms);
+		} else if (formula instanceof Equivalence) {
+			collectTerms(((Equivalence) formula).getLeftSide(), terms);
+			collectTerms(((Equivalence) formula).getRightSide(), terms);
+		} else if (formula instanceof SharedFormula) {
+			collectTerms(((SharedFormula) formula).getFormula(), terms);
+		}
+	}
+
+	private int getTotalSize() {
+		int size = 0;
+		for (Site site : sites) {
+			for (Term term : site.getTerms()) {
+				size += getSize(term);
+			}
+		}
+		return size;
+	}
+
+	private static int getSize(Term term) {
+		List<Term> subterms = getSubterms(term);
+		if (subterms == null) {
+			return 1;
+		}
+		int size = term instanceof BracketTerm ? 0 : 1;
+		for (Term subterm : subterms) {
+			size += getSize(subterm);
+		}
+		return size;
+	}
+
+	/**
+	 * A program or formula that contains terms, together with the variables that
+	 * may be changed before its terms are evaluated.
+	 */
+	private static class Site {
+
+		private HybridProgram program;
+
+		private Operator formula;
+
+		private Set<String> changedBefore;
+
+		public Site(HybridProgram program, Set<String> changedBefore) {
+			this.program = program;
+			this.changedBefore = changedBefore;
+		}
+
+		public Site(Operator formula, Set<String> changedBefore) {
+			this.formula = formula;
+			this.changedBefore = changedBefore;
+		}
+
+		public List<Term> getTerms() {
+			List<Term> terms = new ArrayList<Term>();
+			if (program instanceof DiscreteAssignment) {
+				terms.add(((DiscreteAssignment) program).getAssignmentTerm());
+			} else if (program instanceof ContinuousEvolution) {
+				ContinuousEvolution evolution = (ContinuousEvolution) program;
+				for (SingleEvolution singleEvolution : evolution.getEvolutionFormulas()) {
+					terms.add(singleEvolution.getEvolutionTerm());
+				}
+				collectTerms(evolution.getEvolutionDomain(), terms);
+			} else {
+				collectTerms(formula, terms);
+			}
+			return terms;
+		}
+
+		public boolean isAllowed(Set<String> variables) {
+			return Collections.disjoint(variables, changedBefore);
+		}
+
+		public boolean isAllowed(Term term) {
+			Set<String> variables = new HashSet<String>();
+			collectVariables(term, variables);
+			return isAllowed(variables);
+		}
+
+		public boolean containsTerm(Term term) {
+			return program != null ? program.containsTerm(term) : formula.containsTerm(term);
+		}
+
+		public void replace(Term toReplace, Term replaceWith) {
+			if (program != null) {
+				program.replaceTermRecursive(toReplace, replaceWith);
+			} else {
+				formula.replaceTermRecursive(toReplace, replaceWith);
+			}
+		}
+
+		private static void collectVariables(Term term, Set<String> variables) {
+			List<Term> subterms = getSubterms(term);
+			if (subterms == null) {
+				variables.add(getName(term));
+				return;
+			}
+			for (Term subterm : subterms) {
+				collectVariables(subterm, variables);
+			}
+		}
+	}
+
+	/**
+	 * Size, variables and whether a term may be replaced.
+	 */
+	private static class TermSummary {
+
+		private int size = 1;
+
+		private Set<String> variables = new HashSet<String>();
+
+		private boolean replaceable;
+	}
+
+	private static class Occurrences {
+
+		private Term term;
+
+		private int size;
+
+		private int count;
+
+		public Occurrences(Term term, int size) {
+			this.term = term;
+			this.size = size;
+		}
+	}
+
+}
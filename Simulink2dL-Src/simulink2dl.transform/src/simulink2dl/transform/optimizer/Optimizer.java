@@ -28,6 +28,9 @@
  ******************************************************************************/
 package simulink2dl.transform.optimizer;
 
+import java.util.List;
+import java.util.ListIterator;
+
 import simulink2dl.dlmodel.hybridprogram.ContinuousEvolution;
 import simulink2dl.dlmodel.hybridprogram.DebugString;
 import simulink2dl.dlmodel.hybridprogram.DiscreteAssignment;
@@ -45,6 +48,7 @@ import simulink2dl.dlmodel.operator.formula.Disjunction;
 import simulink2dl.dlmodel.operator.formula.Formula;
 import simulink2dl.dlmodel.operator.formula.Negation;
 import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.SharedFormula;
 import simulink2dl.dlmodel.operator.formula.StringFormula;
 import simulink2dl.transform.dlmodel.DLModelSimulink;
 import simulink2dl.transform.dlmodel.hybridprogram.ConditionalChoice;
@@ -67,6 +71,10 @@ public abstract class Optimizer {
 		// default hybrid programs
 		if (program instanceof ContinuousEvolution) {
 			ContinuousEvolution continuousEvolution = (ContinuousEvolution) program;
+			if (continuousEvolution.getEvolutionDomain() instanceof SharedFormula) {
+				continuousEvolution.setEvolutionDomain(
+						((SharedFormula) continuousEvolution.getEvolutionDomain()).getFormula().createDeepCopy());
+			}
 			// handle formula
 			handleFormula(continuousEvolution.getEvolutionDomain());
 			// handle program
@@ -152,6 +160,7 @@ public abstract class Optimizer {
 		// default formulas
 		if (formula instanceof Conjunction) {
 			Conjunction conjunction = (Conjunction) formula;
+			unwrapSharedFormulas(conjunction.getElements());
 			// recursive call
 			for (Operator elementOperator : conjunction.getElements()) {
 				Formula element = (Formula) elementOperator;
@@ -161,6 +170,7 @@ public abstract class Optimizer {
 			handleConjunctionFormula(conjunction);
 		} else if (formula instanceof Disjunction) {
 			Disjunction disjunction = (Disjunction) formula;
+			unwrapSharedFormulas(disjunction.getElements());
 			// recursive call
 			for (Operator elementOperator : disjunction.getElements()) {
 				Formula element = (Formula) elementOperator;
@@ -184,6 +194,11 @@ public abstract class Optimizer {
 		} else if (formula instanceof StringFormula) {
 			// no recursive call
 			// no handling
+		} else if (formula instanceof SharedFormula) {
+			// no recursive call, shared formulas are not modified, the
+			// shared formulas in conjunctions, disjunctions and evolution
+			// domains are replaced by copies before
+			// no handling
 		} else
 
 		// error case, not handled instance of a formula
@@ -192,6 +207,20 @@ public abstract class Optimizer {
 		}
 	}
 
+	/**
+	 * Replaces the shared formulas among the given elements by copies of the
+	 * formulas they refer to. The optimizers compare the elements with each other
+	 * and change them, so they work on formulas that are not shared.
+	 */
+	private static void unwrapSharedFormulas(List<Operator> elements) {
+		for (ListIterator<Operator> iterator = elements.listIterator(); iterator.hasNext();) {
+			Operator element = iterator.next();
+			if (element instanceof SharedFormula) {
+				iterator.set(((SharedFormula) element).getFormula().createDeepCopy());
+			}
+		}
+	}
+
 	protected void handleContinuousEvolution(ContinuousEvolution conEvolution) {
 		// do nothing
 	}
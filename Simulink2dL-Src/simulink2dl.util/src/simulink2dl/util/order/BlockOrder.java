@@ -35,8 +35,11 @@ import java.util.Set;
 
 import org.conqat.lib.commons.collections.UnmodifiableCollection;
 import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkLine;
 
 import simulink2dl.util.PluginLogger;
+import simulink2dl.util.simulink_transformer.ConnectivityIndex;
 
 public class BlockOrder {
 
@@ -64,14 +67,33 @@ public class BlockOrder {
 	 */
 	public List<SimulinkBlock> generateBlockOrder(UnmodifiableCollection<SimulinkBlock> unmodifiableCollection,
 			Set<SimulinkBlock> unsortedBlocks) {
+		return generateBlockOrder(unmodifiableCollection, unsortedBlocks, null);
+	}
+
+	/**
+	 * Creates a list that defines the order of the transformation of blocks. The
+	 * predecessors of blocks are looked up in the given connectivity index, so
+	 * that signals routed via Goto and From blocks are considered. If no index is
+	 * given, the signal lines of the blocks are used.
+	 * 
+	 * @param unmodifiableCollection
+	 * @param unsortedBlocks         to return the unsorted blocks
+	 * @param connectivityIndex      index to look up predecessors, may be null
+	 * @return
+	 */
+	public List<SimulinkBlock> generateBlockOrder(UnmodifiableCollection<SimulinkBlock> unmodifiableCollection,
+			Set<SimulinkBlock> unsortedBlocks, ConnectivityIndex connectivityIndex) {
 		Set<SimulinkBlock> unsorted = new HashSet<SimulinkBlock>();
 		Set<SimulinkBlock> unsortedRev = new HashSet<SimulinkBlock>();
 		List<SimulinkBlock> sorted = new LinkedList<SimulinkBlock>();
+		// contains the same blocks as sorted for constant time lookups
+		Set<SimulinkBlock> processed = new HashSet<SimulinkBlock>();
 
 		// start with source blocks without input
 		for (SimulinkBlock block : unmodifiableCollection) {
 			if (block.getInPorts().isEmpty()) {
 				sorted.add(block);
+				processed.add(block);
 			} else {
 				unsorted.add(block);
 			}
@@ -86,9 +108,10 @@ public class BlockOrder {
 			}
 			unsorted.clear();
 			for (SimulinkBlock block : unsortedRev) {
-				boolean allPredeccesorsAvailable = specialBlockChecking(block, sorted);
+				boolean allPredeccesorsAvailable = specialBlockChecking(block, processed, connectivityIndex);
 				if (allPredeccesorsAvailable) {
 					sorted.add(block);
+					processed.add(block);
 				} else {
 					unsorted.add(block);
 				}
@@ -112,14 +135,20 @@ public class BlockOrder {
 	 * 
 	 * @param block
 	 * @param processedBlocks
+	 * @param connectivityIndex
 	 * @return
 	 */
-	private boolean specialBlockChecking(SimulinkBlock block, List<SimulinkBlock> processedBlocks) {
+	private boolean specialBlockChecking(SimulinkBlock block, Set<SimulinkBlock> processedBlocks,
+			ConnectivityIndex connectivityIndex) {
 
 		boolean allPredeccesorsAvailable = true;
 		// every predecessor has to be checked
-		for (int i = 0; i < block.getInPorts().size(); i++) {
-			SimulinkBlock srcBlock = block.getInLines().get(i).getSrcPort().getBlock();
+		for (SimulinkInPort inPort : block.getInPorts()) {
+			SimulinkBlock srcBlock = getSourceBlock(inPort, connectivityIndex);
+			if (srcBlock == null) {
+				// unconnected input ports do not depend on other blocks
+				continue;
+			}
 			// if srcblock is not in sorted AND is no "last Block"
 			if (!(processedBlocks.contains(srcBlock))) {
 				if (!lastBlocks.contains(srcBlock.getType())) {
@@ -131,4 +160,15 @@ public class BlockOrder {
 		return allPredeccesorsAvailable;
 	}
 
+	private SimulinkBlock getSourceBlock(SimulinkInPort inPort, ConnectivityIndex connectivityIndex) {
+		if (connectivityIndex != null) {
+			return connectivityIndex.getSourceBlock(inPort);
+		}
+		SimulinkLine line = inPort.getLine();
+		if (line == null || line.getSrcPort() == null) {
+			return null;
+		}
+		return line.getSrcPort().getBlock();
+	}
+
 }
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class splits the label of a Stateflow state or transition into its
+ * parts. State labels consist of the state name followed by entry, during and
+ * exit actions (e.g. "On\nentry: y = 1;\nduring: y = y + 1;"). Transition
+ * labels have the form "event[condition]{conditionAction}/transitionAction",
+ * where all parts are optional.
+ * 
+ * Actions are returned as single statements, e.g. "y = y + 1".
+ */
+public class StateflowLabel {
+
+	/**
+	 * Matches the keywords that start an action section of a state label, e.g.
+	 * "entry:", "du:" or "en, du:".
+	 */
+	private static final Pattern ACTION_KEYWORDS = Pattern
+			.compile("(?:^|[\\s;,])((?:(?:entry|en|during|du|exit|ex)\\s*,\\s*)*(?:entry|en|during|du|exit|ex|on\\s+[^:]+|bind))\\s*:");
+
+	private String name = "";
+
+	private String event = "";
+
+	private String condition = "";
+
+	private List<String> entryActions = new ArrayList<String>();
+
+	private List<String> duringActions = new ArrayList<String>();
+
+	private List<String> exitActions = new ArrayList<String>();
+
+	private List<String> conditionActions = new ArrayList<String>();
+
+	private List<String> transitionActions = new ArrayList<String>();
+
+	private boolean hasUnsupportedActions = false;
+
+	private StateflowLabel() {
+	}
+
+	/**
+	 * Parses the label of a state.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public static StateflowLabel parseStateLabel(String label) {
+		StateflowLabel result = new StateflowLabel();
+		String text = removeComments(label == null ? "" : label);
+
+		// the name is terminated by the first whitespace or slash
+		int nameEnd = 0;
+		while (nameEnd < text.length() && !Character.isWhitespace(text.charAt(nameEnd))
+				&& text.charAt(nameEnd) != '/') {
+			nameEnd++;
+		}
+		result.name = text.substring(0, nameEnd);
+		String actions = text.substring(nameEnd).trim();
+		if (actions.startsWith("/")) {
+			actions = actions.substring(1);
+		}
+
+		// actions before the first keyword are entry actions
+		Matcher matcher = ACTION_KEYWORDS.matcher(actions);
+		List<List<String>> currentSections = new ArrayList<List<String>>();
+		currentSections.add(result.entryActions);
+		int sectionStart = 0;
+		while (matcher.find()) {
+			addToSections(splitActions(actions.substring(sectionStart, matcher.start(1))), currentSections);
+			currentSections = result.getSections(matcher.group(1));
+			sectionStart = matcher.end();
+		}
+		addToSections(splitActions(actions.substring(sectionStart)), currentSections);
+		return result;
+	}
+
+	private static void addToSections(List<String> actions, List<List<String>> sections) {
+		for (List<String> section : sections) {
+			section.addAll(actions);
+		}
+	}
+
+	/**
+	 * Parses the label of a transition.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public static StateflowLabel parseTransitionLabel(String label) {
+		StateflowLabel result = new StateflowLabel();
+		String text = removeComments(label == null ? "" : label).trim();
+
+		int position = 0;
+		while (position < text.length() && "[{/".indexOf(text.charAt(position)) < 0) {
+			// skip the arguments of temporal operators such as "after(2, tick)"
+			if (text.charAt(position) == '(') {
+				position = findClosing(text, position, '(', ')');
+			}
+			position++;
+		}
+		result.event = text.substring(0, Math.min(position, text.length())).trim();
+
+		if (position < text.length() && text.charAt(position) == '[') {
+			int end = findClosing(text, position, '[', ']');
+			result.condition = text.substring(position + 1, end).trim();
+			position = end + 1;
+		}
+		position = skipWhitespace(text, position);
+
+		if (position < text.length() && text.charAt(position) == '{') {
+			int end = findClosing(text, position, '{', '}');
+			result.conditionActions.addAll(splitActions(text.substring(position + 1, end)));
+			position = end + 1;
+		}
+		position = skipWhitespace(text, position);
+
+		if (position < text.length() && text.charAt(position) == '/') {
+			String actions = text.substring(position + 1).trim();
+			if (actions.startsWith("{") && actions.endsWith("}")) {
+				actions = actions.substring(1, actions.length() - 1);
+			}
+			result.transitionActions.addAll(splitActions(actions));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the action lists for the given keywords, e.g. the entry and during
+	 * actions for "en, du".
+	 */
+	private List<List<String>> getSections(String keywords) {
+		List<List<String>> sections = new ArrayList<List<String>>();
+		if (keywords.startsWith("on") || keywords.startsWith("bind")) {
+			hasUnsupportedActions = true;
+			return sections;
+		}
+		for (String keyword : keywords.split(",")) {
+			keyword = keyword.trim();
+			if (keyword.startsWith("du")) {
+				sections.add(duringActions);
+			} else if (keyword.startsWith("ex")) {
+				sections.add(exitActions);
+			} else {
+				sections.add(entryActions);
+			}
+		}
+		return sections;
+	}
+
+	/**
+	 * Splits the given actions into single statements.
+	 */
+	private static List<String> splitActions(String actions) {
+		List<String> statements = new ArrayList<String>();
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i <= actions.length(); i++) {
+			char c = i < actions.length() ? actions.charAt(i) : ';';
+			if (c == '(' || c == '[' || c == '{') {
+				depth++;
+			} else if (c == ')' || c == ']' || c == '}') {
+				depth--;
+			} else if (depth == 0 && (c == ';' || c == ',' || c == '\n')) {
+				String statement = actions.substring(start, Math.min(i, actions.length())).trim();
+				if (!statement.isEmpty()) {
+					statements.add(statement);
+				}
+				start = i + 1;
+			}
+		}
+		return statements;
+	}
+
+	private static String removeComments(String text) {
+		return text.replaceAll("(%|//)[^\\n]*", "").replaceAll("/\\*.*?\\*/", "");
+	}
+
+	private static int findClosing(String text, int open, char openChar, char closeChar) {
+		int depth = 0;
+		for (int i = open; i < text.length(); i++) {
+			if (text.charAt(i) == openChar) {
+				depth++;
+			} else if (text.charAt(i) == closeChar) {
+				depth--;
+				if (depth == 0) {
+					return i;
+				}
+			}
+		}
+		return text.length() - 1;
+	}
+
+	private static int skipWhitespace(String text, int position) {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the name of the state.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the triggering event or temporal operator of the transition, or
+	 * an empty String if the transition is not triggered by an event.
+	 */
+	public String getEvent() {
+		return event;
+	}
+
+	/**
+	 * Returns the condition of the transition, or an empty String if the
+	 * transition has no condition.
+	 */
+	public String getCondition() {
+		return condition;
+	}
+
+	public List<String> getEntryActions() {
+		return entryActions;
+	}
+
+	public List<String> getDuringActions() {
+		return duringActions;
+	}
+
+	public List<String> getExitActions() {
+		return exitActions;
+	}
+
+	public List<String> getConditionActions() {
+		return conditionActions;
+	}
+
+	public List<String> getTransitionActions() {
+		return transitionActions;
+	}
+
+	/**
+	 * Returns true if the label contains actions that are bound to events
+	 * ("on event:") or "bind:" sections, which are ignored.
+	 */
+	public boolean hasUnsupportedActions() {
+		return hasUnsupportedActions;
+	}
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import simulink2dl.dlmodel.operator.formula.BooleanConstant;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.dlmodel.term.Term;
+
+/**
+ * This parser takes a boolean expression in Matlab or C notation (e.g. the
+ * condition of a Stateflow transition "x > 5 && !(y == 0)") and returns a
+ * representation as dL-Model Formula. The arithmetic operands are parsed by
+ * {@link StringToTerm}, operands without relational operator are compared to
+ * zero.
+ */
+public class StringToFormula {
+
+	/**
+	 * Relational operators ordered such that operators that are a prefix of
+	 * another operator are tested last.
+	 */
+	private static final String[] RELATION_OPERATORS = { "==", "~=", "!=", "<=", ">=", "<", ">" };
+
+	private static final RelationType[] RELATION_TYPES = { RelationType.EQUAL, RelationType.NOT_EQUAL,
+			RelationType.NOT_EQUAL, RelationType.LESS_EQUAL, RelationType.GREATER_EQUAL, RelationType.LESS_THAN,
+			RelationType.GREATER_THAN };
+
+	/**
+	 * Parses the given String and returns a representation as
+	 * simulink2dl.dlmodel.operator.formula.Formula
+	 * 
+	 * @param toParse
+	 * @return
+	 */
+	public static Formula parseString(String toParse) {
+		return parse(toParse, null);
+	}
+
+	/**
+	 * Parses the given String like {@link #parseString(String)}, but replaces the
+	 * identifiers in the operands by copies of the given terms. An
+	 * IllegalArgumentException is thrown if an operand cannot be parsed or
+	 * contains other identifiers or function calls.
+	 * 
+	 * @param toParse
+	 * @param identifiers
+	 * @return
+	 */
+	public static Formula parseString(String toParse, Map<String, ? extends Term> identifiers) {
+		return parse(toParse, identifiers);
+	}
+
+	private static Formula parse(String toParse, Map<String, ? extends Term> identifiers) {
+		String expression = toParse.trim();
+
+		List<String> disjuncts = splitTopLevel(expression, "||");
+		if (disjuncts.size() > 1) {
+			Disjunction disjunction = new Disjunction();
+			for (String disjunct : disjuncts) {
+				disjunction.addElement(parse(disjunct, identifiers));
+			}
+			return disjunction;
+		}
+
+		List<String> conjuncts = splitTopLevel(expression, "&&");
+		if (conjuncts.size() > 1) {
+			Conjunction conjunction = new Conjunction();
+			for (String conjunct : conjuncts) {
+				conjunction.addElement(parse(conjunct, identifiers));
+			}
+			return conjunction;
+		}
+
+		if ((expression.startsWith("!") || expression.startsWith("~")) && !expression.startsWith("!=")
+				&& !expression.startsWith("~=")) {
+			return parse(expression.substring(1), identifiers).createNegation();
+		}
+
+		if (isEnclosed(expression)) {
+			return parse(expression.substring(1, expression.length() - 1), identifiers);
+		}
+
+		if (expression.equals("true")) {
+			return new BooleanConstant(true);
+		}
+		if (expression.equals("false")) {
+			return new BooleanConstant(false);
+		}
+
+		return parseRelation(expression, identifiers);
+	}
+
+	/**
+	 * Parses a relation of two arithmetic terms. A single term is compared to zero.
+	 */
+	private static Formula parseRelation(String expression, Map<String, ? extends Term> identifiers) {
+		int depth = 0;
+		for (int i = 0; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0) {
+				for (int j = 0; j < RELATION_OPERATORS.length; j++) {
+					if (expression.startsWith(RELATION_OPERATORS[j], i)) {
+						String left = expression.substring(0, i);
+						String right = expression.substring(i + RELATION_OPERATORS[j].length());
+						return new Relation(parseTerm(left, identifiers), RELATION_TYPES[j],
+								parseTerm(right, identifiers));
+					}
+				}
+			}
+		}
+		return new Relation(parseTerm(expression, identifiers), RelationType.NOT_EQUAL, new RealTerm(0.0));
+	}
+
+	private static Term parseTerm(String expression, Map<String, ? extends Term> identifiers) {
+		if (identifiers == null) {
+			return StringToTerm.parseString(expression);
+		}
+		return StringToTerm.parseString(expression, identifiers);
+	}
+
+	/**
+	 * Splits the given expression at all occurrences of the separator that are
+	 * not enclosed in parentheses.
+	 */
+	private static List<String> splitTopLevel(String expression, String separator) {
+		List<String> parts = new ArrayList<String>();
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0 && expression.startsWith(separator, i)) {
+				parts.add(expression.substring(start, i));
+				i += separator.length() - 1;
+				start = i + 1;
+			}
+		}
+		parts.add(expression.substring(start));
+		return parts;
+	}
+
+	/**
+	 * Returns true if the whole expression is enclosed in a single pair of
+	 * parentheses.
+	 */
+	private static boolean isEnclosed(String expression) {
+		if (!expression.startsWith("(") || !expression.endsWith(")")) {
+			return false;
+		}
+		int depth = 0;
+		for (int i = 0; i < expression.length() - 1; i++) {
+			char c = expression.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			}
+			if (depth == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
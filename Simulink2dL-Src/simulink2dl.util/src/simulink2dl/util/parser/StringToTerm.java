@@ -28,13 +28,19 @@
  ******************************************************************************/
 package simulink2dl.util.parser;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import simulink2dl.dlmodel.term.AdditionTerm;
 import simulink2dl.dlmodel.term.BracketTerm;
 import simulink2dl.dlmodel.term.ExponentTerm;
+import simulink2dl.dlmodel.term.FunctionTerm;
 import simulink2dl.dlmodel.term.MultiplicationTerm;
 import simulink2dl.dlmodel.term.PortIdentifier;
 import simulink2dl.dlmodel.term.RealTerm;
-import simulink2dl.dlmodel.term.ReplaceableTerm;
 import simulink2dl.dlmodel.term.StringTerm;
 import simulink2dl.dlmodel.term.Term;
 import simulink2dl.util.PluginLogger;
@@ -43,11 +49,42 @@ import simulink2dl.util.PluginLogger;
  * This parser takes a String and returns a representation of the content as a
  * dL-Model Term (simulink2dl.dlmodel).
  * 
+ * The String is split into tokens once and parsed by a Pratt parser, i.e. each
+ * operator binds its operands according to its binding power. Results are
+ * cached, since the same parameter strings (e.g. workspace constants) are used
+ * by many blocks.
+ * 
  * @author Timm Liebrenz
  *
  */
 public class StringToTerm {
 
+	/**
+	 * Maximum number of parsed Strings that are kept in the cache.
+	 */
+	private static final int CACHE_SIZE = 4096;
+
+	private static final Map<String, Term> cache = Collections
+			.synchronizedMap(new LinkedHashMap<String, Term>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Term> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	/**
+	 * Binding powers of the operators, higher values bind stronger. Unary minus
+	 * binds stronger than multiplication but weaker than exponentiation, i.e.
+	 * "-a^2" is parsed as "-(a^2)".
+	 */
+	private static final int BINDING_ADDITION = 10;
+	private static final int BINDING_MULTIPLICATION = 20;
+	private static final int BINDING_UNARY = 25;
+	private static final int BINDING_EXPONENT = 30;
+
 	/**
 	 * For debugging purpose
 	 * 
@@ -70,345 +107,305 @@ public class StringToTerm {
 	 * @return
 	 */
 	public static Term parseString(String toParse) {
-
-		// pre-processing
-		toParse = removeWhitespaces(toParse);
-
-		// parse string
-		return parseInternal(toParse);
+		Term cached = cache.get(toParse);
+		if (cached == null) {
+			cached = parseInternal(toParse);
+			cache.put(toParse, cached);
+		}
+		// terms are modified by macro replacement, return a copy
+		return cached.createDeepCopy();
 	}
 
-	private static String removeWhitespaces(String toParse) {
-		return toParse.replace(" ", "");
+	/**
+	 * Parses the given String like {@link #parseString(String)}, but replaces the
+	 * identifiers by copies of the given terms. Instead of returning the unparsed
+	 * String, an IllegalArgumentException is thrown if the String cannot be
+	 * parsed or contains other identifiers or function calls. The result is not
+	 * cached.
+	 * 
+	 * @param toParse
+	 * @param identifiers
+	 * @return
+	 */
+	public static Term parseString(String toParse, Map<String, ? extends Term> identifiers) {
+		return parse(toParse, identifiers);
 	}
 
-	private enum Operator {
-		SIMPLE, BRACKET, ADDITION, MULTIPLICATION, EXPONENT
+	/**
+	 * Removes all parsed Strings from the cache.
+	 */
+	public static void clearCache() {
+		cache.clear();
 	}
 
 	private static Term parseInternal(String toParse) {
-		Operator operator = getOuterOperator(toParse);
-
-		switch (operator) {
-		case SIMPLE:
-			return parseSimple(toParse);
-		case BRACKET:
-			return parseBracket(toParse);
-		case ADDITION:
-			return parseAddition(toParse);
-		case MULTIPLICATION:
-			return parseMultiplication(toParse);
-		case EXPONENT:
-			return parseExponent(toParse);
-		default:
-			PluginLogger.error("cannot parse String to Term: " + toParse);
-			return new StringTerm(toParse);
+		try {
+			return parse(toParse, null);
+		} catch (IllegalArgumentException e) {
+			PluginLogger.error("cannot parse String to Term: " + toParse + " (" + e.getMessage() + ")");
+			return new StringTerm(toParse.replace(" ", ""));
 		}
-
 	}
 
-	private static Operator getOuterOperator(String toParse) {
-		Operator result = Operator.SIMPLE;
-		if (toParse.startsWith("(")) {
-			result = Operator.BRACKET;
+	/**
+	 * Parses the given String, all identifiers and functions are accepted if the
+	 * given identifiers are null.
+	 */
+	private static Term parse(String toParse, Map<String, ? extends Term> identifiers) {
+		Parser parser = new Parser(tokenize(toParse), identifiers);
+		Term result = parser.parseExpression(0);
+		if (parser.peek().type != TokenType.END) {
+			throw new IllegalArgumentException("unexpected '" + parser.peek().text + "'");
 		}
+		return result;
+	}
+
+	private enum TokenType {
+		NUMBER, IDENTIFIER, PORT, PLUS, MINUS, TIMES, DIVIDE, POWER, LEFT_PAREN, RIGHT_PAREN, COMMA, END
+	}
 
-		int level = 0;
+	private static class Token {
 
-		for (int i = 0; i < toParse.length(); i++) {
-			char c = toParse.charAt(i);
+		private TokenType type;
+
+		private String text;
 
-			if (level == 0) {
+		public Token(TokenType type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Splits the given String into tokens. Numbers may use scientific notation,
+	 * the element-wise operators ".*", "./" and ".^" of Matlab are treated like
+	 * their scalar counterparts.
+	 */
+	private static List<Token> tokenize(String toParse) {
+		List<Token> tokens = new ArrayList<Token>();
+		int i = 0;
+		while (i < toParse.length()) {
+			char c = toParse.charAt(i);
+			int start = i;
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (isDigit(c) || (c == '.' && i + 1 < toParse.length() && isDigit(toParse.charAt(i + 1)))) {
+				while (i < toParse.length() && (isDigit(toParse.charAt(i)) || toParse.charAt(i) == '.')) {
+					i++;
+				}
+				// exponent of scientific notation
+				if (i < toParse.length() && (toParse.charAt(i) == 'e' || toParse.charAt(i) == 'E')) {
+					int exponent = i + 1;
+					if (exponent < toParse.length()
+							&& (toParse.charAt(exponent) == '+' || toParse.charAt(exponent) == '-')) {
+						exponent++;
+					}
+					if (exponent < toParse.length() && isDigit(toParse.charAt(exponent))) {
+						i = exponent;
+						while (i < toParse.length() && isDigit(toParse.charAt(i))) {
+							i++;
+						}
+					}
+				}
+				tokens.add(new Token(TokenType.NUMBER, toParse.substring(start, i)));
+			} else if (Character.isLetter(c) || c == '_' || c == '#') {
+				i++;
+				while (i < toParse.length() && (Character.isLetterOrDigit(toParse.charAt(i))
+						|| toParse.charAt(i) == '_' || isFieldAccess(toParse, i))) {
+					i++;
+				}
+				tokens.add(new Token(c == '#' ? TokenType.PORT : TokenType.IDENTIFIER, toParse.substring(start, i)));
+			} else {
+				if (c == '.' && i + 1 < toParse.length()) {
+					// element-wise operator
+					i++;
+					c = toParse.charAt(i);
+				}
+				i++;
 				switch (c) {
-				case '(':
-					level++;
-					break;
 				case '+':
+					tokens.add(new Token(TokenType.PLUS, "+"));
+					break;
 				case '-':
-					result = Operator.ADDITION;
+					tokens.add(new Token(TokenType.MINUS, "-"));
 					break;
 				case '*':
+					tokens.add(new Token(TokenType.TIMES, "*"));
+					break;
 				case '/':
-					if (result != Operator.ADDITION) {
-						result = Operator.MULTIPLICATION;
-					}
+					tokens.add(new Token(TokenType.DIVIDE, "/"));
 					break;
 				case '^':
-					if (result != Operator.ADDITION | result != Operator.MULTIPLICATION) {
-						result = Operator.EXPONENT;
-					}
+					tokens.add(new Token(TokenType.POWER, "^"));
 					break;
-				default:
-					// empty
-				}
-			} else {
-				// ignore everything in brackets
-				switch (c) {
 				case '(':
-					level++;
+					tokens.add(new Token(TokenType.LEFT_PAREN, "("));
 					break;
 				case ')':
-					level--;
+					tokens.add(new Token(TokenType.RIGHT_PAREN, ")"));
+					break;
+				case ',':
+					tokens.add(new Token(TokenType.COMMA, ","));
 					break;
 				default:
-					// empty
+					throw new IllegalArgumentException("unexpected character '" + c + "'");
 				}
 			}
 		}
+		tokens.add(new Token(TokenType.END, ""));
+		return tokens;
+	}
 
-		return result;
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
 	}
 
-	private static BracketTerm parseBracket(String toParse) {
-		return new BracketTerm(parseInternal(toParse.substring(1, toParse.length() - 1)));
+	/**
+	 * Returns true if the '.' at the given position accesses a field of a
+	 * structure, e.g. "params.K".
+	 */
+	private static boolean isFieldAccess(String toParse, int i) {
+		return toParse.charAt(i) == '.' && i + 1 < toParse.length() && Character.isLetter(toParse.charAt(i + 1));
 	}
 
-	private static AdditionTerm parseAddition(String toParse) {
-		AdditionTerm result = new AdditionTerm();
+	private static class Parser {
 
-		int i = 0;
-		boolean subtract = false;
+		private List<Token> tokens;
 
-		if (toParse.startsWith("-")) {
-			subtract = true;
-			i++;
-		}
-
-		int currentStart = i;
-		int level = 0;
+		private Map<String, ? extends Term> identifiers;
 
-		for (; i < toParse.length(); i++) {
-			char c = toParse.charAt(i);
+		private int position = 0;
 
-			if (level == 0) {
-				switch (c) {
-				case '(':
-					level++;
-					break;
-				case '+':
-					if (subtract) {
-						result.subtract(parseInternal(toParse.substring(currentStart, i)));
-					} else {
-						result.add(parseInternal(toParse.substring(currentStart, i)));
-					}
-					currentStart = i + 1;
-					subtract = false;
-					break;
-				case '-':
-					if (subtract) {
-						result.subtract(parseInternal(toParse.substring(currentStart, i)));
-					} else {
-						result.add(parseInternal(toParse.substring(currentStart, i)));
-					}
-					currentStart = i + 1;
-					subtract = true;
-					break;
-				default:
-					// empty
-				}
-			} else {
-				// ignore everything in brackets
-				switch (c) {
-				case '(':
-					level++;
-					break;
-				case ')':
-					level--;
-					break;
-				default:
-					// empty
-				}
-			}
+		public Parser(List<Token> tokens, Map<String, ? extends Term> identifiers) {
+			this.tokens = tokens;
+			this.identifiers = identifiers;
 		}
 
-		// add last element
-		if (subtract) {
-			result.subtract(parseInternal(toParse.substring(currentStart, i)));
-		} else {
-			result.add(parseInternal(toParse.substring(currentStart, i)));
+		private Token peek() {
+			return tokens.get(position);
 		}
-		return result;
-	}
-
-	private static MultiplicationTerm parseMultiplication(String toParse) {
-		MultiplicationTerm result = new MultiplicationTerm();
 
-		int i = 0;
-		boolean divide = false;
-
-		int currentStart = i;
-		int level = 0;
+		private Token next() {
+			return tokens.get(position++);
+		}
 
-		for (; i < toParse.length(); i++) {
-			char c = toParse.charAt(i);
+		private void expect(TokenType type, String text) {
+			if (next().type != type) {
+				throw new IllegalArgumentException("expected '" + text + "'");
+			}
+		}
 
-			if (level == 0) {
-				switch (c) {
-				case '(':
-					level++;
-					break;
-				case '*':
-					if (divide) {
-						result.dividedBy(parseInternal(toParse.substring(currentStart, i)));
+		/**
+		 * Parses operators that bind stronger than the given binding power.
+		 * Sequences of additions or multiplications are collected in a single
+		 * AdditionTerm or MultiplicationTerm.
+		 */
+		private Term parseExpression(int rightBindingPower) {
+			Term left = parsePrefix();
+			// a leading unary minus starts the sum, as in "-a+b"
+			Term chain = left instanceof AdditionTerm ? left : null;
+
+			while (rightBindingPower < getBindingPower(peek().type)) {
+				Token operator = next();
+				switch (operator.type) {
+				case PLUS:
+				case MINUS:
+					Term summand = parseExpression(BINDING_ADDITION);
+					if (!(chain instanceof AdditionTerm)) {
+						chain = new AdditionTerm(left);
+					}
+					if (operator.type == TokenType.PLUS) {
+						((AdditionTerm) chain).add(summand);
 					} else {
-						result.multiplyBy(parseInternal(toParse.substring(currentStart, i)));
+						((AdditionTerm) chain).subtract(summand);
 					}
-					currentStart = i + 1;
-					divide = false;
 					break;
-				case '/':
-					if (divide) {
-						result.dividedBy(parseInternal(toParse.substring(currentStart, i)));
+				case TIMES:
+				case DIVIDE:
+					Term factor = parseExpression(BINDING_MULTIPLICATION);
+					if (!(chain instanceof MultiplicationTerm)) {
+						chain = new MultiplicationTerm(left);
+					}
+					if (operator.type == TokenType.TIMES) {
+						((MultiplicationTerm) chain).multiplyBy(factor);
 					} else {
-						result.multiplyBy(parseInternal(toParse.substring(currentStart, i)));
+						((MultiplicationTerm) chain).dividedBy(factor);
 					}
-					currentStart = i + 1;
-					divide = true;
 					break;
 				default:
-					// empty
-				}
-			} else {
-				// ignore everything in brackets
-				switch (c) {
-				case '(':
-					level++;
+					// exponentiation is right associative
+					chain = new ExponentTerm(left, parseExpression(BINDING_EXPONENT - 1));
 					break;
-				case ')':
-					level--;
-					break;
-				default:
-					// empty
 				}
+				left = chain;
 			}
+			return left;
 		}
 
-		// add last element
-		if (divide) {
-			result.dividedBy(parseInternal(toParse.substring(currentStart, i)));
-		} else {
-			result.multiplyBy(parseInternal(toParse.substring(currentStart, i)));
-		}
-		return result;
-	}
-
-	private static ExponentTerm parseExponent(String toParse) {
-		ExponentTerm result = new ExponentTerm();
-
-		int i = 0;
-		boolean base = true;
-
-		int currentStart = i;
-		int level = 0;
-
-		for (; i < toParse.length(); i++) {
-			char c = toParse.charAt(i);
-
-			if (level == 0) {
-				switch (c) {
-				case '(':
-					level++;
-					break;
-				case '^':
-					if (base) {
-						result.setBase(parseInternal(toParse.substring(currentStart, i)));
-					} else {
-						result.powerOf(parseInternal(toParse.substring(currentStart, i)));
+		private Term parsePrefix() {
+			Token token = next();
+			switch (token.type) {
+			case NUMBER:
+				return new RealTerm(Double.parseDouble(token.text));
+			case PORT:
+				return new PortIdentifier(token.text);
+			case IDENTIFIER:
+				if (identifiers != null) {
+					Term term = identifiers.get(token.text);
+					if (term == null) {
+						throw new IllegalArgumentException("unknown identifier '" + token.text + "'");
 					}
-					currentStart = i + 1;
-					base = false;
-					break;
-				default:
-					// empty
+					return term.createDeepCopy();
 				}
-			} else {
-				// ignore everything in brackets
-				switch (c) {
-				case '(':
-					level++;
-					break;
-				case ')':
-					level--;
-					break;
-				default:
-					// empty
+				if (peek().type == TokenType.LEFT_PAREN) {
+					return parseFunction(token.text);
+				}
+				return new StringTerm(token.text);
+			case LEFT_PAREN:
+				Term inner = parseExpression(0);
+				expect(TokenType.RIGHT_PAREN, ")");
+				return new BracketTerm(inner);
+			case PLUS:
+				return parseExpression(BINDING_UNARY);
+			case MINUS:
+				if (peek().type == TokenType.NUMBER && tokens.get(position + 1).type != TokenType.POWER) {
+					return new RealTerm(-Double.parseDouble(next().text));
 				}
+				return new AdditionTerm().subtract(parseExpression(BINDING_UNARY));
+			default:
+				throw new IllegalArgumentException(
+						token.type == TokenType.END ? "unexpected end" : "unexpected '" + token.text + "'");
 			}
 		}
 
-		// add last element
-		if (base) {
-			result.setBase(parseInternal(toParse.substring(currentStart, i)));
-		} else {
-			result.powerOf(parseInternal(toParse.substring(currentStart, i)));
-		}
-		return result;
-	}
-
-	private static Term parseSimple(String toParse) {
-		if (isRealNumber(toParse)) {
-			double real = Double.parseDouble(toParse);
-			return new RealTerm(real);
-		} else if (isReplaceable(toParse)) {
-			ReplaceableTerm result;
-			return new PortIdentifier(toParse);
+		private FunctionTerm parseFunction(String name) {
+			expect(TokenType.LEFT_PAREN, "(");
+			List<Term> arguments = new ArrayList<Term>();
+			if (peek().type != TokenType.RIGHT_PAREN) {
+				arguments.add(parseExpression(0));
+				while (peek().type == TokenType.COMMA) {
+					next();
+					arguments.add(parseExpression(0));
+				}
+			}
+			expect(TokenType.RIGHT_PAREN, ")");
+			return new FunctionTerm(name, arguments);
 		}
-		PluginLogger.error("Could not parse String: \"" + toParse + "\"");
-		return new StringTerm(toParse);
-	}
 
-	private static boolean isRealNumber(String toParse) {
-		// variable to store the information if a delimiter ('.') is in the
-		// given String
-		boolean delimiterPresent = false;
-		boolean leadingNumber = false;
-		boolean isFirst = true;
-		for (char c : toParse.toCharArray()) {
-			switch (c) {
-			// for digits, continue the analysis
-			case '0':
-			case '1':
-			case '2':
-			case '3':
-			case '4':
-			case '5':
-			case '6':
-			case '7':
-			case '8':
-			case '9':
-				leadingNumber = true;
-				break;
-			// for a delimiter, check if it is the only one
-			case '.':
-				// at least one digit must be in front of the delimiter
-				if (!leadingNumber) {
-					return false;
-				}
-				// only one delimiter is allowed
-				if (!delimiterPresent) {
-					delimiterPresent = true;
-				} else {
-					return false;
-				}
-				break;
-			// the first char can be a sign ('-')
-			case '-':
-				if (!isFirst) {
-					return false;
-				}
-				break;
-			// for all other chars, this is not a number
+		private static int getBindingPower(TokenType type) {
+			switch (type) {
+			case PLUS:
+			case MINUS:
+				return BINDING_ADDITION;
+			case TIMES:
+			case DIVIDE:
+				return BINDING_MULTIPLICATION;
+			case POWER:
+				return BINDING_EXPONENT;
 			default:
-				return false;
+				return -1;
 			}
-			isFirst = false;
 		}
-		// at least one digit must be in the number
-		return leadingNumber;
-	}
-
-	private static boolean isReplaceable(String toParse) {
-		return toParse.startsWith("#");
 	}
 
 }
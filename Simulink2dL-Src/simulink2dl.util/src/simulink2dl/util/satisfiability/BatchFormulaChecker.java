@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.util.PluginLogger;
+import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
+
+/**
+ * Checks the satisfiability of independent formulas concurrently. The formulas
+ * are distributed on a pool of worker threads, each worker owns a
+ * FormulaChecker with its own Z3 context that is reused for all checks of this
+ * worker.
+ * 
+ * Each transformation owns a checker and binds it to the thread that runs the
+ * transformation (see {@link #bind(BatchFormulaChecker)}), the macros get it
+ * with {@link #getCurrent()}. The worker threads and Z3 contexts are released
+ * with {@link #close()}. A closed checker can be used again, it then creates new
+ * workers, which have to be released with another call of close().
+ * 
+ * The number of workers is given by the system property
+ * "simulink2dl.solverThreads" and defaults to the number of available
+ * processors. With the SMT-LIB2 backend, the formulas are distributed on the
+ * processes of the SMTSolverPool instead.
+ */
+public class BatchFormulaChecker {
+
+	private static final int THREAD_COUNT = Integer.getInteger("simulink2dl.solverThreads",
+			Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Checker of the transformation that runs in the current thread.
+	 */
+	private static final ThreadLocal<BatchFormulaChecker> current = new ThreadLocal<BatchFormulaChecker>();
+
+	/**
+	 * Checker for checks outside of a transformation, it does not keep workers.
+	 */
+	private static BatchFormulaChecker unboundChecker;
+
+	private ExecutorService executor;
+
+	/**
+	 * Checker of each thread, each thread uses its own Z3 context.
+	 */
+	private final Map<Thread, FormulaChecker> checkers = new HashMap<Thread, FormulaChecker>();
+
+	/**
+	 * If false, all formulas are checked in the calling thread with a checker that
+	 * is closed after the check.
+	 */
+	private boolean keepWorkers;
+
+	/**
+	 * Budget of all checks of this checker.
+	 */
+	private SolverBudget budget;
+
+	/**
+	 * Creates a checker with the limits of the system properties, see
+	 * SolverBudget.
+	 */
+	public BatchFormulaChecker() {
+		this(new SolverBudget());
+	}
+
+	public BatchFormulaChecker(SolverBudget budget) {
+		this(true, budget);
+	}
+
+	private BatchFormulaChecker(boolean keepWorkers, SolverBudget budget) {
+		this.keepWorkers = keepWorkers;
+		this.budget = budget;
+	}
+
+	/**
+	 * Binds the given checker to the current thread and returns the checker that
+	 * was bound before, which should be bound again afterwards.
+	 * 
+	 * @param checker the checker, null to remove the binding
+	 */
+	public static BatchFormulaChecker bind(BatchFormulaChecker checker) {
+		BatchFormulaChecker previous = current.get();
+		if (checker == null) {
+			current.remove();
+		} else {
+			current.set(checker);
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns the checker that is bound to the current thread. Outside of a
+	 * transformation, a checker without workers and without time limits is
+	 * returned.
+	 */
+	public static BatchFormulaChecker getCurrent() {
+		BatchFormulaChecker checker = current.get();
+		if (checker != null) {
+			return checker;
+		}
+		synchronized (BatchFormulaChecker.class) {
+			if (unboundChecker == null) {
+				unboundChecker = new BatchFormulaChecker(false, new SolverBudget(0, 0));
+			}
+			return unboundChecker;
+		}
+	}
+
+	/**
+	 * Checks the satisfiability of all given formulas and returns the results in
+	 * the order of the formulas. The formulas must not be modified until this
+	 * method returns.
+	 * 
+	 * A check that fails with a RuntimeException yields ResultType.ERROR.
+	 * 
+	 * @param formulas
+	 * @return
+	 */
+	public List<ResultType> checkFormulas(List<? extends Formula> formulas) {
+		if (FormulaChecker.getBackend() == FormulaChecker.Backend.SMTLIB) {
+			// the pool distributes the formulas on its solver processes
+			return SMTSolverPool.getDefault().checkFormulas(formulas, budget);
+		}
+
+		List<ResultType> results = new ArrayList<ResultType>(formulas.size());
+		if (!keepWorkers) {
+			FormulaChecker checker = new FormulaChecker(true, budget);
+			try {
+				for (Formula formula : formulas) {
+					results.add(checkFormula(checker, formula));
+				}
+			} finally {
+				checker.closeZ3Context();
+			}
+			return results;
+		}
+
+		if (formulas.size() <= 1 || THREAD_COUNT <= 1) {
+			// no need to hand over work to other threads
+			for (Formula formula : formulas) {
+				results.add(checkFormula(formula));
+			}
+			return results;
+		}
+
+		List<Future<ResultType>> futures = new ArrayList<Future<ResultType>>(formulas.size());
+		ExecutorService executor = getExecutor();
+		for (Formula formula : formulas) {
+			futures.add(executor.submit(() -> getChecker().checkSingleFormula(formula)));
+		}
+		for (Future<ResultType> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error) {
+					// e.g. missing native Z3 libraries, behave like a sequential check
+					throw (Error) e.getCause();
+				}
+				PluginLogger.error("Satisfiability check failed: " + e.getCause());
+				results.add(ResultType.ERROR);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				results.add(ResultType.ERROR);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Checks the satisfiability of a single formula in the current thread.
+	 * 
+	 * @param formula
+	 * @return
+	 */
+	public ResultType checkFormula(Formula formula) {
+		if (!keepWorkers) {
+			FormulaChecker checker = new FormulaChecker(true, budget);
+			try {
+				return checkFormula(checker, formula);
+			} finally {
+				checker.closeZ3Context();
+			}
+		}
+		return checkFormula(getChecker(), formula);
+	}
+
+	private static ResultType checkFormula(FormulaChecker checker, Formula formula) {
+		try {
+			return checker.checkSingleFormula(formula);
+		} catch (RuntimeException e) {
+			PluginLogger.error("Satisfiability check failed: " + e);
+			return ResultType.ERROR;
+		}
+	}
+
+	/**
+	 * Stops the worker threads and closes the Z3 contexts of all threads that
+	 * used this checker. Must not be called while formulas are checked.
+	 */
+	public void close() {
+		ExecutorService stoppedExecutor;
+		synchronized (this) {
+			stoppedExecutor = executor;
+			executor = null;
+		}
+		if (stoppedExecutor != null) {
+			stoppedExecutor.shutdown();
+			try {
+				stoppedExecutor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (checkers) {
+			for (FormulaChecker checker : checkers.values()) {
+				checker.closeZ3Context();
+			}
+			checkers.clear();
+		}
+	}
+
+	public SolverBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the checker of the current thread.
+	 */
+	private FormulaChecker getChecker() {
+		synchronized (checkers) {
+			FormulaChecker checker = checkers.get(Thread.currentThread());
+			if (checker == null) {
+				checker = new FormulaChecker(true, budget);
+				checkers.put(Thread.currentThread(), checker);
+			}
+			return checker;
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "FormulaChecker-" + count.incrementAndGet());
+					// do not keep the application alive
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+}
@@ -31,6 +31,7 @@ package simulink2dl.util.satisfiability;
 import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
+import com.microsoft.z3.Params;
 import com.microsoft.z3.Solver;
 import com.microsoft.z3.Status;
 
@@ -43,6 +44,7 @@ import simulink2dl.dlmodel.operator.formula.Disjunction;
 import simulink2dl.dlmodel.operator.formula.Formula;
 import simulink2dl.dlmodel.operator.formula.Negation;
 import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.SharedFormula;
 import simulink2dl.dlmodel.operator.formula.StringFormula;
 import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
 import simulink2dl.dlmodel.term.AdditionTerm;
@@ -74,14 +76,81 @@ public class FormulaChecker {
 		SATISFIABLE, UNSATISFIABLE, UNKNOWN, ERROR
 	}
 
+	/**
+	 * The solver that answers the queries: Z3 through its Java API or a pool of
+	 * SMT-LIB2 solver processes, see SMTSolverPool.
+	 */
+	public enum Backend {
+		Z3, SMTLIB
+	}
+
+	/**
+	 * Selected by the system property "simulink2dl.solver" (z3 or smtlib).
+	 */
+	private static Backend backend = "smtlib".equalsIgnoreCase(System.getProperty("simulink2dl.solver"))
+			? Backend.SMTLIB
+			: Backend.Z3;
+
 	/**
 	 * Z3 needs a context to produce a solver for a query. Everything should be
 	 * announced to the context.
 	 */
 	private Context Z3Context;
 
+	/**
+	 * If true, all checks use the same context, otherwise each check creates and
+	 * closes its own context.
+	 */
+	private boolean reuseContext;
+
+	/**
+	 * Limits the time of the queries and records their statistics.
+	 */
+	private SolverBudget budget;
+
+	/**
+	 * Creates a checker whose queries have no time limit.
+	 */
 	public FormulaChecker() {
-		this.Z3Context = new Context();
+		this(false);
+	}
+
+	/**
+	 * Creates a checker that uses a single context for all checks. Z3 contexts
+	 * are not thread safe, so such a checker must only be used by one thread and
+	 * should be closed with closeZ3Context() after usage. The queries have no
+	 * time limit.
+	 * 
+	 * @param reuseContext
+	 */
+	public FormulaChecker(boolean reuseContext) {
+		this(reuseContext, new SolverBudget(0, 0));
+	}
+
+	/**
+	 * Creates a checker whose queries are limited by the given budget, e.g. the
+	 * budget of a transformation.
+	 * 
+	 * @param reuseContext
+	 * @param budget
+	 */
+	public FormulaChecker(boolean reuseContext, SolverBudget budget) {
+		if (backend == Backend.Z3) {
+			this.Z3Context = new Context();
+		}
+		this.reuseContext = reuseContext;
+		this.budget = budget;
+	}
+
+	public static Backend getBackend() {
+		return backend;
+	}
+
+	/**
+	 * Selects the solver of all checkers that are created afterwards.
+	 */
+	public static void setBackend(Backend backend) {
+		FormulaChecker.backend = backend;
 	}
 
 	// Term //
@@ -273,6 +342,8 @@ public class FormulaChecker {
 			return this.simulink2dlDisjunctionToZ3Or((Disjunction) form);
 		} else if (form instanceof StringFormula) {
 			return this.simulink2dlStringFormulaToZ3String((StringFormula) form);
+		} else if (form instanceof SharedFormula) {
+			return this.simulink2dlFomulaToZ3BoolExpr(((SharedFormula) form).getFormula());
 		} else {
 			PluginLogger.error("Unknown Formula type: " + form.getClass());
 			return null;
@@ -357,12 +428,15 @@ public class FormulaChecker {
 	 * satisfiability. See simulink2dl.dlmodel packages elements,
 	 * formula and term for more information.
 	 * 
+	 * Conjunctions of linear relations are decided by the LinearPreSolver
+	 * without a solver query.
+	 * 
 	 * Returns a ResultType representing one of the following states:
 	 * <ul>
 	 * <li>SATISFIABLE: The Formula can be satisfied and verifiably so.</li>
 	 * <li>UNSATISFIABLE: The Formula can not be satisfied and verifiably so.</li>
-	 * <li>UNKNOWN: Z3 is not able to tell whether the Formula can be satisfied.
-	 * </li>
+	 * <li>UNKNOWN: Z3 is not able to tell whether the Formula can be satisfied,
+	 * e.g. since the check exceeded the time limits of the SolverBudget.</li>
 	 * <li>ERROR: Z3 returned a state that is not handled.</li>
 	 * </ul>
 	 * 
@@ -370,12 +444,46 @@ public class FormulaChecker {
 	 * @return
 	 */
 	public ResultType checkSingleFormula(Formula form) {
-		this.Z3Context = new Context();
+		ResultType presolved = LinearPreSolver.check(form);
+		if (presolved != null) {
+			budget.recordPresolved();
+			return presolved;
+		}
+
+		long timeout = budget.getNextQueryTimeout();
+		if (timeout < 0) {
+			// budget is used up, keep the branch
+			budget.recordSkipped(form);
+			return ResultType.UNKNOWN;
+		}
+		if (this.Z3Context == null) {
+			// created with the SMT-LIB2 backend
+			return SMTSolverPool.getDefault().checkFormula(form, timeout, budget);
+		}
+
+		if (!reuseContext) {
+			this.Z3Context = new Context();
+		}
 		Solver solver = this.Z3Context.mkSolver();
+		if (timeout > 0) {
+			Params params = this.Z3Context.mkParams();
+			params.add("timeout", (int) Math.min(timeout, Integer.MAX_VALUE));
+			solver.setParameters(params);
+		}
 		BoolExpr query = this.simulink2dlFomulaToZ3BoolExpr(form);
 		solver.add(query);
+		long start = System.nanoTime();
 		Status checkRes = solver.check();
-		this.Z3Context.close();
+		budget.recordQueries(1, System.nanoTime() - start);
+		if (checkRes == Status.UNKNOWN) {
+			String reason = solver.getReasonUnknown();
+			if (reason != null && (reason.contains("timeout") || reason.contains("canceled"))) {
+				budget.recordTimeout(form);
+			}
+		}
+		if (!reuseContext) {
+			this.Z3Context.close();
+		}
 
 		switch (checkRes) {
 		case SATISFIABLE:
@@ -424,6 +532,8 @@ public class FormulaChecker {
 	 * Users should probably dispose of the Z3Context after usage.
 	 */
 	public void closeZ3Context() {
-		this.Z3Context.close();
+		if (this.Z3Context != null) {
+			this.Z3Context.close();
+		}
 	}
 }
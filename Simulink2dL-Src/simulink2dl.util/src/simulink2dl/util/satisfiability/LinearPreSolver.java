@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simulink2dl.dlmodel.elements.Constant;
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.BooleanConstant;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Negation;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.Relation.RelationType;
+import simulink2dl.dlmodel.term.AdditionTerm;
+import simulink2dl.dlmodel.term.BracketTerm;
+import simulink2dl.dlmodel.term.ExponentTerm;
+import simulink2dl.dlmodel.term.MultiplicationTerm;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.dlmodel.term.Term;
+import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
+
+/**
+ * Decides conjunctions of linear relations over the reals without calling an
+ * SMT solver. Most conditions of conditional macros compare port identifiers
+ * with thresholds, checking them in the JVM is much cheaper than a query to Z3.
+ * 
+ * Single variable relations are collected as bounds, relations between several
+ * variables are passed to the Simplex. Formulas that contain disjunctions,
+ * unequal relations or non-linear terms, and formulas with more than
+ * MAX_CONSTRAINTS relations are left to the solver.
+ * 
+ * The pre-solver can be disabled with the system property
+ * "simulink2dl.linearPreSolver=false".
+ */
+public class LinearPreSolver {
+
+	private static final int MAX_CONSTRAINTS = 64;
+
+	private static boolean enabled = !"false".equalsIgnoreCase(System.getProperty("simulink2dl.linearPreSolver"));
+
+	/**
+	 * Variables of the relations, identified by the name that Z3 uses for them.
+	 */
+	private Map<String, Integer> variables = new HashMap<String, Integer>();
+
+	/**
+	 * Slack variables of the linear terms with several variables.
+	 */
+	private Map<Map<Integer, Rational>, Integer> slackVariables = new HashMap<Map<Integer, Rational>, Integer>();
+
+	private List<Relation> relations = new ArrayList<Relation>();
+
+	private Simplex simplex = new Simplex();
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		LinearPreSolver.enabled = enabled;
+	}
+
+	/**
+	 * Returns SATISFIABLE or UNSATISFIABLE if the given formula is a conjunction
+	 * of linear relations, or null if the formula has to be checked by the solver.
+	 * 
+	 * @param formula
+	 * @return
+	 */
+	public static ResultType check(Operator formula) {
+		if (!enabled) {
+			return null;
+		}
+		LinearPreSolver solver = new LinearPreSolver();
+		if (!solver.collectRelations(formula)) {
+			return null;
+		}
+		if (solver.relations.size() > MAX_CONSTRAINTS) {
+			return null;
+		}
+		return solver.solve();
+	}
+
+	/**
+	 * Collects the relations of the given conjunction. Returns false if the
+	 * formula is no conjunction of relations.
+	 */
+	private boolean collectRelations(Operator formula) {
+		if (formula instanceof Relation) {
+			relations.add((Relation) formula);
+			return true;
+		} else if (formula instanceof Conjunction) {
+			for (Operator element : ((Conjunction) formula).getElements()) {
+				if (!collectRelations(element)) {
+					return false;
+				}
+			}
+			return true;
+		} else if (formula instanceof BooleanConstant) {
+			if (!((BooleanConstant) formula).isTrue()) {
+				relations.add(new Relation(new RealTerm(0.0), RelationType.LESS_THAN, new RealTerm(0.0)));
+			}
+			return true;
+		} else if (formula instanceof Negation) {
+			Operator inner = ((Negation) formula).getInnerFormula();
+			if (inner instanceof Relation) {
+				Relation relation = (Relation) inner;
+				relations.add(new Relation(relation.getLeftSide(), relation.getType().negate(), relation.getRightSide()));
+				return true;
+			} else if (inner instanceof Negation) {
+				return collectRelations(((Negation) inner).getInnerFormula());
+			}
+		}
+		return false;
+	}
+
+	private ResultType solve() {
+		for (Relation relation : relations) {
+			if (relation.getType() == RelationType.NOT_EQUAL) {
+				return null;
+			}
+			// left - right (type) 0
+			LinearTerm linear = toLinearTerm(relation.getLeftSide());
+			LinearTerm right = toLinearTerm(relation.getRightSide());
+			if (linear == null || right == null) {
+				return null;
+			}
+			linear.add(right, Rational.ONE.negate());
+			if (!assertRelation(linear, relation.getType())) {
+				return ResultType.UNSATISFIABLE;
+			}
+		}
+		Boolean result = simplex.check();
+		if (result == null) {
+			return null;
+		}
+		return result ? ResultType.SATISFIABLE : ResultType.UNSATISFIABLE;
+	}
+
+	/**
+	 * Asserts that the given term is in the given relation to zero. Returns false
+	 * if the relation is trivially false.
+	 */
+	private boolean assertRelation(LinearTerm term, RelationType type) {
+		Rational bound = term.constant.negate();
+		if (term.coefficients.isEmpty()) {
+			int comparison = Rational.ZERO.compareTo(bound);
+			switch (type) {
+			case LESS_THAN:
+				return comparison < 0;
+			case LESS_EQUAL:
+				return comparison <= 0;
+			case EQUAL:
+				return comparison == 0;
+			case GREATER_EQUAL:
+				return comparison >= 0;
+			default:
+				return comparison > 0;
+			}
+		}
+
+		// normalize the term, such that the first coefficient is 1
+		Rational scale = term.coefficients.values().iterator().next();
+		if (scale.signum() < 0) {
+			type = mirror(type);
+		}
+		Map<Integer, Rational> coefficients = new LinkedHashMap<Integer, Rational>();
+		for (Map.Entry<String, Rational> entry : term.coefficients.entrySet()) {
+			coefficients.put(getVariable(entry.getKey()), entry.getValue().divide(scale));
+		}
+		bound = bound.divide(scale);
+
+		int variable;
+		if (coefficients.size() == 1) {
+			variable = coefficients.keySet().iterator().next();
+		} else {
+			Integer slack = slackVariables.get(coefficients);
+			if (slack == null) {
+				slack = simplex.addRow(coefficients);
+				slackVariables.put(coefficients, slack);
+			}
+			variable = slack;
+		}
+
+		switch (type) {
+		case LESS_THAN:
+			simplex.assertUpper(variable, bound, true);
+			break;
+		case LESS_EQUAL:
+			simplex.assertUpper(variable, bound, false);
+			break;
+		case EQUAL:
+			simplex.assertLower(variable, bound, false);
+			simplex.assertUpper(variable, bound, false);
+			break;
+		case GREATER_EQUAL:
+			simplex.assertLower(variable, bound, false);
+			break;
+		default:
+			simplex.assertLower(variable, bound, true);
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the relation type that results from multiplying both sides with -1.
+	 */
+	private static RelationType mirror(RelationType type) {
+		switch (type) {
+		case LESS_THAN:
+			return RelationType.GREATER_THAN;
+		case LESS_EQUAL:
+			return RelationType.GREATER_EQUAL;
+		case GREATER_EQUAL:
+			return RelationType.LESS_EQUAL;
+		case GREATER_THAN:
+			return RelationType.LESS_THAN;
+		default:
+			return type;
+		}
+	}
+
+	private int getVariable(String name) {
+		Integer variable = variables.get(name);
+		if (variable == null) {
+			variable = simplex.addVariable();
+			variables.put(name, variable);
+		}
+		return variable;
+	}
+
+	/**
+	 * Returns the given term as linear term or null if it is not linear.
+	 */
+	private static LinearTerm toLinearTerm(Term term) {
+		if (term instanceof RealTerm) {
+			return LinearTerm.constant(Rational.valueOf(term.toString()));
+		} else if (term instanceof Constant) {
+			return LinearTerm.variable(((Constant) term).getName());
+		} else if (term instanceof Variable) {
+			return LinearTerm.variable(((Variable) term).getName());
+		} else if (term.isAtomic()) {
+			return LinearTerm.variable(term.toString());
+		} else if (term instanceof BracketTerm) {
+			return toLinearTerm(((BracketTerm) term).getInnerTerm());
+		} else if (term instanceof AdditionTerm) {
+			LinearTerm result = LinearTerm.constant(Rational.ZERO);
+			for (Term summand : ((AdditionTerm) term).getSummands()) {
+				LinearTerm linear = toLinearTerm(summand);
+				if (linear == null) {
+					return null;
+				}
+				result.add(linear, Rational.ONE);
+			}
+			for (Term subtrahend : ((AdditionTerm) term).getSubtrahends()) {
+				LinearTerm linear = toLinearTerm(subtrahend);
+				if (linear == null) {
+					return null;
+				}
+				result.add(linear, Rational.ONE.negate());
+			}
+			return result;
+		} else if (term instanceof MultiplicationTerm) {
+			LinearTerm result = LinearTerm.constant(Rational.ONE);
+			for (Term factor : ((MultiplicationTerm) term).getFactors()) {
+				LinearTerm linear = toLinearTerm(factor);
+				if (linear == null) {
+					return null;
+				}
+				result = result.multiply(linear);
+				if (result == null) {
+					return null;
+				}
+			}
+			for (Term divisor : ((MultiplicationTerm) term).getDivisors()) {
+				LinearTerm linear = toLinearTerm(divisor);
+				if (linear == null || !linear.isConstant() || linear.constant.signum() == 0) {
+					return null;
+				}
+				result.scale(Rational.ONE.divide(linear.constant));
+			}
+			return result;
+		} else if (term instanceof ExponentTerm) {
+			LinearTerm base = toLinearTerm(((ExponentTerm) term).getBase());
+			LinearTerm exponent = toLinearTerm(((ExponentTerm) term).getExponent());
+			if (base == null || exponent == null || !exponent.isConstant()) {
+				return null;
+			}
+			Rational value = exponent.constant;
+			if (value.equals(Rational.ONE)) {
+				return base;
+			}
+			if (base.isConstant() && value.isInteger() && value.signum() >= 0
+					&& value.compareTo(Rational.valueOf(64)) <= 0) {
+				return LinearTerm.constant(base.constant.pow(value.getNumerator().intValue()));
+			}
+			return null;
+		}
+		// remaining terms are only linear if they are numbers given as text
+		try {
+			return LinearTerm.constant(Rational.valueOf(term.toString()));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A sum of a constant and coefficients times variables.
+	 */
+	private static class LinearTerm {
+
+		private Map<String, Rational> coefficients = new LinkedHashMap<String, Rational>();
+
+		private Rational constant = Rational.ZERO;
+
+		public static LinearTerm constant(Rational value) {
+			LinearTerm result = new LinearTerm();
+			result.constant = value;
+			return result;
+		}
+
+		public static LinearTerm variable(String name) {
+			LinearTerm result = new LinearTerm();
+			result.coefficients.put(name, Rational.ONE);
+			return result;
+		}
+
+		public boolean isConstant() {
+			return coefficients.isEmpty();
+		}
+
+		/**
+		 * Adds factor times the other term to this term.
+		 */
+		public void add(LinearTerm other, Rational factor) {
+			constant = constant.add(other.constant.multiply(factor));
+			for (Map.Entry<String, Rational> entry : other.coefficients.entrySet()) {
+				Rational coefficient = entry.getValue().multiply(factor);
+				Rational previous = coefficients.get(entry.getKey());
+				if (previous != null) {
+					coefficient = coefficient.add(previous);
+				}
+				if (coefficient.signum() == 0) {
+					coefficients.remove(entry.getKey());
+				} else {
+					coefficients.put(entry.getKey(), coefficient);
+				}
+			}
+		}
+
+		public void scale(Rational factor) {
+			if (factor.signum() == 0) {
+				coefficients.clear();
+			}
+			constant = constant.multiply(factor);
+			for (Map.Entry<String, Rational> entry : coefficients.entrySet()) {
+				entry.setValue(entry.getValue().multiply(factor));
+			}
+		}
+
+		/**
+		 * Returns the product of both terms or null if it is not linear.
+		 */
+		public LinearTerm multiply(LinearTerm other) {
+			if (other.isConstant()) {
+				scale(other.constant);
+				return this;
+			} else if (isConstant()) {
+				other.scale(constant);
+				return other;
+			}
+			return null;
+		}
+	}
+
+}
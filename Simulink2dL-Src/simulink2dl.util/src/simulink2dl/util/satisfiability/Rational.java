@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * An exact rational number. Instances are immutable and always reduced, the
+ * denominator is positive.
+ */
+public final class Rational implements Comparable<Rational> {
+
+	public static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+
+	public static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+	private final BigInteger numerator;
+
+	private final BigInteger denominator;
+
+	private Rational(BigInteger numerator, BigInteger denominator) {
+		this.numerator = numerator;
+		this.denominator = denominator;
+	}
+
+	/**
+	 * Returns the reduced fraction numerator / denominator.
+	 */
+	public static Rational valueOf(BigInteger numerator, BigInteger denominator) {
+		if (denominator.signum() == 0) {
+			throw new ArithmeticException("Division by zero");
+		}
+		if (denominator.signum() < 0) {
+			numerator = numerator.negate();
+			denominator = denominator.negate();
+		}
+		BigInteger gcd = numerator.gcd(denominator);
+		if (!gcd.equals(BigInteger.ONE) && gcd.signum() != 0) {
+			numerator = numerator.divide(gcd);
+			denominator = denominator.divide(gcd);
+		}
+		return new Rational(numerator, denominator);
+	}
+
+	public static Rational valueOf(long value) {
+		return new Rational(BigInteger.valueOf(value), BigInteger.ONE);
+	}
+
+	/**
+	 * Returns the exact value of the given decimal number, e.g. "0.1" is 1/10.
+	 * 
+	 * @throws NumberFormatException if the string is no decimal number
+	 */
+	public static Rational valueOf(String decimal) {
+		BigDecimal value = new BigDecimal(decimal.trim());
+		if (value.scale() <= 0) {
+			return new Rational(value.toBigIntegerExact(), BigInteger.ONE);
+		}
+		return valueOf(value.unscaledValue(), BigInteger.TEN.pow(value.scale()));
+	}
+
+	public Rational add(Rational other) {
+		if (denominator.equals(other.denominator)) {
+			return valueOf(numerator.add(other.numerator), denominator);
+		}
+		return valueOf(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+				denominator.multiply(other.denominator));
+	}
+
+	public Rational subtract(Rational other) {
+		return add(other.negate());
+	}
+
+	public Rational multiply(Rational other) {
+		if (signum() == 0 || other.signum() == 0) {
+			return ZERO;
+		}
+		return valueOf(numerator.multiply(other.numerator), denominator.multiply(other.denominator));
+	}
+
+	public Rational divide(Rational other) {
+		return valueOf(numerator.multiply(other.denominator), denominator.multiply(other.numerator));
+	}
+
+	public Rational negate() {
+		return new Rational(numerator.negate(), denominator);
+	}
+
+	public Rational pow(int exponent) {
+		return new Rational(numerator.pow(exponent), denominator.pow(exponent));
+	}
+
+	public int signum() {
+		return numerator.signum();
+	}
+
+	public boolean isInteger() {
+		return denominator.equals(BigInteger.ONE);
+	}
+
+	public BigInteger getNumerator() {
+		return numerator;
+	}
+
+	public BigInteger getDenominator() {
+		return denominator;
+	}
+
+	@Override
+	public int compareTo(Rational other) {
+		if (denominator.equals(other.denominator)) {
+			return numerator.compareTo(other.numerator);
+		}
+		return numerator.multiply(other.denominator).compareTo(other.numerator.multiply(denominator));
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * numerator.hashCode() + denominator.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Rational)) {
+			return false;
+		}
+		Rational other = (Rational) obj;
+		return numerator.equals(other.numerator) && denominator.equals(other.denominator);
+	}
+
+	@Override
+	public String toString() {
+		if (isInteger()) {
+			return numerator.toString();
+		}
+		return numerator + "/" + denominator;
+	}
+
+}
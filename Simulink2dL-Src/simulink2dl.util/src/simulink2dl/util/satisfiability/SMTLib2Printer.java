@@ -0,0 +1,372 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import simulink2dl.dlmodel.elements.Constant;
+import simulink2dl.dlmodel.elements.Variable;
+import simulink2dl.dlmodel.operator.Operator;
+import simulink2dl.dlmodel.operator.formula.BooleanConstant;
+import simulink2dl.dlmodel.operator.formula.Conjunction;
+import simulink2dl.dlmodel.operator.formula.Disjunction;
+import simulink2dl.dlmodel.operator.formula.Equivalence;
+import simulink2dl.dlmodel.operator.formula.Implication;
+import simulink2dl.dlmodel.operator.formula.Negation;
+import simulink2dl.dlmodel.operator.formula.Relation;
+import simulink2dl.dlmodel.operator.formula.SharedFormula;
+import simulink2dl.dlmodel.term.AdditionTerm;
+import simulink2dl.dlmodel.term.BracketTerm;
+import simulink2dl.dlmodel.term.ExponentTerm;
+import simulink2dl.dlmodel.term.MultiplicationTerm;
+import simulink2dl.dlmodel.term.RealTerm;
+import simulink2dl.dlmodel.term.Term;
+import simulink2dl.util.PluginLogger;
+
+/**
+ * Prints Formulas as SMT-LIB2 script. All symbols are declared as real
+ * constants, the conversion follows the one of the FormulaChecker.
+ * 
+ * A printer collects the symbols of the printed formulas, so a new printer
+ * should be used for each query.
+ */
+public class SMTLib2Printer {
+
+	/**
+	 * Names that would be read as keyword or built-in function.
+	 */
+	private static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList("true", "false", "and", "or",
+			"not", "xor", "ite", "distinct", "let", "forall", "exists", "par", "as", "!", "_", "abs", "div", "mod",
+			"to_real", "to_int", "is_int", "=>", "+", "-", "*", "/", "<", "<=", "=", ">=", ">"));
+
+	private Set<String> symbols = new LinkedHashSet<String>();
+
+	/**
+	 * Returns a script that checks the given formula in its own scope, i.e. the
+	 * solver is in the same state after the script. The solver prints one line
+	 * with sat, unsat or unknown. Returns null if the formula cannot be
+	 * converted.
+	 */
+	public static String createQuery(Operator formula) {
+		SMTLib2Printer printer = new SMTLib2Printer();
+		String assertion = printer.printFormula(formula);
+		if (assertion == null) {
+			return null;
+		}
+		StringBuilder query = new StringBuilder();
+		query.append("(push 1)\n");
+		query.append(printer.getDeclarations());
+		query.append("(assert ").append(assertion).append(")\n");
+		query.append("(check-sat)\n");
+		query.append("(pop 1)\n");
+		return query.toString();
+	}
+
+	/**
+	 * Returns the declarations of all symbols that occurred in the printed
+	 * formulas.
+	 */
+	public String getDeclarations() {
+		StringBuilder result = new StringBuilder();
+		for (String symbol : symbols) {
+			result.append("(declare-const ").append(symbol).append(" Real)\n");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the given formula as SMT-LIB2 expression or null if it cannot be
+	 * converted.
+	 */
+	public String printFormula(Operator formula) {
+		StringBuilder result = new StringBuilder();
+		if (!appendFormula(result, formula)) {
+			return null;
+		}
+		return result.toString();
+	}
+
+	private boolean appendFormula(StringBuilder result, Operator formula) {
+		if (formula instanceof BooleanConstant) {
+			result.append(((BooleanConstant) formula).isTrue() ? "true" : "false");
+			return true;
+		} else if (formula instanceof Relation) {
+			return appendRelation(result, (Relation) formula);
+		} else if (formula instanceof Negation) {
+			result.append("(not ");
+			if (!appendFormula(result, ((Negation) formula).getInnerFormula())) {
+				return false;
+			}
+			result.append(")");
+			return true;
+		} else if (formula instanceof Conjunction) {
+			return appendJunction(result, "and", "true", ((Conjunction) formula).getElements());
+		} else if (formula instanceof Disjunction) {
+			return appendJunction(result, "or", "false", ((Disjunction) formula).getElements());
+		} else if (formula instanceof Implication) {
+			Implication implication = (Implication) formula;
+			return appendBinaryFormula(result, "=>", implication.getAntecedent(), implication.getConsequent());
+		} else if (formula instanceof Equivalence) {
+			Equivalence equivalence = (Equivalence) formula;
+			return appendBinaryFormula(result, "=", equivalence.getLeftSide(), equivalence.getRightSide());
+		} else if (formula instanceof SharedFormula) {
+			return appendFormula(result, ((SharedFormula) formula).getFormula());
+		} else {
+			PluginLogger.error("Can not convert " + formula.getClass() + " to SMT-LIB2.");
+			return false;
+		}
+	}
+
+	private boolean appendJunction(StringBuilder result, String operator, String neutral,
+			Iterable<Operator> elements) {
+		int start = result.length();
+		int count = 0;
+		result.append("(").append(operator);
+		for (Operator element : elements) {
+			result.append(" ");
+			if (!appendFormula(result, element)) {
+				return false;
+			}
+			count++;
+		}
+		result.append(")");
+		if (count == 0) {
+			result.setLength(start);
+			result.append(neutral);
+		}
+		return true;
+	}
+
+	private boolean appendBinaryFormula(StringBuilder result, String operator, Operator left, Operator right) {
+		result.append("(").append(operator).append(" ");
+		if (!appendFormula(result, left)) {
+			return false;
+		}
+		result.append(" ");
+		if (!appendFormula(result, right)) {
+			return false;
+		}
+		result.append(")");
+		return true;
+	}
+
+	private boolean appendRelation(StringBuilder result, Relation relation) {
+		String operator;
+		switch (relation.getType()) {
+		case LESS_THAN:
+			operator = "<";
+			break;
+		case LESS_EQUAL:
+			operator = "<=";
+			break;
+		case EQUAL:
+		case NOT_EQUAL:
+			operator = "=";
+			break;
+		case GREATER_EQUAL:
+			operator = ">=";
+			break;
+		case GREATER_THAN:
+			operator = ">";
+			break;
+		default:
+			PluginLogger.error("Relation of type " + relation.getType() + " not implemented!");
+			return false;
+		}
+		if (relation.getType() == Relation.RelationType.NOT_EQUAL) {
+			result.append("(not ");
+		}
+		result.append("(").append(operator).append(" ");
+		if (!appendTerm(result, relation.getLeftSide())) {
+			return false;
+		}
+		result.append(" ");
+		if (!appendTerm(result, relation.getRightSide())) {
+			return false;
+		}
+		result.append(")");
+		if (relation.getType() == Relation.RelationType.NOT_EQUAL) {
+			result.append(")");
+		}
+		return true;
+	}
+
+	private boolean appendTerm(StringBuilder result, Term term) {
+		if (term.isAtomic()) {
+			appendAtom(result, term);
+			return true;
+		}
+
+		if (term instanceof AdditionTerm) {
+			AdditionTerm addTerm = (AdditionTerm) term;
+			boolean inverse = !addTerm.getSubtrahends().isEmpty();
+			result.append(inverse ? "(- (+ 0.0" : "(+ 0.0");
+			for (Term summand : addTerm.getSummands()) {
+				result.append(" ");
+				if (!appendTerm(result, summand)) {
+					return false;
+				}
+			}
+			result.append(")");
+			for (Term subtrahend : addTerm.getSubtrahends()) {
+				result.append(" ");
+				if (!appendTerm(result, subtrahend)) {
+					return false;
+				}
+			}
+			if (inverse) {
+				result.append(")");
+			}
+			return true;
+		} else if (term instanceof BracketTerm) {
+			return appendTerm(result, ((BracketTerm) term).getInnerTerm());
+		} else if (term instanceof ExponentTerm) {
+			return appendExponent(result, (ExponentTerm) term);
+		} else if (term instanceof MultiplicationTerm) {
+			MultiplicationTerm multTerm = (MultiplicationTerm) term;
+			boolean inverse = !multTerm.getDivisors().isEmpty();
+			result.append(inverse ? "(/ (* 1.0" : "(* 1.0");
+			for (Term factor : multTerm.getFactors()) {
+				result.append(" ");
+				if (!appendTerm(result, factor)) {
+					return false;
+				}
+			}
+			result.append(")");
+			for (Term divisor : multTerm.getDivisors()) {
+				result.append(" ");
+				if (!appendTerm(result, divisor)) {
+					return false;
+				}
+			}
+			if (inverse) {
+				result.append(")");
+			}
+			return true;
+		} else {
+			PluginLogger.error("Can not convert " + term.getClass() + " to SMT-LIB2.");
+			return false;
+		}
+	}
+
+	/**
+	 * Small natural exponents are written as multiplication, since "^" is not
+	 * part of the SMT-LIB2 standard and only supported by some solvers.
+	 */
+	private boolean appendExponent(StringBuilder result, ExponentTerm expTerm) {
+		Term exponent = expTerm.getExponent();
+		if (exponent instanceof RealTerm) {
+			double value = Double.parseDouble(exponent.toString());
+			if (value >= 1 && value <= 8 && value == Math.floor(value)) {
+				result.append("(*");
+				for (int i = 0; i < (int) value; i++) {
+					result.append(" ");
+					if (!appendTerm(result, expTerm.getBase())) {
+						return false;
+					}
+				}
+				result.append(")");
+				return true;
+			}
+		}
+		result.append("(^ ");
+		if (!appendTerm(result, expTerm.getBase())) {
+			return false;
+		}
+		result.append(" ");
+		if (!appendTerm(result, exponent)) {
+			return false;
+		}
+		result.append(")");
+		return true;
+	}
+
+	private void appendAtom(StringBuilder result, Term term) {
+		if (term instanceof Constant) {
+			result.append(declare(((Constant) term).getName()));
+		} else if (term instanceof Variable) {
+			result.append(declare(((Variable) term).getName()));
+		} else if (term instanceof RealTerm) {
+			String number = toDecimal(term.toString());
+			result.append(number != null ? number : declare(term.toString()));
+		} else {
+			result.append(declare(term.toString()));
+		}
+	}
+
+	/**
+	 * Returns the given number as SMT-LIB2 decimal or null if it is no number.
+	 */
+	private static String toDecimal(String number) {
+		BigDecimal value;
+		try {
+			value = new BigDecimal(number.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		String plain = value.abs().toPlainString();
+		if (!plain.contains(".")) {
+			plain = plain + ".0";
+		}
+		if (value.signum() < 0) {
+			return "(- " + plain + ")";
+		}
+		return plain;
+	}
+
+	/**
+	 * Declares the given name and returns it as SMT-LIB2 symbol.
+	 */
+	private String declare(String name) {
+		String symbol = toSymbol(name);
+		symbols.add(symbol);
+		return symbol;
+	}
+
+	/**
+	 * Returns the given name as simple symbol or, if it contains further
+	 * characters, as quoted symbol.
+	 */
+	private static String toSymbol(String name) {
+		boolean simple = !name.isEmpty() && !Character.isDigit(name.charAt(0));
+		for (int i = 0; i < name.length() && simple; i++) {
+			char c = name.charAt(i);
+			simple = (c < 128 && Character.isLetterOrDigit(c)) || "~!@$%^&*_-+=<>.?/".indexOf(c) >= 0;
+		}
+		if (simple && !RESERVED_WORDS.contains(name)) {
+			return name;
+		}
+		return "|" + name.replace("|", "_").replace("\\", "_") + "|";
+	}
+
+}
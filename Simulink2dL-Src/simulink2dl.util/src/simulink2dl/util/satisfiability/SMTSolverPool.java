@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.util.PluginLogger;
+import simulink2dl.util.satisfiability.FormulaChecker.ResultType;
+import simulink2dl.util.satisfiability.SMTSolverProcess.Answer;
+
+/**
+ * A pool of local SMT-LIB2 solver processes. Since each query runs in a
+ * separate process, queries can be checked in parallel and a crashing solver
+ * does not affect the transformation.
+ * 
+ * The solver command is given by the system property "simulink2dl.smtSolver"
+ * and defaults to "z3 -in -smt2", any solver that reads SMT-LIB2 from its
+ * standard input can be used. The number of processes is given by
+ * "simulink2dl.solverThreads" and defaults to the number of available
+ * processors.
+ */
+public class SMTSolverPool {
+
+	private static SMTSolverPool defaultPool;
+
+	private BlockingQueue<SMTSolverProcess> idleProcesses;
+
+	private List<SMTSolverProcess> processes;
+
+	public SMTSolverPool(List<String> command, int size) {
+		this.processes = new ArrayList<SMTSolverProcess>(size);
+		this.idleProcesses = new LinkedBlockingQueue<SMTSolverProcess>();
+		for (int i = 0; i < Math.max(size, 1); i++) {
+			SMTSolverProcess process = new SMTSolverProcess(command);
+			processes.add(process);
+			idleProcesses.add(process);
+		}
+	}
+
+	/**
+	 * Returns the pool that is configured by the system properties. The
+	 * processes are stopped when the JVM exits.
+	 */
+	public static synchronized SMTSolverPool getDefault() {
+		if (defaultPool == null) {
+			List<String> command = Arrays
+					.asList(System.getProperty("simulink2dl.smtSolver", "z3 -in -smt2").trim().split("\\s+"));
+			int size = Integer.getInteger("simulink2dl.solverThreads", Runtime.getRuntime().availableProcessors());
+			defaultPool = new SMTSolverPool(command, size);
+			Runtime.getRuntime().addShutdownHook(new Thread(defaultPool::close));
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * Checks the satisfiability of a single formula with the given timeout in
+	 * milliseconds, 0 for no timeout. A timeout is recorded in the given budget.
+	 * 
+	 * @param formula
+	 * @param timeout
+	 * @param budget
+	 * @return
+	 */
+	public ResultType checkFormula(Formula formula, long timeout, SolverBudget budget) {
+		String query = SMTLib2Printer.createQuery(formula);
+		if (query == null) {
+			return ResultType.ERROR;
+		}
+		SMTSolverProcess process = acquire();
+		if (process == null) {
+			return ResultType.ERROR;
+		}
+		try {
+			long start = System.nanoTime();
+			Answer answer = process.check(Arrays.asList(query), timeout)[0];
+			budget.recordQueries(1, System.nanoTime() - start);
+			if (answer == Answer.TIMEOUT) {
+				budget.recordTimeout(formula);
+			}
+			return toResultType(answer);
+		} finally {
+			idleProcesses.add(process);
+		}
+	}
+
+	/**
+	 * Checks the satisfiability of all given formulas and returns the results in
+	 * the order of the formulas. The formulas are distributed on the idle
+	 * processes, each process receives all of its queries at once.
+	 * 
+	 * Formulas that the LinearPreSolver decides are not sent. Each query gets a
+	 * timeout from the given budget. Queries that exceed the budget are not sent
+	 * and yield UNKNOWN.
+	 * 
+	 * @param formulas
+	 * @param budget
+	 * @return
+	 */
+	public List<ResultType> checkFormulas(List<? extends Formula> formulas, SolverBudget budget) {
+		ResultType[] results = new ResultType[formulas.size()];
+		List<String> queries = new ArrayList<String>();
+		List<Integer> queryIndices = new ArrayList<Integer>();
+		long timeout = 0;
+		for (int i = 0; i < formulas.size(); i++) {
+			ResultType presolved = LinearPreSolver.check(formulas.get(i));
+			if (presolved != null) {
+				budget.recordPresolved();
+				results[i] = presolved;
+				continue;
+			}
+			long queryTimeout = budget.getNextQueryTimeout();
+			if (queryTimeout < 0) {
+				// budget is used up, keep the branch
+				budget.recordSkipped(formulas.get(i));
+				results[i] = ResultType.UNKNOWN;
+				continue;
+			}
+			String query = SMTLib2Printer.createQuery(formulas.get(i));
+			if (query == null) {
+				results[i] = ResultType.ERROR;
+				continue;
+			}
+			timeout = timeout == 0 ? queryTimeout : Math.min(timeout, queryTimeout);
+			queries.add(query);
+			queryIndices.add(i);
+		}
+
+		if (!queries.isEmpty()) {
+			List<SMTSolverProcess> acquired = new ArrayList<SMTSolverProcess>();
+			SMTSolverProcess first = acquire();
+			if (first == null) {
+				return Arrays.asList(results);
+			}
+			acquired.add(first);
+			idleProcesses.drainTo(acquired, queries.size() - 1);
+			try {
+				checkDistributed(formulas, queries, queryIndices, acquired, timeout, budget, results);
+			} finally {
+				idleProcesses.addAll(acquired);
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Sends the queries round-robin to the given processes and collects the
+	 * answers. The processes are used by one thread each.
+	 */
+	private void checkDistributed(List<? extends Formula> formulas, List<String> queries, List<Integer> queryIndices,
+			List<SMTSolverProcess> acquired, long timeout, SolverBudget budget, ResultType[] results) {
+		int processCount = acquired.size();
+		Thread[] threads = new Thread[processCount];
+		for (int p = 0; p < processCount; p++) {
+			SMTSolverProcess process = acquired.get(p);
+			List<String> processQueries = new ArrayList<String>();
+			for (int q = p; q < queries.size(); q += processCount) {
+				processQueries.add(queries.get(q));
+			}
+			int offset = p;
+			Runnable task = () -> {
+				long start = System.nanoTime();
+				Answer[] answers = process.check(processQueries, timeout);
+				budget.recordQueries(processQueries.size(), System.nanoTime() - start);
+				for (int a = 0; a < answers.length; a++) {
+					int index = queryIndices.get(offset + a * processCount);
+					if (answers[a] == Answer.TIMEOUT) {
+						budget.recordTimeout(formulas.get(index));
+					}
+					results[index] = toResultType(answers[a]);
+				}
+			};
+			if (p == processCount - 1) {
+				// use the current thread for the last process
+				task.run();
+			} else {
+				threads[p] = new Thread(task, "SMTSolverPool-" + p);
+				threads[p].setDaemon(true);
+				threads[p].start();
+			}
+		}
+		for (Thread thread : threads) {
+			if (thread == null) {
+				continue;
+			}
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				PluginLogger.error("Interrupted while waiting for SMT solver.");
+			}
+		}
+		for (int q = 0; q < queryIndices.size(); q++) {
+			if (results[queryIndices.get(q)] == null) {
+				results[queryIndices.get(q)] = ResultType.ERROR;
+			}
+		}
+	}
+
+	/**
+	 * Stops all processes of this pool.
+	 */
+	public void close() {
+		for (SMTSolverProcess process : processes) {
+			process.destroy();
+		}
+	}
+
+	private SMTSolverProcess acquire() {
+		try {
+			return idleProcesses.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private static ResultType toResultType(Answer answer) {
+		switch (answer) {
+		case SAT:
+			return ResultType.SATISFIABLE;
+		case UNSAT:
+			return ResultType.UNSATISFIABLE;
+		case UNKNOWN:
+		case TIMEOUT:
+			return ResultType.UNKNOWN;
+		default:
+			return ResultType.ERROR;
+		}
+	}
+
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import simulink2dl.util.PluginLogger;
+
+/**
+ * A long-lived SMT-LIB2 solver process that reads queries from its standard
+ * input and answers on its standard output. The queries are written and the
+ * answers are read by separate threads, so several queries can be written
+ * before the first answer is read. The timeout of a query therefore also
+ * covers a solver that stops reading its input, e.g. since it is still busy
+ * with a previous query and the input pipe is full.
+ * 
+ * A process that died or did not answer in time is restarted.
+ */
+public class SMTSolverProcess {
+
+	public enum Answer {
+		SAT, UNSAT, UNKNOWN, TIMEOUT, ERROR
+	}
+
+	/**
+	 * Put into the answer queue when the solver closes its output.
+	 */
+	private static final String END_OF_OUTPUT = "\0eof";
+
+	private List<String> command;
+
+	/**
+	 * The running solver, null after it was destroyed. Read by the writing
+	 * thread.
+	 */
+	private volatile Process process;
+
+	private Writer input;
+
+	private BlockingQueue<String> output;
+
+	public SMTSolverProcess(List<String> command) {
+		this.command = command;
+	}
+
+	/**
+	 * Checks the given queries, which are created by
+	 * SMTLib2Printer.createQuery(), and returns the answers in the same order.
+	 * The queries are written to the solver while the answers are read.
+	 * 
+	 * A query that takes longer than the given timeout in milliseconds (0 for no
+	 * timeout) yields TIMEOUT. If the solver dies, it is restarted and the
+	 * queries without answer are sent again. A query on which the solver dies
+	 * twice yields ERROR.
+	 * 
+	 * @param queries
+	 * @param timeout
+	 * @return
+	 */
+	public Answer[] check(List<String> queries, long timeout) {
+		Answer[] answers = new Answer[queries.size()];
+		int next = 0;
+		boolean restarted = false;
+		while (next < queries.size()) {
+			int first = next;
+			if (!send(queries.subList(next, queries.size()))) {
+				destroy();
+				if (restarted) {
+					// e.g. the solver is not installed
+					break;
+				}
+				restarted = true;
+				continue;
+			}
+			boolean died = false;
+			while (!died && next < queries.size()) {
+				Answer answer = readAnswer(timeout);
+				if (answer == null) {
+					died = true;
+				} else {
+					answers[next++] = answer;
+					if (answer == Answer.TIMEOUT) {
+						break;
+					}
+				}
+			}
+			if (next < queries.size()) {
+				// the solver died or is still busy, restart it for the remaining queries
+				destroy();
+				if (died && next == first) {
+					if (restarted) {
+						// skip the query that crashes the solver
+						PluginLogger.error("SMT solver " + command + " died twice on the same query.");
+						answers[next++] = Answer.ERROR;
+						restarted = false;
+					} else {
+						restarted = true;
+					}
+				} else {
+					restarted = false;
+				}
+			}
+		}
+		for (int i = next; i < queries.size(); i++) {
+			answers[i] = Answer.ERROR;
+		}
+		return answers;
+	}
+
+	/**
+	 * Starts the solver if necessary and writes the given queries to it in a
+	 * separate thread. Returns false if the solver cannot be started.
+	 * 
+	 * The writing thread blocks as long as the solver does not read its input.
+	 * If a query times out, the solver is destroyed, which also ends the writing
+	 * thread. If writing fails, the solver is destroyed, so the reading side
+	 * sees the end of the output.
+	 */
+	private boolean send(List<String> queries) {
+		try {
+			ensureRunning();
+		} catch (IOException e) {
+			PluginLogger.error("Could not start SMT solver " + command + ": " + e.getMessage());
+			return false;
+		}
+		Process target = process;
+		Writer writer = input;
+		List<String> pending = new ArrayList<String>(queries);
+		Thread writerThread = new Thread(() -> {
+			try {
+				for (String query : pending) {
+					writer.write(query);
+				}
+				writer.flush();
+			} catch (IOException e) {
+				if (process == target) {
+					PluginLogger.error("Could not send query to SMT solver: " + e.getMessage());
+					target.destroyForcibly();
+				}
+				// otherwise the solver was destroyed, e.g. after a timeout
+			}
+		}, "SMTSolverProcess-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+		return true;
+	}
+
+	/**
+	 * Reads the answer of the next query. Returns null if the solver died.
+	 */
+	private Answer readAnswer(long timeout) {
+		boolean error = false;
+		while (true) {
+			String line;
+			try {
+				if (timeout > 0) {
+					line = output.poll(timeout, TimeUnit.MILLISECONDS);
+					if (line == null) {
+						return Answer.TIMEOUT;
+					}
+				} else {
+					line = output.take();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+
+			if (line == END_OF_OUTPUT) {
+				return null;
+			}
+			line = line.trim();
+			if (line.equals("sat")) {
+				return error ? Answer.ERROR : Answer.SAT;
+			} else if (line.equals("unsat")) {
+				return error ? Answer.ERROR : Answer.UNSAT;
+			} else if (line.equals("unknown")) {
+				return error ? Answer.ERROR : Answer.UNKNOWN;
+			} else if (!line.isEmpty()) {
+				// e.g. (error "...") of an assertion, the following answer does not
+				// belong to the complete query
+				PluginLogger.error("SMT solver: " + line);
+				error = true;
+			}
+		}
+	}
+
+	private void ensureRunning() throws IOException {
+		if (process != null && process.isAlive()) {
+			return;
+		}
+		destroy();
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		process = builder.start();
+		input = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII);
+		BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+		output = lines;
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+		Thread readerThread = new Thread(() -> {
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			} catch (IOException e) {
+				// the process was destroyed
+			}
+			lines.add(END_OF_OUTPUT);
+		}, "SMTSolverProcess-reader");
+		readerThread.setDaemon(true);
+		readerThread.start();
+
+		input.write("(set-option :print-success false)\n");
+		input.flush();
+	}
+
+	/**
+	 * Stops the solver process. It is started again by the next check.
+	 */
+	public void destroy() {
+		Process destroyed = process;
+		if (destroyed != null) {
+			// reset first, so the writing thread ignores the broken pipe
+			process = null;
+			input = null;
+			output = null;
+			destroyed.destroyForcibly();
+		}
+	}
+
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides the satisfiability of a conjunction of linear constraints over the
+ * reals with the general simplex method of Dutertre and de Moura ("A Fast
+ * Linear-Arithmetic Solver for DPLL(T)", CAV 2006). The computation is exact,
+ * strict bounds are handled with an infinitesimal delta.
+ * 
+ * Each constraint with more than one variable is represented by a slack
+ * variable that equals the linear term of the constraint, all constraints are
+ * then bounds on single variables.
+ */
+public class Simplex {
+
+	/**
+	 * Bland's rule ensures termination, the limit only bounds the time spent on
+	 * large problems.
+	 */
+	private static final int MAX_PIVOTS = 10000;
+
+	/**
+	 * Rows of the tableau, the basic variable of row r is basicVariables[r] and
+	 * equals the sum of coefficients times nonbasic variables.
+	 */
+	private List<Rational[]> rows = new ArrayList<Rational[]>();
+
+	private List<Integer> basicVariables = new ArrayList<Integer>();
+
+	/**
+	 * Row of each variable or -1 for nonbasic variables.
+	 */
+	private List<Integer> rowOf = new ArrayList<Integer>();
+
+	private List<DeltaRational> lowerBounds = new ArrayList<DeltaRational>();
+
+	private List<DeltaRational> upperBounds = new ArrayList<DeltaRational>();
+
+	private DeltaRational[] values;
+
+	private boolean conflict = false;
+
+	/**
+	 * Adds a variable without bounds and returns its index.
+	 */
+	public int addVariable() {
+		rowOf.add(-1);
+		lowerBounds.add(null);
+		upperBounds.add(null);
+		return rowOf.size() - 1;
+	}
+
+	/**
+	 * Adds a slack variable that equals the sum of the given coefficients times
+	 * the variables with the given indices and returns its index. All rows have
+	 * to be added before check() is called.
+	 */
+	public int addRow(Map<Integer, Rational> coefficients) {
+		int slack = addVariable();
+		Rational[] row = new Rational[slack + 1];
+		for (Map.Entry<Integer, Rational> entry : coefficients.entrySet()) {
+			row[entry.getKey()] = entry.getValue();
+		}
+		rowOf.set(slack, rows.size());
+		rows.add(row);
+		basicVariables.add(slack);
+		return slack;
+	}
+
+	/**
+	 * Asserts variable >= value, or variable > value if strict.
+	 */
+	public void assertLower(int variable, Rational value, boolean strict) {
+		DeltaRational bound = new DeltaRational(value, strict ? Rational.ONE : Rational.ZERO);
+		DeltaRational lower = lowerBounds.get(variable);
+		if (lower == null || bound.compareTo(lower) > 0) {
+			lowerBounds.set(variable, bound);
+		}
+		checkBounds(variable);
+	}
+
+	/**
+	 * Asserts variable <= value, or variable < value if strict.
+	 */
+	public void assertUpper(int variable, Rational value, boolean strict) {
+		DeltaRational bound = new DeltaRational(value, strict ? Rational.ONE.negate() : Rational.ZERO);
+		DeltaRational upper = upperBounds.get(variable);
+		if (upper == null || bound.compareTo(upper) < 0) {
+			upperBounds.set(variable, bound);
+		}
+		checkBounds(variable);
+	}
+
+	private void checkBounds(int variable) {
+		DeltaRational lower = lowerBounds.get(variable);
+		DeltaRational upper = upperBounds.get(variable);
+		if (lower != null && upper != null && lower.compareTo(upper) > 0) {
+			conflict = true;
+		}
+	}
+
+	/**
+	 * Returns true if the constraints are satisfiable, false if they are not, or
+	 * null if the pivot limit was reached.
+	 */
+	public Boolean check() {
+		if (conflict) {
+			return false;
+		}
+		initializeValues();
+
+		for (int pivots = 0; pivots < MAX_PIVOTS; pivots++) {
+			// select the violated basic variable with the smallest index
+			int basic = -1;
+			boolean belowLower = false;
+			for (int variable = 0; variable < rowOf.size(); variable++) {
+				if (rowOf.get(variable) < 0) {
+					continue;
+				}
+				DeltaRational lower = lowerBounds.get(variable);
+				DeltaRational upper = upperBounds.get(variable);
+				if (lower != null && values[variable].compareTo(lower) < 0) {
+					basic = variable;
+					belowLower = true;
+					break;
+				}
+				if (upper != null && values[variable].compareTo(upper) > 0) {
+					basic = variable;
+					belowLower = false;
+					break;
+				}
+			}
+			if (basic < 0) {
+				return true;
+			}
+
+			// select the nonbasic variable with the smallest index that can be
+			// changed in the required direction
+			Rational[] row = rows.get(rowOf.get(basic));
+			int nonbasic = -1;
+			for (int variable = 0; variable < row.length; variable++) {
+				Rational coefficient = row[variable];
+				if (coefficient == null || coefficient.signum() == 0) {
+					continue;
+				}
+				boolean increase = belowLower == coefficient.signum() > 0;
+				if (increase) {
+					DeltaRational upper = upperBounds.get(variable);
+					if (upper == null || values[variable].compareTo(upper) < 0) {
+						nonbasic = variable;
+						break;
+					}
+				} else {
+					DeltaRational lower = lowerBounds.get(variable);
+					if (lower == null || values[variable].compareTo(lower) > 0) {
+						nonbasic = variable;
+						break;
+					}
+				}
+			}
+			if (nonbasic < 0) {
+				return false;
+			}
+			pivotAndUpdate(basic, nonbasic, belowLower ? lowerBounds.get(basic) : upperBounds.get(basic));
+		}
+		return null;
+	}
+
+	/**
+	 * Assigns each nonbasic variable a value within its bounds and computes the
+	 * values of the basic variables.
+	 */
+	private void initializeValues() {
+		values = new DeltaRational[rowOf.size()];
+		for (int variable = 0; variable < values.length; variable++) {
+			if (rowOf.get(variable) >= 0) {
+				continue;
+			}
+			DeltaRational lower = lowerBounds.get(variable);
+			DeltaRational upper = upperBounds.get(variable);
+			if (lower != null) {
+				values[variable] = lower;
+			} else if (upper != null) {
+				values[variable] = upper;
+			} else {
+				values[variable] = DeltaRational.ZERO;
+			}
+		}
+		for (int r = 0; r < rows.size(); r++) {
+			Rational[] row = rows.get(r);
+			DeltaRational value = DeltaRational.ZERO;
+			for (int variable = 0; variable < row.length; variable++) {
+				if (row[variable] != null) {
+					value = value.add(values[variable].multiply(row[variable]));
+				}
+			}
+			values[basicVariables.get(r)] = value;
+		}
+	}
+
+	/**
+	 * Sets the basic variable to the given value by changing the nonbasic
+	 * variable, and exchanges both variables in the tableau.
+	 */
+	private void pivotAndUpdate(int basic, int nonbasic, DeltaRational value) {
+		int pivotRow = rowOf.get(basic);
+		Rational[] row = rows.get(pivotRow);
+		Rational pivotCoefficient = row[nonbasic];
+
+		// update the values
+		DeltaRational theta = value.subtract(values[basic]).multiply(Rational.ONE.divide(pivotCoefficient));
+		values[basic] = value;
+		values[nonbasic] = values[nonbasic].add(theta);
+		for (int r = 0; r < rows.size(); r++) {
+			Rational[] other = rows.get(r);
+			if (r != pivotRow && nonbasic < other.length && other[nonbasic] != null) {
+				int variable = basicVariables.get(r);
+				values[variable] = values[variable].add(theta.multiply(other[nonbasic]));
+			}
+		}
+
+		// solve the pivot row for the nonbasic variable
+		int width = rowOf.size();
+		Rational[] newRow = new Rational[width];
+		Rational inverse = Rational.ONE.divide(pivotCoefficient);
+		for (int variable = 0; variable < row.length; variable++) {
+			if (row[variable] != null && variable != nonbasic) {
+				newRow[variable] = row[variable].negate().multiply(inverse);
+			}
+		}
+		newRow[basic] = inverse;
+		rows.set(pivotRow, newRow);
+		basicVariables.set(pivotRow, nonbasic);
+		rowOf.set(nonbasic, pivotRow);
+		rowOf.set(basic, -1);
+
+		// substitute the nonbasic variable in the other rows
+		for (int r = 0; r < rows.size(); r++) {
+			Rational[] other = rows.get(r);
+			if (r == pivotRow || nonbasic >= other.length || other[nonbasic] == null) {
+				continue;
+			}
+			Rational factor = other[nonbasic];
+			Rational[] substituted = new Rational[width];
+			System.arraycopy(other, 0, substituted, 0, other.length);
+			substituted[nonbasic] = null;
+			for (int variable = 0; variable < width; variable++) {
+				if (newRow[variable] != null) {
+					Rational sum = newRow[variable].multiply(factor);
+					if (substituted[variable] != null) {
+						sum = sum.add(substituted[variable]);
+					}
+					substituted[variable] = sum.signum() == 0 ? null : sum;
+				}
+			}
+			rows.set(r, substituted);
+		}
+	}
+
+	/**
+	 * A value c + k * delta, where delta is an infinitesimal positive number.
+	 */
+	private static class DeltaRational implements Comparable<DeltaRational> {
+
+		private static final DeltaRational ZERO = new DeltaRational(Rational.ZERO, Rational.ZERO);
+
+		private final Rational constant;
+
+		private final Rational delta;
+
+		public DeltaRational(Rational constant, Rational delta) {
+			this.constant = constant;
+			this.delta = delta;
+		}
+
+		public DeltaRational add(DeltaRational other) {
+			return new DeltaRational(constant.add(other.constant), delta.add(other.delta));
+		}
+
+		public DeltaRational subtract(DeltaRational other) {
+			return new DeltaRational(constant.subtract(other.constant), delta.subtract(other.delta));
+		}
+
+		public DeltaRational multiply(Rational factor) {
+			return new DeltaRational(constant.multiply(factor), delta.multiply(factor));
+		}
+
+		@Override
+		public int compareTo(DeltaRational other) {
+			int result = constant.compareTo(other.constant);
+			if (result != 0) {
+				return result;
+			}
+			return delta.compareTo(other.delta);
+		}
+	}
+
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.satisfiability;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import simulink2dl.dlmodel.operator.formula.Formula;
+import simulink2dl.util.PluginLogger;
+
+/**
+ * Limits the time that is spent in the SMT solver. Each query gets a timeout,
+ * and all queries of a transformation share a total budget. The budget is
+ * charged with the time that the solver queries take, other work of the
+ * transformation is not counted. Queries that run in parallel are charged
+ * separately, and a running query is only charged when it is finished. Once
+ * the budget is used up, no further queries are sent to the solver and their
+ * result is UNKNOWN, i.e. the corresponding branches are kept.
+ * 
+ * Each transformer owns a budget and passes it to its formula checkers. The
+ * limits are given in milliseconds, a value of 0 means no limit. A budget that
+ * is created without limits reads them from the system properties
+ * "simulink2dl.solverTimeout" (default 10000) and "simulink2dl.solverBudget"
+ * (default 0).
+ */
+public class SolverBudget {
+
+	/**
+	 * Timeout of a single query in milliseconds, if no other timeout is given.
+	 */
+	public static final long DEFAULT_QUERY_TIMEOUT = 10000;
+
+	/**
+	 * Formulas in the statistics are shortened to this length.
+	 */
+	private static final int MAX_FORMULA_LENGTH = 200;
+
+	private long queryTimeout;
+
+	private long transformationBudget;
+
+	private final AtomicLong usedTime = new AtomicLong();
+
+	private final AtomicInteger queryCount = new AtomicInteger();
+
+	private final AtomicInteger presolvedCount = new AtomicInteger();
+
+	private final List<String> timedOutFormulas = new ArrayList<String>();
+
+	private final List<String> skippedFormulas = new ArrayList<String>();
+
+	/**
+	 * Creates a budget with the limits of the system properties.
+	 */
+	public SolverBudget() {
+		this(Long.getLong("simulink2dl.solverTimeout", DEFAULT_QUERY_TIMEOUT),
+				Long.getLong("simulink2dl.solverBudget", 0));
+	}
+
+	/**
+	 * @param queryTimeout         timeout of a single query in milliseconds, 0
+	 *                             for no timeout
+	 * @param transformationBudget solver time of all queries of a
+	 *                             transformation in milliseconds, 0 for no
+	 *                             limit
+	 */
+	public SolverBudget(long queryTimeout, long transformationBudget) {
+		this.queryTimeout = queryTimeout;
+		this.transformationBudget = transformationBudget;
+	}
+
+	/**
+	 * Sets the timeout of a single query in milliseconds, 0 for no timeout.
+	 */
+	public void setQueryTimeout(long milliseconds) {
+		queryTimeout = milliseconds;
+	}
+
+	public long getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	/**
+	 * Sets the time in milliseconds that all queries of a transformation may
+	 * take together, 0 for no limit.
+	 */
+	public void setTransformationBudget(long milliseconds) {
+		transformationBudget = milliseconds;
+	}
+
+	public long getTransformationBudget() {
+		return transformationBudget;
+	}
+
+	/**
+	 * Starts the budget of a new transformation and resets the statistics.
+	 */
+	public void startTransformation() {
+		usedTime.set(0);
+		resetStatistics();
+	}
+
+	/**
+	 * Returns the timeout in milliseconds for the next query, 0 if the query has
+	 * no timeout, or -1 if the budget of the transformation is used up.
+	 */
+	public long getNextQueryTimeout() {
+		if (transformationBudget <= 0) {
+			return queryTimeout;
+		}
+		long remaining = transformationBudget - usedTime.get() / 1000000L;
+		if (remaining <= 0) {
+			return -1;
+		}
+		if (queryTimeout > 0) {
+			return Math.min(queryTimeout, remaining);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Records queries that were sent to the solver and the time in nanoseconds
+	 * that they took together. The time is charged to the budget.
+	 */
+	public void recordQueries(int count, long nanoseconds) {
+		queryCount.addAndGet(count);
+		usedTime.addAndGet(nanoseconds);
+	}
+
+	/**
+	 * Records a formula that was decided by the LinearPreSolver without a
+	 * solver query.
+	 */
+	public void recordPresolved() {
+		presolvedCount.incrementAndGet();
+	}
+
+	/**
+	 * Records a formula whose check was stopped by a timeout.
+	 */
+	public void recordTimeout(Formula formula) {
+		synchronized (timedOutFormulas) {
+			timedOutFormulas.add(shorten(formula.toString()));
+		}
+	}
+
+	/**
+	 * Records a formula that was not checked, since the budget was used up.
+	 */
+	public void recordSkipped(Formula formula) {
+		synchronized (timedOutFormulas) {
+			skippedFormulas.add(shorten(formula.toString()));
+		}
+	}
+
+	/**
+	 * Returns the formulas whose check was stopped by a timeout.
+	 */
+	public List<String> getTimedOutFormulas() {
+		synchronized (timedOutFormulas) {
+			return new ArrayList<String>(timedOutFormulas);
+		}
+	}
+
+	/**
+	 * Returns the formulas that were not checked, since the budget was used up.
+	 */
+	public List<String> getSkippedFormulas() {
+		synchronized (timedOutFormulas) {
+			return new ArrayList<String>(skippedFormulas);
+		}
+	}
+
+	/**
+	 * Logs the number of queries and the formulas that timed out or were skipped
+	 * since the last call, e.g. for the transformation or the optimization. The
+	 * statistics are reset afterwards, the budget is kept.
+	 * 
+	 * @param phase name of the phase in the log, e.g. "transformation"
+	 */
+	public void logStatistics(String phase) {
+		synchronized (timedOutFormulas) {
+			PluginLogger.info("[EVALUATION] " + phase + ": " + presolvedCount.get()
+					+ " formulas decided by the linear pre-solver, " + queryCount.get() + " solver queries, "
+					+ timedOutFormulas.size() + " timed out, " + skippedFormulas.size()
+					+ " skipped after the solver budget was used up.");
+			for (String formula : timedOutFormulas) {
+				PluginLogger.info("	timed out: " + formula);
+			}
+			for (String formula : skippedFormulas) {
+				PluginLogger.info("	skipped: " + formula);
+			}
+		}
+		resetStatistics();
+	}
+
+	private void resetStatistics() {
+		queryCount.set(0);
+		presolvedCount.set(0);
+		synchronized (timedOutFormulas) {
+			timedOutFormulas.clear();
+			skippedFormulas.clear();
+		}
+	}
+
+	private static String shorten(String formula) {
+		if (formula.length() <= MAX_FORMULA_LENGTH) {
+			return formula;
+		}
+		return formula.substring(0, MAX_FORMULA_LENGTH) + "...";
+	}
+
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.simulink_transformer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkModel;
+
+import simulink2dl.util.PluginLogger;
+
+/**
+ * This class removes all blocks from a Simulink model that do not influence a
+ * given set of target blocks, e.g. the outports that are relevant for a
+ * property. The backward cone of influence is computed over the signal lines
+ * of the top level system, including signals that are routed via Goto and From
+ * blocks and signals that pass through stateful blocks. Subsystems should be
+ * flattened before, otherwise they are handled as a whole.
+ */
+public class ConeOfInfluenceSlicer {
+
+	private SimulinkModel simulinkModel;
+
+	private ConnectivityIndex connectivityIndex;
+
+	/**
+	 * Block types that introduce at least one variable in the dL model.
+	 */
+	private Set<String> variableBlockTypes;
+
+	private int removedBlocks;
+	private int removedLines;
+	private int removedOutputPorts;
+	private int removedVariableBlocks;
+
+	public ConeOfInfluenceSlicer(SimulinkModel simulinkModel, ConnectivityIndex connectivityIndex) {
+		this.simulinkModel = simulinkModel;
+		this.connectivityIndex = connectivityIndex;
+
+		variableBlockTypes = new HashSet<String>();
+		variableBlockTypes.add("Inport");
+		variableBlockTypes.add("Outport");
+		variableBlockTypes.add("Scope");
+		variableBlockTypes.add("Integrator");
+		variableBlockTypes.add("DiscreteIntegrator");
+		variableBlockTypes.add("UnitDelay");
+		variableBlockTypes.add("Delay");
+		variableBlockTypes.add("ZeroOrderHold");
+	}
+
+	/**
+	 * Returns all blocks that influence one of the given target blocks, including
+	 * the target blocks.
+	 */
+	public Set<SimulinkBlock> computeCone(Collection<SimulinkBlock> targets) {
+		Set<SimulinkBlock> cone = new HashSet<SimulinkBlock>(targets);
+		LinkedList<SimulinkBlock> worklist = new LinkedList<SimulinkBlock>(targets);
+
+		// the virtual blocks on the signal paths are kept, so the remaining model
+		// is still connected
+		while (!worklist.isEmpty()) {
+			SimulinkBlock block = worklist.removeFirst();
+			List<SimulinkBlock> predecessors = new LinkedList<SimulinkBlock>();
+			for (SimulinkLine line : block.getInLines()) {
+				predecessors.add(line.getSrcPort().getBlock());
+			}
+			predecessors.addAll(connectivityIndex.getConnectedGotoBlocks(block));
+
+			for (SimulinkBlock predecessor : predecessors) {
+				if (cone.add(predecessor)) {
+					worklist.add(predecessor);
+				}
+			}
+		}
+
+		return cone;
+	}
+
+	/**
+	 * Removes all top level blocks that do not influence the blocks with the given
+	 * names. Returns false if none of the names belongs to a block, in that case
+	 * the model is not changed.
+	 */
+	public boolean slice(Collection<String> targetNames) {
+		List<SimulinkBlock> targets = new LinkedList<SimulinkBlock>();
+		for (String targetName : targetNames) {
+			SimulinkBlock target = simulinkModel.getSubBlock(targetName);
+			if (target == null) {
+				PluginLogger.warning("Slicing target " + targetName + " not found.");
+			} else {
+				targets.add(target);
+			}
+		}
+
+		if (targets.isEmpty()) {
+			PluginLogger.warning("No slicing target found, the model is not sliced.");
+			return false;
+		}
+
+		Set<SimulinkBlock> cone = computeCone(targets);
+
+		for (SimulinkBlock block : new ArrayList<SimulinkBlock>(simulinkModel.getSubBlocks())) {
+			if (cone.contains(block)) {
+				continue;
+			}
+			removedBlocks++;
+			removedOutputPorts += block.getOutPorts().size();
+			if (variableBlockTypes.contains(block.getType())) {
+				removedVariableBlocks++;
+			}
+			// lines are removed together with the block, so each line is counted once
+			removedLines += block.getInLines().size() + block.getOutLines().size();
+			block.remove();
+		}
+
+		PluginLogger.info(getReport());
+		return true;
+	}
+
+	/**
+	 * Returns a short description of the removed elements. Each output port of a
+	 * removed block would have been replaced by a macro, the number of variables
+	 * is a lower bound, since some blocks introduce more than one variable.
+	 */
+	public String getReport() {
+		return "Slicing removed " + removedBlocks + " blocks, " + removedLines + " signal lines, "
+				+ removedOutputPorts + " macros and at least " + removedVariableBlocks + " variables. "
+				+ simulinkModel.getSubBlocks().size() + " blocks remain.";
+	}
+
+	public int getRemovedBlocks() {
+		return removedBlocks;
+	}
+
+	public int getRemovedLines() {
+		return removedLines;
+	}
+
+	public int getRemovedOutputPorts() {
+		return removedOutputPorts;
+	}
+
+	public int getRemovedVariableBlocks() {
+		return removedVariableBlocks;
+	}
+
+}
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.simulink_transformer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkLine;
+import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+import org.conqat.lib.simulink.model.SimulinkPortBase;
+import org.conqat.lib.simulink.util.SimulinkUtils;
+
+import simulink2dl.util.PluginLogger;
+
+/**
+ * This class contains the connectivity of a Simulink model. Virtual routing of
+ * signals is resolved once when the index is created, afterwards the real
+ * source port of each input port is looked up in constant time.
+ * 
+ * The following virtual routings are resolved:
+ * <ul>
+ * <li>From blocks are replaced by the source of the Goto block that is visible
+ * for them according to its tag visibility (see {@link GotoTagResolver}).</li>
+ * <li>If subsystem ports are resolved, Inport blocks inside a subsystem are
+ * replaced by the source of the corresponding input port of the subsystem and
+ * output ports of subsystems by the source of the corresponding Outport
+ * block.</li>
+ * </ul>
+ * Subsystem ports should only be resolved if the inner blocks of subsystems are
+ * transformed as well, otherwise subsystems are handled as opaque blocks.
+ */
+public class ConnectivityIndex {
+
+	private SimulinkModel simulinkModel;
+
+	private boolean resolveSubsystemPorts;
+
+	/**
+	 * Resolved source port for each connected input port.
+	 */
+	private Map<SimulinkInPort, SimulinkOutPort> sourcePorts;
+
+	/**
+	 * Input ports that are (after resolving) connected to an output port.
+	 */
+	private Map<SimulinkOutPort, List<SimulinkInPort>> destinationPorts;
+
+	/**
+	 * All ports of all blocks in the model.
+	 */
+	private Set<SimulinkPortBase> ports;
+
+	private GotoTagResolver gotoTagResolver;
+
+	public ConnectivityIndex(SimulinkModel simulinkModel) {
+		this(simulinkModel, false);
+	}
+
+	public ConnectivityIndex(SimulinkModel simulinkModel, boolean resolveSubsystemPorts) {
+		this.simulinkModel = simulinkModel;
+		this.resolveSubsystemPorts = resolveSubsystemPorts;
+
+		this.sourcePorts = new HashMap<SimulinkInPort, SimulinkOutPort>();
+		this.destinationPorts = new HashMap<SimulinkOutPort, List<SimulinkInPort>>();
+		this.ports = new HashSet<SimulinkPortBase>();
+
+		buildIndex();
+	}
+
+	private void buildIndex() {
+		Map<SimulinkOutPort, SimulinkOutPort> resolved = new HashMap<SimulinkOutPort, SimulinkOutPort>();
+
+		for (SimulinkBlock block : SimulinkUtils.listBlocksDepthFirst(simulinkModel)) {
+			ports.addAll(block.getOutPorts());
+			for (SimulinkInPort inPort : block.getInPorts()) {
+				ports.add(inPort);
+
+				SimulinkLine line = inPort.getLine();
+				if (line == null || line.getSrcPort() == null) {
+					continue;
+				}
+
+				SimulinkOutPort sourcePort = resolve(line.getSrcPort(), resolved, new HashSet<SimulinkOutPort>());
+				sourcePorts.put(inPort, sourcePort);
+
+				List<SimulinkInPort> destinations = destinationPorts.get(sourcePort);
+				if (destinations == null) {
+					destinations = new LinkedList<SimulinkInPort>();
+					destinationPorts.put(sourcePort, destinations);
+				}
+				destinations.add(inPort);
+			}
+		}
+	}
+
+	/**
+	 * Follows the virtual routing starting at the given port. Results are stored
+	 * in the given map, so each port is resolved only once.
+	 */
+	private SimulinkOutPort resolve(SimulinkOutPort port, Map<SimulinkOutPort, SimulinkOutPort> resolved,
+			Set<SimulinkOutPort> visited) {
+		SimulinkOutPort result = resolved.get(port);
+		if (result != null) {
+			return result;
+		}
+
+		if (!visited.add(port)) {
+			PluginLogger.error("Cyclic virtual routing at block " + port.getBlock().getName() + ".");
+			return port;
+		}
+
+		result = port;
+		SimulinkInPort next = getVirtualPredecessor(port);
+		if (next != null) {
+			SimulinkLine line = next.getLine();
+			if (line != null && line.getSrcPort() != null) {
+				result = resolve(line.getSrcPort(), resolved, visited);
+			} else {
+				PluginLogger.warning("Virtual routing of block " + port.getBlock().getName() + " is not connected.");
+			}
+		}
+
+		resolved.put(port, result);
+		return result;
+	}
+
+	/**
+	 * Returns the input port the signal of the given virtual output port is
+	 * routed from, or null if the port is not virtual.
+	 */
+	private SimulinkInPort getVirtualPredecessor(SimulinkOutPort port) {
+		SimulinkBlock block = port.getBlock();
+		String type = block.getType();
+
+		if (SimulinkConstants.TYPE_FROM.equals(type)) {
+			SimulinkBlock gotoBlock = getGotoTagResolver().getGotoBlock(block);
+			if (gotoBlock == null) {
+				PluginLogger.warning("No visible Goto block found for From block " + block.getName() + ".");
+				return null;
+			}
+			return gotoBlock.getInPort("1");
+		}
+
+		if (!resolveSubsystemPorts) {
+			return null;
+		}
+
+		if (SimulinkConstants.TYPE_INPORT.equals(type) && isSubsystem(block.getParent())) {
+			return block.getParent().getInPort(getPortNumber(block));
+		}
+
+		if (isSubsystem(block) && block.hasSubBlocks()) {
+			for (SimulinkBlock innerBlock : block.getSubBlocks()) {
+				if (SimulinkConstants.TYPE_OUTPORT.equals(innerBlock.getType())
+						&& getPortNumber(innerBlock).equals(port.getIndex())) {
+					return innerBlock.getInPort("1");
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean isSubsystem(SimulinkBlock block) {
+		return block != null && !(block instanceof SimulinkModel)
+				&& SimulinkConstants.SUBSYSTEM.equals(block.getType());
+	}
+
+	private static String getPortNumber(SimulinkBlock portBlock) {
+		String portNumber = portBlock.getParameter(SimulinkConstants.PARAM_PORT);
+		if (portNumber == null || portNumber.isEmpty()) {
+			return "1";
+		}
+		return portNumber;
+	}
+
+	/**
+	 * Returns the resolver for the current state of the model. The resolver that
+	 * is cached in the model is not used, since it does not reflect changes of
+	 * the model, e.g. by flattening subsystems.
+	 */
+	private GotoTagResolver getGotoTagResolver() {
+		if (gotoTagResolver == null) {
+			gotoTagResolver = new GotoTagResolver(simulinkModel);
+		}
+		return gotoTagResolver;
+	}
+
+	/**
+	 * Returns the real source port of the signal that is connected to the given
+	 * input port, or null if the port is not connected.
+	 */
+	public SimulinkOutPort getSourcePort(SimulinkInPort inPort) {
+		return sourcePorts.get(inPort);
+	}
+
+	/**
+	 * Returns the real source port of the signal that is connected to the input
+	 * port of the given block at the given position.
+	 */
+	public SimulinkOutPort getSourcePort(SimulinkBlock block, int portNumber) {
+		SimulinkInPort inPort = block.getInPort(Integer.toString(portNumber));
+		if (inPort == null) {
+			return null;
+		}
+		return getSourcePort(inPort);
+	}
+
+	/**
+	 * Returns the block of the real source port of the given input port, or null
+	 * if the port is not connected.
+	 */
+	public SimulinkBlock getSourceBlock(SimulinkInPort inPort) {
+		SimulinkOutPort sourcePort = getSourcePort(inPort);
+		if (sourcePort == null) {
+			return null;
+		}
+		return sourcePort.getBlock();
+	}
+
+	/**
+	 * Returns all input ports that receive the signal of the given output port,
+	 * including ports that are reached via virtual routing.
+	 */
+	public List<SimulinkInPort> getDestinationPorts(SimulinkOutPort outPort) {
+		List<SimulinkInPort> destinations = destinationPorts.get(outPort);
+		if (destinations == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(destinations);
+	}
+
+	/**
+	 * Returns the Goto block that is visible for the given From block as a list.
+	 * For all other blocks and for From blocks without a visible Goto block an
+	 * empty list is returned.
+	 */
+	public List<SimulinkBlock> getConnectedGotoBlocks(SimulinkBlock fromBlock) {
+		if (!SimulinkConstants.TYPE_FROM.equals(fromBlock.getType())) {
+			return Collections.emptyList();
+		}
+		SimulinkBlock gotoBlock = getGotoTagResolver().getGotoBlock(fromBlock);
+		if (gotoBlock == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(gotoBlock);
+	}
+
+	/**
+	 * Checks whether the given port belongs to a block of the model.
+	 */
+	public boolean containsPort(SimulinkPortBase port) {
+		return ports.contains(port);
+	}
+
+	public SimulinkModel getSimulinkModel() {
+		return simulinkModel;
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.simulink_transformer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.util.SimulinkUtils;
+
+import simulink2dl.util.PluginLogger;
+
+/**
+ * This class finds the Goto block a From block reads from. The tag visibility
+ * of the Goto blocks is taken into account in the same order as Simulink does:
+ * <ul>
+ * <li>a local Goto block with the same tag in the same system,</li>
+ * <li>a scoped Goto block with the same tag below the nearest system that
+ * contains a GotoTagVisibility block for the tag,</li>
+ * <li>a global Goto block with the same tag anywhere in the model.</li>
+ * </ul>
+ * The Goto blocks are collected when the resolver is created, so a new
+ * resolver has to be created after the model was changed.
+ */
+public class GotoTagResolver {
+
+	public static final String PARAM_TAG_VISIBILITY = "TagVisibility";
+
+	public static final String VISIBILITY_LOCAL = "local";
+
+	public static final String VISIBILITY_SCOPED = "scoped";
+
+	public static final String VISIBILITY_GLOBAL = "global";
+
+	/**
+	 * All Goto blocks grouped by their tag.
+	 */
+	private Map<String, List<SimulinkBlock>> gotoBlocksByTag;
+
+	/**
+	 * Tags of the GotoTagVisibility blocks of each system.
+	 */
+	private Map<SimulinkBlock, Set<String>> visibilityTags;
+
+	public GotoTagResolver(SimulinkBlock root) {
+		gotoBlocksByTag = new HashMap<String, List<SimulinkBlock>>();
+		visibilityTags = new HashMap<SimulinkBlock, Set<String>>();
+
+		for (SimulinkBlock block : SimulinkUtils.listBlocksDepthFirst(root)) {
+			String tag = getTag(block);
+			if (tag == null) {
+				continue;
+			}
+			if (SimulinkConstants.TYPE_GOTO.equals(block.getType())) {
+				List<SimulinkBlock> gotoBlocks = gotoBlocksByTag.get(tag);
+				if (gotoBlocks == null) {
+					gotoBlocks = new LinkedList<SimulinkBlock>();
+					gotoBlocksByTag.put(tag, gotoBlocks);
+				}
+				gotoBlocks.add(block);
+			} else if (SimulinkConstants.TYPE_GOTO_TAG_VISIBILITY.equals(block.getType())) {
+				Set<String> tags = visibilityTags.get(block.getParent());
+				if (tags == null) {
+					tags = new HashSet<String>();
+					visibilityTags.put(block.getParent(), tags);
+				}
+				tags.add(tag);
+			}
+		}
+	}
+
+	/**
+	 * Returns the tag of a Goto, From or GotoTagVisibility block, or null if the
+	 * block has no tag.
+	 */
+	public static String getTag(SimulinkBlock block) {
+		return block.getParameter(SimulinkConstants.PARAM_GOTO_TAG);
+	}
+
+	/**
+	 * Returns the tag visibility of a Goto block. Goto blocks without the
+	 * parameter are local.
+	 */
+	public static String getVisibility(SimulinkBlock gotoBlock) {
+		String visibility = gotoBlock.getParameter(PARAM_TAG_VISIBILITY);
+		if (visibility == null || visibility.isEmpty()) {
+			return VISIBILITY_LOCAL;
+		}
+		return visibility;
+	}
+
+	/**
+	 * Returns all Goto blocks with the given tag, regardless of their visibility.
+	 */
+	public List<SimulinkBlock> getGotoBlocks(String tag) {
+		List<SimulinkBlock> gotoBlocks = gotoBlocksByTag.get(tag);
+		if (gotoBlocks == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(gotoBlocks);
+	}
+
+	/**
+	 * Returns the Goto block that is visible for the given From block, or null if
+	 * there is none.
+	 */
+	public SimulinkBlock getGotoBlock(SimulinkBlock fromBlock) {
+		String tag = getTag(fromBlock);
+		if (tag == null) {
+			return null;
+		}
+		List<SimulinkBlock> candidates = getGotoBlocks(tag);
+
+		SimulinkBlock parent = fromBlock.getParent();
+		SimulinkBlock result = select(fromBlock, candidates, VISIBILITY_LOCAL, parent);
+		if (result != null) {
+			return result;
+		}
+
+		for (SimulinkBlock scope = getScope(parent, tag); scope != null; scope = getScope(scope.getParent(), tag)) {
+			result = select(fromBlock, candidates, VISIBILITY_SCOPED, scope);
+			if (result != null) {
+				return result;
+			}
+		}
+
+		return select(fromBlock, candidates, VISIBILITY_GLOBAL, null);
+	}
+
+	/**
+	 * Returns the Goto block with the given visibility among the candidates. For
+	 * local Goto blocks, the system is the parent of the From block, for scoped
+	 * Goto blocks it is the system that defines the scope. Global Goto blocks are
+	 * not restricted.
+	 */
+	private SimulinkBlock select(SimulinkBlock fromBlock, List<SimulinkBlock> candidates, String visibility,
+			SimulinkBlock system) {
+		List<SimulinkBlock> matches = new LinkedList<SimulinkBlock>();
+		for (SimulinkBlock gotoBlock : candidates) {
+			if (!visibility.equals(getVisibility(gotoBlock))) {
+				continue;
+			}
+			if (VISIBILITY_LOCAL.equals(visibility) && gotoBlock.getParent() != system) {
+				continue;
+			}
+			if (VISIBILITY_SCOPED.equals(visibility)
+					&& getScope(gotoBlock.getParent(), getTag(gotoBlock)) != system) {
+				continue;
+			}
+			matches.add(gotoBlock);
+		}
+
+		if (matches.isEmpty()) {
+			return null;
+		}
+		if (matches.size() > 1) {
+			PluginLogger.warning("Multiple " + visibility + " Goto blocks with tag " + getTag(fromBlock)
+					+ " are visible for From block " + fromBlock.getName() + ".");
+		}
+		return matches.get(0);
+	}
+
+	/**
+	 * Returns the given system or its nearest ancestor that contains a
+	 * GotoTagVisibility block for the given tag, or null if there is none.
+	 */
+	private SimulinkBlock getScope(SimulinkBlock system, String tag) {
+		for (SimulinkBlock current = system; current != null; current = current.getParent()) {
+			Set<String> tags = visibilityTags.get(current);
+			if (tags != null && tags.contains(tag)) {
+				return current;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2020
+ * AG Embedded Systems, University of Münster
+ * SESE Software and Embedded Systems Engineering, TU Berlin
+ * 
+ * Authors:
+ * 	Paula Herber
+ * 	Sabine Glesner
+ * 	Timm Liebrenz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package simulink2dl.util.simulink_transformer;
+
+import java.util.Collection;
+
+/**
+ * This class decides which subsystems are services. Services are not
+ * flattened, but transformed into their contracts. A subsystem is a service if
+ * its name starts with "Service" or "RLService", if one of the fixed contracts
+ * of the ServiceTransformer applies to it, or if a contract is available whose
+ * id is a prefix of its name.
+ * 
+ * The SubsystemRemover, the TransformerFactory and the ContractRepository all
+ * use this class, so a subsystem that is kept as a service is always
+ * transformed as one and finds its contract.
+ */
+public class ServiceNames {
+
+	public static final String SERVICE_PREFIX = "Service";
+
+	public static final String RL_SERVICE_PREFIX = "RLService";
+
+	/**
+	 * Suffix of the services for which the ServiceTransformer provides a fixed
+	 * contract.
+	 */
+	public static final String TEMPERATURE_CONTROL_SUFFIX = "TemperatureControl";
+
+	private ServiceNames() {
+		// utility class
+	}
+
+	/**
+	 * Checks whether the subsystem with the given name is a service.
+	 * 
+	 * @param name        name of the subsystem block
+	 * @param contractIds ids of the available contracts
+	 */
+	public static boolean isService(String name, Collection<String> contractIds) {
+		return name.startsWith(SERVICE_PREFIX) || isRLService(name) || hasFixedContract(name)
+				|| findContractId(name, contractIds) != null;
+	}
+
+	/**
+	 * Returns the id of the contract for the service with the given name, which
+	 * is the longest of the given ids that is a prefix of the name, or null if
+	 * there is no such id.
+	 * 
+	 * @param name        name of the service block
+	 * @param contractIds ids of the available contracts
+	 */
+	public static String findContractId(String name, Collection<String> contractIds) {
+		for (int end = name.length(); end > 0; end--) {
+			String id = name.substring(0, end);
+			if (contractIds.contains(id)) {
+				return id;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the subsystem with the given name is a service with a
+	 * reinforcement learning component.
+	 */
+	public static boolean isRLService(String name) {
+		return name.startsWith(RL_SERVICE_PREFIX);
+	}
+
+	/**
+	 * Checks whether the ServiceTransformer provides a fixed contract for the
+	 * service with the given name.
+	 */
+	public static boolean hasFixedContract(String name) {
+		return name.endsWith(TEMPERATURE_CONTROL_SUFFIX);
+	}
+
+}
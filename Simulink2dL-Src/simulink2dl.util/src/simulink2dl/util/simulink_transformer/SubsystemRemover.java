@@ -28,272 +28,706 @@
  ******************************************************************************/
 package simulink2dl.util.simulink_transformer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.conqat.lib.commons.clone.DeepCloneException;
+import org.conqat.lib.simulink.builder.ReferencedModelResolver;
+import org.conqat.lib.simulink.builder.SimulinkModelBuildingException;
 import org.conqat.lib.simulink.model.SimulinkBlock;
+import org.conqat.lib.simulink.model.SimulinkConstants;
+import org.conqat.lib.simulink.model.SimulinkInPort;
+import org.conqat.lib.simulink.model.SimulinkLine;
 import org.conqat.lib.simulink.model.SimulinkModel;
+import org.conqat.lib.simulink.model.SimulinkObject;
+import org.conqat.lib.simulink.model.SimulinkOutPort;
+import org.conqat.lib.simulink.util.SimulinkUtils;
 
 import simulink2dl.util.PluginLogger;
 
 /**
  * This class removes the subsystem blocks of a Java-IR simulink model. The
- * inner blocks are still present and connected to the outer blocks.
+ * inner blocks are moved to the parent system and connected to the outer
+ * blocks. Inner blocks are renamed by prefixing the name of the subsystem.
+ * 
+ * Subsystems are flattened bottom up. The values of mask parameters are
+ * substituted into the inner blocks of masked subsystems before the blocks are
+ * moved out of the mask (see {@link #substituteMaskValues(SimulinkBlock)}).
+ * Masked subsystems with initialization code are not flattened.
+ * 
+ * Service subsystems and subsystems whose semantics depend on control ports
+ * (enabled, triggered, action or iterator subsystems) and Stateflow charts are
+ * not flattened.
  * 
  * @author Nick Bremer, Timm Liebrenz
  *
  */
 public class SubsystemRemover {
 
-	private SimulinkModel simulinkModel;
+	/**
+	 * Pattern for identifiers in parameter values. Field names and exponents of
+	 * numbers are not matched.
+	 */
+	private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("(?<![\\w.])[A-Za-z]\\w*");
+
+	/**
+	 * Pattern for the entries of the MaskVariables parameter, e.g. "K=@1". The
+	 * values of variables marked with '&' are not evaluated.
+	 */
+	private static final Pattern MASK_VARIABLE_PATTERN = Pattern.compile("(\\w+)=([@&])(\\d+)");
+
+	/**
+	 * Pattern for mask values that can be substituted without parentheses.
+	 */
+	private static final Pattern SIMPLE_VALUE_PATTERN = Pattern.compile("[\\w.]+");
 
-	private List<String> serviceSubsystemPrefixes;
+	private SimulinkModel simulinkModel;
 
 	private List<SimulinkBlock> ordinarySubsystems;
 	private List<SimulinkBlock> serviceSubsystems;
 
-	private List<String> contractIds;
+	private Set<String> contractIds;
+
+	/**
+	 * Block types that prevent flattening of the containing subsystem.
+	 */
+	private Set<String> controlPortTypes;
+
+	/**
+	 * Parameters that describe the layout of a block and are ignored when
+	 * comparing subsystems.
+	 */
+	private Set<String> layoutParameters;
+
+	/**
+	 * Parameters that are no expressions, so mask values are not substituted into
+	 * them.
+	 */
+	private Set<String> nonExpressionParameters;
+
+	/**
+	 * Maps inlined library links to the library blocks that define their masks.
+	 */
+	private Map<SimulinkBlock, SimulinkBlock> maskDefinitions;
 
 	public SubsystemRemover(SimulinkModel simulinkModel, List<String> contractIds) {
 		this.simulinkModel = simulinkModel;
 
-		serviceSubsystemPrefixes = new LinkedList<String>();
-
 		ordinarySubsystems = new LinkedList<SimulinkBlock>();
 		serviceSubsystems = new LinkedList<SimulinkBlock>();
 
-		serviceSubsystemPrefixes = new LinkedList<String>();
+		this.contractIds = new HashSet<String>(contractIds);
+
+		controlPortTypes = new HashSet<String>();
+		layoutParameters = new HashSet<String>();
+		nonExpressionParameters = new HashSet<String>();
+		maskDefinitions = new HashMap<SimulinkBlock, SimulinkBlock>();
+	}
+
+	private void initializeBlockTypes() {
+		controlPortTypes.add(SimulinkConstants.TYPE_ENABLE_PORT);
+		controlPortTypes.add(SimulinkConstants.TYPE_TRIGGER_PORT);
+		controlPortTypes.add(SimulinkConstants.TYPE_RESET_PORT_BLOCK);
+		controlPortTypes.add(SimulinkConstants.TYPE_FOR_ITERATOR);
+		controlPortTypes.add(SimulinkConstants.TYPE_WHILE_ITERATOR);
+		controlPortTypes.add("ActionPort");
+
+		layoutParameters.add(SimulinkConstants.PARAM_NAME);
+		layoutParameters.add(SimulinkConstants.PARAM_SID);
+		layoutParameters.add(SimulinkConstants.PARAM_POSITION);
+		layoutParameters.add(SimulinkConstants.PARAM_BACKGROUND_COLOR);
+		layoutParameters.add("ForegroundColor");
+		layoutParameters.add("ZOrder");
+		layoutParameters.add("ShowName");
+		layoutParameters.add("NamePlacement");
+		layoutParameters.add("FontName");
+		layoutParameters.add("FontSize");
+		layoutParameters.add("FontWeight");
+		layoutParameters.add("DropShadow");
+		layoutParameters.add("Orientation");
+		layoutParameters.add("BlockMirror");
+		layoutParameters.add("BlockRotation");
 
-		this.contractIds = contractIds;
+		nonExpressionParameters.addAll(layoutParameters);
+		nonExpressionParameters.add(SimulinkConstants.PARAM_BLOCK_TYPE);
+		nonExpressionParameters.add(SimulinkConstants.PARAM_SOURCE_BLOCK);
+		nonExpressionParameters.add(SimulinkConstants.PARAM_SOURCE_TYPE);
 	}
 
-	private void initializeServiceSubsystemNames() {
-		serviceSubsystemPrefixes.add("Service");
+	/**
+	 * Replaces the contents of library links whose contents are not part of
+	 * the model by a copy of the referenced library block, so that they can be
+	 * flattened like ordinary subsystems. The libraries are loaded through the
+	 * shared {@link ReferencedModelResolver}, so each library file is parsed
+	 * only once. Library links that cannot be resolved are left unchanged.
+	 */
+	public void inlineLibraryLinks() {
+		int inlined = inlineLibraryLinks(simulinkModel);
+		if (inlined > 0) {
+			PluginLogger.info("Inlined " + inlined + " library links.");
+		}
 	}
 
+	private int inlineLibraryLinks(SimulinkBlock parent) {
+		int inlined = 0;
+		for (SimulinkBlock block : new ArrayList<SimulinkBlock>(parent.getSubBlocks())) {
+			if (SimulinkConstants.TYPE_REFERENCE.equals(block.getType()) && !block.hasSubBlocks()
+					&& inlineLibraryBlock(block)) {
+				inlined++;
+			}
+			inlined += inlineLibraryLinks(block);
+		}
+		return inlined;
+	}
+
+	/**
+	 * Copies the contents of the library block referenced by the given block
+	 * into it. Returns whether the library block was found.
+	 */
+	private boolean inlineLibraryBlock(SimulinkBlock block) {
+		SimulinkBlock libraryBlock;
+		try {
+			libraryBlock = ReferencedModelResolver.getInstance().resolveBlock(block);
+		} catch (SimulinkModelBuildingException e) {
+			PluginLogger.exception("Library of block " + block.getName() + " could not be loaded.", e);
+			return false;
+		}
+		if (libraryBlock == null || !libraryBlock.hasSubBlocks()) {
+			return false;
+		}
+
+		// the library model is shared, so only a copy of the block may be modified
+		SimulinkBlock copy;
+		try {
+			copy = libraryBlock.deepClone();
+		} catch (DeepCloneException e) {
+			PluginLogger.exception("Library block " + libraryBlock.getId() + " could not be copied.", e);
+			return false;
+		}
+
+		// lines are recreated in the link block after the blocks were moved
+		List<SimulinkOutPort> sources = new ArrayList<SimulinkOutPort>();
+		List<SimulinkInPort> destinations = new ArrayList<SimulinkInPort>();
+		for (SimulinkLine line : new ArrayList<SimulinkLine>(copy.getContainedLines())) {
+			sources.add(line.getSrcPort());
+			destinations.add(line.getDstPort());
+			line.remove();
+		}
+		for (SimulinkBlock child : new ArrayList<SimulinkBlock>(copy.getSubBlocks())) {
+			child.detach();
+			block.addSubBlock(child);
+		}
+		for (int i = 0; i < sources.size(); i++) {
+			new SimulinkLine(sources.get(i), destinations.get(i), block);
+		}
+
+		// the mask is defined by the library block, the link holds the values
+		maskDefinitions.put(block, libraryBlock);
+		return true;
+	}
+
+	/**
+	 * Collects the subsystems of the model. Subsystems are ordered such that
+	 * inner subsystems are placed before their parents.
+	 */
 	public void initialize() {
-		initializeServiceSubsystemNames();
+		initializeBlockTypes();
+
+		collectSubsystems(simulinkModel);
+	}
 
-//		for (SimulinkBlock block : simulinkModel.getSubBlocks()) {
-//			if (isOrdinarySubsystem(block)) {
-//				if (isServiceSubsystem(block)) {
-//					serviceSubsystems.add(block);
-//				} else {
-//					ordinarySubsystems.add(block);
-//				}
-//			}
-//		}
+	private void collectSubsystems(SimulinkBlock parent) {
+		for (SimulinkBlock block : parent.getSubBlocks()) {
+			if (!isSubsystem(block)) {
+				continue;
+			}
+			if (isServiceSubsystem(block)) {
+				serviceSubsystems.add(block);
+				continue;
+			}
+			collectSubsystems(block);
+			if (isOrdinarySubsystem(block)) {
+				ordinarySubsystems.add(block);
+			}
+		}
 	}
 
+	/**
+	 * Moves the inner blocks of all ordinary subsystems into their parent
+	 * systems and removes the subsystem blocks. Goto tags that are used in more
+	 * than one system are made unique before.
+	 */
 	public void eliminateOrdinarySubsystems() {
-		// TODO: implement this
-		PluginLogger.error("Elimination of Subsystems not implemented!");
-//		List<SimulinkBlock> inAndOutports = new LinkedList<SimulinkBlock>();
-//
-//		// collect the subsystem blocks and their input and output ports
-//		for (SimulinkBlock subsystemBlock : ordinarySubsystems) {
-//			for (SimulinkLine inputLine : subsystemBlock.getInLines()) {
-//				if (inputLine.getDstPort().getBlock().getType().equals("Inport")) {
-//					inAndOutports.add(inputLine.getDstPort().getBlock());
-//				}
-//			}
-//			for (SimulinkLine outputLine : subsystemBlock.getOutLines()) {
-//				if (outputLine.getSrcPort().getBlock().getType().equals("Outport")) {
-//					inAndOutports.add(outputLine.getSrcPort().getBlock());
-//				}
-//			}
-//		}
-//
-//		// remove all subsystem input and output ports
-//		for (SimulinkBlock port : inAndOutports) {
-//			eliminateOneIOPort(port);
-//		}
-//
-//		// update the parent reference of inner blocks
-//		// and update the name of the block
-//		for (SimulinkBlock ordinarySubsystem : ordinarySubsystems) {
-//			for (SimulinkBlock child : simulinkModel.getBlocks()) {
-//				if (child.getParent() != null && child.getParent().equals(ordinarySubsystem)) {
-//					// update name
-//					child.setName(ordinarySubsystem.getName() + child.getName());
-//					// update parent and level
-//					child.setParent(ordinarySubsystem.getParent());
-//					child.setLevel(child.getLevel() - 1);
-//				}
-//			}
-//		}
-//
-//		// SignalLines need not be level-changed
-//
-//		// remove the subsystem blocks from the system
-//		Set<SimulinkBlock> newBlocks = simulinkModel.getBlocks();
-//		newBlocks.removeAll(ordinarySubsystems);
-//		simulinkModel.setBlocks(newBlocks);
-	}
-
-//	/**
-//	 * Checks whether the given subsystem block is a service.
-//	 * 
-//	 * @param block
-//	 * @return
-//	 */
-//	private boolean isServiceSubsystem(SimulinkBlock block) {
-//		// TODO this is only a temporary solution
-//		// currently subsystems with a name that begins with a specified prefix
-//		// are handled as service subsystems
-//		for (String prefix : serviceSubsystemPrefixes) {
-//			if (block.getName() != null & block.getName().startsWith(prefix)) {
-//				return true;
-//			}
-//		}
-//
-//		return this.contractIds.contains(block.getName());
-//	}
+		if (!ordinarySubsystems.isEmpty()) {
+			makeGotoTagsUnique();
+		}
+
+		for (SimulinkBlock subsystem : ordinarySubsystems) {
+			eliminateSubsystem(subsystem);
+		}
+
+		PluginLogger.info("Flattened " + ordinarySubsystems.size() + " subsystems.");
+	}
+
+	/**
+	 * Gives local and scoped Goto blocks whose tag is used by other Goto blocks as
+	 * well a unique, global tag and updates the From blocks that read from them.
+	 * After flattening, the systems that contain the blocks no longer describe
+	 * the visibility of the tags, so the same tag could otherwise connect From
+	 * blocks to the wrong Goto block.
+	 */
+	private void makeGotoTagsUnique() {
+		GotoTagResolver resolver = new GotoTagResolver(simulinkModel);
+		Set<String> usedTags = new HashSet<String>();
+		Map<SimulinkBlock, List<SimulinkBlock>> fromBlocks = new LinkedHashMap<SimulinkBlock, List<SimulinkBlock>>();
+		for (SimulinkBlock block : SimulinkUtils.listBlocksDepthFirst(simulinkModel)) {
+			String tag = GotoTagResolver.getTag(block);
+			if (tag == null) {
+				continue;
+			}
+			usedTags.add(tag);
+			if (SimulinkConstants.TYPE_GOTO.equals(block.getType()) && !fromBlocks.containsKey(block)) {
+				fromBlocks.put(block, new LinkedList<SimulinkBlock>());
+			} else if (SimulinkConstants.TYPE_FROM.equals(block.getType())) {
+				SimulinkBlock gotoBlock = resolver.getGotoBlock(block);
+				if (gotoBlock == null) {
+					continue;
+				}
+				if (!fromBlocks.containsKey(gotoBlock)) {
+					fromBlocks.put(gotoBlock, new LinkedList<SimulinkBlock>());
+				}
+				fromBlocks.get(gotoBlock).add(block);
+			}
+		}
+
+		for (Map.Entry<SimulinkBlock, List<SimulinkBlock>> entry : fromBlocks.entrySet()) {
+			SimulinkBlock gotoBlock = entry.getKey();
+			String tag = GotoTagResolver.getTag(gotoBlock);
+			if (GotoTagResolver.VISIBILITY_GLOBAL.equals(GotoTagResolver.getVisibility(gotoBlock))
+					|| resolver.getGotoBlocks(tag).size() < 2) {
+				continue;
+			}
+
+			String uniqueTag = tag;
+			for (int counter = 1; usedTags.contains(uniqueTag); counter++) {
+				uniqueTag = tag + "_" + counter;
+			}
+			usedTags.add(uniqueTag);
+
+			gotoBlock.setParameter(SimulinkConstants.PARAM_GOTO_TAG, uniqueTag);
+			gotoBlock.setParameter(GotoTagResolver.PARAM_TAG_VISIBILITY, GotoTagResolver.VISIBILITY_GLOBAL);
+			for (SimulinkBlock fromBlock : entry.getValue()) {
+				fromBlock.setParameter(SimulinkConstants.PARAM_GOTO_TAG, uniqueTag);
+			}
+		}
+	}
+
+	private void eliminateSubsystem(SimulinkBlock subsystem) {
+		SimulinkBlock parent = subsystem.getParent();
+		substituteMaskValues(subsystem);
+
+		// collect the connections that replace the subsystem ports
+		List<SimulinkOutPort> newSources = new ArrayList<SimulinkOutPort>();
+		List<SimulinkInPort> newDestinations = new ArrayList<SimulinkInPort>();
+
+		for (SimulinkLine line : subsystem.getContainedLines()) {
+			SimulinkOutPort srcPort = line.getSrcPort();
+			SimulinkInPort dstPort = line.getDstPort();
+			if (srcPort == null || dstPort == null) {
+				continue;
+			}
+
+			// the source of an Inport block is the source of the subsystem port
+			if (isPortBlock(srcPort.getBlock(), SimulinkConstants.TYPE_INPORT)) {
+				srcPort = getOuterSource(subsystem, srcPort.getBlock());
+				if (srcPort == null) {
+					continue;
+				}
+			}
+
+			// the destinations of an Outport block are the destinations of the
+			// subsystem port
+			if (isPortBlock(dstPort.getBlock(), SimulinkConstants.TYPE_OUTPORT)) {
+				for (SimulinkInPort outerDestination : getOuterDestinations(subsystem, dstPort.getBlock())) {
+					newSources.add(srcPort);
+					newDestinations.add(outerDestination);
+				}
+				continue;
+			}
+
+			newSources.add(srcPort);
+			newDestinations.add(dstPort);
+		}
+
+		// remove all lines that are connected to the subsystem or inside of it
+		List<SimulinkLine> oldLines = new ArrayList<SimulinkLine>(subsystem.getContainedLines());
+		oldLines.addAll(subsystem.getInLines());
+		oldLines.addAll(subsystem.getOutLines());
+		for (SimulinkLine line : oldLines) {
+			line.remove();
+		}
+
+		// move inner blocks to the parent and update their names
+		for (SimulinkBlock child : new ArrayList<SimulinkBlock>(subsystem.getSubBlocks())) {
+			if (isPortBlock(child, SimulinkConstants.TYPE_INPORT) || isPortBlock(child, SimulinkConstants.TYPE_OUTPORT)) {
+				continue;
+			}
+			child.detach();
+			child.setParameter(SimulinkConstants.PARAM_NAME, createUniqueName(parent, subsystem.getName() + child.getName()));
+			parent.addSubBlock(child);
+		}
+
+		// remove the subsystem block with the remaining Inport and Outport blocks
+		subsystem.remove();
+
+		for (int i = 0; i < newSources.size(); i++) {
+			new SimulinkLine(newSources.get(i), newDestinations.get(i), parent);
+		}
+	}
+
+	private String createUniqueName(SimulinkBlock parent, String name) {
+		String uniqueName = name;
+		int counter = 1;
+		while (parent.getSubBlock(uniqueName) != null) {
+			uniqueName = name + counter;
+			counter++;
+		}
+		return uniqueName;
+	}
+
+	/**
+	 * Returns the source port of the signal connected to the subsystem port that
+	 * belongs to the given Inport block.
+	 */
+	private SimulinkOutPort getOuterSource(SimulinkBlock subsystem, SimulinkBlock inportBlock) {
+		SimulinkInPort subsystemPort = subsystem.getInPort(getPortNumber(inportBlock));
+		if (subsystemPort == null || subsystemPort.getLine() == null) {
+			PluginLogger.warning("Input port " + getPortNumber(inportBlock) + " of subsystem " + subsystem.getName()
+					+ " is not connected.");
+			return null;
+		}
+		return subsystemPort.getLine().getSrcPort();
+	}
+
+	/**
+	 * Returns the destination ports of the signals connected to the subsystem port
+	 * that belongs to the given Outport block.
+	 */
+	private List<SimulinkInPort> getOuterDestinations(SimulinkBlock subsystem, SimulinkBlock outportBlock) {
+		List<SimulinkInPort> destinations = new LinkedList<SimulinkInPort>();
+		SimulinkOutPort subsystemPort = subsystem.getOutPort(getPortNumber(outportBlock));
+		if (subsystemPort == null) {
+			return destinations;
+		}
+		for (SimulinkLine line : subsystemPort.getLines()) {
+			destinations.add(line.getDstPort());
+		}
+		return destinations;
+	}
+
+	private static String getPortNumber(SimulinkBlock portBlock) {
+		String portNumber = portBlock.getParameter(SimulinkConstants.PARAM_PORT);
+		if (portNumber == null || portNumber.isEmpty()) {
+			return "1";
+		}
+		return portNumber;
+	}
+
+	private static boolean isPortBlock(SimulinkBlock block, String type) {
+		return type.equals(block.getType());
+	}
 
 	/**
-	 * Remove all inner blocks of a subsystem.
+	 * Remove all inner blocks of a service subsystem. Services are transformed
+	 * according to their contracts, so the inner blocks are not needed.
 	 */
 	public void removeBlocksInsideServiceSystem() {
-		// TODO: implement this
-		PluginLogger.error("Elimination of Subsystems not implemented!");
-
-//		for (SimulinkBlock serviceSubsystem : serviceSubsystems) {
-//			List<SimulinkBlock> childList = getInnerBlocks(serviceSubsystem);
-//
-//			for (SimulinkBlock child : childList) {
-//				// if the block is an input or output of the subsystem, redirect
-//				// the incoming or outgoing signal line
-//				if (child.getType().equals("Inport") && child.getParent().equals(serviceSubsystem)) {
-//					// get subsystem input port
-//					String portString = child.getParameter("Port");
-//					Integer portNumber;
-//					portNumber = Integer.parseInt(portString);
-//
-//					HashMap<Integer, Port> inPortMap = serviceSubsystem.getInPortsMap();
-//					Port inPort = inPortMap.get(portNumber);
-//
-//					SimulinkLine inputLine = child.getInLines().iterator().next();
-//
-//					// update input line
-//					inputLine.setDstBlock(serviceSubsystem);
-//					inputLine.setDstPort(inPort);
-//
-//					// update the name of the service input
-//					inPort.setName(child.getName());
-//
-//					// update the block
-//					child.setInSignals(new HashSet<SignalLine>());
-//				} else if (child.getType().equals("Outport") && child.getParent().equals(serviceSubsystem)) {
-//					// get subsystem output port
-//					String portString = child.getParameter("Port");
-//					Integer portNumber;
-//					if (portString != null) {
-//						portNumber = Integer.parseInt(portString);
-//					} else {
-//						portNumber = 1;
-//					}
-//					HashMap<Integer, Port> outPortMap = serviceSubsystem.getOutPortsMap();
-//					Port outPort = outPortMap.get(portNumber);
-//
-//					// update all outgoing signal lines
-//					for (SignalLine outputLine : child.getOutSignals()) {
-//						// update output line
-//						outputLine.setSrcBlock(serviceSubsystem);
-//						outputLine.setSrcPort(outPort);
-//					}
-//					// update the name of the service ouput
-//					outPort.setName(child.getName());
-//
-//					// update the block
-//					child.setOutSignals(new HashSet<SignalLine>());
-//				}
-//				removeBlock(child);
-//			}
-//		}
-	}
-
-//	private List<Block> getInnerBlocks(Block outerBlock) {
-//		List<Block> innerBlocks = new LinkedList<Block>();
-//
-//		for (Block block : simulinkModel.getBlocks()) {
-//			if (!(block.getParent() != null && block.getParent().equals(outerBlock))) {
-//				continue;
-//			}
-//
-//			// add the block
-//			innerBlocks.add(block);
-//
-//			// if the block is a subsystem, also add all of its inner blocks
-//			if (block.getType().equals("SubSystem")) {
-//				innerBlocks.addAll(getInnerBlocks(block));
-//			}
-//		}
-//
-//		return innerBlocks;
-//	}
-//
-//	/**
-//	 * Checks whether the <code>Block</code> is a SubSystem without trigger, enable,
-//	 * IfAction or state ports.
-//	 * 
-//	 * @param block
-//	 * @return
-//	 */
-//	private boolean isOrdinarySubsystem(SimulinkBlock block) {
-//		return block.getType().equals("SubSystem") && block.getEnablePort() == null && block.getTriggerPort() == null
-//				&& block.getIfactionPort() == null && block.getStatePort() == null;
-//	}
-//
-//	private void eliminateOneIOPort(Block toRemove) {
-//		// change pointers to represent new structure
-//		Set<SignalLine> newOutSignals = new HashSet<SignalLine>();
-//
-//		// wire outgoing signal lines back to source of this port
-//		// get source block
-//		SignalLine inLine = toRemove.getInSignals().iterator().next();
-//		Block newSource = inLine.getSrcBlock();
-//		Port srcOutPort = inLine.getSrcPort();
-//		// get outgoing lines
-//		for (SignalLine line : toRemove.getOutSignals()) {
-//			// update source block and port
-//			line.setSrcBlock(newSource);
-//			line.setSrcPort(srcOutPort);
-//			newOutSignals.add(line);
-//		}
-//		// update outgoing signals for the source block
-//		for (SignalLine sourceOutSignals : newSource.getOutSignals()) {
-//			// add all remaining output signal lines
-//			if (!sourceOutSignals.getDstBlock().equals(toRemove)) {
-//				newOutSignals.add(sourceOutSignals);
-//			}
-//		}
-//		newSource.setOutSignals(newOutSignals);
-//
-//		// housekeeping
-//		removeSingleBlock(toRemove);
-//		removeLine(inLine);
-//	}
-//
-//	private void removeBlock(Block toRemove) {
-//		for (SignalLine inSignal : toRemove.getInSignals()) {
-//			removeLine(inSignal);
-//		}
-//		for (SignalLine outSignal : toRemove.getOutSignals()) {
-//			removeLine(outSignal);
-//		}
-//		removeSingleBlock(toRemove);
-//	}
-//
-//	private void removeSingleBlock(Block toRemove) {
-//		Set<Block> blocks = simulinkModel.getBlocks();
-//		blocks.remove(toRemove);
-//		simulinkModel.setBlocks(blocks);
-//	}
-//
-//	private void removeLine(SignalLine line) {
-//		Set<SignalLine> lines = simulinkModel.getSignalLines();
-//		lines.remove(line);
-//		simulinkModel.setSignalLines(lines);
-//	}
+		for (SimulinkBlock serviceSubsystem : serviceSubsystems) {
+			for (SimulinkLine line : new ArrayList<SimulinkLine>(serviceSubsystem.getContainedLines())) {
+				line.remove();
+			}
+			for (SimulinkBlock child : new ArrayList<SimulinkBlock>(serviceSubsystem.getSubBlocks())) {
+				child.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the parameters of the given block in a canonical order. Parameters
+	 * that only describe the layout of the block are ignored.
+	 */
+	public String getParameterSignature(SimulinkBlock block) {
+		StringBuilder signature = new StringBuilder();
+		appendParameters(block, signature);
+		return signature.toString();
+	}
+
+	public List<SimulinkBlock> getServiceSubsystems() {
+		return serviceSubsystems;
+	}
+
+	/**
+	 * Checks whether the given block is a subsystem with inner blocks.
+	 */
+	private boolean isSubsystem(SimulinkBlock block) {
+		if (!block.hasSubBlocks()) {
+			return false;
+		}
+		return SimulinkConstants.SUBSYSTEM.equals(block.getType())
+				|| SimulinkConstants.TYPE_REFERENCE.equals(block.getType());
+	}
+
+	/**
+	 * Checks whether the given subsystem block is a service.
+	 * 
+	 * @see ServiceNames#isService(String, java.util.Collection)
+	 */
+	private boolean isServiceSubsystem(SimulinkBlock block) {
+		return ServiceNames.isService(block.getName(), contractIds);
+	}
+
+	/**
+	 * Checks whether the given subsystem block can be flattened without changing
+	 * the semantics of the model.
+	 * 
+	 * @param block
+	 * @return
+	 */
+	private boolean isOrdinarySubsystem(SimulinkBlock block) {
+		String stateflowType = block.getParameter(SimulinkConstants.PARAM_SF_BLOCK_TYPE);
+		if (stateflowType != null && !stateflowType.equals("NONE")) {
+			PluginLogger.warning("Stateflow block " + block.getName() + " is not flattened.");
+			return false;
+		}
+		for (SimulinkBlock child : block.getSubBlocks()) {
+			if (controlPortTypes.contains(child.getType())) {
+				PluginLogger.warning("Conditional subsystem " + block.getName() + " is not flattened.");
+				return false;
+			}
+		}
+		if (hasMaskInitialization(getMaskDefinition(block))) {
+			PluginLogger.warning("Masked subsystem " + block.getName() + " has initialization code and is not flattened.");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the block that defines the mask of the given block. This is the
+	 * library block for inlined library links and the block itself otherwise.
+	 */
+	private SimulinkBlock getMaskDefinition(SimulinkBlock block) {
+		SimulinkBlock definition = maskDefinitions.get(block);
+		if (definition == null) {
+			return block;
+		}
+		return definition;
+	}
+
+	private static boolean hasMaskInitialization(SimulinkBlock block) {
+		if (!isEmpty(block.getParameter(SimulinkConstants.PARAM_MASK_INITIALIZATION))) {
+			return true;
+		}
+		SimulinkObject mask = SimulinkUtils.findObjectByClass(block, SimulinkConstants.PARAM_SIMULINK_MASK);
+		return mask != null && !isEmpty(mask.getParameter(SimulinkConstants.PARAM_INITIALIZATION));
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+	/**
+	 * Replaces the mask parameters of the given subsystem by their values in the
+	 * parameters of all inner blocks. The inner blocks are moved out of the scope
+	 * of the mask, so instances with different mask values would otherwise be
+	 * flattened to identical blocks.
+	 */
+	private void substituteMaskValues(SimulinkBlock subsystem) {
+		Map<String, String> values = getMaskValues(subsystem);
+		if (values.isEmpty()) {
+			return;
+		}
+		for (SimulinkBlock child : subsystem.getSubBlocks()) {
+			substituteMaskValues(child, values);
+		}
+	}
+
+	private void substituteMaskValues(SimulinkBlock block, Map<String, String> values) {
+		for (String parameterName : new ArrayList<String>(block.getParameterNames())) {
+			// the definition of a nested mask is no expression, only its values are
+			if (nonExpressionParameters.contains(parameterName) || parameterName.startsWith("System.")
+					|| (parameterName.startsWith("Mask")
+							&& !parameterName.equals(SimulinkConstants.PARAM_MASK_VALUE_STRING))) {
+				continue;
+			}
+			String value = block.getParameter(parameterName);
+			String substituted = substituteMaskValues(value, values);
+			if (!substituted.equals(value)) {
+				block.setParameter(parameterName, substituted);
+			}
+		}
+
+		SimulinkObject mask = SimulinkUtils.findObjectByClass(block, SimulinkConstants.PARAM_SIMULINK_MASK);
+		if (mask != null) {
+			for (SimulinkObject parameter : mask.getObjects()) {
+				String value = parameter.getParameter(SimulinkConstants.PARAM_VALUE);
+				if (isMaskParameter(parameter) && value != null) {
+					parameter.setParameter(SimulinkConstants.PARAM_VALUE, substituteMaskValues(value, values));
+				}
+			}
+		}
+
+		if (!block.hasSubBlocks()) {
+			return;
+		}
+		// the parameters of a nested mask hide the parameters with the same name
+		Map<String, String> innerValues = values;
+		Map<String, String> nestedValues = getMaskValues(block);
+		if (!nestedValues.isEmpty()) {
+			innerValues = new HashMap<String, String>(values);
+			innerValues.keySet().removeAll(nestedValues.keySet());
+		}
+		for (SimulinkBlock child : block.getSubBlocks()) {
+			substituteMaskValues(child, innerValues);
+		}
+	}
+
+	/**
+	 * Replaces the identifiers in the given parameter value that are mask
+	 * parameters by their values. Identifiers in strings are not replaced.
+	 */
+	private static String substituteMaskValues(String parameterValue, Map<String, String> values) {
+		Matcher matcher = IDENTIFIER_PATTERN.matcher(parameterValue);
+		StringBuffer result = new StringBuffer();
+		while (matcher.find()) {
+			String value = values.get(matcher.group());
+			if (value != null && !isInString(parameterValue, matcher.start())) {
+				matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+			}
+		}
+		matcher.appendTail(result);
+		return result.toString();
+	}
+
+	/**
+	 * Checks whether the given position of a parameter value is inside of a
+	 * string. A quote after an identifier or a closing bracket is a transpose.
+	 */
+	private static boolean isInString(String parameterValue, int position) {
+		boolean inString = false;
+		for (int i = 0; i < position; i++) {
+			if (parameterValue.charAt(i) != '\'') {
+				continue;
+			}
+			if (inString || i == 0 || !isTransposable(parameterValue.charAt(i - 1))) {
+				inString = !inString;
+			}
+		}
+		return inString;
+	}
+
+	private static boolean isTransposable(char previous) {
+		return Character.isLetterOrDigit(previous) || previous == '_' || previous == ')' || previous == ']'
+				|| previous == '}' || previous == '.';
+	}
+
+	/**
+	 * Returns the values of the mask parameters of the given block by parameter
+	 * name. The values are expressions that can replace the parameter names in
+	 * the parameters of inner blocks. The mask of an inlined library link is
+	 * defined by the library block, values that are set in the link replace the
+	 * values of the library block.
+	 */
+	private Map<String, String> getMaskValues(SimulinkBlock block) {
+		SimulinkBlock definition = getMaskDefinition(block);
+		Map<String, String> values = new HashMap<String, String>();
+
+		// masks of newer models are objects with one object per parameter
+		SimulinkObject mask = SimulinkUtils.findObjectByClass(definition, SimulinkConstants.PARAM_SIMULINK_MASK);
+		if (mask != null) {
+			for (SimulinkObject parameter : mask.getObjects()) {
+				String name = parameter.getParameter(SimulinkConstants.PARAM_NAME);
+				if (!isMaskParameter(parameter) || name == null) {
+					continue;
+				}
+				boolean evaluated = !"off".equals(parameter.getParameter(SimulinkConstants.PARAM_EVALUATE));
+				putMaskValue(values, name, getInstanceValue(block, definition, name,
+						parameter.getParameter(SimulinkConstants.PARAM_VALUE)), evaluated);
+			}
+		}
+
+		// older models store the names and the values in two parameters
+		String variables = definition.getParameter(SimulinkConstants.PARAM_MASK_VARIABLES);
+		String valueString = block.getParameter(SimulinkConstants.PARAM_MASK_VALUE_STRING);
+		if (valueString == null) {
+			valueString = definition.getParameter(SimulinkConstants.PARAM_MASK_VALUE_STRING);
+		}
+		if (variables != null && valueString != null) {
+			String[] maskValues = valueString.split("\\|", -1);
+			for (String variable : variables.split(";")) {
+				Matcher matcher = MASK_VARIABLE_PATTERN.matcher(variable.trim());
+				int index = matcher.matches() ? Integer.parseInt(matcher.group(3)) - 1 : -1;
+				if (index >= 0 && index < maskValues.length) {
+					String name = matcher.group(1);
+					putMaskValue(values, name, getInstanceValue(block, definition, name, maskValues[index]),
+							matcher.group(2).equals("@"));
+				}
+			}
+		}
+		return values;
+	}
+
+	private static boolean isMaskParameter(SimulinkObject object) {
+		return SimulinkConstants.PARAM_SIMULINK_MASK_PARAMETER.equals(object.getParameter(SimulinkConstants.PARAM_CLASS_NAME))
+				|| SimulinkConstants.PARAM_SIMULINK_MASK_PARAMETER
+						.equals(object.getParameter(SimulinkConstants.PARAM_$CLASS_NAME));
+	}
+
+	/**
+	 * Returns the value of a mask parameter that is set in an inlined library
+	 * link, or the given value of the library block if the link does not set it.
+	 */
+	private static String getInstanceValue(SimulinkBlock block, SimulinkBlock definition, String name,
+			String definitionValue) {
+		if (block != definition && block.getParameter(name) != null) {
+			return block.getParameter(name);
+		}
+		return definitionValue;
+	}
+
+	private static void putMaskValue(Map<String, String> values, String name, String value, boolean evaluated) {
+		if (value == null) {
+			return;
+		}
+		value = value.trim();
+		if (!evaluated) {
+			values.put(name, "'" + value.replace("'", "''") + "'");
+		} else if (SIMPLE_VALUE_PATTERN.matcher(value).matches()) {
+			values.put(name, value);
+		} else {
+			values.put(name, "(" + value + ")");
+		}
+	}
+
+	private void appendParameters(SimulinkBlock block, StringBuilder signature) {
+		List<String> parameterNames = new ArrayList<String>(block.getParameterNames());
+		Collections.sort(parameterNames);
+		for (String parameterName : parameterNames) {
+			// parameters of the system section describe the editor window
+			if (layoutParameters.contains(parameterName) || parameterName.startsWith("System.")) {
+				continue;
+			}
+			signature.append(parameterName).append('=').append(block.getParameter(parameterName)).append(';');
+		}
+	}
 
 }